@@ -0,0 +1,73 @@
+package io.dropwizard.metrics.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.dropwizard.metrics.Clock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of reading the default and the coarse clocks. {@link #main(String[])} also
+ * samples how far behind the coarse clock's tick lags.
+ */
+@State(Scope.Benchmark)
+public class ClockBenchmark {
+
+    private final Clock userTime = Clock.defaultClock();
+    private final Clock coarse = Clock.coarseClock();
+
+    @Benchmark
+    public long perfUserTimeClockTick() {
+        return userTime.getTick();
+    }
+
+    @Benchmark
+    public long perfCoarseClockTick() {
+        return coarse.getTick();
+    }
+
+    @Benchmark
+    public long perfUserTimeClockTime() {
+        return userTime.getTime();
+    }
+
+    @Benchmark
+    public long perfCoarseClockTime() {
+        return coarse.getTime();
+    }
+
+    public static void main(String[] args) throws RunnerException, InterruptedException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + ClockBenchmark.class.getSimpleName() + ".*")
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .threads(4)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+
+        printError(Clock.coarseClock());
+    }
+
+    private static void printError(Clock clock) throws InterruptedException {
+        final int samples = 10000;
+        long total = 0;
+        long max = 0;
+        for (int i = 0; i < samples; i++) {
+            final long error = System.nanoTime() - clock.getTick();
+            total += error;
+            max = Math.max(max, error);
+            TimeUnit.MICROSECONDS.sleep(97);
+        }
+        System.out.printf("coarse clock tick error: mean %d us, max %d us%n",
+                TimeUnit.NANOSECONDS.toMicros(total / samples), TimeUnit.NANOSECONDS.toMicros(max));
+    }
+
+}
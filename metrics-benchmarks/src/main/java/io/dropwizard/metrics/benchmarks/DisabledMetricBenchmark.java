@@ -0,0 +1,90 @@
+package io.dropwizard.metrics.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.dropwizard.metrics.CompiledMetricFilter;
+import io.dropwizard.metrics.Counter;
+import io.dropwizard.metrics.Histogram;
+import io.dropwizard.metrics.MetricRegistry;
+import io.dropwizard.metrics.Timer;
+
+/**
+ * Compares updating enabled metrics with updating metrics a registry has disabled, which only
+ * check a flag.
+ */
+@State(Scope.Benchmark)
+public class DisabledMetricBenchmark {
+
+    private final MetricRegistry registry = new MetricRegistry();
+    private final Counter enabledCounter = registry.counter("enabled.counter");
+    private final Counter disabledCounter = registry.counter("disabled.counter");
+    private final Histogram enabledHistogram = registry.histogram("enabled.histogram");
+    private final Histogram disabledHistogram = registry.histogram("disabled.histogram");
+    private final Timer enabledTimer = registry.timer("enabled.timer");
+    private final Timer disabledTimer = registry.timer("disabled.timer");
+
+    // It's intentionally not declared as final to avoid constant folding
+    private long nextValue = 0xFBFBABBA;
+    private long nextDuration = 0x1BFBABBA;
+
+    public DisabledMetricBenchmark() {
+        registry.disable(CompiledMetricFilter.builder().include("disabled").build());
+    }
+
+    @Benchmark
+    public Object perfEnabledCounter() {
+        enabledCounter.inc(nextValue);
+        return enabledCounter;
+    }
+
+    @Benchmark
+    public Object perfDisabledCounter() {
+        disabledCounter.inc(nextValue);
+        return disabledCounter;
+    }
+
+    @Benchmark
+    public Object perfEnabledHistogram() {
+        enabledHistogram.update(nextValue);
+        return enabledHistogram;
+    }
+
+    @Benchmark
+    public Object perfDisabledHistogram() {
+        disabledHistogram.update(nextValue);
+        return disabledHistogram;
+    }
+
+    @Benchmark
+    public Object perfEnabledTimer() {
+        enabledTimer.update(nextDuration, TimeUnit.NANOSECONDS);
+        return enabledTimer;
+    }
+
+    @Benchmark
+    public Object perfDisabledTimer() {
+        disabledTimer.update(nextDuration, TimeUnit.NANOSECONDS);
+        return disabledTimer;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + DisabledMetricBenchmark.class.getSimpleName() + ".*")
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .threads(4)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
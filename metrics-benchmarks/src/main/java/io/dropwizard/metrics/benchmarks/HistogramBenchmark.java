@@ -0,0 +1,65 @@
+package io.dropwizard.metrics.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.dropwizard.metrics.BufferedReservoir;
+import io.dropwizard.metrics.Histogram;
+import io.dropwizard.metrics.SlidingWindowReservoir;
+import io.dropwizard.metrics.UniformReservoir;
+
+@State(Scope.Benchmark)
+public class HistogramBenchmark {
+
+    private final Histogram uniform = new Histogram(new UniformReservoir());
+    private final Histogram bufferedUniform = new Histogram(new BufferedReservoir(new UniformReservoir()));
+    private final Histogram sliding = new Histogram(new SlidingWindowReservoir(1000));
+    private final Histogram bufferedSliding = new Histogram(new BufferedReservoir(new SlidingWindowReservoir(1000)));
+
+    // It's intentionally not declared as final to avoid constant folding
+    private long nextValue = 0xFBFBABBA;
+
+    @Benchmark
+    public Object perfUniformReservoir() {
+        uniform.update(nextValue);
+        return uniform;
+    }
+
+    @Benchmark
+    public Object perfBufferedUniformReservoir() {
+        bufferedUniform.update(nextValue);
+        return bufferedUniform;
+    }
+
+    @Benchmark
+    public Object perfSlidingWindowReservoir() {
+        sliding.update(nextValue);
+        return sliding;
+    }
+
+    @Benchmark
+    public Object perfBufferedSlidingWindowReservoir() {
+        bufferedSliding.update(nextValue);
+        return bufferedSliding;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads = 1; threads <= 64; threads *= 4) {
+            Options opt = new OptionsBuilder()
+                    .include(".*" + HistogramBenchmark.class.getSimpleName() + ".*")
+                    .warmupIterations(3)
+                    .measurementIterations(5)
+                    .threads(threads)
+                    .forks(1)
+                    .build();
+
+            new Runner(opt).run();
+        }
+    }
+
+}
@@ -8,15 +8,24 @@ import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
+import io.dropwizard.metrics.Clock;
+import io.dropwizard.metrics.LockFreeExponentiallyDecayingReservoir;
 import io.dropwizard.metrics.Meter;
+import io.dropwizard.metrics.Timer;
+
+import java.util.concurrent.TimeUnit;
 
 @State(Scope.Benchmark)
 public class MeterBenchmark {
 
     private final Meter meter = new Meter();
+    private final Meter lazyMeter = new Meter(Clock.defaultClock(), true);
+    private final Timer timer = new Timer();
+    private final Timer lazyTimer = new Timer(new LockFreeExponentiallyDecayingReservoir(), Clock.defaultClock(), true);
 
     // It's intentionally not declared as final to avoid constant folding
     private long nextValue = 0xFBFBABBA;
+    private long nextDuration = 123456789L;
 
     @Benchmark
     public Object perfMark() {
@@ -24,6 +33,24 @@ public class MeterBenchmark {
         return meter;
     }
 
+    @Benchmark
+    public Object perfMarkLazyRates() {
+        lazyMeter.mark(nextValue);
+        return lazyMeter;
+    }
+
+    @Benchmark
+    public Object perfTimerUpdate() {
+        timer.update(nextDuration, TimeUnit.NANOSECONDS);
+        return timer;
+    }
+
+    @Benchmark
+    public Object perfTimerUpdateLazyRates() {
+        lazyTimer.update(nextDuration, TimeUnit.NANOSECONDS);
+        return lazyTimer;
+    }
+
     public static void main(String[] args) throws RunnerException {
         Options opt = new OptionsBuilder()
                 .include(".*" + MeterBenchmark.class.getSimpleName() + ".*")
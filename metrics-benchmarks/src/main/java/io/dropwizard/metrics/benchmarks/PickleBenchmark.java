@@ -0,0 +1,197 @@
+package io.dropwizard.metrics.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.dropwizard.metrics.graphite.PickledGraphite;
+
+import javax.net.SocketFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Compares pickling a batch of metrics with {@link PickledGraphite}, which pickles them with
+ * protocol 2 straight into a reused buffer, against the protocol 0 text pickler it used to have.
+ * {@link #main(String[])} prints the size of the pickled batch with each.
+ */
+@State(Scope.Benchmark)
+public class PickleBenchmark {
+    private static final int BATCH_SIZE = 100;
+
+    private final CountingOutputStream output = new CountingOutputStream();
+    private final String[] names = new String[BATCH_SIZE];
+    private final String[] values = new String[BATCH_SIZE];
+    private final long timestamp = 1445000000L;
+    private PickledGraphite graphite;
+
+    @Setup
+    public void setUp() throws IOException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            names[i] = "web" + (i % 4) + ".example.com.com.example.service.Resource" + i + ".requests.p99";
+            values[i] = String.format("%2.2f", i * 1.37);
+        }
+        graphite = new PickledGraphite(new InetSocketAddress(InetAddress.getLoopbackAddress(), 2004),
+                new DiscardingSocketFactory(output), BATCH_SIZE);
+        graphite.connect();
+    }
+
+    @Benchmark
+    public Object perfProtocol2() throws IOException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            graphite.send(names[i], values[i], timestamp);
+        }
+        graphite.flush();
+        return output;
+    }
+
+    @Benchmark
+    public Object perfProtocol0() throws IOException {
+        final List<Protocol0.MetricTuple> metrics = new ArrayList<Protocol0.MetricTuple>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            metrics.add(new Protocol0.MetricTuple(Protocol0.sanitize(names[i]), timestamp,
+                    Protocol0.sanitize(values[i])));
+        }
+        final byte[] payload = Protocol0.pickleMetrics(metrics);
+        output.write(ByteBuffer.allocate(4).putInt(payload.length).array());
+        output.write(payload);
+        return output;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final PickleBenchmark benchmark = new PickleBenchmark();
+        benchmark.setUp();
+        benchmark.perfProtocol0();
+        final long protocol0 = benchmark.output.reset();
+        benchmark.perfProtocol2();
+        final long protocol2 = benchmark.output.reset();
+        System.out.printf("Bytes per batch of %d metrics: protocol 0: %d, protocol 2: %d%n",
+                BATCH_SIZE, protocol0, protocol2);
+
+        Options opt = new OptionsBuilder()
+                .include(".*" + PickleBenchmark.class.getSimpleName() + ".*")
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .threads(1)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    /**
+     * The protocol 0 text pickler {@link PickledGraphite} used to have.
+     */
+    private static final class Protocol0 {
+        private static final Pattern WHITESPACE = Pattern.compile("[\\s]+");
+        private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+        static String sanitize(String s) {
+            return WHITESPACE.matcher(s).replaceAll("-");
+        }
+
+        static byte[] pickleMetrics(List<MetricTuple> metrics) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(metrics.size() * 75);
+            Writer pickled = new OutputStreamWriter(out, UTF_8);
+            pickled.append('(').append('l');
+            for (MetricTuple tuple : metrics) {
+                pickled.append('(');
+                pickled.append('S').append('\'').append(tuple.name).append('\'').append('\n');
+                pickled.append('(');
+                pickled.append('L').append(Long.toString(tuple.timestamp)).append('L').append('\n');
+                pickled.append('S').append('\'').append(tuple.value).append('\'').append('\n');
+                pickled.append('t').append('t').append('a');
+            }
+            pickled.append('.');
+            pickled.flush();
+            return out.toByteArray();
+        }
+
+        static final class MetricTuple {
+            final String name;
+            final long timestamp;
+            final String value;
+
+            MetricTuple(String name, long timestamp, String value) {
+                this.name = name;
+                this.timestamp = timestamp;
+                this.value = value;
+            }
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        long reset() {
+            final long written = count;
+            count = 0;
+            return written;
+        }
+    }
+
+    private static final class DiscardingSocketFactory extends SocketFactory {
+        private final OutputStream output;
+
+        private DiscardingSocketFactory(OutputStream output) {
+            this.output = output;
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) {
+            return new Socket() {
+                @Override
+                public OutputStream getOutputStream() {
+                    return output;
+                }
+
+                @Override
+                public boolean isConnected() {
+                    return true;
+                }
+            };
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -8,7 +8,10 @@ import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
+import io.dropwizard.metrics.BucketedSlidingTimeWindowReservoir;
 import io.dropwizard.metrics.ExponentiallyDecayingReservoir;
+import io.dropwizard.metrics.LockFreeExponentiallyDecayingReservoir;
+import io.dropwizard.metrics.LogLinearHistogramReservoir;
 import io.dropwizard.metrics.SlidingTimeWindowReservoir;
 import io.dropwizard.metrics.SlidingWindowReservoir;
 import io.dropwizard.metrics.UniformReservoir;
@@ -20,8 +23,11 @@ public class ReservoirBenchmark {
 
     private final UniformReservoir uniform = new UniformReservoir();
     private final ExponentiallyDecayingReservoir exponential = new ExponentiallyDecayingReservoir();
+    private final LockFreeExponentiallyDecayingReservoir lockFreeExponential = new LockFreeExponentiallyDecayingReservoir();
+    private final LogLinearHistogramReservoir logLinear = new LogLinearHistogramReservoir();
     private final SlidingWindowReservoir sliding = new SlidingWindowReservoir(1000);
     private final SlidingTimeWindowReservoir slidingTime = new SlidingTimeWindowReservoir(1, TimeUnit.SECONDS);
+    private final BucketedSlidingTimeWindowReservoir bucketedSlidingTime = new BucketedSlidingTimeWindowReservoir(1, TimeUnit.SECONDS);
 
     // It's intentionally not declared as final to avoid constant folding
     private long nextValue = 0xFBFBABBA;
@@ -37,6 +43,18 @@ public class ReservoirBenchmark {
         exponential.update(nextValue);
         return exponential;
     }
+
+    @Benchmark
+    public Object perfLockFreeExponentiallyDecayingReservoir() {
+        lockFreeExponential.update(nextValue);
+        return lockFreeExponential;
+    }
+
+    @Benchmark
+    public Object perfLogLinearHistogramReservoir() {
+        logLinear.update(nextValue);
+        return logLinear;
+    }
     
     @Benchmark
     public Object perfSlidingWindowReservoir() {
@@ -50,16 +68,24 @@ public class ReservoirBenchmark {
         return slidingTime;
     }
 
+    @Benchmark
+    public Object perfBucketedSlidingTimeWindowReservoir() {
+        bucketedSlidingTime.update(nextValue);
+        return bucketedSlidingTime;
+    }
+
     public static void main(String[] args) throws RunnerException {
-        Options opt = new OptionsBuilder()
-                .include(".*" + ReservoirBenchmark.class.getSimpleName() + ".*")
-                .warmupIterations(3)
-                .measurementIterations(5)
-                .threads(4)
-                .forks(1)
-                .build();
+        for (int threads = 1; threads <= 64; threads *= 4) {
+            Options opt = new OptionsBuilder()
+                    .include(".*" + ReservoirBenchmark.class.getSimpleName() + ".*")
+                    .warmupIterations(3)
+                    .measurementIterations(5)
+                    .threads(threads)
+                    .forks(1)
+                    .build();
 
-        new Runner(opt).run();
+            new Runner(opt).run();
+        }
     }
     
 }
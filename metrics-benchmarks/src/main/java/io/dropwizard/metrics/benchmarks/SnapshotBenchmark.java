@@ -0,0 +1,97 @@
+package io.dropwizard.metrics.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.dropwizard.metrics.LockFreeExponentiallyDecayingReservoir;
+import io.dropwizard.metrics.Reservoir;
+import io.dropwizard.metrics.Snapshot;
+import io.dropwizard.metrics.UniformReservoir;
+
+import java.util.Random;
+
+/**
+ * Measures the cost of taking a snapshot and reading what a reporter reads from it, either one
+ * quantile at a time or all at once, by reservoir size.
+ */
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+    private static final double[] QUANTILES = { 0.5, 0.75, 0.95, 0.98, 0.99, 0.999 };
+
+    @Param({ "128", "1028", "8192" })
+    private int size;
+
+    private Reservoir uniform;
+    private Reservoir exponential;
+
+    @Setup
+    public void setUp() {
+        uniform = new UniformReservoir(size);
+        exponential = new LockFreeExponentiallyDecayingReservoir(size, 0.015);
+        final Random random = new Random(1);
+        for (int i = 0; i < size * 4; i++) {
+            final long value = (long) Math.abs(random.nextGaussian() * 1000000);
+            uniform.update(value);
+            exponential.update(value);
+        }
+    }
+
+    @Benchmark
+    public void perfUniformSnapshotOneByOne(Blackhole blackhole) {
+        readOneByOne(uniform.getSnapshot(), blackhole);
+    }
+
+    @Benchmark
+    public void perfUniformSnapshotAllAtOnce(Blackhole blackhole) {
+        readAllAtOnce(uniform.getSnapshot(), blackhole);
+    }
+
+    @Benchmark
+    public void perfWeightedSnapshotOneByOne(Blackhole blackhole) {
+        readOneByOne(exponential.getSnapshot(), blackhole);
+    }
+
+    @Benchmark
+    public void perfWeightedSnapshotAllAtOnce(Blackhole blackhole) {
+        readAllAtOnce(exponential.getSnapshot(), blackhole);
+    }
+
+    private static void readOneByOne(Snapshot snapshot, Blackhole blackhole) {
+        readSummary(snapshot, blackhole);
+        for (double quantile : QUANTILES) {
+            blackhole.consume(snapshot.getValue(quantile));
+        }
+    }
+
+    private static void readAllAtOnce(Snapshot snapshot, Blackhole blackhole) {
+        readSummary(snapshot, blackhole);
+        blackhole.consume(snapshot.getValues(QUANTILES));
+    }
+
+    private static void readSummary(Snapshot snapshot, Blackhole blackhole) {
+        blackhole.consume(snapshot.getMin());
+        blackhole.consume(snapshot.getMax());
+        blackhole.consume(snapshot.getMean());
+        blackhole.consume(snapshot.getStdDev());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + SnapshotBenchmark.class.getSimpleName() + ".*")
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -0,0 +1,51 @@
+package io.dropwizard.metrics.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.dropwizard.metrics.Timer;
+
+/**
+ * Compares the ways of timing an event. Run with the GC profiler (as {@link #main(String[])} does)
+ * to see the allocation rate per timed event.
+ */
+@State(Scope.Benchmark)
+public class TimerBenchmark {
+
+    private final Timer timer = new Timer();
+
+    @Benchmark
+    public long perfContext() {
+        return timer.time().stop();
+    }
+
+    @Benchmark
+    public long perfThreadContext() {
+        return timer.threadContext().stop();
+    }
+
+    @Benchmark
+    public long perfStartStop() {
+        return timer.stop(timer.start());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + TimerBenchmark.class.getSimpleName() + ".*")
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .threads(4)
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -0,0 +1,361 @@
+package io.dropwizard.metrics;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link MetricRegistryListener} which hands the events of a registry to another listener on a
+ * background thread, so that registering and removing metrics never waits for a slow listener, such
+ * as one which registers MBeans:
+ * <pre><code>
+ * final AsyncMetricRegistryListener listener = new AsyncMetricRegistryListener(slowListener);
+ * registry.addListener(listener);
+ * </code></pre>
+ * Events are queued and delivered in batches. The events of each name are delivered in the order
+ * they happened, while the events of different names may be delivered out of order. Within a batch,
+ * a metric which was added and removed again is never delivered at all.
+ * <p/>
+ * Exceptions thrown by the other listener are logged and otherwise ignored.
+ */
+public class AsyncMetricRegistryListener implements MetricRegistryListener, Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncMetricRegistryListener.class);
+    private static final int MAX_BATCH = 1024;
+
+    private enum Type {
+        GAUGE, COUNTER, HISTOGRAM, METER, TIMER
+    }
+
+    private final MetricRegistryListener delegate;
+    private final Executor executor;
+    private final boolean ownsExecutor;
+    private final BlockingQueue<Event> queue;
+    private final AtomicBoolean scheduled;
+    private final AtomicLong enqueued;
+    private final Runnable drain;
+    private final Object monitor = new Object();
+    private volatile long dequeued;
+    private volatile boolean closed;
+
+    /**
+     * Creates a new {@link AsyncMetricRegistryListener} which delivers events on a thread of its
+     * own, which only lives while there are events to deliver.
+     *
+     * @param delegate the listener to deliver the events to
+     */
+    public AsyncMetricRegistryListener(MetricRegistryListener delegate) {
+        this(delegate, newExecutor(), true);
+    }
+
+    /**
+     * Creates a new {@link AsyncMetricRegistryListener} which delivers events on the given
+     * executor, one batch at a time.
+     *
+     * @param delegate the listener to deliver the events to
+     * @param executor the executor to deliver the events on
+     */
+    public AsyncMetricRegistryListener(MetricRegistryListener delegate, Executor executor) {
+        this(delegate, executor, false);
+    }
+
+    private AsyncMetricRegistryListener(MetricRegistryListener delegate, Executor executor, boolean ownsExecutor) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.queue = new LinkedBlockingQueue<Event>();
+        this.scheduled = new AtomicBoolean();
+        this.enqueued = new AtomicLong();
+        this.drain = new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        };
+    }
+
+    private static ExecutorService newExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<Runnable>(), new ScheduledReporter.NamedThreadFactory("registry-listener"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Override
+    public void onGaugeAdded(MetricName name, Gauge<?> gauge) {
+        enqueue(new Event(name, Type.GAUGE, gauge));
+    }
+
+    @Override
+    public void onGaugeRemoved(MetricName name) {
+        enqueue(new Event(name, Type.GAUGE, null));
+    }
+
+    @Override
+    public void onCounterAdded(MetricName name, Counter counter) {
+        enqueue(new Event(name, Type.COUNTER, counter));
+    }
+
+    @Override
+    public void onCounterRemoved(MetricName name) {
+        enqueue(new Event(name, Type.COUNTER, null));
+    }
+
+    @Override
+    public void onHistogramAdded(MetricName name, Histogram histogram) {
+        enqueue(new Event(name, Type.HISTOGRAM, histogram));
+    }
+
+    @Override
+    public void onHistogramRemoved(MetricName name) {
+        enqueue(new Event(name, Type.HISTOGRAM, null));
+    }
+
+    @Override
+    public void onMeterAdded(MetricName name, Meter meter) {
+        enqueue(new Event(name, Type.METER, meter));
+    }
+
+    @Override
+    public void onMeterRemoved(MetricName name) {
+        enqueue(new Event(name, Type.METER, null));
+    }
+
+    @Override
+    public void onTimerAdded(MetricName name, Timer timer) {
+        enqueue(new Event(name, Type.TIMER, timer));
+    }
+
+    @Override
+    public void onTimerRemoved(MetricName name) {
+        enqueue(new Event(name, Type.TIMER, null));
+    }
+
+    /**
+     * Returns the number of events which haven't been delivered yet.
+     *
+     * @return the number of pending events
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * Waits until the events which happened before this call have been delivered.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit for {@code timeout}
+     * @return {@code true} if the events have been delivered, {@code false} if the time ran out
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        final long target = enqueued.get();
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (monitor) {
+            while (dequeued < target) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(monitor, remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Delivers the pending events, waiting for up to a second, and shuts down the listener's own
+     * thread.
+     */
+    @Override
+    public void close() {
+        try {
+            flush(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (ownsExecutor) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    /**
+     * Drops the pending events, stops delivering events and shuts down the listener's own thread.
+     * Once this returns, the other listener gets no more events, unless the one it was being handed
+     * took longer than a second.
+     *
+     * @return the number of dropped events
+     */
+    public int closeNow() {
+        closed = true;
+        final List<Event> dropped = new ArrayList<Event>();
+        queue.drainTo(dropped);
+        synchronized (monitor) {
+            dequeued += dropped.size();
+            monitor.notifyAll();
+        }
+        // waits for the batch being delivered, whose remaining events are skipped
+        try {
+            flush(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (ownsExecutor) {
+            ((ExecutorService) executor).shutdown();
+        }
+        return dropped.size();
+    }
+
+    private void enqueue(Event event) {
+        if (closed) {
+            return;
+        }
+        queue.add(event);
+        enqueued.incrementAndGet();
+        schedule();
+    }
+
+    private void schedule() {
+        if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(drain);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                LOG.warn("Could not deliver {} registry events to {}", queue.size(), delegate, e);
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            final List<Event> batch = new ArrayList<Event>();
+            while (queue.drainTo(batch, MAX_BATCH) > 0) {
+                deliver(batch);
+                synchronized (monitor) {
+                    dequeued += batch.size();
+                    monitor.notifyAll();
+                }
+                batch.clear();
+            }
+        } finally {
+            scheduled.set(false);
+            // events may have been queued after the last drain, but before the flag was cleared
+            schedule();
+        }
+    }
+
+    private void deliver(List<Event> batch) {
+        if (batch.size() == 1) {
+            deliver(batch.get(0));
+            return;
+        }
+
+        // the removal of a metric the listener knows of, followed by the latest addition, per name
+        final Map<MetricName, Event[]> pending = new LinkedHashMap<MetricName, Event[]>();
+        for (Event event : batch) {
+            Event[] events = pending.get(event.name);
+            if (events == null) {
+                events = new Event[2];
+                pending.put(event.name, events);
+            }
+            if (event.metric != null) {
+                events[1] = event;
+            } else if (events[1] != null) {
+                // the addition was never delivered, so neither is its removal
+                events[1] = null;
+            } else if (events[0] == null) {
+                events[0] = event;
+            }
+        }
+        for (Event[] events : pending.values()) {
+            if (events[0] != null) {
+                deliver(events[0]);
+            }
+            if (events[1] != null) {
+                deliver(events[1]);
+            }
+        }
+    }
+
+    private void deliver(Event event) {
+        if (closed) {
+            return;
+        }
+        try {
+            event.deliverTo(delegate);
+        } catch (RuntimeException e) {
+            LOG.error("RuntimeException thrown from {} for {}. Exception was suppressed.",
+                    delegate.getClass().getSimpleName(), event.name, e);
+        }
+    }
+
+    /**
+     * The addition of a metric, or its removal if {@code metric} is null.
+     */
+    private static final class Event {
+        private final MetricName name;
+        private final Type type;
+        private final Metric metric;
+
+        private Event(MetricName name, Type type, Metric metric) {
+            this.name = name;
+            this.type = type;
+            this.metric = metric;
+        }
+
+        void deliverTo(MetricRegistryListener listener) {
+            switch (type) {
+                case GAUGE:
+                    if (metric != null) {
+                        listener.onGaugeAdded(name, (Gauge<?>) metric);
+                    } else {
+                        listener.onGaugeRemoved(name);
+                    }
+                    break;
+                case COUNTER:
+                    if (metric != null) {
+                        listener.onCounterAdded(name, (Counter) metric);
+                    } else {
+                        listener.onCounterRemoved(name);
+                    }
+                    break;
+                case HISTOGRAM:
+                    if (metric != null) {
+                        listener.onHistogramAdded(name, (Histogram) metric);
+                    } else {
+                        listener.onHistogramRemoved(name);
+                    }
+                    break;
+                case METER:
+                    if (metric != null) {
+                        listener.onMeterAdded(name, (Meter) metric);
+                    } else {
+                        listener.onMeterRemoved(name);
+                    }
+                    break;
+                case TIMER:
+                    if (metric != null) {
+                        listener.onTimerAdded(name, (Timer) metric);
+                    } else {
+                        listener.onTimerRemoved(name);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown metric type: " + type);
+            }
+        }
+    }
+}
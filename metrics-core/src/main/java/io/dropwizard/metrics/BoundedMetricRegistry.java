@@ -0,0 +1,359 @@
+package io.dropwizard.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link MetricRegistry} which bounds the number of metrics it creates on demand, for metrics
+ * named after unbounded data such as SQL statements or URLs.
+ * <p/>
+ * The counters, histograms, meters and timers which the registry creates when they are looked up
+ * by name are evicted once they have been idle for longer than the given time to live, that is,
+ * once they have neither been looked up nor changed their count. Once the registry holds as many of
+ * them as it may, looking up a new name returns an overflow metric of the same type instead, until
+ * idle metrics have been evicted. Overflow metrics are named after the given overflow name and the
+ * metric's type, such as {@code overflow.timer}. Evicted metrics are removed through {@link #remove(MetricName)}, so
+ * listeners are notified of them.
+ * <p/>
+ * Metrics which are registered explicitly, such as gauges and metric sets, are neither counted
+ * nor evicted. Code which keeps a reference to a metric it looked up may keep updating it after it
+ * has been evicted, though only its count changing keeps it from being evicted in the first place.
+ */
+public class BoundedMetricRegistry extends MetricRegistry {
+    private static final MetricName DEFAULT_OVERFLOW_NAME = MetricName.build("overflow");
+    private static final Access OVERFLOW = new Access(0);
+
+    private final int maxMetrics;
+    private final long ttl;
+    private final MetricName overflowName;
+    private final ConcurrentMap<MetricName, Access> accesses;
+    private final Set<MetricName> pinned;
+    private final AtomicInteger size;
+    private final AtomicBoolean sweeping;
+    // set while a metric admitted on demand is created, so that register() doesn't pin it
+    private final ThreadLocal<Boolean> creating;
+    private volatile long nextSweep;
+
+    /**
+     * Creates a new {@link BoundedMetricRegistry} whose overflow metrics are named
+     * {@code overflow.counter}, {@code overflow.histogram}, {@code overflow.meter} and
+     * {@code overflow.timer}.
+     *
+     * @param maxMetrics the maximum number of metrics to create on demand
+     * @param ttl        the time after which an idle metric is evicted, or {@code 0} to never
+     *                   evict metrics
+     * @param unit       the unit for {@code ttl}
+     */
+    public BoundedMetricRegistry(int maxMetrics, long ttl, TimeUnit unit) {
+        this(maxMetrics, ttl, unit, DEFAULT_OVERFLOW_NAME);
+    }
+
+    /**
+     * Creates a new {@link BoundedMetricRegistry}.
+     *
+     * @param maxMetrics   the maximum number of metrics to create on demand
+     * @param ttl          the time after which an idle metric is evicted, or {@code 0} to never
+     *                     evict metrics
+     * @param unit         the unit for {@code ttl}
+     * @param overflowName the name under which to register the overflow metrics, which is
+     *                     suffixed with their type
+     */
+    public BoundedMetricRegistry(int maxMetrics, long ttl, TimeUnit unit, MetricName overflowName) {
+        if (maxMetrics < 1) {
+            throw new IllegalArgumentException("maxMetrics must be positive");
+        }
+        this.maxMetrics = maxMetrics;
+        this.ttl = unit.toNanos(ttl);
+        this.overflowName = overflowName;
+        this.accesses = new ConcurrentHashMap<MetricName, Access>();
+        this.pinned = Collections.newSetFromMap(new ConcurrentHashMap<MetricName, Boolean>());
+        this.size = new AtomicInteger();
+        this.sweeping = new AtomicBoolean();
+        this.creating = new ThreadLocal<Boolean>();
+        this.nextSweep = getRateClock().getTick() + this.ttl / 4;
+    }
+
+    /**
+     * Returns the number of metrics the registry created on demand and hasn't evicted yet.
+     *
+     * @return the number of evictable metrics
+     */
+    public int getEvictableCount() {
+        return size.get();
+    }
+
+    @Override
+    public void setRateClock(Clock rateClock) {
+        super.setRateClock(rateClock);
+        this.nextSweep = rateClock.getTick() + ttl / 4;
+    }
+
+    @Override
+    public Counter counter(MetricName name) {
+        final Access access = admit(name);
+        if (access == null) {
+            return super.counter(name);
+        }
+        if (access == OVERFLOW) {
+            return super.counter(overflowName.resolve("counter"));
+        }
+        final Boolean outer = creating.get();
+        creating.set(Boolean.TRUE);
+        try {
+            return track(name, access, super.counter(name));
+        } catch (IllegalArgumentException e) {
+            throw untrack(name, access, e);
+        } finally {
+            creating.set(outer);
+        }
+    }
+
+    @Override
+    public Histogram histogram(MetricName name) {
+        final Access access = admit(name);
+        if (access == null) {
+            return super.histogram(name);
+        }
+        if (access == OVERFLOW) {
+            return super.histogram(overflowName.resolve("histogram"));
+        }
+        final Boolean outer = creating.get();
+        creating.set(Boolean.TRUE);
+        try {
+            return track(name, access, super.histogram(name));
+        } catch (IllegalArgumentException e) {
+            throw untrack(name, access, e);
+        } finally {
+            creating.set(outer);
+        }
+    }
+
+    @Override
+    public Histogram histogram(MetricName name, MetricSupplier<Histogram> supplier) {
+        final Access access = admit(name);
+        if (access == null) {
+            return super.histogram(name, supplier);
+        }
+        if (access == OVERFLOW) {
+            return super.histogram(overflowName.resolve("histogram"));
+        }
+        final Boolean outer = creating.get();
+        creating.set(Boolean.TRUE);
+        try {
+            return track(name, access, super.histogram(name, supplier));
+        } catch (IllegalArgumentException e) {
+            throw untrack(name, access, e);
+        } finally {
+            creating.set(outer);
+        }
+    }
+
+    @Override
+    public Meter meter(MetricName name) {
+        final Access access = admit(name);
+        if (access == null) {
+            return super.meter(name);
+        }
+        if (access == OVERFLOW) {
+            return super.meter(overflowName.resolve("meter"));
+        }
+        final Boolean outer = creating.get();
+        creating.set(Boolean.TRUE);
+        try {
+            return track(name, access, super.meter(name));
+        } catch (IllegalArgumentException e) {
+            throw untrack(name, access, e);
+        } finally {
+            creating.set(outer);
+        }
+    }
+
+    @Override
+    public Timer timer(MetricName name) {
+        final Access access = admit(name);
+        if (access == null) {
+            return super.timer(name);
+        }
+        if (access == OVERFLOW) {
+            return super.timer(overflowName.resolve("timer"));
+        }
+        final Boolean outer = creating.get();
+        creating.set(Boolean.TRUE);
+        try {
+            return track(name, access, super.timer(name));
+        } catch (IllegalArgumentException e) {
+            throw untrack(name, access, e);
+        } finally {
+            creating.set(outer);
+        }
+    }
+
+    @Override
+    public Timer timer(MetricName name, MetricSupplier<Timer> supplier) {
+        final Access access = admit(name);
+        if (access == null) {
+            return super.timer(name, supplier);
+        }
+        if (access == OVERFLOW) {
+            return super.timer(overflowName.resolve("timer"));
+        }
+        final Boolean outer = creating.get();
+        creating.set(Boolean.TRUE);
+        try {
+            return track(name, access, super.timer(name, supplier));
+        } catch (IllegalArgumentException e) {
+            throw untrack(name, access, e);
+        } finally {
+            creating.set(outer);
+        }
+    }
+
+    @Override
+    public <T extends Metric> T register(MetricName name, T metric) throws IllegalArgumentException {
+        // metrics created on demand are registered through here as well, and must not be pinned
+        if (creating.get() == null) {
+            pinned.add(name);
+        }
+        return super.register(name, metric);
+    }
+
+    @Override
+    public boolean remove(MetricName name) {
+        final boolean removed = super.remove(name);
+        if (accesses.remove(name) != null) {
+            size.decrementAndGet();
+        }
+        pinned.remove(name);
+        return removed;
+    }
+
+    /**
+     * Evicts every metric which has been idle for longer than the time to live. This happens on its
+     * own every quarter of the time to live, when a new name is looked up.
+     *
+     * @return the number of evicted metrics
+     */
+    public int evictIdle() {
+        if (ttl <= 0 || !sweeping.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            final long now = getRateClock().getTick();
+            nextSweep = now + ttl / 4;
+            int evicted = 0;
+            for (Map.Entry<MetricName, Access> entry : accesses.entrySet()) {
+                if (entry.getValue().isIdle(now, ttl) && remove(entry.getKey())) {
+                    evicted++;
+                }
+            }
+            return evicted;
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /*
+     * Returns the access record of the given name, creating it if the metric may be created;
+     * OVERFLOW if it may not be created; or null if the name belongs to a registered metric.
+     */
+    private Access admit(MetricName name) {
+        final long now = getRateClock().getTick();
+        final Access existing = accesses.get(name);
+        if (existing != null) {
+            existing.touch(now);
+            return existing;
+        }
+        if (pinned.contains(name)) {
+            return null;
+        }
+
+        // sweeps are spread out, so that looking up new names at capacity stays cheap
+        if (ttl > 0 && now - nextSweep >= 0) {
+            evictIdle();
+        }
+        if (size.get() >= maxMetrics) {
+            return OVERFLOW;
+        }
+
+        final Access access = new Access(now);
+        final Access raced = accesses.putIfAbsent(name, access);
+        if (raced != null) {
+            raced.touch(now);
+            return raced;
+        }
+        size.incrementAndGet();
+        return access;
+    }
+
+    private <T extends Metric> T track(MetricName name, Access access, T metric) {
+        if (accesses.get(name) == access) {
+            return access.track(metric);
+        }
+        // a sweep evicted the name between admitting it and creating its metric; admit it again,
+        // even at capacity, since the metric now exists
+        final Access readmitted = new Access(getRateClock().getTick());
+        final Access raced = accesses.putIfAbsent(name, readmitted);
+        if (raced != null) {
+            return raced.track(metric);
+        }
+        size.incrementAndGet();
+        return readmitted.track(metric);
+    }
+
+    private IllegalArgumentException untrack(MetricName name, Access access, IllegalArgumentException e) {
+        // the name belongs to a metric of another type; forget it unless that metric is tracked
+        if (!getMetrics().containsKey(name) && accesses.remove(name, access)) {
+            size.decrementAndGet();
+        }
+        return e;
+    }
+
+    /**
+     * When a metric was last looked up, and its count at the last sweep.
+     */
+    private static final class Access {
+        // only written once the clock has moved on by this much, to keep lookups cheap
+        private static final long RESOLUTION = TimeUnit.MILLISECONDS.toNanos(100);
+
+        private volatile long lastAccess;
+        private volatile Counting metric;
+        private long lastCount;
+
+        private Access(long now) {
+            this.lastAccess = now;
+        }
+
+        void touch(long now) {
+            if (now - lastAccess > RESOLUTION) {
+                lastAccess = now;
+            }
+        }
+
+        <T extends Metric> T track(T metric) {
+            if (this.metric == null && metric instanceof Counting) {
+                this.metric = (Counting) metric;
+            }
+            return metric;
+        }
+
+        // only called by the sweeping thread
+        boolean isIdle(long now, long ttl) {
+            final Counting metric = this.metric;
+            if (metric != null) {
+                final long count = metric.getCount();
+                if (count != lastCount) {
+                    lastCount = count;
+                    lastAccess = now;
+                    return false;
+                }
+            }
+            return now - lastAccess >= ttl;
+        }
+    }
+}
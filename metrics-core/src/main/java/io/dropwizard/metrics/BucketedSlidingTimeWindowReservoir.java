@@ -0,0 +1,196 @@
+package io.dropwizard.metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link Reservoir} implementation backed by a sliding window that stores only the measurements made
+ * in the last {@code N} seconds (or other time unit), using a fixed amount of memory.
+ * <p/>
+ * The window is divided into a ring of equally sized time slices. Each slice keeps a bounded,
+ * uniformly random sample of the measurements made during its time (using Vitter's Algorithm R) and
+ * is recycled in place once it falls out of the window. As long as no slice receives more
+ * measurements than it can hold, snapshots contain exactly the measurements of the window, like
+ * those of {@link SlidingTimeWindowReservoir}; beyond that, each sampled measurement is weighted by
+ * the number of measurements it stands for.
+ * <p/>
+ * Because whole slices expire at once, the window covers between {@code N - N / slices} and
+ * {@code N} units of time.
+ */
+public class BucketedSlidingTimeWindowReservoir implements Reservoir {
+    private static final int DEFAULT_SLICES = 16;
+    private static final int DEFAULT_SLICE_SIZE = 128;
+
+    private final Clock clock;
+    private final Slice[] slices;
+    private final long sliceDuration;
+    private final long startTick;
+
+    /**
+     * Creates a new {@link BucketedSlidingTimeWindowReservoir} with the given window of time.
+     *
+     * @param window     the window of time
+     * @param windowUnit the unit of {@code window}
+     */
+    public BucketedSlidingTimeWindowReservoir(long window, TimeUnit windowUnit) {
+        this(window, windowUnit, Clock.defaultClock());
+    }
+
+    /**
+     * Creates a new {@link BucketedSlidingTimeWindowReservoir} with the given clock and window of
+     * time.
+     *
+     * @param window     the window of time
+     * @param windowUnit the unit of {@code window}
+     * @param clock      the {@link Clock} to use
+     */
+    public BucketedSlidingTimeWindowReservoir(long window, TimeUnit windowUnit, Clock clock) {
+        this(window, windowUnit, clock, DEFAULT_SLICES, DEFAULT_SLICE_SIZE);
+    }
+
+    /**
+     * Creates a new {@link BucketedSlidingTimeWindowReservoir} with the given clock and window of
+     * time, divided into the given number of slices.
+     *
+     * @param window     the window of time
+     * @param windowUnit the unit of {@code window}
+     * @param clock      the {@link Clock} to use
+     * @param slices     the number of time slices the window is divided into
+     * @param sliceSize  the number of measurements each time slice keeps
+     */
+    public BucketedSlidingTimeWindowReservoir(long window, TimeUnit windowUnit, Clock clock, int slices, int sliceSize) {
+        final long windowNanos = windowUnit.toNanos(window);
+        if (windowNanos < 1 || slices < 1 || sliceSize < 1) {
+            throw new IllegalArgumentException("window, slices and sliceSize must be positive");
+        }
+
+        final int count = (int) Math.min(slices, windowNanos);
+        this.clock = clock;
+        this.sliceDuration = windowNanos / count;
+        this.slices = new Slice[count];
+        for (int i = 0; i < count; i++) {
+            this.slices[i] = new Slice(sliceSize);
+        }
+        this.startTick = clock.getTick();
+    }
+
+    @Override
+    public int size() {
+        final long epoch = currentEpoch();
+        int size = 0;
+        for (Slice slice : slices) {
+            if (isLive(slice, epoch)) {
+                size += slice.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void update(long value) {
+        final long epoch = currentEpoch();
+        final Slice slice = slices[(int) (epoch % slices.length)];
+        if (slice.enter(epoch)) {
+            slice.update(value);
+        }
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        final long epoch = currentEpoch();
+        int total = 0;
+        for (Slice slice : slices) {
+            if (isLive(slice, epoch)) {
+                total += slice.size();
+            }
+        }
+
+        // slices may have filled up since they were counted
+        final long[] values = new long[total];
+        final double[] weights = new double[total];
+        int n = 0;
+        boolean sampled = false;
+        for (Slice slice : slices) {
+            if (isLive(slice, epoch)) {
+                final long count = slice.count.get();
+                final int size = slice.size();
+                sampled |= count > size;
+                for (int i = 0; i < size && n < total; i++) {
+                    values[n] = slice.values.get(i);
+                    weights[n] = (double) count / size;
+                    n++;
+                }
+            }
+        }
+
+        if (sampled) {
+            return new WeightedSnapshot(values, weights, n);
+        }
+        return new UniformSnapshot(values, n);
+    }
+
+    private boolean isLive(Slice slice, long epoch) {
+        final long sliceEpoch = slice.epoch.get();
+        return sliceEpoch <= epoch && sliceEpoch > epoch - slices.length;
+    }
+
+    private long currentEpoch() {
+        final long elapsed = clock.getTick() - startTick;
+        return elapsed < 0 ? 0 : elapsed / sliceDuration;
+    }
+
+    /**
+     * A time slice holding a uniform sample of its measurements, in the manner of
+     * {@link UniformReservoir}.
+     */
+    private static final class Slice {
+        final AtomicLong epoch = new AtomicLong();
+        final AtomicLong count = new AtomicLong();
+        final AtomicLongArray values;
+
+        Slice(int size) {
+            this.values = new AtomicLongArray(size);
+        }
+
+        /**
+         * Makes sure the slice is collecting measurements for the given epoch, recycling it if it
+         * still holds an expired one. Returns {@code false} if the slice has already moved on to a
+         * later epoch, which only happens to measurements that are a full window late.
+         */
+        boolean enter(long e) {
+            for (; ; ) {
+                final long current = epoch.get();
+                if (current == e) {
+                    return true;
+                }
+                if (current > e) {
+                    return false;
+                }
+                if (epoch.compareAndSet(current, e)) {
+                    // measurements racing with the reset may be miscounted; old values beyond
+                    // the new count are never read
+                    count.set(0);
+                    return true;
+                }
+            }
+        }
+
+        void update(long value) {
+            final long c = count.incrementAndGet();
+            if (c <= values.length()) {
+                values.set((int) c - 1, value);
+            } else {
+                final long r = ThreadLocalRandom.current().nextLong(c);
+                if (r < values.length()) {
+                    values.set((int) r, value);
+                }
+            }
+        }
+
+        int size() {
+            return (int) Math.min(count.get(), values.length());
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package io.dropwizard.metrics;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link Reservoir} decorator which collects values in striped per-thread buffers and records
+ * them in the underlying reservoir in batches, either when a buffer fills up or when a snapshot is
+ * taken. Threads then contend on the underlying reservoir once per batch instead of once per value.
+ * <p/>
+ * Snapshots and {@link #size()} first drain every buffer, so they see every value recorded before
+ * they were called. Since values reach the underlying reservoir late and out of order, this
+ * decorator suits reservoirs which don't depend on when values arrive, such as
+ * {@link UniformReservoir}, {@link SlidingWindowReservoir} or {@link LogLinearHistogramReservoir}.
+ */
+public class BufferedReservoir implements Reservoir {
+    private static final int DEFAULT_BUFFER_SIZE = 64;
+    private static final int STRIPES = ThreadStripes.COUNT;
+
+    private final Reservoir delegate;
+    private final int bufferSize;
+    private final AtomicReferenceArray<Buffer> buffers;
+
+    /**
+     * Creates a new {@link BufferedReservoir} which buffers up to 64 values per thread.
+     *
+     * @param delegate the reservoir to record values in
+     */
+    public BufferedReservoir(Reservoir delegate) {
+        this(delegate, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new {@link BufferedReservoir}.
+     *
+     * @param delegate   the reservoir to record values in
+     * @param bufferSize the number of values to buffer per thread before recording them
+     */
+    public BufferedReservoir(Reservoir delegate, int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        this.delegate = delegate;
+        this.bufferSize = bufferSize;
+        this.buffers = new AtomicReferenceArray<Buffer>(STRIPES);
+    }
+
+    @Override
+    public int size() {
+        drain();
+        return delegate.size();
+    }
+
+    @Override
+    public void update(long value) {
+        int index = ThreadStripes.probe();
+        for (int attempts = 0; ; attempts++) {
+            final Buffer buffer = buffer(index);
+            // try the other stripes before waiting for our own
+            if (attempts < STRIPES ? buffer.tryLock() : buffer.lock()) {
+                try {
+                    buffer.values[buffer.count++] = value;
+                    if (buffer.count == bufferSize) {
+                        drain(buffer);
+                    }
+                    return;
+                } finally {
+                    buffer.unlock();
+                }
+            }
+            index++;
+        }
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        drain();
+        return delegate.getSnapshot();
+    }
+
+    private Buffer buffer(int index) {
+        final int i = index & (STRIPES - 1);
+        final Buffer buffer = buffers.get(i);
+        if (buffer != null) {
+            return buffer;
+        }
+        buffers.compareAndSet(i, null, new Buffer(bufferSize));
+        return buffers.get(i);
+    }
+
+    private void drain() {
+        for (int i = 0; i < STRIPES; i++) {
+            final Buffer buffer = buffers.get(i);
+            if (buffer != null && buffer.lock()) {
+                try {
+                    drain(buffer);
+                } finally {
+                    buffer.unlock();
+                }
+            }
+        }
+    }
+
+    // buffer lock must be held
+    private void drain(Buffer buffer) {
+        for (int i = 0; i < buffer.count; i++) {
+            delegate.update(buffer.values[i]);
+        }
+        buffer.count = 0;
+    }
+
+    /**
+     * A buffer of values guarded by a spinlock.
+     */
+    private static final class Buffer {
+        private static final AtomicIntegerFieldUpdater<Buffer> busyUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(Buffer.class, "busy");
+
+        volatile long p0, p1, p2, p3, p4, p5, p6;
+        volatile int busy;
+        volatile long q0, q1, q2, q3, q4, q5, q6;
+
+        final long[] values;
+        int count;
+
+        Buffer(int size) {
+            this.values = new long[size];
+        }
+
+        boolean tryLock() {
+            return busy == 0 && busyUpdater.compareAndSet(this, 0, 1);
+        }
+
+        boolean lock() {
+            while (!tryLock()) {
+                Thread.yield();
+            }
+            return true;
+        }
+
+        void unlock() {
+            busy = 0;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package io.dropwizard.metrics;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * An abstraction for how time passes. It is passed to {@link Timer} to track timing.
@@ -36,6 +38,21 @@ public abstract class Clock {
         return DEFAULT;
     }
 
+    /**
+     * A shared {@link CoarseClock} with a resolution of one millisecond. Its background thread is
+     * started the first time this method is called, and runs for as long as the JVM does; it can't
+     * be {@link CoarseClock#stop() stopped}.
+     *
+     * @return the shared {@link CoarseClock} instance
+     */
+    public static Clock coarseClock() {
+        return CoarseClockHolder.INSTANCE;
+    }
+
+    private static class CoarseClockHolder {
+        private static final CoarseClock INSTANCE = new CoarseClock(1, TimeUnit.MILLISECONDS, false);
+    }
+
     /**
      * A clock implementation which returns the current time in epoch nanoseconds.
      */
@@ -57,4 +74,74 @@ public abstract class Clock {
             return THREAD_MX_BEAN.getCurrentThreadCpuTime();
         }
     }
+
+    /**
+     * A clock implementation which returns a tick and time read by a background thread at a fixed
+     * resolution, so that reading them is a single volatile read. Both lag behind the actual time
+     * by up to the resolution, plus however late the background thread is scheduled, which suits
+     * bookkeeping such as rate intervals and time windows rather than timing short events.
+     */
+    public static class CoarseClock extends Clock {
+        private final long resolution;
+        private final boolean stoppable;
+        private final Thread thread;
+        private volatile long tick;
+        private volatile long time;
+        private volatile boolean running = true;
+
+        /**
+         * Creates a new {@link CoarseClock} and starts its background thread.
+         *
+         * @param resolution     how often the tick and time are updated
+         * @param resolutionUnit the unit of {@code resolution}
+         */
+        public CoarseClock(long resolution, TimeUnit resolutionUnit) {
+            this(resolution, resolutionUnit, true);
+        }
+
+        private CoarseClock(long resolution, TimeUnit resolutionUnit, boolean stoppable) {
+            this.resolution = resolutionUnit.toNanos(resolution);
+            this.stoppable = stoppable;
+            if (this.resolution <= 0) {
+                throw new IllegalArgumentException("resolution must be positive");
+            }
+            this.tick = System.nanoTime();
+            this.time = System.currentTimeMillis();
+            this.thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (running) {
+                        LockSupport.parkNanos(CoarseClock.this.resolution);
+                        tick = System.nanoTime();
+                        time = System.currentTimeMillis();
+                    }
+                }
+            }, "metrics-coarse-clock");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        @Override
+        public long getTick() {
+            return tick;
+        }
+
+        @Override
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * Stops the background thread; the tick and time stop advancing.
+         *
+         * @throws UnsupportedOperationException if this is the shared {@link Clock#coarseClock()}
+         */
+        public void stop() {
+            if (!stoppable) {
+                throw new UnsupportedOperationException("The shared coarse clock can't be stopped");
+            }
+            running = false;
+            LockSupport.unpark(thread);
+        }
+    }
 }
@@ -0,0 +1,366 @@
+package io.dropwizard.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link MetricFilter} compiled from lists of name prefixes and globs to include and exclude,
+ * and of tags which names must or must not have:
+ * <pre><code>
+ * final MetricFilter filter = CompiledMetricFilter.builder()
+ *         .include("com.example.db")
+ *         .include("jvm.memory.*.used")
+ *         .exclude("com.example.db.pool")
+ *         .withTag("env", "prod*")
+ *         .build();
+ * </code></pre>
+ * A name matches if its key matches any of the included patterns, or there are none; none of the
+ * excluded patterns; and all of the tag predicates. A prefix matches keys which equal it or continue
+ * it with a dot, so {@code com.example.db} matches {@code com.example.db.queries} but not
+ * {@code com.example.dbcp}. In a glob, {@code *} matches any characters but a dot, {@code **} matches
+ * any characters, and {@code ?} matches one character but a dot.
+ * <p/>
+ * Patterns are kept in tries of their leading dot-separated segments, so a key is only compared
+ * with the patterns which share its leading segments. Since the filter only looks at names, its
+ * result is cached for each name it has seen. Registries only scan the names under the included
+ * prefixes when they are asked for the metrics which match the filter.
+ * <p/>
+ * Filters built from the same patterns and tag predicates are equal.
+ */
+public class CompiledMetricFilter implements MetricFilter {
+    private static final int MAX_CACHED_NAMES = 10000;
+
+    /**
+     * Returns a new {@link Builder} for {@link CompiledMetricFilter}.
+     *
+     * @return a {@link Builder} instance for a {@link CompiledMetricFilter}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * A builder for {@link CompiledMetricFilter} instances. Defaults to matching all metrics.
+     */
+    public static class Builder {
+        private final List<String> includes = new ArrayList<String>();
+        private final List<String> excludes = new ArrayList<String>();
+        private final Map<String, String> requiredTags = new HashMap<String, String>();
+        private final List<String> forbiddenTags = new ArrayList<String>();
+
+        private Builder() {
+        }
+
+        /**
+         * Only match names whose key starts with the given prefix or matches the given glob, or
+         * any other included pattern.
+         *
+         * @param pattern a prefix or glob
+         * @return {@code this}
+         */
+        public Builder include(String pattern) {
+            includes.add(checkPattern(pattern));
+            return this;
+        }
+
+        /**
+         * Don't match names whose key starts with the given prefix or matches the given glob.
+         *
+         * @param pattern a prefix or glob
+         * @return {@code this}
+         */
+        public Builder exclude(String pattern) {
+            excludes.add(checkPattern(pattern));
+            return this;
+        }
+
+        /**
+         * Only match names which have a tag with the given key and a value matching the given glob.
+         *
+         * @param key       the key of the tag
+         * @param valueGlob a glob for the value of the tag, such as {@code *} for any value
+         * @return {@code this}
+         */
+        public Builder withTag(String key, String valueGlob) {
+            requiredTags.put(key, checkPattern(valueGlob));
+            return this;
+        }
+
+        /**
+         * Don't match names which have a tag with the given key.
+         *
+         * @param key the key of the tag
+         * @return {@code this}
+         */
+        public Builder withoutTag(String key) {
+            forbiddenTags.add(key);
+            return this;
+        }
+
+        /**
+         * Builds a {@link CompiledMetricFilter} with the given properties.
+         *
+         * @return a {@link CompiledMetricFilter}
+         */
+        public CompiledMetricFilter build() {
+            return new CompiledMetricFilter(includes, excludes, requiredTags, forbiddenTags);
+        }
+
+        private static String checkPattern(String pattern) {
+            if (pattern == null) {
+                throw new IllegalArgumentException("pattern must not be null");
+            }
+            return pattern;
+        }
+    }
+
+    private final List<String> includePatterns;
+    private final List<String> excludePatterns;
+    private final Node includes;
+    private final Node excludes;
+    private final Map<String, String> requiredTags;
+    private final String[] forbiddenTags;
+    private final List<String> prefixes;
+    private final ConcurrentMap<MetricName, Boolean> cache;
+
+    private CompiledMetricFilter(List<String> includes,
+                                 List<String> excludes,
+                                 Map<String, String> requiredTags,
+                                 List<String> forbiddenTags) {
+        this.includePatterns = new ArrayList<String>(includes);
+        this.excludePatterns = new ArrayList<String>(excludes);
+        this.includes = includes.isEmpty() ? null : compile(includes);
+        this.excludes = excludes.isEmpty() ? null : compile(excludes);
+        this.requiredTags = new HashMap<String, String>(requiredTags);
+        this.forbiddenTags = forbiddenTags.toArray(new String[forbiddenTags.size()]);
+        this.prefixes = includes.isEmpty() ? null : literalPrefixes(includes);
+        this.cache = new ConcurrentHashMap<MetricName, Boolean>();
+    }
+
+    @Override
+    public boolean matches(MetricName name, Metric metric) {
+        final Boolean cached = cache.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        final boolean matches = matches(name);
+        if (cache.size() < MAX_CACHED_NAMES) {
+            cache.put(name, matches);
+        }
+        return matches;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final CompiledMetricFilter that = (CompiledMetricFilter) o;
+        return includePatterns.equals(that.includePatterns)
+                && excludePatterns.equals(that.excludePatterns)
+                && requiredTags.equals(that.requiredTags)
+                && Arrays.equals(forbiddenTags, that.forbiddenTags);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = includePatterns.hashCode();
+        result = 31 * result + excludePatterns.hashCode();
+        result = 31 * result + requiredTags.hashCode();
+        result = 31 * result + Arrays.hashCode(forbiddenTags);
+        return result;
+    }
+
+    /**
+     * Returns the literal key prefixes one of which every matching name starts with, without any
+     * prefix which is covered by a shorter one, or {@code null} if a matching name may start with
+     * anything.
+     */
+    List<String> getPrefixes() {
+        return prefixes;
+    }
+
+    private boolean matches(MetricName name) {
+        final String key = name.getKey() == null ? "" : name.getKey();
+        if (includes != null && !includes.matches(key)) {
+            return false;
+        }
+        if (excludes != null && excludes.matches(key)) {
+            return false;
+        }
+        if (!requiredTags.isEmpty() || forbiddenTags.length > 0) {
+            final Map<String, String> tags = name.getTags();
+            for (Map.Entry<String, String> tag : requiredTags.entrySet()) {
+                final String value = tags.get(tag.getKey());
+                if (value == null || !glob(tag.getValue(), 0, value, 0)) {
+                    return false;
+                }
+            }
+            for (String tag : forbiddenTags) {
+                if (tags.containsKey(tag)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static Node compile(List<String> patterns) {
+        final Node root = new Node();
+        for (String pattern : patterns) {
+            Node node = root;
+            int start = 0;
+            while (true) {
+                final int end = segmentEnd(pattern, start);
+                final String segment = pattern.substring(start, end);
+                if (isGlob(segment)) {
+                    node.globs.add(pattern.substring(start));
+                    break;
+                }
+                Node child = node.children.get(segment);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(segment, child);
+                }
+                node = child;
+                if (end == pattern.length()) {
+                    node.prefix = true;
+                    break;
+                }
+                start = end + 1;
+            }
+        }
+        return root;
+    }
+
+    private static List<String> literalPrefixes(List<String> patterns) {
+        final List<String> literals = new ArrayList<String>();
+        for (String pattern : patterns) {
+            int end = 0;
+            int start = 0;
+            while (start <= pattern.length()) {
+                final int segmentEnd = segmentEnd(pattern, start);
+                if (isGlob(pattern.substring(start, segmentEnd))) {
+                    break;
+                }
+                end = segmentEnd;
+                start = segmentEnd + 1;
+            }
+            if (end == 0) {
+                return null;
+            }
+            literals.add(pattern.substring(0, end));
+        }
+
+        // shorter prefixes cover the longer ones they are a prefix of
+        Collections.sort(literals);
+        final List<String> prefixes = new ArrayList<String>();
+        for (String literal : literals) {
+            if (!isCovered(prefixes, literal)) {
+                prefixes.add(literal);
+            }
+        }
+        return Collections.unmodifiableList(prefixes);
+    }
+
+    private static boolean isCovered(List<String> prefixes, String key) {
+        for (String prefix : prefixes) {
+            if (covers(prefix, key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean covers(String prefix, String key) {
+        return key.startsWith(prefix) && (key.length() == prefix.length() || key.charAt(prefix.length()) == '.');
+    }
+
+    private static int segmentEnd(String s, int start) {
+        final int dot = s.indexOf('.', start);
+        return dot < 0 ? s.length() : dot;
+    }
+
+    private static boolean isGlob(String segment) {
+        return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0;
+    }
+
+    /*
+     * Matches the glob from index p against the text from index t.
+     */
+    private static boolean glob(String glob, int p, String text, int t) {
+        while (p < glob.length()) {
+            final char c = glob.charAt(p);
+            if (c == '*') {
+                final boolean any = p + 1 < glob.length() && glob.charAt(p + 1) == '*';
+                final int next = any ? p + 2 : p + 1;
+                for (int i = t; i <= text.length(); i++) {
+                    if (glob(glob, next, text, i)) {
+                        return true;
+                    }
+                    if (i < text.length() && !any && text.charAt(i) == '.') {
+                        return false;
+                    }
+                }
+                return false;
+            }
+            if (t >= text.length()) {
+                return false;
+            }
+            if (c == '?' ? text.charAt(t) == '.' : text.charAt(t) != c) {
+                return false;
+            }
+            p++;
+            t++;
+        }
+        return t == text.length();
+    }
+
+    /**
+     * A node of a trie of dot-separated segments.
+     */
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<String, Node>();
+        // the globs which start at this node's segment boundary
+        private final List<String> globs = new ArrayList<String>();
+        // whether a prefix ends at this node
+        private boolean prefix;
+
+        boolean matches(String key) {
+            Node node = this;
+            int start = 0;
+            while (true) {
+                if (node.prefix) {
+                    return true;
+                }
+                for (String glob : node.globs) {
+                    if (glob(glob, 0, key, start)) {
+                        return true;
+                    }
+                }
+                if (start > key.length() || node.children.isEmpty()) {
+                    return false;
+                }
+                final int end = segmentEnd(key, start);
+                node = node.children.get(key.substring(start, end));
+                if (node == null) {
+                    return false;
+                }
+                if (end == key.length()) {
+                    // the key ends here; only a prefix ending here matches it
+                    return node.prefix;
+                }
+                start = end + 1;
+            }
+        }
+    }
+}
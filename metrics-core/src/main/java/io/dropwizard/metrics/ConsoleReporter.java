@@ -9,6 +9,8 @@ import java.util.concurrent.TimeUnit;
  * A reporter which outputs measurements to a {@link PrintStream}, like {@code System.out}.
  */
 public class ConsoleReporter extends ScheduledReporter {
+    private static final double[] QUANTILES = {0.5, 0.75, 0.95, 0.98, 0.99, 0.999};
+
     /**
      * Returns a new {@link Builder} for {@link ConsoleReporter}.
      *
@@ -242,20 +244,22 @@ public class ConsoleReporter extends ScheduledReporter {
     private void printHistogram(Histogram histogram) {
         output.printf(locale, "             count = %d%n", histogram.getCount());
         Snapshot snapshot = histogram.getSnapshot();
+        final double[] quantiles = snapshot.getValues(QUANTILES);
         output.printf(locale, "               min = %d%n", snapshot.getMin());
         output.printf(locale, "               max = %d%n", snapshot.getMax());
         output.printf(locale, "              mean = %2.2f%n", snapshot.getMean());
         output.printf(locale, "            stddev = %2.2f%n", snapshot.getStdDev());
-        output.printf(locale, "            median = %2.2f%n", snapshot.getMedian());
-        output.printf(locale, "              75%% <= %2.2f%n", snapshot.get75thPercentile());
-        output.printf(locale, "              95%% <= %2.2f%n", snapshot.get95thPercentile());
-        output.printf(locale, "              98%% <= %2.2f%n", snapshot.get98thPercentile());
-        output.printf(locale, "              99%% <= %2.2f%n", snapshot.get99thPercentile());
-        output.printf(locale, "            99.9%% <= %2.2f%n", snapshot.get999thPercentile());
+        output.printf(locale, "            median = %2.2f%n", quantiles[0]);
+        output.printf(locale, "              75%% <= %2.2f%n", quantiles[1]);
+        output.printf(locale, "              95%% <= %2.2f%n", quantiles[2]);
+        output.printf(locale, "              98%% <= %2.2f%n", quantiles[3]);
+        output.printf(locale, "              99%% <= %2.2f%n", quantiles[4]);
+        output.printf(locale, "            99.9%% <= %2.2f%n", quantiles[5]);
     }
 
     private void printTimer(Timer timer) {
         final Snapshot snapshot = timer.getSnapshot();
+        final double[] quantiles = snapshot.getValues(QUANTILES);
         output.printf(locale, "             count = %d%n", timer.getCount());
         output.printf(locale, "         mean rate = %2.2f calls/%s%n", convertRate(timer.getMeanRate()), getRateUnit());
         output.printf(locale, "     1-minute rate = %2.2f calls/%s%n", convertRate(timer.getOneMinuteRate()), getRateUnit());
@@ -266,12 +270,12 @@ public class ConsoleReporter extends ScheduledReporter {
         output.printf(locale, "               max = %2.2f %s%n", convertDuration(snapshot.getMax()), getDurationUnit());
         output.printf(locale, "              mean = %2.2f %s%n", convertDuration(snapshot.getMean()), getDurationUnit());
         output.printf(locale, "            stddev = %2.2f %s%n", convertDuration(snapshot.getStdDev()), getDurationUnit());
-        output.printf(locale, "            median = %2.2f %s%n", convertDuration(snapshot.getMedian()), getDurationUnit());
-        output.printf(locale, "              75%% <= %2.2f %s%n", convertDuration(snapshot.get75thPercentile()), getDurationUnit());
-        output.printf(locale, "              95%% <= %2.2f %s%n", convertDuration(snapshot.get95thPercentile()), getDurationUnit());
-        output.printf(locale, "              98%% <= %2.2f %s%n", convertDuration(snapshot.get98thPercentile()), getDurationUnit());
-        output.printf(locale, "              99%% <= %2.2f %s%n", convertDuration(snapshot.get99thPercentile()), getDurationUnit());
-        output.printf(locale, "            99.9%% <= %2.2f %s%n", convertDuration(snapshot.get999thPercentile()), getDurationUnit());
+        output.printf(locale, "            median = %2.2f %s%n", convertDuration(quantiles[0]), getDurationUnit());
+        output.printf(locale, "              75%% <= %2.2f %s%n", convertDuration(quantiles[1]), getDurationUnit());
+        output.printf(locale, "              95%% <= %2.2f %s%n", convertDuration(quantiles[2]), getDurationUnit());
+        output.printf(locale, "              98%% <= %2.2f %s%n", convertDuration(quantiles[3]), getDurationUnit());
+        output.printf(locale, "              99%% <= %2.2f %s%n", convertDuration(quantiles[4]), getDurationUnit());
+        output.printf(locale, "            99.9%% <= %2.2f %s%n", convertDuration(quantiles[5]), getDurationUnit());
     }
 
     private void printWithBanner(String s, char c) {
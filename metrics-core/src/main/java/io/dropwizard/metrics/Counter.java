@@ -5,6 +5,7 @@ package io.dropwizard.metrics;
  */
 public class Counter implements Metric, Counting {
     private final LongAdder count;
+    private volatile boolean enabled = true;
 
     public Counter() {
         this.count = LongAdderFactory.create();
@@ -23,7 +24,9 @@ public class Counter implements Metric, Counting {
      * @param n the amount by which the counter will be increased
      */
     public void inc(long n) {
-        count.add(n);
+        if (enabled) {
+            count.add(n);
+        }
     }
 
     /**
@@ -39,7 +42,9 @@ public class Counter implements Metric, Counting {
      * @param n the amount by which the counter will be decreased
      */
     public void dec(long n) {
-        count.add(-n);
+        if (enabled) {
+            count.add(-n);
+        }
     }
 
     /**
@@ -51,4 +56,18 @@ public class Counter implements Metric, Counting {
     public long getCount() {
         return count.sum();
     }
+
+    /**
+     * Returns whether the counter records updates. A registry turns the updates of the metrics
+     * it disables into no-ops; see {@link MetricRegistry#disable(MetricFilter)}.
+     *
+     * @return whether the counter is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
 }
@@ -128,6 +128,7 @@ public class CsvReporter extends ScheduledReporter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CsvReporter.class);
     private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final double[] QUANTILES = {0.5, 0.75, 0.95, 0.98, 0.99, 0.999};
 
     private final File directory;
     private final Locale locale;
@@ -180,6 +181,7 @@ public class CsvReporter extends ScheduledReporter {
 
     private void reportTimer(long timestamp, MetricName name, Timer timer) {
         final Snapshot snapshot = timer.getSnapshot();
+        final double[] quantiles = snapshot.getValues(QUANTILES);
 
         report(timestamp,
                name,
@@ -190,12 +192,12 @@ public class CsvReporter extends ScheduledReporter {
                convertDuration(snapshot.getMean()),
                convertDuration(snapshot.getMin()),
                convertDuration(snapshot.getStdDev()),
-               convertDuration(snapshot.getMedian()),
-               convertDuration(snapshot.get75thPercentile()),
-               convertDuration(snapshot.get95thPercentile()),
-               convertDuration(snapshot.get98thPercentile()),
-               convertDuration(snapshot.get99thPercentile()),
-               convertDuration(snapshot.get999thPercentile()),
+               convertDuration(quantiles[0]),
+               convertDuration(quantiles[1]),
+               convertDuration(quantiles[2]),
+               convertDuration(quantiles[3]),
+               convertDuration(quantiles[4]),
+               convertDuration(quantiles[5]),
                convertRate(timer.getMeanRate()),
                convertRate(timer.getOneMinuteRate()),
                convertRate(timer.getFiveMinuteRate()),
@@ -219,6 +221,7 @@ public class CsvReporter extends ScheduledReporter {
 
     private void reportHistogram(long timestamp, MetricName name, Histogram histogram) {
         final Snapshot snapshot = histogram.getSnapshot();
+        final double[] quantiles = snapshot.getValues(QUANTILES);
 
         report(timestamp,
                name,
@@ -229,12 +232,12 @@ public class CsvReporter extends ScheduledReporter {
                snapshot.getMean(),
                snapshot.getMin(),
                snapshot.getStdDev(),
-               snapshot.getMedian(),
-               snapshot.get75thPercentile(),
-               snapshot.get95thPercentile(),
-               snapshot.get98thPercentile(),
-               snapshot.get99thPercentile(),
-               snapshot.get999thPercentile());
+               quantiles[0],
+               quantiles[1],
+               quantiles[2],
+               quantiles[3],
+               quantiles[4],
+               quantiles[5]);
     }
 
     private void reportCounter(long timestamp, MetricName name, Counter counter) {
@@ -0,0 +1,231 @@
+package io.dropwizard.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The {@link MetricFactory} a {@link MetricRegistry} uses unless told otherwise. Its histograms and
+ * timers are backed by {@link LockFreeExponentiallyDecayingReservoir}s, and its timers measure
+ * durations with the default clock.
+ * <p/>
+ * A factory built with {@link #builder()} can use other reservoirs and clocks, and other
+ * reservoirs or factories for the metrics whose names start with given prefixes, such as a cheaper
+ * reservoir for hot timers:
+ * <pre><code>
+ * registry.setMetricFactory(DefaultMetricFactory.builder()
+ *         .withReservoir("com.example.db", new MetricFactory.ReservoirSupplier() {
+ *             public Reservoir newReservoir(Clock rateClock) {
+ *                 return new LogLinearHistogramReservoir();
+ *             }
+ *         })
+ *         .build());
+ * </code></pre>
+ * A prefix matches names whose key equals it or continues it with a dot, so {@code com.example.db}
+ * matches {@code com.example.db.queries} but not {@code com.example.dbcp}. When several prefixes
+ * match a name, the longest one applies.
+ */
+public class DefaultMetricFactory implements MetricFactory {
+    private static final ReservoirSupplier DEFAULT_RESERVOIR = new ReservoirSupplier() {
+        @Override
+        public Reservoir newReservoir(Clock rateClock) {
+            return new LockFreeExponentiallyDecayingReservoir(rateClock);
+        }
+    };
+
+    /**
+     * Returns a new {@link Builder} for {@link DefaultMetricFactory}.
+     *
+     * @return a {@link Builder} instance for a {@link DefaultMetricFactory}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * A builder for {@link DefaultMetricFactory} instances. Defaults to the registry's default
+     * metrics.
+     */
+    public static class Builder {
+        private final List<Rule> rules;
+        private ReservoirSupplier reservoir;
+        private Clock clock;
+        private boolean lazyRates;
+
+        private Builder() {
+            this.rules = new ArrayList<Rule>();
+            this.reservoir = DEFAULT_RESERVOIR;
+            this.clock = Clock.defaultClock();
+            this.lazyRates = false;
+        }
+
+        /**
+         * Back histograms and timers with reservoirs from the given supplier.
+         *
+         * @param reservoir a {@link ReservoirSupplier}
+         * @return {@code this}
+         */
+        public Builder withReservoir(ReservoirSupplier reservoir) {
+            this.reservoir = reservoir;
+            return this;
+        }
+
+        /**
+         * Back histograms and timers whose names start with the given prefix with reservoirs from
+         * the given supplier.
+         *
+         * @param prefix    the prefix of the names
+         * @param reservoir a {@link ReservoirSupplier}
+         * @return {@code this}
+         */
+        public Builder withReservoir(String prefix, ReservoirSupplier reservoir) {
+            rules.add(new Rule(prefix, reservoir, null));
+            return this;
+        }
+
+        /**
+         * Create the metrics whose names start with the given prefix with the given factory.
+         *
+         * @param prefix  the prefix of the names
+         * @param factory a {@link MetricFactory}
+         * @return {@code this}
+         */
+        public Builder withFactory(String prefix, MetricFactory factory) {
+            rules.add(new Rule(prefix, null, factory));
+            return this;
+        }
+
+        /**
+         * Measure the durations of timers with the given {@link Clock}.
+         *
+         * @param clock a {@link Clock} instance
+         * @return {@code this}
+         */
+        public Builder withClock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * Compute the rates of meters and timers when they are read rather than when events are
+         * recorded; see {@link Meter#Meter(Clock, boolean)}.
+         *
+         * @param lazyRates whether rates are computed lazily
+         * @return {@code this}
+         */
+        public Builder withLazyRates(boolean lazyRates) {
+            this.lazyRates = lazyRates;
+            return this;
+        }
+
+        /**
+         * Builds a {@link DefaultMetricFactory} with the given properties.
+         *
+         * @return a {@link DefaultMetricFactory}
+         */
+        public DefaultMetricFactory build() {
+            return new DefaultMetricFactory(rules, reservoir, clock, lazyRates);
+        }
+    }
+
+    private final Rule[] rules;
+    private final ReservoirSupplier reservoir;
+    private final Clock clock;
+    private final boolean lazyRates;
+
+    /**
+     * Creates a new {@link DefaultMetricFactory} which creates the registry's default metrics.
+     */
+    public DefaultMetricFactory() {
+        this(Collections.<Rule>emptyList(), DEFAULT_RESERVOIR, Clock.defaultClock(), false);
+    }
+
+    private DefaultMetricFactory(List<Rule> rules, ReservoirSupplier reservoir, Clock clock, boolean lazyRates) {
+        final List<Rule> sorted = new ArrayList<Rule>(rules);
+        // longest prefixes first, keeping the order in which rules for the same prefix were given
+        Collections.sort(sorted, new Comparator<Rule>() {
+            @Override
+            public int compare(Rule a, Rule b) {
+                return b.prefix.length() - a.prefix.length();
+            }
+        });
+        this.rules = sorted.toArray(new Rule[sorted.size()]);
+        this.reservoir = reservoir;
+        this.clock = clock;
+        this.lazyRates = lazyRates;
+    }
+
+    @Override
+    public Counter newCounter(MetricName name) {
+        final Rule rule = ruleFor(name);
+        if (rule != null && rule.factory != null) {
+            return rule.factory.newCounter(name);
+        }
+        return new Counter();
+    }
+
+    @Override
+    public Histogram newHistogram(MetricName name, Clock rateClock) {
+        final Rule rule = ruleFor(name);
+        if (rule != null && rule.factory != null) {
+            return rule.factory.newHistogram(name, rateClock);
+        }
+        return new Histogram(reservoirFor(rule, rateClock));
+    }
+
+    @Override
+    public Meter newMeter(MetricName name, Clock rateClock) {
+        final Rule rule = ruleFor(name);
+        if (rule != null && rule.factory != null) {
+            return rule.factory.newMeter(name, rateClock);
+        }
+        return new Meter(rateClock, lazyRates);
+    }
+
+    @Override
+    public Timer newTimer(MetricName name, Clock rateClock) {
+        final Rule rule = ruleFor(name);
+        if (rule != null && rule.factory != null) {
+            return rule.factory.newTimer(name, rateClock);
+        }
+        return new Timer(reservoirFor(rule, rateClock), clock, rateClock, lazyRates);
+    }
+
+    private Reservoir reservoirFor(Rule rule, Clock rateClock) {
+        return (rule != null ? rule.reservoir : reservoir).newReservoir(rateClock);
+    }
+
+    private Rule ruleFor(MetricName name) {
+        final String key = name.getKey();
+        if (key == null) {
+            return null;
+        }
+        for (Rule rule : rules) {
+            if (rule.matches(key)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private static final class Rule {
+        private final String prefix;
+        private final ReservoirSupplier reservoir;
+        private final MetricFactory factory;
+
+        private Rule(String prefix, ReservoirSupplier reservoir, MetricFactory factory) {
+            if (prefix == null) {
+                throw new IllegalArgumentException("prefix must not be null");
+            }
+            this.prefix = prefix;
+            this.reservoir = reservoir;
+            this.factory = factory;
+        }
+
+        boolean matches(String key) {
+            return key.startsWith(prefix)
+                    && (key.length() == prefix.length() || prefix.isEmpty() || key.charAt(prefix.length()) == '.');
+        }
+    }
+}
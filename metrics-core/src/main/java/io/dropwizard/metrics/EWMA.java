@@ -3,6 +3,7 @@ package io.dropwizard.metrics;
 import java.util.concurrent.TimeUnit;
 
 import static java.lang.Math.exp;
+import static java.lang.Math.pow;
 
 /**
  * An exponentially-weighted moving average.
@@ -94,6 +95,45 @@ public class EWMA {
         }
     }
 
+    /**
+     * Mark the passage of the given number of intervals and decay the current rate accordingly.
+     * Equivalent to calling {@link #tick()} that many times, but takes constant time.
+     *
+     * @param intervals the number of intervals which have passed
+     */
+    public void tick(long intervals) {
+        if (intervals <= 0) {
+            return;
+        }
+        tick();
+        if (intervals > 1) {
+            rate *= pow(1 - alpha, intervals - 1);
+        }
+    }
+
+    /**
+     * Mark the passage of the given number of intervals, over which the given number of events
+     * were spread evenly, and decay the current rate accordingly. Equivalent to calling
+     * {@link #update(long)} and {@link #tick()} once per interval, but takes constant time.
+     *
+     * @param n         the number of events over all of the intervals
+     * @param intervals the number of intervals which have passed
+     */
+    public void tick(long n, long intervals) {
+        if (intervals <= 0) {
+            update(n);
+            return;
+        }
+        final long count = n + uncounted.sumThenReset();
+        final double instantRate = count / (intervals * interval);
+        if (initialized) {
+            rate = instantRate + (rate - instantRate) * pow(1 - alpha, intervals);
+        } else {
+            rate = instantRate;
+            initialized = true;
+        }
+    }
+
     /**
      * Returns the rate in the given units of time.
      *
@@ -9,6 +9,7 @@ package io.dropwizard.metrics;
 public class Histogram implements Metric, Sampling, Counting {
     private final Reservoir reservoir;
     private final LongAdder count;
+    private volatile boolean enabled = true;
 
     /**
      * Creates a new {@link Histogram} with the given reservoir.
@@ -35,6 +36,9 @@ public class Histogram implements Metric, Sampling, Counting {
      * @param value the length of the value
      */
     public void update(long value) {
+        if (!enabled) {
+            return;
+        }
         count.increment();
         reservoir.update(value);
     }
@@ -53,4 +57,18 @@ public class Histogram implements Metric, Sampling, Counting {
     public Snapshot getSnapshot() {
         return reservoir.getSnapshot();
     }
+
+    /**
+     * Returns whether the histogram records updates. A registry turns the updates of the metrics
+     * it disables into no-ops; see {@link MetricRegistry#disable(MetricFilter)}.
+     *
+     * @return whether the histogram is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
 }
@@ -41,6 +41,8 @@ public class JmxReporter implements Reporter, Closeable {
         private String domain;
         private Map<String, TimeUnit> specificDurationUnits;
         private Map<String, TimeUnit> specificRateUnits;
+        private boolean async;
+        private boolean switchboard;
 
         private Builder(MetricRegistry registry) {
             this.registry = registry;
@@ -132,6 +134,32 @@ public class JmxReporter implements Reporter, Closeable {
             return this;
         }
 
+        /**
+         * Register and unregister MBeans on a background thread rather than in the threads which
+         * register and remove metrics, so that bursts of new metrics don't wait for the MBean
+         * server. See {@link AsyncMetricRegistryListener}.
+         *
+         * @param async whether to register MBeans asynchronously
+         * @return {@code this}
+         */
+        public Builder registerAsynchronously(boolean async) {
+            this.async = async;
+            return this;
+        }
+
+        /**
+         * Also register a {@link MetricSwitchboard} for the registry while the reporter is
+         * running, named {@code type=MetricSwitchboard} in the reporter's domain, so that
+         * operators can turn metrics on and off.
+         *
+         * @param switchboard whether to register a {@link MetricSwitchboard}
+         * @return {@code this}
+         */
+        public Builder exposeSwitchboard(boolean switchboard) {
+            this.switchboard = switchboard;
+            return this;
+        }
+
         /**
          * Builds a {@link JmxReporter} with the given properties.
          *
@@ -142,7 +170,8 @@ public class JmxReporter implements Reporter, Closeable {
             if (mBeanServer==null) {
             	mBeanServer = ManagementFactory.getPlatformMBeanServer();
             }
-            return new JmxReporter(mBeanServer, domain, registry, filter, timeUnits, objectNameFactory);
+            return new JmxReporter(mBeanServer, domain, registry, filter, timeUnits, objectNameFactory, async,
+                    switchboard);
         }
     }
 
@@ -697,30 +726,78 @@ public class JmxReporter implements Reporter, Closeable {
 
     private final MetricRegistry registry;
     private final JmxListener listener;
+    private final boolean async;
+    private final MBeanServer mBeanServer;
+    private final ObjectName switchboardName;
+    // the listener the reporter was started with, if it registers MBeans asynchronously
+    private AsyncMetricRegistryListener asyncListener;
 
     private JmxReporter(MBeanServer mBeanServer,
                         String domain,
                         MetricRegistry registry,
                         MetricFilter filter,
                         MetricTimeUnits timeUnits,
-                        ObjectNameFactory objectNameFactory) {
+                        ObjectNameFactory objectNameFactory,
+                        boolean async,
+                        boolean switchboard) {
         this.registry = registry;
         this.listener = new JmxListener(mBeanServer, domain, filter, timeUnits, objectNameFactory);
+        this.async = async;
+        this.mBeanServer = mBeanServer;
+        this.switchboardName = switchboard ? switchboardName(domain) : null;
+    }
+
+    private static ObjectName switchboardName(String domain) {
+        try {
+            return new ObjectName(domain, "type", "MetricSwitchboard");
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException("Invalid domain: " + domain, e);
+        }
     }
 
     /**
      * Starts the reporter.
      */
     public void start() {
-        registry.addListener(listener);
+        if (async) {
+            asyncListener = new AsyncMetricRegistryListener(listener);
+            registry.addListener(asyncListener);
+        } else {
+            registry.addListener(listener);
+        }
+        if (switchboardName != null) {
+            try {
+                mBeanServer.registerMBean(new MetricSwitchboard(registry), switchboardName);
+            } catch (InstanceAlreadyExistsException e) {
+                LOGGER.debug("Unable to register metric switchboard", e);
+            } catch (JMException e) {
+                LOGGER.warn("Unable to register metric switchboard", e);
+            }
+        }
     }
 
     /**
      * Stops the reporter.
      */
     public void stop() {
-        registry.removeListener(listener);
+        if (asyncListener != null) {
+            registry.removeListener(asyncListener);
+            // pending registrations would otherwise register MBeans after everything is unregistered
+            asyncListener.closeNow();
+            asyncListener = null;
+        } else {
+            registry.removeListener(listener);
+        }
         listener.unregisterAll();
+        if (switchboardName != null) {
+            try {
+                mBeanServer.unregisterMBean(switchboardName);
+            } catch (InstanceNotFoundException e) {
+                LOGGER.debug("Unable to unregister metric switchboard", e);
+            } catch (MBeanRegistrationException e) {
+                LOGGER.warn("Unable to unregister metric switchboard", e);
+            }
+        }
     }
 
     /**
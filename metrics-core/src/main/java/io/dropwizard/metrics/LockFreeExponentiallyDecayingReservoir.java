@@ -0,0 +1,365 @@
+package io.dropwizard.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.lang.Math.exp;
+
+/**
+ * An exponentially-decaying random reservoir of {@code long}s. Like
+ * {@link ExponentiallyDecayingReservoir}, it uses Cormode et al's forward-decaying priority
+ * reservoir sampling method to produce a statistically representative sampling reservoir,
+ * exponentially biased towards newer entries.
+ * <p/>
+ * Unlike {@link ExponentiallyDecayingReservoir}, recording a value neither takes a lock nor
+ * allocates. Samples are kept in a binary min-heap of primitive arrays ordered by priority, and
+ * values which cannot make it into the heap are rejected up-front by comparing their priority with
+ * the heap's current minimum. The remaining values are appended to small striped per-thread
+ * buffers which are merged into the heap in batches, either when a buffer fills up or when a
+ * snapshot is taken. Rescaling happens during such a merge, so writers are never blocked by it.
+ *
+ * @see <a href="http://dimacs.rutgers.edu/~graham/pubs/papers/fwddecay.pdf">
+ * Cormode et al. Forward Decay: A Practical Time Decay Model for Streaming Systems. ICDE '09:
+ *      Proceedings of the 2009 IEEE International Conference on Data Engineering (2009)</a>
+ */
+public class LockFreeExponentiallyDecayingReservoir implements Reservoir {
+    private static final int DEFAULT_SIZE = 1028;
+    private static final double DEFAULT_ALPHA = 0.015;
+    private static final long RESCALE_THRESHOLD = TimeUnit.HOURS.toNanos(1);
+    private static final int BUFFER_SIZE = 16;
+    private static final int STRIPES = ThreadStripes.COUNT;
+
+    // the sampling heap, ordered by priority; guarded by lock
+    private final long[] values;
+    private final double[] weights;
+    private final double[] priorities;
+    private int count;
+
+    private final AtomicReferenceArray<Buffer> buffers;
+    private final ReentrantLock lock;
+    private final double alpha;
+    private final int size;
+    private final Clock clock;
+    private final AtomicLong nextScaleTime;
+    private volatile long startTime;
+    private volatile double threshold;
+    private volatile boolean rescalePending;
+
+    /**
+     * Creates a new {@link LockFreeExponentiallyDecayingReservoir} of 1028 elements, which offers a
+     * 99.9% confidence level with a 5% margin of error assuming a normal distribution, and an alpha
+     * factor of 0.015, which heavily biases the reservoir to the past 5 minutes of measurements.
+     */
+    public LockFreeExponentiallyDecayingReservoir() {
+        this(DEFAULT_SIZE, DEFAULT_ALPHA);
+    }
+
+    /**
+     * Creates a new {@link LockFreeExponentiallyDecayingReservoir} of 1028 elements and an alpha
+     * factor of 0.015, like {@link #LockFreeExponentiallyDecayingReservoir()}, using the given
+     * clock.
+     *
+     * @param clock the clock used to timestamp samples and track rescaling
+     */
+    public LockFreeExponentiallyDecayingReservoir(Clock clock) {
+        this(DEFAULT_SIZE, DEFAULT_ALPHA, clock);
+    }
+
+    /**
+     * Creates a new {@link LockFreeExponentiallyDecayingReservoir}.
+     *
+     * @param size  the number of samples to keep in the sampling reservoir
+     * @param alpha the exponential decay factor; the higher this is, the more biased the reservoir
+     *              will be towards newer values
+     */
+    public LockFreeExponentiallyDecayingReservoir(int size, double alpha) {
+        this(size, alpha, Clock.defaultClock());
+    }
+
+    /**
+     * Creates a new {@link LockFreeExponentiallyDecayingReservoir}.
+     *
+     * @param size  the number of samples to keep in the sampling reservoir
+     * @param alpha the exponential decay factor; the higher this is, the more biased the reservoir
+     *              will be towards newer values
+     * @param clock the clock used to timestamp samples and track rescaling
+     */
+    public LockFreeExponentiallyDecayingReservoir(int size, double alpha, Clock clock) {
+        this.values = new long[size];
+        this.weights = new double[size];
+        this.priorities = new double[size];
+        this.buffers = new AtomicReferenceArray<Buffer>(STRIPES);
+        this.lock = new ReentrantLock();
+        this.alpha = alpha;
+        this.size = size;
+        this.clock = clock;
+        this.startTime = currentTimeInSeconds();
+        this.nextScaleTime = new AtomicLong(clock.getTick() + RESCALE_THRESHOLD);
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            drain();
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void update(long value) {
+        update(value, currentTimeInSeconds());
+    }
+
+    /**
+     * Adds an old value with a fixed timestamp to the reservoir.
+     *
+     * @param value     the value to be added
+     * @param timestamp the epoch timestamp of {@code value} in seconds
+     */
+    public void update(long value, long timestamp) {
+        rescaleIfNeeded();
+
+        final double random = 1.0d - ThreadLocalRandom.current().nextDouble();
+        // the landmark must be read before the threshold, see rescaleIfPending()
+        final double priority = weight(timestamp - startTime) / random;
+        if (priority <= threshold) {
+            // the heap is full and this sample would be evicted straight away
+            return;
+        }
+
+        int index = ThreadStripes.probe();
+        for (int attempts = 1; ; attempts++) {
+            final Buffer buffer = buffer(index);
+            if (buffer.tryLock()) {
+                try {
+                    if (buffer.count == BUFFER_SIZE) {
+                        if (attempts <= STRIPES) {
+                            if (!lock.tryLock()) {
+                                index++;
+                                continue;
+                            }
+                        } else {
+                            // every buffer we've seen is full and being waited on; merge this one
+                            lock.lock();
+                        }
+                        try {
+                            rescaleIfPending();
+                            drain(buffer);
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
+                    buffer.add(value, timestamp, random);
+                    return;
+                } finally {
+                    buffer.unlock();
+                }
+            }
+            index++;
+        }
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        lock.lock();
+        try {
+            drain();
+            return new WeightedSnapshot(Arrays.copyOf(values, count), Arrays.copyOf(weights, count), count);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rescaleIfNeeded() {
+        final long now = clock.getTick();
+        final long next = nextScaleTime.get();
+        if (now >= next && nextScaleTime.compareAndSet(next, now + RESCALE_THRESHOLD)) {
+            rescalePending = true;
+            // whoever holds the lock already will pick up the pending rescale
+            if (lock.tryLock()) {
+                try {
+                    rescaleIfPending();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private Buffer buffer(int index) {
+        final int i = index & (STRIPES - 1);
+        final Buffer buffer = buffers.get(i);
+        if (buffer != null) {
+            return buffer;
+        }
+        buffers.compareAndSet(i, null, new Buffer());
+        return buffers.get(i);
+    }
+
+    // lock must be held
+    private void drain() {
+        rescaleIfPending();
+        for (int i = 0; i < STRIPES; i++) {
+            final Buffer buffer = buffers.get(i);
+            // never wait for a buffer while holding the lock; a busy buffer is merged later
+            if (buffer != null && buffer.tryLock()) {
+                try {
+                    drain(buffer);
+                } finally {
+                    buffer.unlock();
+                }
+            }
+        }
+    }
+
+    // lock and buffer lock must be held
+    private void drain(Buffer buffer) {
+        final long landmark = startTime;
+        for (int i = 0; i < buffer.count; i++) {
+            final double weight = weight(buffer.timestamps[i] - landmark);
+            offer(buffer.values[i], weight, weight / buffer.randoms[i]);
+        }
+        buffer.count = 0;
+        threshold = count == size ? priorities[0] : 0.0;
+    }
+
+    // lock must be held
+    private void offer(long value, double weight, double priority) {
+        if (count < size) {
+            int i = count++;
+            set(i, value, weight, priority);
+            siftUp(i);
+        } else if (priority > priorities[0]) {
+            set(0, value, weight, priority);
+            siftDown(0);
+        }
+    }
+
+    private void set(int i, long value, double weight, double priority) {
+        values[i] = value;
+        weights[i] = weight;
+        priorities[i] = priority;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (priorities[parent] <= priorities[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        final int half = count >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            final int right = child + 1;
+            if (right < count && priorities[right] < priorities[child]) {
+                child = right;
+            }
+            if (priorities[i] <= priorities[child]) {
+                return;
+            }
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        final long value = values[i];
+        final double weight = weights[i];
+        final double priority = priorities[i];
+        set(i, values[j], weights[j], priorities[j]);
+        set(j, value, weight, priority);
+    }
+
+    private long currentTimeInSeconds() {
+        return TimeUnit.MILLISECONDS.toSeconds(clock.getTime());
+    }
+
+    private double weight(long t) {
+        return exp(alpha * t);
+    }
+
+    /*
+     * See ExponentiallyDecayingReservoir#rescale for the rationale. Since scaling every priority by
+     * the same factor preserves their order, the heap only needs to be rebuilt when samples whose
+     * weights underflowed to zero are dropped. Buffered samples carry their raw timestamps, so they
+     * are weighed against the new landmark when they are merged.
+     */
+    // lock must be held
+    private void rescaleIfPending() {
+        if (!rescalePending) {
+            return;
+        }
+        rescalePending = false;
+
+        final long oldStartTime = startTime;
+        final long newStartTime = currentTimeInSeconds();
+        final double scalingFactor = exp(-alpha * (newStartTime - oldStartTime));
+
+        int retained = 0;
+        for (int i = 0; i < count; i++) {
+            final double weight = weights[i] * scalingFactor;
+            if (weight != 0.0) {
+                set(retained++, values[i], weight, priorities[i] * scalingFactor);
+            }
+        }
+        final boolean dropped = retained != count;
+        count = retained;
+        if (dropped) {
+            for (int i = (count >>> 1) - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+
+        // lower the threshold before moving the landmark, so that writers which see the new
+        // landmark never compare against a stale threshold
+        threshold = count == size ? priorities[0] : 0.0;
+        this.startTime = newStartTime;
+    }
+
+    /**
+     * A small insertion buffer guarded by a spinlock. Samples are stored with their raw timestamps
+     * so that they are weighed against whichever landmark is current when they are merged.
+     */
+    private static final class Buffer {
+        private static final AtomicIntegerFieldUpdater<Buffer> busyUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(Buffer.class, "busy");
+
+        volatile long p0, p1, p2, p3, p4, p5, p6;
+        volatile int busy;
+        volatile long q0, q1, q2, q3, q4, q5, q6;
+
+        final long[] values = new long[BUFFER_SIZE];
+        final long[] timestamps = new long[BUFFER_SIZE];
+        final double[] randoms = new double[BUFFER_SIZE];
+        int count;
+
+        boolean tryLock() {
+            return busy == 0 && busyUpdater.compareAndSet(this, 0, 1);
+        }
+
+        void unlock() {
+            busy = 0;
+        }
+
+        void add(long value, long timestamp, double random) {
+            values[count] = value;
+            timestamps[count] = timestamp;
+            randoms[count] = random;
+            count++;
+        }
+    }
+}
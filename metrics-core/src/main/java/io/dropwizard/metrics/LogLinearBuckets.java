@@ -0,0 +1,118 @@
+package io.dropwizard.metrics;
+
+/**
+ * The layout of a log-linear bucketed histogram, as used by HdrHistogram: values are grouped into
+ * power-of-two sized buckets, each of which is split linearly into enough sub-buckets to resolve
+ * values to the requested number of significant decimal digits.
+ *
+ * @see <a href="http://hdrhistogram.org/">HdrHistogram</a>
+ */
+final class LogLinearBuckets {
+    private final int significantDigits;
+    private final long highestTrackableValue;
+    private final int subBucketHalfCountMagnitude;
+    private final int subBucketHalfCount;
+    private final long subBucketMask;
+    private final int leadingZeroCountBase;
+    private final int length;
+
+    /**
+     * Creates a new bucket layout.
+     *
+     * @param significantDigits     the number of significant decimal digits to which values are
+     *                              resolved, in {@code [1..5]}
+     * @param highestTrackableValue the highest value which can be told apart from larger ones
+     */
+    LogLinearBuckets(int significantDigits, long highestTrackableValue) {
+        if (significantDigits < 1 || significantDigits > 5) {
+            throw new IllegalArgumentException(significantDigits + " is not in [1..5]");
+        }
+        if (highestTrackableValue < 2) {
+            throw new IllegalArgumentException("highestTrackableValue must be at least 2");
+        }
+
+        this.significantDigits = significantDigits;
+        this.highestTrackableValue = highestTrackableValue;
+
+        final long largestValueWithSingleUnitResolution = 2 * (long) Math.pow(10, significantDigits);
+        final int subBucketCountMagnitude = 64 - Long.numberOfLeadingZeros(largestValueWithSingleUnitResolution - 1);
+        final int subBucketCount = 1 << subBucketCountMagnitude;
+
+        this.subBucketHalfCountMagnitude = subBucketCountMagnitude - 1;
+        this.subBucketHalfCount = subBucketCount / 2;
+        this.subBucketMask = subBucketCount - 1;
+        this.leadingZeroCountBase = 64 - subBucketHalfCountMagnitude - 1;
+        this.length = (bucketsNeeded(subBucketCount, highestTrackableValue) + 1) * subBucketHalfCount;
+    }
+
+    private static int bucketsNeeded(int subBucketCount, long highestTrackableValue) {
+        long smallestUntrackableValue = subBucketCount;
+        int bucketsNeeded = 1;
+        while (smallestUntrackableValue <= highestTrackableValue) {
+            if (smallestUntrackableValue > Long.MAX_VALUE / 2) {
+                return bucketsNeeded + 1;
+            }
+            smallestUntrackableValue <<= 1;
+            bucketsNeeded++;
+        }
+        return bucketsNeeded;
+    }
+
+    int getSignificantDigits() {
+        return significantDigits;
+    }
+
+    long getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    /**
+     * Returns the number of counters needed to cover every bucket.
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * Returns the index of the counter for the given value. Negative values are counted as zero and
+     * values above the highest trackable value as the highest trackable value.
+     */
+    int indexOf(long value) {
+        final long v = value < 0 ? 0 : (value > highestTrackableValue ? highestTrackableValue : value);
+        final int bucketIndex = leadingZeroCountBase - Long.numberOfLeadingZeros(v | subBucketMask);
+        final int subBucketIndex = (int) (v >>> bucketIndex);
+        return ((bucketIndex + 1) << subBucketHalfCountMagnitude) + (subBucketIndex - subBucketHalfCount);
+    }
+
+    /**
+     * Returns the lowest value counted by the counter at the given index.
+     */
+    long lowestEquivalentValue(int index) {
+        int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+        int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+        if (bucketIndex < 0) {
+            subBucketIndex -= subBucketHalfCount;
+            bucketIndex = 0;
+        }
+        return ((long) subBucketIndex) << bucketIndex;
+    }
+
+    /**
+     * Returns the highest value counted by the counter at the given index.
+     */
+    long highestEquivalentValue(int index) {
+        return lowestEquivalentValue(index) + rangeOf(index) - 1;
+    }
+
+    /**
+     * Returns the value in the middle of the range counted by the counter at the given index.
+     */
+    long medianEquivalentValue(int index) {
+        return lowestEquivalentValue(index) + (rangeOf(index) >> 1);
+    }
+
+    private long rangeOf(int index) {
+        final int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+        return 1L << (bucketIndex < 0 ? 0 : bucketIndex);
+    }
+}
@@ -0,0 +1,78 @@
+package io.dropwizard.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link Reservoir} implementation which counts every value in a fixed set of log-linear buckets
+ * instead of keeping a sample of them. Values are resolved to a configurable number of significant
+ * decimal digits, so high quantiles such as the 99.9th percentile are as accurate as the median.
+ * <p/>
+ * Recording a value is a single atomic increment, and taking a snapshot is linear in the number of
+ * buckets. Memory use is fixed by the number of significant digits and the highest trackable value;
+ * with the defaults it is a little under 60KB. Negative values are counted as zero and values above
+ * the highest trackable value are counted as that value.
+ * <p/>
+ * Like {@link UniformReservoir}, this reservoir describes every value recorded since it was created.
+ *
+ * @see LogLinearSnapshot
+ * @see <a href="http://hdrhistogram.org/">HdrHistogram</a>
+ */
+public class LogLinearHistogramReservoir implements Reservoir {
+    private static final int DEFAULT_SIGNIFICANT_DIGITS = 2;
+
+    private final LogLinearBuckets buckets;
+    private final AtomicLongArray counts;
+
+    /**
+     * Creates a new {@link LogLinearHistogramReservoir} which resolves any non-negative {@code long}
+     * to 2 significant digits.
+     */
+    public LogLinearHistogramReservoir() {
+        this(DEFAULT_SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * Creates a new {@link LogLinearHistogramReservoir} which resolves any non-negative {@code long}
+     * to the given number of significant digits.
+     *
+     * @param significantDigits the number of significant decimal digits, in {@code [1..5]}
+     */
+    public LogLinearHistogramReservoir(int significantDigits) {
+        this(significantDigits, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a new {@link LogLinearHistogramReservoir}.
+     *
+     * @param significantDigits     the number of significant decimal digits, in {@code [1..5]}
+     * @param highestTrackableValue the highest value to keep apart from larger ones; lowering it
+     *                              reduces the memory used by the reservoir
+     */
+    public LogLinearHistogramReservoir(int significantDigits, long highestTrackableValue) {
+        this.buckets = new LogLinearBuckets(significantDigits, highestTrackableValue);
+        this.counts = new AtomicLongArray(buckets.length());
+    }
+
+    @Override
+    public int size() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return (int) Math.min(count, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void update(long value) {
+        counts.getAndIncrement(buckets.indexOf(value));
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        final long[] copy = new long[counts.length()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new LogLinearSnapshot(buckets, copy);
+    }
+}
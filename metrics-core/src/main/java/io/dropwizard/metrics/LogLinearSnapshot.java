@@ -0,0 +1,197 @@
+package io.dropwizard.metrics;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A statistical snapshot of a {@link LogLinearHistogramReservoir}.
+ * <p/>
+ * Each recorded value is known only up to the range of the bucket which counted it. Quantiles,
+ * the maximum and {@link #getValues()} report the highest value of that range, the minimum reports
+ * the lowest, and the mean and standard deviation use the middle of each range.
+ */
+public class LogLinearSnapshot extends Snapshot {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final LogLinearBuckets buckets;
+    private final long[] cumulativeCounts;
+    private final long count;
+    private final int minIndex;
+    private final double mean;
+    private final double stdDev;
+
+    /**
+     * Create a new {@link Snapshot} from the given bucket counts. Takes ownership of {@code counts}.
+     *
+     * @param buckets the layout of the buckets
+     * @param counts  the number of values counted by each bucket
+     */
+    LogLinearSnapshot(LogLinearBuckets buckets, long[] counts) {
+        this.buckets = buckets;
+
+        int minIndex = -1;
+        int maxIndex = -1;
+        long count = 0;
+        double sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            final long c = counts[i];
+            if (c != 0) {
+                if (minIndex < 0) {
+                    minIndex = i;
+                }
+                maxIndex = i;
+                count += c;
+                sum += c * (double) buckets.medianEquivalentValue(i);
+            }
+            counts[i] = count;
+        }
+
+        this.count = count;
+        this.minIndex = minIndex;
+        this.cumulativeCounts = Arrays.copyOf(counts, maxIndex + 1);
+        this.mean = count == 0 ? 0 : sum / count;
+
+        double variance = 0;
+        if (count > 1) {
+            long previous = 0;
+            for (int i = minIndex; i <= maxIndex; i++) {
+                final long c = cumulativeCounts[i] - previous;
+                previous = cumulativeCounts[i];
+                if (c != 0) {
+                    final double diff = buckets.medianEquivalentValue(i) - mean;
+                    variance += c * diff * diff;
+                }
+            }
+            variance /= count - 1;
+        }
+        this.stdDev = Math.sqrt(variance);
+    }
+
+    /**
+     * Returns the value at the given quantile.
+     *
+     * @param quantile    a given quantile, in {@code [0..1]}
+     * @return the value in the distribution at {@code quantile}
+     */
+    @Override
+    public double getValue(double quantile) {
+        if (quantile < 0.0 || quantile > 1.0 || Double.isNaN( quantile )) {
+            throw new IllegalArgumentException(quantile + " is not in [0..1]");
+        }
+
+        if (count == 0) {
+            return 0.0;
+        }
+
+        final long rank = Math.max(1, (long) (quantile * count + 0.5));
+        int index = Arrays.binarySearch(cumulativeCounts, rank);
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            // several buckets may share a cumulative count; take the first one which reached it
+            while (index > 0 && cumulativeCounts[index - 1] == rank) {
+                index--;
+            }
+        }
+        return buckets.highestEquivalentValue(index);
+    }
+
+    /**
+     * Returns the number of values in the snapshot.
+     *
+     * @return the number of values
+     */
+    @Override
+    public int size() {
+        return (int) Math.min(count, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the entire set of values in the snapshot, one per recorded value. As this can be very
+     * large for busy histograms, prefer {@link #getValue(double)} where possible.
+     *
+     * @return the entire set of values
+     */
+    @Override
+    public long[] getValues() {
+        final long[] values = new long[size()];
+        int position = 0;
+        long previous = 0;
+        for (int i = 0; i < cumulativeCounts.length && position < values.length; i++) {
+            final long c = cumulativeCounts[i] - previous;
+            previous = cumulativeCounts[i];
+            if (c != 0) {
+                final int end = (int) Math.min(values.length, position + c);
+                Arrays.fill(values, position, end, buckets.highestEquivalentValue(i));
+                position = end;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the highest value in the snapshot.
+     *
+     * @return the highest value
+     */
+    @Override
+    public long getMax() {
+        if (count == 0) {
+            return 0;
+        }
+        return buckets.highestEquivalentValue(cumulativeCounts.length - 1);
+    }
+
+    /**
+     * Returns the lowest value in the snapshot.
+     *
+     * @return the lowest value
+     */
+    @Override
+    public long getMin() {
+        if (count == 0) {
+            return 0;
+        }
+        return buckets.lowestEquivalentValue(minIndex);
+    }
+
+    /**
+     * Returns the arithmetic mean of the values in the snapshot.
+     *
+     * @return the arithmetic mean
+     */
+    @Override
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Returns the standard deviation of the values in the snapshot.
+     *
+     * @return the standard deviation value
+     */
+    @Override
+    public double getStdDev() {
+        return stdDev;
+    }
+
+    /**
+     * Writes the values of the snapshot to the given stream.
+     *
+     * @param output an output stream
+     */
+    @Override
+    public void dump(OutputStream output) {
+        final PrintWriter out = new PrintWriter(new OutputStreamWriter(output, UTF_8));
+        try {
+            for (long value : getValues()) {
+                out.printf("%d%n", value);
+            }
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -6,6 +6,12 @@ import java.util.concurrent.atomic.AtomicLong;
 /**
  * A meter metric which measures mean throughput and one-, five-, and fifteen-minute
  * exponentially-weighted moving average throughputs.
+ * <p/>
+ * By default, marking an event also ticks the moving averages once every five seconds and updates
+ * each of them. A meter with lazy rates only adds the event to a striped counter instead, and folds
+ * the events counted since into the moving averages when a rate is read, as if they were spread
+ * evenly over the five-second intervals that have passed. This makes marking much cheaper, at the
+ * cost of smoothing bursts which happen between reads.
  *
  * @see EWMA
  */
@@ -20,6 +26,10 @@ public class Meter implements Metered {
     private final long startTime;
     private final AtomicLong lastTick;
     private final Clock clock;
+    private final boolean lazyRates;
+    private volatile boolean enabled = true;
+    // the count already folded into the moving averages; guarded by this, with lazy rates
+    private long foldedCount;
 
     /**
      * Creates a new {@link Meter}.
@@ -34,7 +44,19 @@ public class Meter implements Metered {
      * @param clock      the clock to use for the meter ticks
      */
     public Meter(Clock clock) {
+        this(clock, false);
+    }
+
+    /**
+     * Creates a new {@link Meter}.
+     *
+     * @param clock      the clock to use for the meter ticks
+     * @param lazyRates  whether to fold events into the moving averages when they are read,
+     *                   rather than when events are marked
+     */
+    public Meter(Clock clock, boolean lazyRates) {
         this.clock = clock;
+        this.lazyRates = lazyRates;
         this.startTime = this.clock.getTick();
         this.lastTick = new AtomicLong(startTime);
     }
@@ -52,6 +74,13 @@ public class Meter implements Metered {
      * @param n the number of events
      */
     public void mark(long n) {
+        if (!enabled) {
+            return;
+        }
+        if (lazyRates) {
+            count.add(n);
+            return;
+        }
         tickIfNecessary();
         count.add(n);
         m1Rate.update(n);
@@ -64,18 +93,36 @@ public class Meter implements Metered {
         final long newTick = clock.getTick();
         final long age = newTick - oldTick;
         if (age > TICK_INTERVAL) {
+            if (lazyRates) {
+                fold();
+                return;
+            }
             final long newIntervalStartTick = newTick - age % TICK_INTERVAL;
             if (lastTick.compareAndSet(oldTick, newIntervalStartTick)) {
                 final long requiredTicks = age / TICK_INTERVAL;
-                for (long i = 0; i < requiredTicks; i++) {
-                    m1Rate.tick();
-                    m5Rate.tick();
-                    m15Rate.tick();
-                }
+                m1Rate.tick(requiredTicks);
+                m5Rate.tick(requiredTicks);
+                m15Rate.tick(requiredTicks);
             }
         }
     }
 
+    private synchronized void fold() {
+        final long oldTick = lastTick.get();
+        final long newTick = clock.getTick();
+        final long age = newTick - oldTick;
+        if (age > TICK_INTERVAL) {
+            lastTick.set(newTick - age % TICK_INTERVAL);
+            final long requiredTicks = age / TICK_INTERVAL;
+            final long total = count.sum();
+            final long n = total - foldedCount;
+            foldedCount = total;
+            m1Rate.tick(n, requiredTicks);
+            m5Rate.tick(n, requiredTicks);
+            m15Rate.tick(n, requiredTicks);
+        }
+    }
+
     @Override
     public long getCount() {
         return count.sum();
@@ -108,4 +155,18 @@ public class Meter implements Metered {
         tickIfNecessary();
         return m1Rate.getRate(TimeUnit.SECONDS);
     }
+
+    /**
+     * Returns whether the meter records updates. A registry turns the updates of the metrics
+     * it disables into no-ops; see {@link MetricRegistry#disable(MetricFilter)}.
+     *
+     * @return whether the meter is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
 }
@@ -0,0 +1,64 @@
+package io.dropwizard.metrics;
+
+/**
+ * Creates the counters, histograms, meters and timers which a {@link MetricRegistry} creates on
+ * demand, when they are looked up by name and none is registered yet.
+ * <p/>
+ * Install a factory with {@link MetricRegistry#setMetricFactory(MetricFactory)} to change the
+ * reservoirs, clocks or implementations of these metrics for every module which looks metrics up
+ * in the registry. {@link DefaultMetricFactory} creates the registry's default metrics, and can be
+ * configured with reservoirs and factories for names with given prefixes.
+ */
+public interface MetricFactory {
+    /**
+     * Creates a new {@link Counter}.
+     *
+     * @param name the name the counter will be registered under
+     * @return a new {@link Counter}
+     */
+    Counter newCounter(MetricName name);
+
+    /**
+     * Creates a new {@link Histogram}.
+     *
+     * @param name      the name the histogram will be registered under
+     * @param rateClock the registry's clock for time bookkeeping, see
+     *                  {@link MetricRegistry#getRateClock()}
+     * @return a new {@link Histogram}
+     */
+    Histogram newHistogram(MetricName name, Clock rateClock);
+
+    /**
+     * Creates a new {@link Meter}.
+     *
+     * @param name      the name the meter will be registered under
+     * @param rateClock the registry's clock for time bookkeeping, see
+     *                  {@link MetricRegistry#getRateClock()}
+     * @return a new {@link Meter}
+     */
+    Meter newMeter(MetricName name, Clock rateClock);
+
+    /**
+     * Creates a new {@link Timer}.
+     *
+     * @param name      the name the timer will be registered under
+     * @param rateClock the registry's clock for time bookkeeping, see
+     *                  {@link MetricRegistry#getRateClock()}
+     * @return a new {@link Timer}
+     */
+    Timer newTimer(MetricName name, Clock rateClock);
+
+    /**
+     * A supplier of new reservoirs for histograms and timers.
+     */
+    interface ReservoirSupplier {
+        /**
+         * Creates a new reservoir.
+         *
+         * @param rateClock the registry's clock for time bookkeeping, for reservoirs with time
+         *                  windows
+         * @return a new {@link Reservoir}
+         */
+        Reservoir newReservoir(Clock rateClock);
+    }
+}
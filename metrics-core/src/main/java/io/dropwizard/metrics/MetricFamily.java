@@ -0,0 +1,266 @@
+package io.dropwizard.metrics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A family of metrics of the same type which share a name and a set of tag keys, and differ in
+ * the values of those tags, such as the timers of requests by method and status.
+ * <p/>
+ * The tag keys are declared once, and the metric for a combination of tag values is looked up
+ * with {@link #get(String)}, {@link #get(String, String)} or {@link #get(String, String, String)},
+ * depending on the number of tag keys. Lookups take no locks and, once a combination has been seen,
+ * allocate nothing. The metrics are created and registered in the registry the first time their
+ * combination of tag values is looked up, and stay cached by the family for as long as the registry
+ * holds them: once a metric has been removed from the registry, such as by
+ * {@link MetricRegistry#removeMatching(MetricFilter)} or by a {@link BoundedMetricRegistry}
+ * evicting it, the next lookup of its tag values creates and registers a new one. Metrics the
+ * registry hands out under another name, such as the overflow metrics of a
+ * {@link BoundedMetricRegistry}, are not cached at all.
+ * <p/>
+ * Since there is one metric per combination of tag values, tags should only take a bounded set of
+ * values.
+ *
+ * @param <T> the type of the metrics
+ * @see MetricRegistry#timerFamily(MetricName, String...)
+ */
+public abstract class MetricFamily<T extends Metric> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final MetricRegistry registry;
+    private final MetricName name;
+    private final String[] tagKeys;
+    private final Object lock = new Object();
+    // an open-addressing hash table of children, replaced whenever a child is added
+    private volatile Child[] table;
+    private int size;
+
+    MetricFamily(MetricRegistry registry, MetricName name, String... tagKeys) {
+        if (tagKeys.length == 0) {
+            throw new IllegalArgumentException("A metric family needs at least one tag key");
+        }
+        this.registry = registry;
+        this.name = name;
+        this.tagKeys = tagKeys.clone();
+        this.table = new Child[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Returns the name the metrics of this family share.
+     *
+     * @return the name of the family
+     */
+    public MetricName getName() {
+        return name;
+    }
+
+    /**
+     * Returns the keys of the tags which tell the metrics of this family apart.
+     *
+     * @return the tag keys
+     */
+    public List<String> getTagKeys() {
+        return Collections.unmodifiableList(Arrays.asList(tagKeys));
+    }
+
+    /**
+     * Returns the metric for the given value of the family's only tag.
+     *
+     * @param value the value of the tag
+     * @return the metric tagged with the given value
+     * @throws IllegalArgumentException if the family doesn't have exactly one tag key
+     */
+    @SuppressWarnings("unchecked")
+    public T get(String value) {
+        checkArity(1);
+        final int hash = spread(31 + hash(value));
+        final Child[] table = this.table;
+        for (int i = hash & (table.length - 1); table[i] != null; i = (i + 1) & (table.length - 1)) {
+            final Child child = table[i];
+            if (child.hash == hash && eq(child.values[0], value)) {
+                if (isRegistered(child)) {
+                    return (T) child.metric;
+                }
+                break;
+            }
+        }
+        return add(hash, value);
+    }
+
+    /**
+     * Returns the metric for the given values of the family's two tags.
+     *
+     * @param value1 the value of the first tag
+     * @param value2 the value of the second tag
+     * @return the metric tagged with the given values
+     * @throws IllegalArgumentException if the family doesn't have exactly two tag keys
+     */
+    @SuppressWarnings("unchecked")
+    public T get(String value1, String value2) {
+        checkArity(2);
+        final int hash = spread(31 * (31 + hash(value1)) + hash(value2));
+        final Child[] table = this.table;
+        for (int i = hash & (table.length - 1); table[i] != null; i = (i + 1) & (table.length - 1)) {
+            final Child child = table[i];
+            if (child.hash == hash && eq(child.values[0], value1) && eq(child.values[1], value2)) {
+                if (isRegistered(child)) {
+                    return (T) child.metric;
+                }
+                break;
+            }
+        }
+        return add(hash, value1, value2);
+    }
+
+    /**
+     * Returns the metric for the given values of the family's three tags.
+     *
+     * @param value1 the value of the first tag
+     * @param value2 the value of the second tag
+     * @param value3 the value of the third tag
+     * @return the metric tagged with the given values
+     * @throws IllegalArgumentException if the family doesn't have exactly three tag keys
+     */
+    @SuppressWarnings("unchecked")
+    public T get(String value1, String value2, String value3) {
+        checkArity(3);
+        final int hash = spread(31 * (31 * (31 + hash(value1)) + hash(value2)) + hash(value3));
+        final Child[] table = this.table;
+        for (int i = hash & (table.length - 1); table[i] != null; i = (i + 1) & (table.length - 1)) {
+            final Child child = table[i];
+            if (child.hash == hash && eq(child.values[0], value1) && eq(child.values[1], value2)
+                    && eq(child.values[2], value3)) {
+                if (isRegistered(child)) {
+                    return (T) child.metric;
+                }
+                break;
+            }
+        }
+        return add(hash, value1, value2, value3);
+    }
+
+    /**
+     * Returns the metric for the given values of the family's tags, in the order of their keys.
+     *
+     * @param values the values of the tags
+     * @return the metric tagged with the given values
+     * @throws IllegalArgumentException if the number of values doesn't match the number of tag keys
+     */
+    @SuppressWarnings("unchecked")
+    public T getTagged(String... values) {
+        checkArity(values.length);
+        final int hash = spread(Arrays.hashCode(values));
+        final Child[] table = this.table;
+        for (int i = hash & (table.length - 1); table[i] != null; i = (i + 1) & (table.length - 1)) {
+            final Child child = table[i];
+            if (child.hash == hash && Arrays.equals(child.values, values)) {
+                if (isRegistered(child)) {
+                    return (T) child.metric;
+                }
+                break;
+            }
+        }
+        return add(hash, values.clone());
+    }
+
+    /**
+     * Creates or looks up the metric with the given name in the registry.
+     *
+     * @param name the name of the metric
+     * @return the metric
+     */
+    abstract T newMetric(MetricName name);
+
+    @SuppressWarnings("unchecked")
+    private T add(int hash, String... values) {
+        synchronized (lock) {
+            final Child[] table = this.table;
+            Child stale = null;
+            for (int i = hash & (table.length - 1); table[i] != null; i = (i + 1) & (table.length - 1)) {
+                if (table[i].hash == hash && Arrays.equals(table[i].values, values)) {
+                    if (isRegistered(table[i])) {
+                        return (T) table[i].metric;
+                    }
+                    stale = table[i];
+                    break;
+                }
+            }
+
+            final String[] pairs = new String[tagKeys.length * 2];
+            for (int i = 0; i < tagKeys.length; i++) {
+                pairs[2 * i] = tagKeys[i];
+                pairs[2 * i + 1] = values[i];
+            }
+            final MetricName childName = name.tagged(pairs);
+            final T metric = newMetric(childName);
+            final Child child = new Child(hash, values, childName, metric);
+            final boolean cached = isRegistered(child);
+            if (stale == null && !cached) {
+                return metric;
+            }
+
+            // keep the table at most half full
+            final int live = size - (stale == null ? 0 : 1) + (cached ? 1 : 0);
+            final int capacity = live * 2 > table.length ? table.length * 2 : table.length;
+            final Child[] next = new Child[capacity];
+            for (Child existing : table) {
+                if (existing != null && existing != stale) {
+                    insert(next, existing);
+                }
+            }
+            if (cached) {
+                insert(next, child);
+            }
+            this.size = live;
+            this.table = next;
+            return metric;
+        }
+    }
+
+    // whether the registry still holds the child's metric, rather than having removed it
+    private boolean isRegistered(Child child) {
+        return registry.isRegistered(child.name, child.metric);
+    }
+
+    private static void insert(Child[] table, Child child) {
+        int i = child.hash & (table.length - 1);
+        while (table[i] != null) {
+            i = (i + 1) & (table.length - 1);
+        }
+        table[i] = child;
+    }
+
+    private void checkArity(int arity) {
+        if (arity != tagKeys.length) {
+            throw new IllegalArgumentException("Expected " + tagKeys.length + " tag values for " + name
+                    + ", got " + arity);
+        }
+    }
+
+    private static int hash(String value) {
+        return value == null ? 0 : value.hashCode();
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean eq(String a, String b) {
+        return a == b || (a != null && a.equals(b));
+    }
+
+    private static final class Child {
+        private final int hash;
+        private final String[] values;
+        private final MetricName name;
+        private final Metric metric;
+
+        private Child(int hash, String[] values, MetricName name, Metric metric) {
+            this.hash = hash;
+            this.values = values;
+            this.name = name;
+            this.metric = metric;
+        }
+    }
+}
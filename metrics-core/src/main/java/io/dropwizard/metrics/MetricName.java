@@ -1,10 +1,12 @@
 package io.dropwizard.metrics;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A metric name with the ability to include semantic tags.
@@ -12,37 +14,71 @@ import java.util.TreeSet;
  * This replaces the previous style where metric names where strictly
  * dot-separated strings.
  *
+ * Tags are stored as parallel arrays of keys and values sorted by key, and
+ * the hash code is computed once, so that hashing, comparing and deriving
+ * names is cheap.
+ *
  * @author udoprog
  */
 public class MetricName implements Comparable<MetricName> {
+    private static final String[] NO_TAGS = new String[0];
+
     public static final String SEPARATOR = ".";
     public static final Map<String, String> EMPTY_TAGS = Collections.unmodifiableMap(new HashMap<String, String>());
     public static final MetricName EMPTY = new MetricName();
 
+    private static final int MAX_INTERNED = 10000;
+    private static final ConcurrentMap<MetricName, MetricName> INTERNED =
+            new ConcurrentHashMap<MetricName, MetricName>();
+
     private final String key;
-    private final Map<String, String> tags;
+    private final String[] tagKeys;
+    private final String[] tagValues;
+    private final int hash;
+    private volatile Map<String, String> tags;
 
     public MetricName() {
-        this.key = null;
-        this.tags = EMPTY_TAGS;
+        this(null, NO_TAGS, NO_TAGS);
     }
 
     public MetricName(String key) {
-        this.key = key;
-        this.tags = EMPTY_TAGS;
+        this(key, NO_TAGS, NO_TAGS);
     }
 
     public MetricName(String key, Map<String, String> tags) {
+        this(key, keysOf(tags), tags);
+    }
+
+    private MetricName(String key, String[] tagKeys, Map<String, String> tags) {
+        this(key, tagKeys, valuesOf(tagKeys, tags));
+    }
+
+    // the tags must be sorted by key, without duplicate keys
+    private MetricName(String key, String[] tagKeys, String[] tagValues) {
         this.key = key;
-        this.tags = checkTags(tags);
+        this.tagKeys = tagKeys;
+        this.tagValues = tagValues;
+        this.hash = hash(key, tagKeys, tagValues);
     }
 
-    private Map<String, String> checkTags(Map<String, String> tags) {
+    private static String[] keysOf(Map<String, String> tags) {
         if (tags == null || tags.isEmpty()) {
-            return EMPTY_TAGS;
+            return NO_TAGS;
         }
+        final String[] keys = tags.keySet().toArray(new String[tags.size()]);
+        sortTags(keys, null, keys.length);
+        return keys;
+    }
 
-        return Collections.unmodifiableMap(tags);
+    private static String[] valuesOf(String[] keys, Map<String, String> tags) {
+        if (keys.length == 0) {
+            return NO_TAGS;
+        }
+        final String[] values = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = tags.get(keys[i]);
+        }
+        return values;
     }
 
     public String getKey() {
@@ -50,9 +86,41 @@ public class MetricName implements Comparable<MetricName> {
     }
 
     public Map<String, String> getTags() {
+        Map<String, String> tags = this.tags;
+        if (tags == null) {
+            if (tagKeys.length == 0) {
+                tags = EMPTY_TAGS;
+            } else {
+                final Map<String, String> sorted = new LinkedHashMap<String, String>();
+                for (int i = 0; i < tagKeys.length; i++) {
+                    sorted.put(tagKeys[i], tagValues[i]);
+                }
+                tags = Collections.unmodifiableMap(sorted);
+            }
+            this.tags = tags;
+        }
         return tags;
     }
 
+    /**
+     * Returns the canonical instance of this metric name, so that names which are looked up
+     * repeatedly can share one instance. Up to 10,000 names are interned; beyond that, names are
+     * returned as they are.
+     *
+     * @return a metric name equal to this one
+     */
+    public MetricName intern() {
+        final MetricName interned = INTERNED.get(this);
+        if (interned != null) {
+            return interned;
+        }
+        if (INTERNED.size() >= MAX_INTERNED) {
+            return this;
+        }
+        final MetricName existing = INTERNED.putIfAbsent(this, this);
+        return existing == null ? this : existing;
+    }
+
     /**
      * Build the MetricName that is this with another path appended to it.
      *
@@ -75,7 +143,7 @@ public class MetricName implements Comparable<MetricName> {
             next = this.key;
         }
 
-        return new MetricName(next, tags);
+        return new MetricName(next, tagKeys, tagValues);
     }
 
     /**
@@ -85,9 +153,9 @@ public class MetricName implements Comparable<MetricName> {
      * @return A newly created metric name with the specified tags associated with it.
      */
     public MetricName tagged(Map<String, String> add) {
-        final Map<String, String> tags = new HashMap<String, String>(add);
-        tags.putAll(this.tags);
-        return new MetricName(key, tags);
+        final String[] keys = keysOf(add);
+        // existing tags take precedence over the added ones
+        return merge(key, keys, valuesOf(keys, add), tagKeys, tagValues);
     }
 
     /**
@@ -108,13 +176,16 @@ public class MetricName implements Comparable<MetricName> {
             throw new IllegalArgumentException("Argument count must be even");
         }
 
-        final Map<String, String> add = new HashMap<String, String>();
-
-        for (int i = 0; i < pairs.length; i += 2) {
-            add.put(pairs[i], pairs[i+1]);
+        final int count = pairs.length / 2;
+        final String[] keys = new String[count];
+        final String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = pairs[2 * i];
+            values[i] = pairs[2 * i + 1];
         }
+        final int distinct = sortTags(keys, values, count);
 
-        return tagged(add);
+        return merge(key, trim(keys, distinct), trim(values, distinct), tagKeys, tagValues);
     }
 
     /**
@@ -126,7 +197,8 @@ public class MetricName implements Comparable<MetricName> {
      **/
     public static MetricName join(MetricName... parts) {
         final StringBuilder nameBuilder = new StringBuilder();
-        final Map<String, String> tags = new HashMap<String, String>();
+        String[] keys = NO_TAGS;
+        String[] values = NO_TAGS;
 
         boolean first = true;
 
@@ -143,11 +215,14 @@ public class MetricName implements Comparable<MetricName> {
                 nameBuilder.append(name);
             }
 
-            if (!part.getTags().isEmpty())
-                tags.putAll(part.getTags());
+            if (part.tagKeys.length > 0) {
+                final MetricName merged = merge(null, keys, values, part.tagKeys, part.tagValues);
+                keys = merged.tagKeys;
+                values = merged.tagValues;
+            }
         }
 
-        return new MetricName(nameBuilder.toString(), tags);
+        return new MetricName(nameBuilder.toString(), keys, values);
     }
 
     /**
@@ -161,9 +236,9 @@ public class MetricName implements Comparable<MetricName> {
             return MetricName.EMPTY;
 
         if (parts.length == 1)
-            return new MetricName(parts[0], EMPTY_TAGS);
+            return new MetricName(parts[0]);
 
-        return new MetricName(buildName(parts), EMPTY_TAGS);
+        return new MetricName(buildName(parts));
     }
 
     private static String buildName(String... names) {
@@ -188,21 +263,17 @@ public class MetricName implements Comparable<MetricName> {
 
     @Override
     public String toString() {
-        if (tags.isEmpty()) {
+        if (tagKeys.length == 0) {
             return key;
             //return key + "{}";
         }
 
-        return key + tags;
+        return key + getTags();
     }
 
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((key == null) ? 0 : key.hashCode());
-        result = prime * result + ((tags == null) ? 0 : tags.hashCode());
-        return result;
+        return hash;
     }
 
     @Override
@@ -218,16 +289,16 @@ public class MetricName implements Comparable<MetricName> {
 
         MetricName other = (MetricName) obj;
 
+        if (hash != other.hash)
+            return false;
+
         if (key == null) {
             if (other.key != null)
                 return false;
         } else if (!key.equals(other.key))
             return false;
 
-        if (!tags.equals(other.tags))
-            return false;
-
-        return true;
+        return Arrays.equals(tagKeys, other.tagKeys) && Arrays.equals(tagValues, other.tagValues);
     }
 
     @Override
@@ -235,12 +306,15 @@ public class MetricName implements Comparable<MetricName> {
         if (o == null)
             return -1;
 
-        int c = compareName(key, o.getKey());
+        if (o == this)
+            return 0;
+
+        int c = compareName(key, o.key);
 
         if (c != 0)
             return c;
 
-        return compareTags(tags, o.getTags());
+        return compareTags(o);
     }
 
     private int compareName(String left, String right) {
@@ -256,21 +330,27 @@ public class MetricName implements Comparable<MetricName> {
         return left.compareTo(right);
     }
 
-    private int compareTags(Map<String, String> left, Map<String, String> right) {
-        if (left == null && right == null)
-            return 0;
+    /*
+     * Walks both sorted sets of tags at once. At the first key which only one side has, the side
+     * which lacks it sorts first; otherwise the first differing value decides.
+     */
+    private int compareTags(MetricName o) {
+        final String[] leftKeys = tagKeys;
+        final String[] rightKeys = o.tagKeys;
+        int i = 0;
+        int j = 0;
 
-        if (left == null)
-            return 1;
+        while (i < leftKeys.length && j < rightKeys.length) {
+            final int k = compareKeys(leftKeys[i], rightKeys[j]);
 
-        if (right == null)
-            return -1;
+            if (k < 0)
+                return 1;
 
-        final Iterable<String> keys = uniqueSortedKeys(left, right);
+            if (k > 0)
+                return -1;
 
-        for (final String key : keys) {
-            final String a = left.get(key);
-            final String b = right.get(key);
+            final String a = tagValues[i++];
+            final String b = o.tagValues[j++];
 
             if (a == null && b == null)
                 continue;
@@ -287,12 +367,116 @@ public class MetricName implements Comparable<MetricName> {
                 return c;
         }
 
+        if (i < leftKeys.length)
+            return 1;
+
+        if (j < rightKeys.length)
+            return -1;
+
         return 0;
     }
 
-    private Iterable<String> uniqueSortedKeys(Map<String, String> left, Map<String, String> right) {
-        final Set<String> set = new TreeSet<String>(left.keySet());
-        set.addAll(right.keySet());
-        return set;
+    private static int compareKeys(String left, String right) {
+        if (left == null)
+            return right == null ? 0 : -1;
+
+        if (right == null)
+            return 1;
+
+        return left.compareTo(right);
+    }
+
+    private static int hash(String key, String[] tagKeys, String[] tagValues) {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((key == null) ? 0 : key.hashCode());
+        result = prime * result + Arrays.hashCode(tagKeys);
+        result = prime * result + Arrays.hashCode(tagValues);
+        return result;
+    }
+
+    /*
+     * Sorts the first count tags by key with a stable insertion sort and drops all but the last
+     * of any duplicate keys, returning the number of tags left. Values may be null.
+     */
+    private static int sortTags(String[] keys, String[] values, int count) {
+        for (int i = 1; i < count; i++) {
+            final String key = keys[i];
+            final String value = values == null ? null : values[i];
+            int j = i - 1;
+            while (j >= 0 && compareKeys(keys[j], key) > 0) {
+                keys[j + 1] = keys[j];
+                if (values != null) {
+                    values[j + 1] = values[j];
+                }
+                j--;
+            }
+            keys[j + 1] = key;
+            if (values != null) {
+                values[j + 1] = value;
+            }
+        }
+
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct > 0 && compareKeys(keys[distinct - 1], keys[i]) == 0) {
+                distinct--;
+            }
+            keys[distinct] = keys[i];
+            if (values != null) {
+                values[distinct] = values[i];
+            }
+            distinct++;
+        }
+        return distinct;
+    }
+
+    private static String[] trim(String[] array, int length) {
+        if (length == 0) {
+            return NO_TAGS;
+        }
+        return length == array.length ? array : Arrays.copyOf(array, length);
+    }
+
+    // merges two sorted sets of tags; where both have a key, the second one's value wins
+    private static MetricName merge(String key, String[] leftKeys, String[] leftValues,
+                                    String[] rightKeys, String[] rightValues) {
+        if (leftKeys.length == 0) {
+            return new MetricName(key, rightKeys, rightValues);
+        }
+
+        if (rightKeys.length == 0) {
+            return new MetricName(key, leftKeys, leftValues);
+        }
+
+        final String[] keys = new String[leftKeys.length + rightKeys.length];
+        final String[] values = new String[keys.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+
+        while (i < leftKeys.length || j < rightKeys.length) {
+            final int c;
+            if (i == leftKeys.length) {
+                c = 1;
+            } else if (j == rightKeys.length) {
+                c = -1;
+            } else {
+                c = compareKeys(leftKeys[i], rightKeys[j]);
+            }
+
+            if (c < 0) {
+                keys[n] = leftKeys[i];
+                values[n++] = leftValues[i++];
+            } else {
+                if (c == 0) {
+                    i++;
+                }
+                keys[n] = rightKeys[j];
+                values[n++] = rightValues[j++];
+            }
+        }
+
+        return new MetricName(key, trim(keys, n), trim(values, n));
     }
 }
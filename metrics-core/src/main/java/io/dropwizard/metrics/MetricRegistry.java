@@ -1,7 +1,6 @@
 package io.dropwizard.metrics;
 
 import io.dropwizard.metrics.Counter;
-import io.dropwizard.metrics.ExponentiallyDecayingReservoir;
 import io.dropwizard.metrics.Gauge;
 import io.dropwizard.metrics.Histogram;
 import io.dropwizard.metrics.Meter;
@@ -15,7 +14,9 @@ import io.dropwizard.metrics.Timer;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A registry of metric instances.
@@ -59,8 +60,68 @@ public class MetricRegistry implements MetricSet {
         return MetricName.build(parts);
     }
 
+    private static final int MAX_CACHED_NAMES = 10000;
+
     private final ConcurrentMap<MetricName, Metric> metrics;
+    private final ConcurrentMap<String, MetricName> names = new ConcurrentHashMap<String, MetricName>();
     private final List<MetricRegistryListener> listeners;
+    private final ConcurrentSkipListMap<MetricName, Gauge> gaugeIndex;
+    private final ConcurrentSkipListMap<MetricName, Counter> counterIndex;
+    private final ConcurrentSkipListMap<MetricName, Histogram> histogramIndex;
+    private final ConcurrentSkipListMap<MetricName, Meter> meterIndex;
+    private final ConcurrentSkipListMap<MetricName, Timer> timerIndex;
+    private volatile Clock rateClock = Clock.defaultClock();
+    private volatile MetricFactory metricFactory = new DefaultMetricFactory();
+    private final AtomicLong snapshotVersion = new AtomicLong();
+    private final List<Toggle> toggles = new CopyOnWriteArrayList<Toggle>();
+
+    private final MetricBuilder<Counter> counters = new MetricBuilder<Counter>() {
+        @Override
+        public Counter newMetric(MetricName name) {
+            return metricFactory.newCounter(name);
+        }
+
+        @Override
+        public boolean isInstance(Metric metric) {
+            return Counter.class.isInstance(metric);
+        }
+    };
+
+    private final MetricBuilder<Histogram> histograms = new MetricBuilder<Histogram>() {
+        @Override
+        public Histogram newMetric(MetricName name) {
+            return metricFactory.newHistogram(name, rateClock);
+        }
+
+        @Override
+        public boolean isInstance(Metric metric) {
+            return Histogram.class.isInstance(metric);
+        }
+    };
+
+    private final MetricBuilder<Meter> meters = new MetricBuilder<Meter>() {
+        @Override
+        public Meter newMetric(MetricName name) {
+            return metricFactory.newMeter(name, rateClock);
+        }
+
+        @Override
+        public boolean isInstance(Metric metric) {
+            return Meter.class.isInstance(metric);
+        }
+    };
+
+    private final MetricBuilder<Timer> timers = new MetricBuilder<Timer>() {
+        @Override
+        public Timer newMetric(MetricName name) {
+            return metricFactory.newTimer(name, rateClock);
+        }
+
+        @Override
+        public boolean isInstance(Metric metric) {
+            return Timer.class.isInstance(metric);
+        }
+    };
 
     /**
      * Creates a new {@link MetricRegistry}.
@@ -72,11 +133,61 @@ public class MetricRegistry implements MetricSet {
     /**
      * Creates a {@link MetricRegistry} with a custom {@link ConcurrentMap} implementation for use
      * inside the registry. Call as the super-constructor to create a {@link MetricRegistry} with
-     * space- or time-bounded metric lifecycles, for example.
+     * space- or time-bounded metric lifecycles, for example. Metrics must leave the map through
+     * {@link #remove(MetricName)}, so that the registry's per-type indexes and listeners see them go.
      */
     protected MetricRegistry(ConcurrentMap<MetricName, Metric> metricsMap) {
         this.metrics = metricsMap;
         this.listeners = new CopyOnWriteArrayList<MetricRegistryListener>();
+        this.gaugeIndex = new ConcurrentSkipListMap<MetricName, Gauge>();
+        this.counterIndex = new ConcurrentSkipListMap<MetricName, Counter>();
+        this.histogramIndex = new ConcurrentSkipListMap<MetricName, Histogram>();
+        this.meterIndex = new ConcurrentSkipListMap<MetricName, Meter>();
+        this.timerIndex = new ConcurrentSkipListMap<MetricName, Timer>();
+    }
+
+    /**
+     * Returns the clock used for the time bookkeeping of the metrics this registry creates: the
+     * rate intervals of meters and timers, and the time windows of the default reservoirs.
+     *
+     * @return the clock used for time bookkeeping
+     */
+    public Clock getRateClock() {
+        return rateClock;
+    }
+
+    /**
+     * Sets the clock used for the time bookkeeping of the metrics this registry creates from now
+     * on; see {@link #getRateClock()}. Timers keep measuring durations with the default clock.
+     * A {@link Clock.CoarseClock}, such as {@link Clock#coarseClock()}, makes this bookkeeping
+     * cheaper; pass {@link #getRateClock()} to window reservoirs created through a
+     * {@link MetricSupplier} to have them use it as well.
+     *
+     * @param rateClock the clock to use for time bookkeeping
+     */
+    public void setRateClock(Clock rateClock) {
+        this.rateClock = rateClock;
+    }
+
+    /**
+     * Returns the factory of the counters, histograms, meters and timers this registry creates
+     * when they are looked up and none is registered yet.
+     *
+     * @return the factory of new metrics
+     */
+    public MetricFactory getMetricFactory() {
+        return metricFactory;
+    }
+
+    /**
+     * Sets the factory of the counters, histograms, meters and timers this registry creates from
+     * now on; see {@link #getMetricFactory()}. Metrics created through a {@link MetricSupplier}
+     * don't go through the factory.
+     *
+     * @param metricFactory the factory of new metrics
+     */
+    public void setMetricFactory(MetricFactory metricFactory) {
+        this.metricFactory = metricFactory;
     }
 
     /**
@@ -84,7 +195,7 @@ public class MetricRegistry implements MetricSet {
      */
     @SuppressWarnings("unchecked")
     public <T extends Metric> T register(String name, T metric) throws IllegalArgumentException {
-        return register(MetricName.build(name), metric);
+        return register(nameOf(name), metric);
     }
 
     /**
@@ -103,6 +214,12 @@ public class MetricRegistry implements MetricSet {
         } else {
             final Metric existing = metrics.putIfAbsent(name, metric);
             if (existing == null) {
+                if (!toggles.isEmpty()) {
+                    synchronized (toggles) {
+                        setEnabled(metric, isEnabled(name, metric));
+                    }
+                }
+                index(name, metric);
                 onMetricAdded(name, metric);
             } else {
                 throw new IllegalArgumentException("A metric named " + name + " already exists");
@@ -126,7 +243,7 @@ public class MetricRegistry implements MetricSet {
      * @see #counter(MetricName)
      */
     public Counter counter(String name) {
-        return counter(MetricName.build(name));
+        return counter(nameOf(name));
     }
 
     /**
@@ -137,14 +254,14 @@ public class MetricRegistry implements MetricSet {
      * @return a new or pre-existing {@link Counter}
      */
     public Counter counter(MetricName name) {
-        return getOrAdd(name, MetricBuilder.COUNTERS);
+        return getOrAdd(name, counters);
     }
 
     /**
      * @see #histogram(MetricName)
      */
     public Histogram histogram(String name) {
-        return histogram(MetricName.build(name));
+        return histogram(nameOf(name));
     }
 
     /**
@@ -155,14 +272,43 @@ public class MetricRegistry implements MetricSet {
      * @return a new or pre-existing {@link Histogram}
      */
     public Histogram histogram(MetricName name) {
-        return getOrAdd(name, MetricBuilder.HISTOGRAMS);
+        return getOrAdd(name, histograms);
+    }
+
+    /**
+     * @see #histogram(MetricName, MetricSupplier)
+     */
+    public Histogram histogram(String name, MetricSupplier<Histogram> supplier) {
+        return histogram(nameOf(name), supplier);
+    }
+
+    /**
+     * Return the {@link Histogram} registered under this name; or create and register
+     * a new {@link Histogram} using the given supplier if none is registered.
+     *
+     * @param name     the name of the metric
+     * @param supplier a supplier creating a new histogram, e.g. with a different {@link Reservoir}
+     * @return a new or pre-existing {@link Histogram}
+     */
+    public Histogram histogram(MetricName name, final MetricSupplier<Histogram> supplier) {
+        return getOrAdd(name, new MetricBuilder<Histogram>() {
+            @Override
+            public Histogram newMetric(MetricName name) {
+                return supplier.newMetric();
+            }
+
+            @Override
+            public boolean isInstance(Metric metric) {
+                return Histogram.class.isInstance(metric);
+            }
+        });
     }
 
     /**
      * @see #meter(MetricName)
      */
     public Meter meter(String name) {
-        return meter(MetricName.build(name));
+        return meter(nameOf(name));
     }
 
     /**
@@ -173,14 +319,14 @@ public class MetricRegistry implements MetricSet {
      * @return a new or pre-existing {@link Meter}
      */
     public Meter meter(MetricName name) {
-        return getOrAdd(name, MetricBuilder.METERS);
+        return getOrAdd(name, meters);
     }
 
     /**
      * @see #timer(MetricName)
      */
     public Timer timer(String name) {
-        return timer(MetricName.build(name));
+        return timer(nameOf(name));
     }
 
     /**
@@ -191,7 +337,109 @@ public class MetricRegistry implements MetricSet {
      * @return a new or pre-existing {@link Timer}
      */
     public Timer timer(MetricName name) {
-        return getOrAdd(name, MetricBuilder.TIMERS);
+        return getOrAdd(name, timers);
+    }
+
+    /**
+     * @see #timer(MetricName, MetricSupplier)
+     */
+    public Timer timer(String name, MetricSupplier<Timer> supplier) {
+        return timer(nameOf(name), supplier);
+    }
+
+    /**
+     * Return the {@link Timer} registered under this name; or create and register
+     * a new {@link Timer} using the given supplier if none is registered.
+     *
+     * @param name     the name of the metric
+     * @param supplier a supplier creating a new timer, e.g. with a different {@link Reservoir}
+     * @return a new or pre-existing {@link Timer}
+     */
+    public Timer timer(MetricName name, final MetricSupplier<Timer> supplier) {
+        return getOrAdd(name, new MetricBuilder<Timer>() {
+            @Override
+            public Timer newMetric(MetricName name) {
+                return supplier.newMetric();
+            }
+
+            @Override
+            public boolean isInstance(Metric metric) {
+                return Timer.class.isInstance(metric);
+            }
+        });
+    }
+
+    /**
+     * Return a {@link MetricFamily} of the {@link Counter}s registered under this name, tagged
+     * with the given tag keys. The counters are created and registered as they are looked up.
+     *
+     * @param name    the name the counters share
+     * @param tagKeys the keys of the tags which tell the counters apart
+     * @return a new {@link MetricFamily} of {@link Counter}s
+     */
+    public MetricFamily<Counter> counterFamily(MetricName name, String... tagKeys) {
+        return new MetricFamily<Counter>(this, name, tagKeys) {
+            @Override
+            Counter newMetric(MetricName name) {
+                return counter(name);
+            }
+        };
+    }
+
+    /**
+     * Return a {@link MetricFamily} of the {@link Histogram}s registered under this name, tagged
+     * with the given tag keys. The histograms are created and registered as they are looked up.
+     *
+     * @param name    the name the histograms share
+     * @param tagKeys the keys of the tags which tell the histograms apart
+     * @return a new {@link MetricFamily} of {@link Histogram}s
+     */
+    public MetricFamily<Histogram> histogramFamily(MetricName name, String... tagKeys) {
+        return new MetricFamily<Histogram>(this, name, tagKeys) {
+            @Override
+            Histogram newMetric(MetricName name) {
+                return histogram(name);
+            }
+        };
+    }
+
+    /**
+     * Return a {@link MetricFamily} of the {@link Meter}s registered under this name, tagged
+     * with the given tag keys. The meters are created and registered as they are looked up.
+     *
+     * @param name    the name the meters share
+     * @param tagKeys the keys of the tags which tell the meters apart
+     * @return a new {@link MetricFamily} of {@link Meter}s
+     */
+    public MetricFamily<Meter> meterFamily(MetricName name, String... tagKeys) {
+        return new MetricFamily<Meter>(this, name, tagKeys) {
+            @Override
+            Meter newMetric(MetricName name) {
+                return meter(name);
+            }
+        };
+    }
+
+    /**
+     * Return a {@link MetricFamily} of the {@link Timer}s registered under this name, tagged
+     * with the given tag keys. The timers are created and registered as they are looked up.
+     *
+     * @param name    the name the timers share
+     * @param tagKeys the keys of the tags which tell the timers apart
+     * @return a new {@link MetricFamily} of {@link Timer}s
+     */
+    public MetricFamily<Timer> timerFamily(MetricName name, String... tagKeys) {
+        return new MetricFamily<Timer>(this, name, tagKeys) {
+            @Override
+            Timer newMetric(MetricName name) {
+                return timer(name);
+            }
+        };
+    }
+
+    // whether the given metric is the one registered under the given name
+    boolean isRegistered(MetricName name, Metric metric) {
+        return metrics.get(name) == metric;
     }
 
     /**
@@ -203,6 +451,7 @@ public class MetricRegistry implements MetricSet {
     public boolean remove(MetricName name) {
         final Metric metric = metrics.remove(name);
         if (metric != null) {
+            unindex(name, metric);
             onMetricRemoved(name, metric);
             return true;
         }
@@ -215,6 +464,14 @@ public class MetricRegistry implements MetricSet {
      * @param filter a filter
      */
     public void removeMatching(MetricFilter filter) {
+        if (prefixesOf(filter) != null) {
+            removeMatching(gaugeIndex, filter);
+            removeMatching(counterIndex, filter);
+            removeMatching(histogramIndex, filter);
+            removeMatching(meterIndex, filter);
+            removeMatching(timerIndex, filter);
+            return;
+        }
         for (Map.Entry<MetricName, Metric> entry : metrics.entrySet()) {
             if (filter.matches(entry.getKey(), entry.getValue())) {
                 remove(entry.getKey());
@@ -222,6 +479,66 @@ public class MetricRegistry implements MetricSet {
         }
     }
 
+    /**
+     * Turns the updates of the counters, histograms, meters and timers which match the given
+     * filter into no-ops, including those which are registered later on. Code which holds on to a
+     * disabled metric keeps using the same instance, which drops each update after checking a
+     * single flag. Gauges can't be disabled.
+     *
+     * @param filter a filter
+     * @see #enable(MetricFilter)
+     */
+    public void disable(MetricFilter filter) {
+        toggle(filter, false);
+    }
+
+    /**
+     * Turns the metrics which match the given filter back on, including those which are
+     * registered later on. Enabling {@link MetricFilter#ALL} turns every metric back on.
+     *
+     * @param filter a filter
+     * @see #disable(MetricFilter)
+     */
+    public void enable(MetricFilter filter) {
+        toggle(filter, true);
+    }
+
+    /**
+     * Returns whether the metric with the given name records updates, or would record them if it
+     * were registered. The last filter passed to {@link #enable(MetricFilter)} or
+     * {@link #disable(MetricFilter)} which matches the name decides; metrics are enabled unless a
+     * filter matches them.
+     *
+     * @param name the name of the metric
+     * @return whether the metric is enabled
+     */
+    public boolean isEnabled(MetricName name) {
+        return isEnabled(name, metrics.get(name));
+    }
+
+    /**
+     * Takes an immutable sample of all the metrics in the registry. Unlike the maps returned by
+     * {@link #getMetrics()} and its kin, which read the live metrics whenever they are asked, the
+     * sample reads every metric once and keeps its values in primitive columns.
+     *
+     * @return a new sample of the registry
+     * @see RegistrySnapshot#deltaFrom(RegistrySnapshot)
+     */
+    public RegistrySnapshot snapshot() {
+        return snapshot(MetricFilter.ALL);
+    }
+
+    /**
+     * Takes an immutable sample of the metrics in the registry which match the given filter.
+     *
+     * @param filter a filter
+     * @return a new sample of the matching metrics
+     * @see #snapshot()
+     */
+    public RegistrySnapshot snapshot(MetricFilter filter) {
+        return RegistrySnapshot.collect(this, filter, Clock.defaultClock());
+    }
+
     /**
      * Adds a {@link MetricRegistryListener} to a collection of listeners that will be notified on
      * metric creation.  Listeners will be notified in the order in which they are added.
@@ -257,7 +574,8 @@ public class MetricRegistry implements MetricSet {
     }
 
     /**
-     * Returns a map of all the gauges in the registry and their names.
+     * Returns a map of all the gauges in the registry and their names. The map is a read-only view
+     * which reflects the metrics registered and removed later on, rather than a copy.
      *
      * @return all the gauges in the registry
      */
@@ -272,11 +590,12 @@ public class MetricRegistry implements MetricSet {
      * @return all the gauges in the registry
      */
     public SortedMap<MetricName, Gauge> getGauges(MetricFilter filter) {
-        return getMetrics(Gauge.class, filter);
+        return getMetrics(gaugeIndex, filter);
     }
 
     /**
-     * Returns a map of all the counters in the registry and their names.
+     * Returns a map of all the counters in the registry and their names. The map is a read-only view
+     * which reflects the metrics registered and removed later on, rather than a copy.
      *
      * @return all the counters in the registry
      */
@@ -292,11 +611,12 @@ public class MetricRegistry implements MetricSet {
      * @return all the counters in the registry
      */
     public SortedMap<MetricName, Counter> getCounters(MetricFilter filter) {
-        return getMetrics(Counter.class, filter);
+        return getMetrics(counterIndex, filter);
     }
 
     /**
-     * Returns a map of all the histograms in the registry and their names.
+     * Returns a map of all the histograms in the registry and their names. The map is a read-only view
+     * which reflects the metrics registered and removed later on, rather than a copy.
      *
      * @return all the histograms in the registry
      */
@@ -312,11 +632,12 @@ public class MetricRegistry implements MetricSet {
      * @return all the histograms in the registry
      */
     public SortedMap<MetricName, Histogram> getHistograms(MetricFilter filter) {
-        return getMetrics(Histogram.class, filter);
+        return getMetrics(histogramIndex, filter);
     }
 
     /**
-     * Returns a map of all the meters in the registry and their names.
+     * Returns a map of all the meters in the registry and their names. The map is a read-only view
+     * which reflects the metrics registered and removed later on, rather than a copy.
      *
      * @return all the meters in the registry
      */
@@ -331,11 +652,12 @@ public class MetricRegistry implements MetricSet {
      * @return all the meters in the registry
      */
     public SortedMap<MetricName, Meter> getMeters(MetricFilter filter) {
-        return getMetrics(Meter.class, filter);
+        return getMetrics(meterIndex, filter);
     }
 
     /**
-     * Returns a map of all the timers in the registry and their names.
+     * Returns a map of all the timers in the registry and their names. The map is a read-only view
+     * which reflects the metrics registered and removed later on, rather than a copy.
      *
      * @return all the timers in the registry
      */
@@ -350,7 +672,11 @@ public class MetricRegistry implements MetricSet {
      * @return all the timers in the registry
      */
     public SortedMap<MetricName, Timer> getTimers(MetricFilter filter) {
-        return getMetrics(Timer.class, filter);
+        return getMetrics(timerIndex, filter);
+    }
+
+    long nextSnapshotVersion() {
+        return snapshotVersion.incrementAndGet();
     }
 
     @SuppressWarnings("unchecked")
@@ -360,7 +686,7 @@ public class MetricRegistry implements MetricSet {
             return (T) metric;
         } else if (metric == null) {
             try {
-                return register(name, builder.newMetric());
+                return register(name, builder.newMetric(name));
             } catch (IllegalArgumentException e) {
                 final Metric added = metrics.get(name);
                 if (builder.isInstance(added)) {
@@ -371,16 +697,160 @@ public class MetricRegistry implements MetricSet {
         throw new IllegalArgumentException(name + " is already used for a different type of metric");
     }
 
-    @SuppressWarnings("unchecked")
-    private <T extends Metric> SortedMap<MetricName, T> getMetrics(Class<T> klass, MetricFilter filter) {
-        final TreeMap<MetricName, T> timers = new TreeMap<MetricName, T>();
-        for (Map.Entry<MetricName, Metric> entry : metrics.entrySet()) {
-            if (klass.isInstance(entry.getValue()) && filter.matches(entry.getKey(),
-                                                                     entry.getValue())) {
-                timers.put(entry.getKey(), (T) entry.getValue());
+    /*
+     * Looks up the name built from the given string, so that metrics which are retrieved by a
+     * string name over and over again don't build, hash and compare a new name each time.
+     */
+    private MetricName nameOf(String name) {
+        if (name == null) {
+            return MetricName.build(name);
+        }
+        final MetricName cached = names.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        final MetricName built = MetricName.build(name).intern();
+        if (names.size() < MAX_CACHED_NAMES) {
+            names.putIfAbsent(name, built);
+        }
+        return built;
+    }
+
+    private <T extends Metric> SortedMap<MetricName, T> getMetrics(SortedMap<MetricName, T> index,
+                                                                   MetricFilter filter) {
+        if (filter == MetricFilter.ALL) {
+            return Collections.unmodifiableSortedMap(index);
+        }
+        final TreeMap<MetricName, T> metrics = new TreeMap<MetricName, T>();
+        final List<String> prefixes = prefixesOf(filter);
+        if (prefixes == null) {
+            collect(index, filter, metrics);
+        } else {
+            for (String prefix : prefixes) {
+                collect(subtree(index, prefix), filter, metrics);
+            }
+        }
+        return Collections.unmodifiableSortedMap(metrics);
+    }
+
+    private static <T extends Metric> void collect(SortedMap<MetricName, T> index, MetricFilter filter,
+                                                   Map<MetricName, T> metrics) {
+        for (Map.Entry<MetricName, T> entry : index.entrySet()) {
+            if (filter.matches(entry.getKey(), entry.getValue())) {
+                metrics.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private <T extends Metric> void removeMatching(SortedMap<MetricName, T> index, MetricFilter filter) {
+        for (String prefix : prefixesOf(filter)) {
+            for (Map.Entry<MetricName, T> entry : subtree(index, prefix).entrySet()) {
+                if (filter.matches(entry.getKey(), entry.getValue())) {
+                    remove(entry.getKey());
+                }
+            }
+        }
+    }
+
+    /*
+     * The toggle is added before the registered metrics are scanned, while registering a metric
+     * adds it before reading the toggles, so either the scan or the registration applies it. The
+     * registration applies the toggles under the same lock, so it can't undo a later scan with
+     * what it read before it.
+     */
+    private void toggle(MetricFilter filter, boolean enabled) {
+        synchronized (toggles) {
+            if (filter == MetricFilter.ALL) {
+                toggles.clear();
+            } else {
+                // a later toggle with an equal filter overrides the earlier one
+                for (Toggle toggle : toggles) {
+                    if (toggle.filter.equals(filter)) {
+                        toggles.remove(toggle);
+                    }
+                }
             }
+            if (!enabled || !toggles.isEmpty()) {
+                toggles.add(new Toggle(filter, enabled));
+            }
+            for (Map.Entry<MetricName, Metric> entry : metrics.entrySet()) {
+                if (filter.matches(entry.getKey(), entry.getValue())) {
+                    setEnabled(entry.getValue(), enabled);
+                }
+            }
+        }
+    }
+
+    private boolean isEnabled(MetricName name, Metric metric) {
+        boolean enabled = true;
+        for (Toggle toggle : toggles) {
+            if (toggle.filter.matches(name, metric)) {
+                enabled = toggle.enabled;
+            }
+        }
+        return enabled;
+    }
+
+    private static void setEnabled(Metric metric, boolean enabled) {
+        if (metric instanceof Counter) {
+            ((Counter) metric).setEnabled(enabled);
+        }
+        if (metric instanceof Histogram) {
+            ((Histogram) metric).setEnabled(enabled);
+        }
+        if (metric instanceof Meter) {
+            ((Meter) metric).setEnabled(enabled);
+        }
+        if (metric instanceof Timer) {
+            ((Timer) metric).setEnabled(enabled);
+        }
+    }
+
+    private static List<String> prefixesOf(MetricFilter filter) {
+        return filter instanceof CompiledMetricFilter ? ((CompiledMetricFilter) filter).getPrefixes() : null;
+    }
+
+    /*
+     * Names sort by key before tags, so the names whose key is the prefix or continues it with a
+     * dot lie between the untagged prefix and the prefix followed by the character after the dot.
+     * The few keys which continue the prefix with a character before the dot are left to the filter.
+     */
+    private static <T extends Metric> SortedMap<MetricName, T> subtree(SortedMap<MetricName, T> index,
+                                                                       String prefix) {
+        return index.subMap(MetricName.build(prefix), MetricName.build(prefix + (char) ('.' + 1)));
+    }
+
+    /*
+     * Adds a newly registered metric to the index of each type it is an instance of. Should the
+     * metric have been removed again in the meantime, it is taken out of the indexes once more.
+     */
+    private void index(MetricName name, Metric metric) {
+        if (metric instanceof Gauge) {
+            gaugeIndex.put(name, (Gauge) metric);
         }
-        return Collections.unmodifiableSortedMap(timers);
+        if (metric instanceof Counter) {
+            counterIndex.put(name, (Counter) metric);
+        }
+        if (metric instanceof Histogram) {
+            histogramIndex.put(name, (Histogram) metric);
+        }
+        if (metric instanceof Meter) {
+            meterIndex.put(name, (Meter) metric);
+        }
+        if (metric instanceof Timer) {
+            timerIndex.put(name, (Timer) metric);
+        }
+        if (metrics.get(name) != metric) {
+            unindex(name, metric);
+        }
+    }
+
+    private void unindex(MetricName name, Metric metric) {
+        gaugeIndex.remove(name, metric);
+        counterIndex.remove(name, metric);
+        histogramIndex.remove(name, metric);
+        meterIndex.remove(name, metric);
+        timerIndex.remove(name, metric);
     }
 
     private void onMetricAdded(MetricName name, Metric metric) {
@@ -446,58 +916,38 @@ public class MetricRegistry implements MetricSet {
     }
 
     /**
-     * A quick and easy way of capturing the notion of default metrics.
+     * A supplier of new metrics, used to create metrics which differ from the defaults, such as a
+     * {@link Timer} backed by a {@link LogLinearHistogramReservoir}.
+     *
+     * @param <T> the type of the metric
      */
-    private interface MetricBuilder<T extends Metric> {
-        MetricBuilder<Counter> COUNTERS = new MetricBuilder<Counter>() {
-            @Override
-            public Counter newMetric() {
-                return new Counter();
-            }
-
-            @Override
-            public boolean isInstance(Metric metric) {
-                return Counter.class.isInstance(metric);
-            }
-        };
-
-        MetricBuilder<Histogram> HISTOGRAMS = new MetricBuilder<Histogram>() {
-            @Override
-            public Histogram newMetric() {
-                return new Histogram(new ExponentiallyDecayingReservoir());
-            }
-
-            @Override
-            public boolean isInstance(Metric metric) {
-                return Histogram.class.isInstance(metric);
-            }
-        };
-
-        MetricBuilder<Meter> METERS = new MetricBuilder<Meter>() {
-            @Override
-            public Meter newMetric() {
-                return new Meter();
-            }
-
-            @Override
-            public boolean isInstance(Metric metric) {
-                return Meter.class.isInstance(metric);
-            }
-        };
+    public interface MetricSupplier<T extends Metric> {
+        /**
+         * Creates a new metric.
+         *
+         * @return a new metric
+         */
+        T newMetric();
+    }
 
-        MetricBuilder<Timer> TIMERS = new MetricBuilder<Timer>() {
-            @Override
-            public Timer newMetric() {
-                return new Timer();
-            }
+    /**
+     * A filter passed to {@link #enable(MetricFilter)} or {@link #disable(MetricFilter)}.
+     */
+    private static final class Toggle {
+        private final MetricFilter filter;
+        private final boolean enabled;
 
-            @Override
-            public boolean isInstance(Metric metric) {
-                return Timer.class.isInstance(metric);
-            }
-        };
+        private Toggle(MetricFilter filter, boolean enabled) {
+            this.filter = filter;
+            this.enabled = enabled;
+        }
+    }
 
-        T newMetric();
+    /**
+     * A quick and easy way of capturing the notion of default metrics.
+     */
+    private interface MetricBuilder<T extends Metric> {
+        T newMetric(MetricName name);
 
         boolean isInstance(Metric metric);
     }
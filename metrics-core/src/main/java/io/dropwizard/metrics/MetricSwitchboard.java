@@ -0,0 +1,77 @@
+package io.dropwizard.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns the metrics of a registry on and off by name, for operators rather than code. It is an
+ * MBean, so it can be registered with an MBean server as it is:
+ * <pre><code>
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricSwitchboard(registry),
+ *         new ObjectName("metrics:type=MetricSwitchboard"));
+ * </code></pre>
+ * Names are matched by prefix or glob, as by {@link CompiledMetricFilter.Builder#include(String)}.
+ *
+ * @see MetricRegistry#disable(MetricFilter)
+ */
+public class MetricSwitchboard implements MetricSwitchboardMBean {
+    private final MetricRegistry registry;
+
+    /**
+     * Creates a new {@link MetricSwitchboard} for the given registry.
+     *
+     * @param registry the registry whose metrics to turn on and off
+     */
+    public MetricSwitchboard(MetricRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void enable(String pattern) {
+        registry.enable(filterOf(pattern));
+    }
+
+    @Override
+    public void disable(String pattern) {
+        registry.disable(filterOf(pattern));
+    }
+
+    @Override
+    public void enableAll() {
+        registry.enable(MetricFilter.ALL);
+    }
+
+    @Override
+    public boolean isEnabled(String name) {
+        return registry.isEnabled(MetricName.build(name));
+    }
+
+    /**
+     * Returns whether the metric with the given name records updates. Unlike
+     * {@link #isEnabled(String)}, this also tells about metrics whose names are tagged.
+     *
+     * @param name the name of the metric
+     * @return whether the metric is enabled
+     */
+    public boolean isEnabled(MetricName name) {
+        return registry.isEnabled(name);
+    }
+
+    @Override
+    public String[] getDisabledMetrics() {
+        final Map<MetricName, Metric> metrics = registry.getMetrics();
+        final List<String> disabled = new ArrayList<String>();
+        for (MetricName name : registry.getNames()) {
+            // gauges are never disabled
+            if (!(metrics.get(name) instanceof Gauge) && !registry.isEnabled(name)) {
+                disabled.add(name.toString());
+            }
+        }
+        return disabled.toArray(new String[disabled.size()]);
+    }
+
+    private static MetricFilter filterOf(String pattern) {
+        return CompiledMetricFilter.builder().include(pattern).build();
+    }
+}
@@ -0,0 +1,40 @@
+package io.dropwizard.metrics;
+
+/**
+ * The management interface of a {@link MetricSwitchboard}.
+ */
+public interface MetricSwitchboardMBean {
+    /**
+     * Turns the metrics whose name matches the given prefix or glob back on.
+     *
+     * @param pattern a prefix or glob, as understood by {@link CompiledMetricFilter}
+     */
+    void enable(String pattern);
+
+    /**
+     * Turns the updates of the metrics whose name matches the given prefix or glob into no-ops.
+     *
+     * @param pattern a prefix or glob, as understood by {@link CompiledMetricFilter}
+     */
+    void disable(String pattern);
+
+    /**
+     * Turns every metric back on.
+     */
+    void enableAll();
+
+    /**
+     * Returns whether the metric with the given name records updates.
+     *
+     * @param name the name of the metric
+     * @return whether the metric is enabled
+     */
+    boolean isEnabled(String name);
+
+    /**
+     * Returns the names of the registered metrics which are disabled.
+     *
+     * @return the names of the disabled metrics
+     */
+    String[] getDisabledMetrics();
+}
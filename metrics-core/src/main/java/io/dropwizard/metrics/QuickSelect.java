@@ -0,0 +1,143 @@
+package io.dropwizard.metrics;
+
+/**
+ * Sorting and selection over primitive arrays of values, optionally moving a parallel array of
+ * weights along with them.
+ */
+final class QuickSelect {
+    // ranges up to this size are insertion sorted rather than partitioned
+    static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private QuickSelect() {
+    }
+
+    /**
+     * Sorts the given range of values in ascending order.
+     *
+     * @param values  the values
+     * @param weights the weights of the values, moved along with them, or {@code null}
+     * @param from    the index of the first element to sort, inclusive
+     * @param to      the index of the last element to sort, exclusive
+     */
+    static void sort(long[] values, double[] weights, int from, int to) {
+        while (to - from > INSERTION_SORT_THRESHOLD) {
+            final long bounds = partition(values, weights, from, to);
+            final int lt = lower(bounds);
+            final int gt = upper(bounds);
+            // recurse into the smaller side to bound the stack depth
+            if (lt - from < to - gt) {
+                sort(values, weights, from, lt);
+                from = gt;
+            } else {
+                sort(values, weights, gt, to);
+                to = lt;
+            }
+        }
+        insertionSort(values, weights, from, to);
+    }
+
+    /**
+     * Partially orders the given range of values so that each of the given ranks holds the value
+     * it would hold if the range were sorted.
+     *
+     * @param values    the values
+     * @param from      the index of the first element to consider, inclusive
+     * @param to        the index of the last element to consider, exclusive
+     * @param ranks     the indexes to select, in ascending order and within {@code [from..to)}
+     * @param rankFrom  the index of the first rank to select, inclusive
+     * @param rankTo    the index of the last rank to select, exclusive
+     */
+    static void select(long[] values, int from, int to, int[] ranks, int rankFrom, int rankTo) {
+        while (rankFrom < rankTo) {
+            if (to - from <= INSERTION_SORT_THRESHOLD) {
+                insertionSort(values, null, from, to);
+                return;
+            }
+            final long bounds = partition(values, null, from, to);
+            final int lt = lower(bounds);
+            final int gt = upper(bounds);
+            int left = rankFrom;
+            while (left < rankTo && ranks[left] < lt) {
+                left++;
+            }
+            int right = left;
+            while (right < rankTo && ranks[right] < gt) {
+                right++;
+            }
+            // ranks in [left..right) fall on the pivot and are already in place
+            select(values, from, lt, ranks, rankFrom, left);
+            from = gt;
+            rankFrom = right;
+        }
+    }
+
+    /**
+     * Partitions the given range around a median-of-three pivot into the values less than, equal
+     * to and greater than it.
+     *
+     * @return the bounds {@code lt} and {@code gt} of the values equal to the pivot, packed into a
+     * {@code long}; use {@link #lower(long)} and {@link #upper(long)} to unpack them
+     */
+    static long partition(long[] values, double[] weights, int from, int to) {
+        final long pivot = medianOfThree(values[from], values[(from + to) >>> 1], values[to - 1]);
+        int lt = from;
+        int gt = to;
+        int i = from;
+        while (i < gt) {
+            final long value = values[i];
+            if (value < pivot) {
+                swap(values, weights, lt++, i++);
+            } else if (value > pivot) {
+                swap(values, weights, i, --gt);
+            } else {
+                i++;
+            }
+        }
+        return ((long) lt << 32) | gt;
+    }
+
+    static int lower(long bounds) {
+        return (int) (bounds >>> 32);
+    }
+
+    static int upper(long bounds) {
+        return (int) bounds;
+    }
+
+    static void insertionSort(long[] values, double[] weights, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            final long value = values[i];
+            final double weight = weights == null ? 0 : weights[i];
+            int j = i - 1;
+            while (j >= from && values[j] > value) {
+                values[j + 1] = values[j];
+                if (weights != null) {
+                    weights[j + 1] = weights[j];
+                }
+                j--;
+            }
+            values[j + 1] = value;
+            if (weights != null) {
+                weights[j + 1] = weight;
+            }
+        }
+    }
+
+    private static long medianOfThree(long a, long b, long c) {
+        if (a < b) {
+            return b < c ? b : (a < c ? c : a);
+        }
+        return a < c ? a : (b < c ? c : b);
+    }
+
+    private static void swap(long[] values, double[] weights, int i, int j) {
+        final long value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+        if (weights != null) {
+            final double weight = weights[i];
+            weights[i] = weights[j];
+            weights[j] = weight;
+        }
+    }
+}
@@ -0,0 +1,1187 @@
+package io.dropwizard.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An immutable sample of the metrics in a {@link MetricRegistry}, taken in a single pass: every
+ * gauge is evaluated, and every snapshot and rate is computed, exactly once. Values are kept in
+ * primitive columns per metric type, sorted by name, so that any number of consumers can read the
+ * same sample without touching the metrics again.
+ * <p/>
+ * Each sample of a registry has a higher {@link #getVersion() version} than the samples taken
+ * before it, and {@link #deltaFrom(RegistrySnapshot)} tells what changed between two samples.
+ * <p/>
+ * Large registries can be sampled in parallel on a {@link ForkJoinPool}, and within a deadline;
+ * metrics which haven't been sampled by the deadline are left out of the sample, and counted by
+ * {@link #getSkipped()}. Their names are kept by {@link Columns#getSkippedNames()}, along with their
+ * values in the previous sample, if one is given, so that deltas stay right across skipped samples.
+ *
+ * @see ReportingHub
+ */
+public final class RegistrySnapshot {
+    private static final MetricName[] NO_NAMES = new MetricName[0];
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int BATCH_SIZE = 32;
+    private static final int STATISTICS = Statistic.values().length;
+    private static final double[] QUANTILES = {0.5, 0.75, 0.95, 0.98, 0.99, 0.999};
+    private static final Object[] NO_VALUES = new Object[0];
+    // the value of a skipped metric which wasn't in the previous sample either
+    private static final Object UNKNOWN = new Object();
+    // the reservoir of the views handed out for a sample, which override every getter
+    private static final Reservoir IGNORED = new Reservoir() {
+        @Override
+        public int size() {
+            return 0;
+        }
+
+        @Override
+        public void update(long value) {
+        }
+
+        @Override
+        public Snapshot getSnapshot() {
+            return new UniformSnapshot(new long[0]);
+        }
+    };
+
+    private final MetricRegistry registry;
+    private final long version;
+    private final long timestamp;
+    private final int skipped;
+    private final Gauges gauges;
+    private final Counters counters;
+    private final Histograms histograms;
+    private final Meters meters;
+    private final Timers timers;
+    private final Columns[] columns;
+
+    private RegistrySnapshot(MetricRegistry registry, long version, long timestamp, int skipped, Gauges gauges,
+                             Counters counters, Histograms histograms, Meters meters, Timers timers) {
+        this.registry = registry;
+        this.version = version;
+        this.timestamp = timestamp;
+        this.skipped = skipped;
+        this.gauges = gauges;
+        this.counters = counters;
+        this.histograms = histograms;
+        this.meters = meters;
+        this.timers = timers;
+        this.columns = new Columns[]{gauges, counters, histograms, meters, timers};
+    }
+
+    /**
+     * Samples the metrics in the given registry which match the given filter.
+     *
+     * @param registry the registry to sample
+     * @param filter   the filter for which metrics to sample
+     * @param clock    the clock used to timestamp the sample
+     * @return a new sample of the registry
+     */
+    public static RegistrySnapshot collect(MetricRegistry registry, MetricFilter filter, Clock clock) {
+        return collect(registry, filter, clock, null, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Samples the metrics in the given registry which match the given filter, in parallel on the
+     * given pool and within the given timeout. Metrics which haven't been sampled when the timeout
+     * expires are left out of the sample, including those the pool is still sampling; only in the
+     * calling thread is a metric which is being sampled by then still waited for.
+     *
+     * @param registry the registry to sample
+     * @param filter   the filter for which metrics to sample
+     * @param clock    the clock used to timestamp the sample
+     * @param pool     the pool to sample the metrics on, or {@code null} to sample them in the
+     *                 calling thread
+     * @param timeout  the maximum time to spend sampling, or {@code 0} for no limit
+     * @param unit     the unit for {@code timeout}
+     * @return a new sample of the registry
+     */
+    public static RegistrySnapshot collect(MetricRegistry registry, MetricFilter filter, Clock clock,
+                                           ForkJoinPool pool, long timeout, TimeUnit unit) {
+        return collect(registry, filter, clock, pool, timeout, unit, null);
+    }
+
+    /**
+     * Samples the metrics in the given registry which match the given filter, in parallel on the
+     * given pool and within the given timeout. The metrics left out of the sample keep the values
+     * they had in the given, previous sample, so that {@link #deltaFrom(RegistrySnapshot)} neither
+     * reports them as removed nor counts all of their events as new once they are sampled again.
+     *
+     * @param registry the registry to sample
+     * @param filter   the filter for which metrics to sample
+     * @param clock    the clock used to timestamp the sample
+     * @param pool     the pool to sample the metrics on, or {@code null} to sample them in the
+     *                 calling thread
+     * @param timeout  the maximum time to spend sampling, or {@code 0} for no limit
+     * @param unit     the unit for {@code timeout}
+     * @param previous the previous sample of the registry, or {@code null}
+     * @return a new sample of the registry
+     * @throws IllegalArgumentException if {@code previous} is a sample of another registry
+     */
+    public static RegistrySnapshot collect(MetricRegistry registry, MetricFilter filter, Clock clock,
+                                           ForkJoinPool pool, long timeout, TimeUnit unit,
+                                           RegistrySnapshot previous) {
+        if (previous != null && previous.registry != registry) {
+            throw new IllegalArgumentException("The previous sample is of another registry");
+        }
+        final long timestamp = clock.getTime();
+        final Collection collection = new Collection(timeout > 0 ? unit.toNanos(timeout) : 0,
+                gather(registry.getGauges(filter)),
+                gather(registry.getCounters(filter)),
+                gather(registry.getHistograms(filter)),
+                gather(registry.getMeters(filter)),
+                gather(registry.getTimers(filter)));
+        collection.columns[0] = new Gauges(collection.names[0]);
+        collection.columns[1] = new Counters(collection.names[1]);
+        collection.columns[2] = new Histograms(collection.names[2]);
+        collection.columns[3] = new Meters(collection.names[3]);
+        collection.columns[4] = new Timers(collection.names[4]);
+
+        if (pool == null) {
+            collection.sample(0, collection.size());
+        } else if (timeout <= 0) {
+            pool.invoke(new SampleTask(collection, 0, collection.size()));
+        } else {
+            await(pool.submit(new SampleTask(collection, 0, collection.size())), collection);
+        }
+        collection.finish();
+
+        return new RegistrySnapshot(registry, registry.nextSnapshotVersion(), timestamp, collection.skipped(),
+                (Gauges) collection.compact(0, previous),
+                (Counters) collection.compact(1, previous),
+                (Histograms) collection.compact(2, previous),
+                (Meters) collection.compact(3, previous),
+                (Timers) collection.compact(4, previous));
+    }
+
+    /**
+     * Returns the version of this sample, which is higher than that of every sample of the same
+     * registry taken before it.
+     *
+     * @return the version of this sample
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the time at which this sample was taken.
+     *
+     * @return the time at which this sample was taken, in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the number of metrics which were left out of this sample because they couldn't be
+     * sampled in time.
+     *
+     * @return the number of metrics which weren't sampled
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public Gauges getGauges() {
+        return gauges;
+    }
+
+    public Counters getCounters() {
+        return counters;
+    }
+
+    public Histograms getHistograms() {
+        return histograms;
+    }
+
+    public Meters getMeters() {
+        return meters;
+    }
+
+    public Timers getTimers() {
+        return timers;
+    }
+
+    /**
+     * Returns what changed between the given, earlier sample of the same registry and this one.
+     * Metrics which were left out of either sample by the deadline are not removed, and metrics
+     * which the earlier sample carried over from the one before it are compared to their carried
+     * values.
+     *
+     * @param previous an earlier sample
+     * @return the changes since {@code previous}
+     * @throws IllegalArgumentException if {@code previous} is a sample of another registry, or
+     *                                  isn't older than this sample
+     */
+    public Delta deltaFrom(RegistrySnapshot previous) {
+        if (previous.registry != registry) {
+            throw new IllegalArgumentException("The previous sample is of another registry");
+        }
+        if (previous.version >= version) {
+            throw new IllegalArgumentException("The previous sample (version " + previous.version
+                    + ") is not older than this one (version " + version + ")");
+        }
+        final List<MetricName> gone = new ArrayList<MetricName>();
+        final int[] gauges = align(previous.gauges.names, this.gauges.names, gone);
+        final boolean[] changed = new boolean[gauges.length];
+        for (int i = 0; i < gauges.length; i++) {
+            final Object before = gauges[i] < 0 ? previous.gauges.carriedValueOf(this.gauges.names[i])
+                    : previous.gauges.values[gauges[i]];
+            changed[i] = before == UNKNOWN || !equal(before, this.gauges.values[i]);
+        }
+        return new Delta(previous, this, changed,
+                deltas(previous.counters, previous.counters.counts, this.counters, this.counters.counts,
+                        align(previous.counters.names, this.counters.names, gone)),
+                deltas(previous.histograms, previous.histograms.counts, this.histograms, this.histograms.counts,
+                        align(previous.histograms.names, this.histograms.names, gone)),
+                deltas(previous.meters, previous.meters.counts, this.meters, this.meters.counts,
+                        align(previous.meters.names, this.meters.names, gone)),
+                deltas(previous.timers, previous.timers.counts, this.timers, this.timers.counts,
+                        align(previous.timers.names, this.timers.names, gone)),
+                removedSince(previous, gone));
+    }
+
+    /*
+     * Returns the given names, which have gone from the columns of their type, and the names the
+     * earlier sample skipped, which this sample holds under no type at all.
+     */
+    private List<MetricName> removedSince(RegistrySnapshot previous, List<MetricName> gone) {
+        for (Columns columns : previous.columns) {
+            gone.addAll(Arrays.asList(columns.skippedNames));
+        }
+        final List<MetricName> removed = new ArrayList<MetricName>();
+        for (MetricName name : gone) {
+            if (!contains(name)) {
+                removed.add(name);
+            }
+        }
+        return Collections.unmodifiableList(removed);
+    }
+
+    private boolean contains(MetricName name) {
+        for (Columns columns : this.columns) {
+            if (columns.contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The summary statistics of the sampled histograms and timers, which are computed the first
+     * time one of them is read.
+     */
+    public enum Statistic {
+        MIN, MAX, MEAN, STDDEV, MEDIAN, P75, P95, P98, P99, P999
+    }
+
+    /**
+     * The changes between two samples of a registry. Indexes refer to the columns of the later
+     * sample; metrics which are new in the later sample count all of their events as new, unless
+     * the earlier sample skipped them and carried their values over.
+     */
+    public static final class Delta {
+        private final RegistrySnapshot from;
+        private final RegistrySnapshot to;
+        private final boolean[] gauges;
+        private final long[] counters;
+        private final long[] histograms;
+        private final long[] meters;
+        private final long[] timers;
+        private final List<MetricName> removed;
+
+        private Delta(RegistrySnapshot from, RegistrySnapshot to, boolean[] gauges, long[] counters,
+                      long[] histograms, long[] meters, long[] timers, List<MetricName> removed) {
+            this.from = from;
+            this.to = to;
+            this.gauges = gauges;
+            this.counters = counters;
+            this.histograms = histograms;
+            this.meters = meters;
+            this.timers = timers;
+            this.removed = removed;
+        }
+
+        public RegistrySnapshot getFrom() {
+            return from;
+        }
+
+        public RegistrySnapshot getTo() {
+            return to;
+        }
+
+        /**
+         * Returns the time between the two samples.
+         *
+         * @return the time between the samples, in milliseconds
+         */
+        public long getInterval() {
+            return to.timestamp - from.timestamp;
+        }
+
+        /**
+         * Returns whether the value of the gauge at the given index is new or differs from its
+         * previous value.
+         *
+         * @param i the index of the gauge in the later sample
+         * @return whether the gauge changed
+         */
+        public boolean isGaugeChanged(int i) {
+            return gauges[i];
+        }
+
+        public long getCounterDelta(int i) {
+            return counters[i];
+        }
+
+        public long getHistogramDelta(int i) {
+            return histograms[i];
+        }
+
+        public long getMeterDelta(int i) {
+            return meters[i];
+        }
+
+        public long getTimerDelta(int i) {
+            return timers[i];
+        }
+
+        /**
+         * Returns the names of the metrics which are in the earlier sample, sampled or skipped, but
+         * in the later one under no type at all.
+         *
+         * @return the names of the removed metrics
+         */
+        public List<MetricName> getRemoved() {
+            return removed;
+        }
+    }
+
+    /**
+     * The columns of a metric type, indexed from {@code 0} to {@link #size()}, in the order of
+     * their names.
+     */
+    public abstract static class Columns {
+        final MetricName[] names;
+        // the views handed out by toMetrics, created on first use and shared by every consumer
+        private final AtomicReferenceArray<Metric> views;
+        // the metrics left out by the deadline, and their values in the previous sample or UNKNOWN;
+        // only set while the sample is collected
+        MetricName[] skippedNames = NO_NAMES;
+        Object[] carried = NO_VALUES;
+
+        Columns(MetricName[] names) {
+            this.names = names;
+            this.views = new AtomicReferenceArray<Metric>(names.length);
+        }
+
+        /**
+         * Returns the number of metrics in these columns.
+         *
+         * @return the number of metrics
+         */
+        public int size() {
+            return names.length;
+        }
+
+        /**
+         * Returns the name of the metric at the given index.
+         *
+         * @param i the index of the metric
+         * @return the name of the metric
+         */
+        public MetricName getName(int i) {
+            return names[i];
+        }
+
+        /**
+         * Returns the names of the metrics of this type which were left out of the sample because
+         * they couldn't be sampled in time.
+         *
+         * @return the names of the skipped metrics
+         */
+        public List<MetricName> getSkippedNames() {
+            return Collections.unmodifiableList(Arrays.asList(skippedNames));
+        }
+
+        /**
+         * Returns a map of read-only metrics which report the sampled values of the metrics in
+         * these columns and match the given filter, so that the sample can be handed to code
+         * which consumes metrics, such as {@link ScheduledReporter}. The metrics are views of the
+         * columns, created once per sample however many consumers ask for them, and ignore
+         * updates.
+         *
+         * @param filter the filter for which metrics to include
+         * @param <T>    the type of the metrics
+         * @return the sampled metrics, by name
+         */
+        <T extends Metric> SortedMap<MetricName, T> toMetrics(MetricFilter filter) {
+            final TreeMap<MetricName, T> metrics = new TreeMap<MetricName, T>();
+            for (int i = 0; i < names.length; i++) {
+                @SuppressWarnings("unchecked")
+                final T metric = (T) view(i);
+                if (filter.matches(names[i], metric)) {
+                    metrics.put(names[i], metric);
+                }
+            }
+            return Collections.unmodifiableSortedMap(metrics);
+        }
+
+        private Metric view(int i) {
+            final Metric view = views.get(i);
+            if (view != null) {
+                return view;
+            }
+            final Metric created = toMetric(i);
+            return views.compareAndSet(i, null, created) ? created : views.get(i);
+        }
+
+        abstract Metric toMetric(int i);
+
+        // the value which is compared between samples: a gauge's value, or a count
+        abstract Object valueAt(int i);
+
+        // the value of the metric, sampled or carried over, or UNKNOWN
+        Object valueOf(MetricName name) {
+            final int i = Arrays.binarySearch(names, name);
+            return i >= 0 ? valueAt(i) : carriedValueOf(name);
+        }
+
+        // the value of the metric if it was skipped and carried over, or UNKNOWN
+        Object carriedValueOf(MetricName name) {
+            final int i = Arrays.binarySearch(skippedNames, name);
+            return i >= 0 ? carried[i] : UNKNOWN;
+        }
+
+        boolean contains(MetricName name) {
+            return Arrays.binarySearch(names, name) >= 0 || Arrays.binarySearch(skippedNames, name) >= 0;
+        }
+
+        // records the values of the given metric at the given index; only used while sampling
+        abstract void sample(int i, Metric metric);
+
+        // returns columns holding only the given values, which are n in number
+        abstract Columns compact(boolean[] sampled, int n);
+    }
+
+    /**
+     * The values of the sampled gauges.
+     */
+    public static final class Gauges extends Columns {
+        private final Object[] values;
+
+        private Gauges(MetricName[] names, Object[] values) {
+            super(names);
+            this.values = values;
+        }
+
+        private Gauges(MetricName[] names) {
+            this(names, new Object[names.length]);
+        }
+
+        @Override
+        void sample(int i, Metric metric) {
+            values[i] = valueOf((Gauge) metric);
+        }
+
+        @Override
+        Columns compact(boolean[] sampled, int n) {
+            return new Gauges(RegistrySnapshot.compact(names, sampled, n), RegistrySnapshot.compact(values, sampled, n));
+        }
+
+        private static Object valueOf(Gauge gauge) {
+            try {
+                return gauge.getValue();
+            } catch (RuntimeException e) {
+                return new Failure(e);
+            }
+        }
+
+        /**
+         * Returns the value of the gauge at the given index.
+         *
+         * @param i the index of the gauge
+         * @return the value of the gauge
+         * @throws RuntimeException the exception the gauge threw while it was sampled, if any
+         */
+        public Object getValue(int i) {
+            final Object value = values[i];
+            if (value instanceof Failure) {
+                throw ((Failure) value).cause;
+            }
+            return value;
+        }
+
+        @Override
+        Object valueAt(int i) {
+            return values[i];
+        }
+
+        @Override
+        Metric toMetric(final int i) {
+            return new Gauge<Object>() {
+                @Override
+                public Object getValue() {
+                    return Gauges.this.getValue(i);
+                }
+            };
+        }
+
+        private static final class Failure {
+            private final RuntimeException cause;
+
+            private Failure(RuntimeException cause) {
+                this.cause = cause;
+            }
+        }
+    }
+
+    /**
+     * The counts of the sampled counters.
+     */
+    public static final class Counters extends Columns {
+        final long[] counts;
+
+        private Counters(MetricName[] names, long[] counts) {
+            super(names);
+            this.counts = counts;
+        }
+
+        private Counters(MetricName[] names) {
+            this(names, new long[names.length]);
+        }
+
+        @Override
+        void sample(int i, Metric metric) {
+            counts[i] = ((Counter) metric).getCount();
+        }
+
+        @Override
+        Columns compact(boolean[] sampled, int n) {
+            return new Counters(RegistrySnapshot.compact(names, sampled, n),
+                    RegistrySnapshot.compact(counts, 1, sampled, n));
+        }
+
+        public long getCount(int i) {
+            return counts[i];
+        }
+
+        @Override
+        Object valueAt(int i) {
+            return counts[i];
+        }
+
+        @Override
+        Metric toMetric(int i) {
+            return new CounterView(this, i);
+        }
+    }
+
+    /**
+     * The counts and snapshots of the sampled histograms.
+     */
+    public static final class Histograms extends Columns {
+        final long[] counts;
+        private final Snapshot[] snapshots;
+        private final AtomicReferenceArray<double[]> statistics;
+
+        private Histograms(MetricName[] names, long[] counts, Snapshot[] snapshots) {
+            super(names);
+            this.counts = counts;
+            this.snapshots = snapshots;
+            this.statistics = new AtomicReferenceArray<double[]>(names.length);
+        }
+
+        private Histograms(MetricName[] names) {
+            this(names, new long[names.length], new Snapshot[names.length]);
+        }
+
+        @Override
+        void sample(int i, Metric metric) {
+            final Histogram histogram = (Histogram) metric;
+            counts[i] = histogram.getCount();
+            snapshots[i] = histogram.getSnapshot();
+        }
+
+        @Override
+        Columns compact(boolean[] sampled, int n) {
+            return new Histograms(RegistrySnapshot.compact(names, sampled, n),
+                    RegistrySnapshot.compact(counts, 1, sampled, n), RegistrySnapshot.compact(snapshots, sampled, n));
+        }
+
+        public long getCount(int i) {
+            return counts[i];
+        }
+
+        public Snapshot getSnapshot(int i) {
+            return snapshots[i];
+        }
+
+        /**
+         * Returns a summary statistic of the histogram at the given index.
+         *
+         * @param i         the index of the histogram
+         * @param statistic the statistic
+         * @return the value of the statistic
+         */
+        public double getStatistic(int i, Statistic statistic) {
+            return RegistrySnapshot.statistic(statistics, snapshots, i, statistic);
+        }
+
+        @Override
+        Object valueAt(int i) {
+            return counts[i];
+        }
+
+        @Override
+        Metric toMetric(int i) {
+            return new HistogramView(this, i);
+        }
+    }
+
+    /**
+     * The counts and rates of the sampled meters. Rates are in events per second.
+     */
+    public static class Meters extends Columns {
+        private static final int MEAN = 0;
+        private static final int M1 = 1;
+        private static final int M5 = 2;
+        private static final int M15 = 3;
+        static final int RATES = 4;
+
+        final long[] counts;
+        final double[] rates;
+
+        Meters(MetricName[] names, long[] counts, double[] rates) {
+            super(names);
+            this.counts = counts;
+            this.rates = rates;
+        }
+
+        private Meters(MetricName[] names) {
+            this(names, new long[names.length], new double[names.length * RATES]);
+        }
+
+        @Override
+        void sample(int i, Metric metric) {
+            final Metered metered = (Metered) metric;
+            counts[i] = metered.getCount();
+            rates[i * RATES + MEAN] = metered.getMeanRate();
+            rates[i * RATES + M1] = metered.getOneMinuteRate();
+            rates[i * RATES + M5] = metered.getFiveMinuteRate();
+            rates[i * RATES + M15] = metered.getFifteenMinuteRate();
+        }
+
+        @Override
+        Columns compact(boolean[] sampled, int n) {
+            return new Meters(RegistrySnapshot.compact(names, sampled, n),
+                    RegistrySnapshot.compact(counts, 1, sampled, n), RegistrySnapshot.compact(rates, RATES, sampled, n));
+        }
+
+        public long getCount(int i) {
+            return counts[i];
+        }
+
+        public double getMeanRate(int i) {
+            return rates[i * RATES + MEAN];
+        }
+
+        public double getOneMinuteRate(int i) {
+            return rates[i * RATES + M1];
+        }
+
+        public double getFiveMinuteRate(int i) {
+            return rates[i * RATES + M5];
+        }
+
+        public double getFifteenMinuteRate(int i) {
+            return rates[i * RATES + M15];
+        }
+
+        @Override
+        Object valueAt(int i) {
+            return counts[i];
+        }
+
+        @Override
+        Metric toMetric(int i) {
+            return new MeterView(this, i);
+        }
+    }
+
+    /**
+     * The counts, rates and snapshots of the sampled timers. Rates are in events per second, and
+     * snapshots are in nanoseconds.
+     */
+    public static final class Timers extends Meters {
+        private final Snapshot[] snapshots;
+        private final AtomicReferenceArray<double[]> statistics;
+
+        private Timers(MetricName[] names, long[] counts, double[] rates, Snapshot[] snapshots) {
+            super(names, counts, rates);
+            this.snapshots = snapshots;
+            this.statistics = new AtomicReferenceArray<double[]>(names.length);
+        }
+
+        private Timers(MetricName[] names) {
+            this(names, new long[names.length], new double[names.length * RATES], new Snapshot[names.length]);
+        }
+
+        @Override
+        void sample(int i, Metric metric) {
+            super.sample(i, metric);
+            snapshots[i] = ((Timer) metric).getSnapshot();
+        }
+
+        @Override
+        Columns compact(boolean[] sampled, int n) {
+            return new Timers(RegistrySnapshot.compact(names, sampled, n),
+                    RegistrySnapshot.compact(counts, 1, sampled, n), RegistrySnapshot.compact(rates, RATES, sampled, n),
+                    RegistrySnapshot.compact(snapshots, sampled, n));
+        }
+
+        public Snapshot getSnapshot(int i) {
+            return snapshots[i];
+        }
+
+        /**
+         * Returns a summary statistic of the timer at the given index, in nanoseconds.
+         *
+         * @param i         the index of the timer
+         * @param statistic the statistic
+         * @return the value of the statistic
+         */
+        public double getStatistic(int i, Statistic statistic) {
+            return RegistrySnapshot.statistic(statistics, snapshots, i, statistic);
+        }
+
+        @Override
+        Metric toMetric(int i) {
+            return new TimerView(this, i);
+        }
+    }
+
+    /*
+     * The views handed out for a sample. Each reads the values of one metric from the columns, and
+     * is disabled so that a sink calling a mutator changes nothing.
+     */
+    private static final class CounterView extends Counter {
+        private final Counters columns;
+        private final int i;
+
+        private CounterView(Counters columns, int i) {
+            this.columns = columns;
+            this.i = i;
+            setEnabled(false);
+        }
+
+        @Override
+        public long getCount() {
+            return columns.getCount(i);
+        }
+    }
+
+    private static final class HistogramView extends Histogram {
+        private final Histograms columns;
+        private final int i;
+
+        private HistogramView(Histograms columns, int i) {
+            super(IGNORED);
+            this.columns = columns;
+            this.i = i;
+            setEnabled(false);
+        }
+
+        @Override
+        public long getCount() {
+            return columns.getCount(i);
+        }
+
+        @Override
+        public Snapshot getSnapshot() {
+            return columns.getSnapshot(i);
+        }
+    }
+
+    private static final class MeterView extends Meter {
+        private final Meters columns;
+        private final int i;
+
+        private MeterView(Meters columns, int i) {
+            this.columns = columns;
+            this.i = i;
+            setEnabled(false);
+        }
+
+        @Override
+        public long getCount() {
+            return columns.getCount(i);
+        }
+
+        @Override
+        public double getMeanRate() {
+            return columns.getMeanRate(i);
+        }
+
+        @Override
+        public double getOneMinuteRate() {
+            return columns.getOneMinuteRate(i);
+        }
+
+        @Override
+        public double getFiveMinuteRate() {
+            return columns.getFiveMinuteRate(i);
+        }
+
+        @Override
+        public double getFifteenMinuteRate() {
+            return columns.getFifteenMinuteRate(i);
+        }
+    }
+
+    private static final class TimerView extends Timer {
+        private final Timers columns;
+        private final int i;
+
+        private TimerView(Timers columns, int i) {
+            super(IGNORED);
+            this.columns = columns;
+            this.i = i;
+            setEnabled(false);
+        }
+
+        @Override
+        public long getCount() {
+            return columns.getCount(i);
+        }
+
+        @Override
+        public double getMeanRate() {
+            return columns.getMeanRate(i);
+        }
+
+        @Override
+        public double getOneMinuteRate() {
+            return columns.getOneMinuteRate(i);
+        }
+
+        @Override
+        public double getFiveMinuteRate() {
+            return columns.getFiveMinuteRate(i);
+        }
+
+        @Override
+        public double getFifteenMinuteRate() {
+            return columns.getFifteenMinuteRate(i);
+        }
+
+        @Override
+        public Snapshot getSnapshot() {
+            return columns.getSnapshot(i);
+        }
+    }
+
+    // summarizes the snapshot the first time one of its statistics is read; racing readers compute
+    // the same values
+    private static double statistic(AtomicReferenceArray<double[]> statistics, Snapshot[] snapshots, int i,
+                                    Statistic statistic) {
+        double[] values = statistics.get(i);
+        if (values == null) {
+            values = summarize(snapshots[i]);
+            statistics.set(i, values);
+        }
+        return values[statistic.ordinal()];
+    }
+
+    private static double[] summarize(Snapshot snapshot) {
+        final double[] statistics = new double[STATISTICS];
+        statistics[Statistic.MIN.ordinal()] = snapshot.getMin();
+        statistics[Statistic.MAX.ordinal()] = snapshot.getMax();
+        statistics[Statistic.MEAN.ordinal()] = snapshot.getMean();
+        statistics[Statistic.STDDEV.ordinal()] = snapshot.getStdDev();
+        System.arraycopy(snapshot.getValues(QUANTILES), 0, statistics, Statistic.MEDIAN.ordinal(), QUANTILES.length);
+        return statistics;
+    }
+
+    /*
+     * Returns the index in the earlier, sorted names of each of the later, sorted names, or -1 if
+     * it is new, adding the earlier names which are gone to the given list.
+     */
+    private static int[] align(MetricName[] from, MetricName[] to, List<MetricName> removed) {
+        final int[] indexes = new int[to.length];
+        if (from == to || Arrays.equals(from, to)) {
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = i;
+            }
+            return indexes;
+        }
+        int i = 0;
+        int j = 0;
+        while (j < to.length) {
+            final int c = i < from.length ? from[i].compareTo(to[j]) : 1;
+            if (c < 0) {
+                removed.add(from[i++]);
+            } else if (c > 0) {
+                indexes[j++] = -1;
+            } else {
+                indexes[j++] = i++;
+            }
+        }
+        while (i < from.length) {
+            removed.add(from[i++]);
+        }
+        return indexes;
+    }
+
+    private static long[] deltas(Columns from, long[] fromCounts, Columns to, long[] toCounts, int[] indexes) {
+        final long[] deltas = new long[toCounts.length];
+        for (int i = 0; i < deltas.length; i++) {
+            if (indexes[i] >= 0) {
+                deltas[i] = toCounts[i] - fromCounts[indexes[i]];
+            } else {
+                final Object carried = from.carriedValueOf(to.names[i]);
+                deltas[i] = carried == UNKNOWN ? toCounts[i] : toCounts[i] - (Long) carried;
+            }
+        }
+        return deltas;
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == b || (a != null && a.equals(b));
+    }
+
+    /*
+     * Waits for the sampling task until the deadline, rather than for as long as its slowest metric
+     * takes; the task's stragglers only fill slots of the collection which are no longer read.
+     */
+    private static void await(ForkJoinTask<?> task, Collection collection) {
+        try {
+            task.get(collection.remaining(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // the metrics which aren't sampled yet are left out
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    private static Gathered gather(SortedMap<MetricName, ? extends Metric> metrics) {
+        MetricName[] names = new MetricName[INITIAL_CAPACITY];
+        Metric[] values = new Metric[INITIAL_CAPACITY];
+        int n = 0;
+        // the map may change while we iterate over it, so don't trust its size
+        for (Map.Entry<MetricName, ? extends Metric> entry : metrics.entrySet()) {
+            if (n == names.length) {
+                names = Arrays.copyOf(names, n * 2);
+                values = Arrays.copyOf(values, n * 2);
+            }
+            names[n] = entry.getKey();
+            values[n++] = entry.getValue();
+        }
+        return new Gathered(n == 0 ? NO_NAMES : Arrays.copyOf(names, n), Arrays.copyOf(values, n));
+    }
+
+    private static <T> T[] compact(T[] values, boolean[] sampled, int n) {
+        if (n == sampled.length) {
+            return values;
+        }
+        final T[] compacted = Arrays.copyOf(values, n);
+        int j = 0;
+        for (int i = 0; i < sampled.length; i++) {
+            if (sampled[i]) {
+                compacted[j++] = values[i];
+            }
+        }
+        return compacted;
+    }
+
+    private static long[] compact(long[] values, int stride, boolean[] sampled, int n) {
+        if (n == sampled.length) {
+            return values;
+        }
+        final long[] compacted = new long[n * stride];
+        int j = 0;
+        for (int i = 0; i < sampled.length; i++) {
+            if (sampled[i]) {
+                System.arraycopy(values, i * stride, compacted, j++ * stride, stride);
+            }
+        }
+        return compacted;
+    }
+
+    private static double[] compact(double[] values, int stride, boolean[] sampled, int n) {
+        if (n == sampled.length) {
+            return values;
+        }
+        final double[] compacted = new double[n * stride];
+        int j = 0;
+        for (int i = 0; i < sampled.length; i++) {
+            if (sampled[i]) {
+                System.arraycopy(values, i * stride, compacted, j++ * stride, stride);
+            }
+        }
+        return compacted;
+    }
+
+    private static final class Gathered {
+        private final MetricName[] names;
+        private final Metric[] metrics;
+
+        private Gathered(MetricName[] names, Metric[] metrics) {
+            this.names = names;
+            this.metrics = metrics;
+        }
+    }
+
+    /**
+     * The state of a sample being collected. The metrics of all types are numbered consecutively,
+     * gauges first, so that they can be split into batches regardless of their type. Each metric
+     * is marked done after its slot in the columns is filled; {@link #finish()} reads the marks
+     * once, and the sample is built from the slots marked by then.
+     */
+    private static final class Collection {
+        private final MetricName[][] names;
+        private final Metric[][] metrics;
+        private final AtomicIntegerArray done;
+        private final boolean[][] sampled;
+        private final Columns[] columns;
+        private final int[] offsets;
+        private final long deadline;
+        private final boolean hasDeadline;
+
+        private Collection(long timeout, Gathered... types) {
+            this.names = new MetricName[types.length][];
+            this.metrics = new Metric[types.length][];
+            this.sampled = new boolean[types.length][];
+            this.columns = new Columns[types.length];
+            this.offsets = new int[types.length + 1];
+            for (int t = 0; t < types.length; t++) {
+                names[t] = types[t].names;
+                metrics[t] = types[t].metrics;
+                sampled[t] = new boolean[names[t].length];
+                offsets[t + 1] = offsets[t] + names[t].length;
+            }
+            this.done = new AtomicIntegerArray(size());
+            this.hasDeadline = timeout > 0;
+            this.deadline = System.nanoTime() + timeout;
+        }
+
+        int size() {
+            return offsets[offsets.length - 1];
+        }
+
+        long remaining() {
+            return deadline - System.nanoTime();
+        }
+
+        void finish() {
+            for (int type = 0; type < sampled.length; type++) {
+                for (int i = 0; i < sampled[type].length; i++) {
+                    sampled[type][i] = done.get(offsets[type] + i) != 0;
+                }
+            }
+        }
+
+        void sample(int from, int to) {
+            int type = 0;
+            for (int index = from; index < to; index++) {
+                if (hasDeadline && System.nanoTime() - deadline > 0) {
+                    return;
+                }
+                while (index >= offsets[type + 1]) {
+                    type++;
+                }
+                final int i = index - offsets[type];
+                columns[type].sample(i, metrics[type][i]);
+                done.set(index, 1);
+            }
+        }
+
+        int skipped() {
+            int skipped = 0;
+            for (boolean[] flags : sampled) {
+                for (boolean flag : flags) {
+                    if (!flag) {
+                        skipped++;
+                    }
+                }
+            }
+            return skipped;
+        }
+
+        Columns compact(int type, RegistrySnapshot previous) {
+            int n = 0;
+            for (boolean flag : sampled[type]) {
+                if (flag) {
+                    n++;
+                }
+            }
+            if (n == sampled[type].length) {
+                return columns[type];
+            }
+            final Columns compacted = columns[type].compact(sampled[type], n);
+            final MetricName[] skippedNames = new MetricName[sampled[type].length - n];
+            final Object[] carried = new Object[skippedNames.length];
+            int j = 0;
+            for (int i = 0; i < sampled[type].length; i++) {
+                if (!sampled[type][i]) {
+                    skippedNames[j] = names[type][i];
+                    carried[j++] = previous == null ? UNKNOWN : previous.columns[type].valueOf(names[type][i]);
+                }
+            }
+            compacted.skippedNames = skippedNames;
+            compacted.carried = carried;
+            return compacted;
+        }
+    }
+
+    /**
+     * Samples a range of metrics, splitting it in halves until it is small enough.
+     */
+    private static final class SampleTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Collection collection;
+        private final int from;
+        private final int to;
+
+        private SampleTask(Collection collection, int from, int to) {
+            this.collection = collection;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_SIZE) {
+                collection.sample(from, to);
+            } else {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new SampleTask(collection, from, mid), new SampleTask(collection, mid, to));
+            }
+        }
+    }
+}
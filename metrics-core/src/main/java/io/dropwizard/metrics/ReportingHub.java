@@ -0,0 +1,403 @@
+package io.dropwizard.metrics;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Takes one {@link RegistrySnapshot} of a registry per interval and hands it to any number of
+ * {@link Sink}s, so that gauges are evaluated and snapshots and rates are computed once per
+ * interval, no matter how many reporters consume them.
+ * <p/>
+ * Sinks run on a shared, bounded thread pool. A sink which is still busy with the previous sample
+ * when the next one is taken skips that sample, so a slow sink never holds up the others or piles
+ * up work. Every {@link ScheduledReporter} is a sink; add reporters to a hub instead of starting
+ * them:
+ * <pre><code>
+ * final ReportingHub hub = new ReportingHub(registry);
+ * hub.addSink(graphiteReporter);
+ * hub.addSink(slf4jReporter);
+ * hub.start(10, TimeUnit.SECONDS);
+ * </code></pre>
+ * <p/>
+ * For very large registries, a hub can sample metrics in parallel on a {@link ForkJoinPool} and
+ * give up on the metrics it hasn't sampled by a deadline, see {@link Builder}. The hub is a
+ * {@link MetricSet} of metrics about its own work: how long sampling takes, how many metrics were
+ * left out of samples, and how many samples were skipped by busy sinks.
+ */
+public class ReportingHub implements Closeable, MetricSet {
+    private static final Logger LOG = LoggerFactory.getLogger(ReportingHub.class);
+    private static final int MAX_SINK_THREADS = 4;
+
+    /**
+     * Returns a new {@link Builder} for {@link ReportingHub}.
+     *
+     * @param registry the registry to sample
+     * @return a {@link Builder} instance for a {@link ReportingHub}
+     */
+    public static Builder forRegistry(MetricRegistry registry) {
+        return new Builder(registry);
+    }
+
+    /**
+     * A builder for {@link ReportingHub} instances. Defaults to sampling all metrics in the
+     * calling thread, without a deadline, and handing samples to sinks on up to four threads.
+     */
+    public static class Builder {
+        private final MetricRegistry registry;
+        private MetricFilter filter;
+        private Clock clock;
+        private ScheduledExecutorService scheduler;
+        private Executor sinkExecutor;
+        private ForkJoinPool pool;
+        private long timeout;
+        private TimeUnit timeoutUnit;
+
+        private Builder(MetricRegistry registry) {
+            this.registry = registry;
+            this.filter = MetricFilter.ALL;
+            this.clock = Clock.defaultClock();
+            this.timeout = 0;
+            this.timeoutUnit = TimeUnit.NANOSECONDS;
+        }
+
+        /**
+         * Only sample metrics which match the given filter.
+         *
+         * @param filter a {@link MetricFilter}
+         * @return {@code this}
+         */
+        public Builder filter(MetricFilter filter) {
+            this.filter = filter;
+            return this;
+        }
+
+        /**
+         * Use the given {@link Clock} to timestamp samples.
+         *
+         * @param clock a {@link Clock} instance
+         * @return {@code this}
+         */
+        public Builder withClock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * Take samples on the given executor.
+         *
+         * @param scheduler a {@link ScheduledExecutorService}
+         * @return {@code this}
+         */
+        public Builder scheduleOn(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Hand samples to sinks on the given executor.
+         *
+         * @param sinkExecutor an {@link Executor}
+         * @return {@code this}
+         */
+        public Builder reportOn(Executor sinkExecutor) {
+            this.sinkExecutor = sinkExecutor;
+            return this;
+        }
+
+        /**
+         * Sample metrics in parallel on the given pool.
+         *
+         * @param pool a {@link ForkJoinPool}
+         * @return {@code this}
+         */
+        public Builder collectInParallel(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Leave metrics which haven't been sampled within the given time out of the sample. Unless
+         * {@link #collectInParallel(ForkJoinPool)} is given a pool, the hub samples on a pool of its
+         * own, so that a metric which hangs can't hold up the hub.
+         *
+         * @param timeout the maximum time to spend sampling
+         * @param unit    the unit for {@code timeout}
+         * @return {@code this}
+         */
+        public Builder collectWithin(long timeout, TimeUnit unit) {
+            this.timeout = timeout;
+            this.timeoutUnit = unit;
+            return this;
+        }
+
+        /**
+         * Builds a {@link ReportingHub} with the given properties.
+         *
+         * @return a {@link ReportingHub}
+         */
+        public ReportingHub build() {
+            final boolean ownsPool = pool == null && timeout > 0;
+            return new ReportingHub(registry, filter, clock,
+                    scheduler != null ? scheduler : Executors.newSingleThreadScheduledExecutor(
+                            new ScheduledReporter.NamedThreadFactory("reporting-hub")),
+                    sinkExecutor != null ? sinkExecutor : newSinkExecutor(),
+                    ownsPool ? new ForkJoinPool() : pool, ownsPool, timeout, timeoutUnit);
+        }
+    }
+
+    /**
+     * A consumer of registry samples.
+     */
+    public interface Sink {
+        /**
+         * Consumes a sample of the registry.
+         *
+         * @param snapshot the sample
+         */
+        void report(RegistrySnapshot snapshot);
+    }
+
+    private final MetricRegistry registry;
+    private final MetricFilter filter;
+    private final Clock clock;
+    private final ScheduledExecutorService scheduler;
+    private final Executor sinkExecutor;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final long timeout;
+    private final TimeUnit timeoutUnit;
+    private final List<SinkTask> sinks;
+    private final Timer collectionTime;
+    private final Counter skippedMetrics;
+    private final Counter skippedSamples;
+    // the last sample, whose values are carried over for the metrics the next one skips
+    private volatile RegistrySnapshot last;
+
+    /**
+     * Creates a new {@link ReportingHub} for all the metrics in the given registry, which hands
+     * samples to its sinks on up to four threads.
+     *
+     * @param registry the registry to sample
+     */
+    public ReportingHub(MetricRegistry registry) {
+        this(registry, MetricFilter.ALL, Clock.defaultClock(),
+                Executors.newSingleThreadScheduledExecutor(new ScheduledReporter.NamedThreadFactory("reporting-hub")),
+                newSinkExecutor());
+    }
+
+    /**
+     * Creates a new {@link ReportingHub} which samples in the scheduler's thread, without a
+     * deadline.
+     *
+     * @param registry     the registry to sample
+     * @param filter       the filter for which metrics to sample
+     * @param clock        the clock used to timestamp samples
+     * @param scheduler    the executor which takes the samples
+     * @param sinkExecutor the executor which hands the samples to the sinks
+     */
+    public ReportingHub(MetricRegistry registry,
+                        MetricFilter filter,
+                        Clock clock,
+                        ScheduledExecutorService scheduler,
+                        Executor sinkExecutor) {
+        this(registry, filter, clock, scheduler, sinkExecutor, null, false, 0, TimeUnit.NANOSECONDS);
+    }
+
+    private ReportingHub(MetricRegistry registry,
+                         MetricFilter filter,
+                         Clock clock,
+                         ScheduledExecutorService scheduler,
+                         Executor sinkExecutor,
+                         ForkJoinPool pool,
+                         boolean ownsPool,
+                         long timeout,
+                         TimeUnit timeoutUnit) {
+        this.registry = registry;
+        this.filter = filter;
+        this.clock = clock;
+        this.scheduler = scheduler;
+        this.sinkExecutor = sinkExecutor;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.timeout = timeout;
+        this.timeoutUnit = timeoutUnit;
+        this.sinks = new CopyOnWriteArrayList<SinkTask>();
+        this.collectionTime = new Timer();
+        this.skippedMetrics = new Counter();
+        this.skippedSamples = new Counter();
+    }
+
+    private static ExecutorService newSinkExecutor() {
+        final int threads = Math.min(Runtime.getRuntime().availableProcessors(), MAX_SINK_THREADS);
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<Runnable>(64), new ScheduledReporter.NamedThreadFactory("reporting-hub-sink"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Adds a sink which will receive every sample taken from now on.
+     *
+     * @param sink the sink
+     */
+    public void addSink(Sink sink) {
+        sinks.add(new SinkTask(sink));
+    }
+
+    /**
+     * Removes a sink.
+     *
+     * @param sink the sink
+     */
+    public void removeSink(Sink sink) {
+        for (SinkTask task : sinks) {
+            if (task.sink == sink) {
+                sinks.remove(task);
+            }
+        }
+    }
+
+    /**
+     * Starts sampling the registry at the given period.
+     *
+     * @param period the amount of time between samples
+     * @param unit   the unit for {@code period}
+     */
+    public void start(long period, TimeUnit unit) {
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    report();
+                } catch (RuntimeException ex) {
+                    LOG.error("RuntimeException thrown from ReportingHub#report. Exception was suppressed.", ex);
+                }
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Takes a sample of the registry and hands it to every sink which isn't busy.
+     *
+     * @return the sample
+     */
+    public RegistrySnapshot report() {
+        final long start = collectionTime.start();
+        final RegistrySnapshot snapshot = RegistrySnapshot.collect(registry, filter, clock, pool, timeout, timeoutUnit,
+                last);
+        last = snapshot;
+        collectionTime.stop(start);
+        if (snapshot.getSkipped() > 0) {
+            skippedMetrics.inc(snapshot.getSkipped());
+            LOG.warn("Left {} metrics out of a sample which took longer than {} {}", snapshot.getSkipped(),
+                    timeout, timeoutUnit);
+        }
+        for (SinkTask task : sinks) {
+            task.submit(snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the metrics about the hub's own work: the {@link Timer} {@code collection-time} of
+     * taking samples, the {@link Counter} {@code skipped-metrics} of metrics left out of samples
+     * because of the deadline, and the {@link Counter} {@code skipped-samples} of samples skipped
+     * by busy sinks.
+     *
+     * @return the hub's metrics, by name
+     */
+    @Override
+    public Map<MetricName, Metric> getMetrics() {
+        final Map<MetricName, Metric> metrics = new HashMap<MetricName, Metric>();
+        metrics.put(MetricName.build("collection-time"), collectionTime);
+        metrics.put(MetricName.build("skipped-metrics"), skippedMetrics);
+        metrics.put(MetricName.build("skipped-samples"), skippedSamples);
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    /**
+     * Stops sampling the registry and shuts down the hub's threads.
+     */
+    public void stop() {
+        scheduler.shutdown();
+        if (sinkExecutor instanceof ExecutorService) {
+            ((ExecutorService) sinkExecutor).shutdown();
+        }
+        if (ownsPool) {
+            // whatever it is still sampling is no longer waited for
+            pool.shutdownNow();
+        }
+        try {
+            if (!scheduler.awaitTermination(1, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+            if (sinkExecutor instanceof ExecutorService
+                    && !((ExecutorService) sinkExecutor).awaitTermination(1, TimeUnit.SECONDS)) {
+                ((ExecutorService) sinkExecutor).shutdownNow();
+            }
+        } catch (InterruptedException ie) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops sampling the registry and shuts down the hub's threads.
+     */
+    @Override
+    public void close() {
+        stop();
+    }
+
+    private final class SinkTask {
+        private final Sink sink;
+        private final AtomicBoolean busy = new AtomicBoolean();
+
+        private SinkTask(Sink sink) {
+            this.sink = sink;
+        }
+
+        void submit(final RegistrySnapshot snapshot) {
+            if (!busy.compareAndSet(false, true)) {
+                skippedSamples.inc();
+                LOG.debug("{} is still busy, skipping a sample", sink);
+                return;
+            }
+            try {
+                sinkExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            sink.report(snapshot);
+                        } catch (RuntimeException ex) {
+                            LOG.error("RuntimeException thrown from {}#report. Exception was suppressed.",
+                                    sink.getClass().getSimpleName(), ex);
+                        } finally {
+                            busy.set(false);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                busy.set(false);
+                LOG.warn("Could not hand a sample to {}", sink, ex);
+            }
+        }
+    }
+}
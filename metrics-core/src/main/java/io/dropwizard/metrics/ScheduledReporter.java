@@ -16,11 +16,14 @@ import org.slf4j.LoggerFactory;
  * The abstract base class for all scheduled reporters (i.e., reporters which process a registry's
  * metrics periodically).
  *
+ * Instead of being started, a reporter can be added to a {@link ReportingHub}, which samples the
+ * registry once for all of its reporters.
+ *
  * @see ConsoleReporter
  * @see CsvReporter
  * @see Slf4jReporter
  */
-public abstract class ScheduledReporter implements Closeable, Reporter {
+public abstract class ScheduledReporter implements Closeable, Reporter, ReportingHub.Sink {
 
     private static final Logger LOG = LoggerFactory.getLogger(ScheduledReporter.class);
 
@@ -28,12 +31,12 @@ public abstract class ScheduledReporter implements Closeable, Reporter {
      * A simple named thread factory.
      */
     @SuppressWarnings("NullableProblems")
-    private static class NamedThreadFactory implements ThreadFactory {
+    static class NamedThreadFactory implements ThreadFactory {
         private final ThreadGroup group;
         private final AtomicInteger threadNumber = new AtomicInteger(1);
         private final String namePrefix;
 
-        private NamedThreadFactory(String name) {
+        NamedThreadFactory(String name) {
             final SecurityManager s = System.getSecurityManager();
             this.group = (s != null) ? s.getThreadGroup() : Thread.currentThread().getThreadGroup();
             this.namePrefix = "metrics-" + name + "-thread-";
@@ -165,6 +168,24 @@ public abstract class ScheduledReporter implements Closeable, Reporter {
         }
     }
 
+    /**
+     * Report the values of the metrics in the given sample of the registry which match this
+     * reporter's filter.
+     *
+     * @param snapshot a sample of the registry
+     */
+    @Override
+    public void report(RegistrySnapshot snapshot) {
+        final SortedMap<MetricName, Gauge> gauges = snapshot.getGauges().toMetrics(filter);
+        final SortedMap<MetricName, Counter> counters = snapshot.getCounters().toMetrics(filter);
+        final SortedMap<MetricName, Histogram> histograms = snapshot.getHistograms().toMetrics(filter);
+        final SortedMap<MetricName, Meter> meters = snapshot.getMeters().toMetrics(filter);
+        final SortedMap<MetricName, Timer> timers = snapshot.getTimers().toMetrics(filter);
+        synchronized (this) {
+            report(gauges, counters, histograms, meters, timers);
+        }
+    }
+
     /**
      * Called periodically by the polling thread. Subclasses should report all the given metrics.
      *
@@ -159,6 +159,8 @@ public class Slf4jReporter extends ScheduledReporter {
         }
     }
 
+    private static final double[] QUANTILES = {0.5, 0.75, 0.95, 0.98, 0.99, 0.999};
+
     private final LoggerProxy loggerProxy;
     private final Marker marker;
     private final MetricName prefix;
@@ -207,6 +209,7 @@ public class Slf4jReporter extends ScheduledReporter {
 
     private void logTimer(MetricName name, Timer timer) {
         final Snapshot snapshot = timer.getSnapshot();
+        final double[] quantiles = snapshot.getValues(QUANTILES);
         loggerProxy.log(marker,
                 "type={}, name={}, count={}, min={}, max={}, mean={}, stddev={}, median={}, " +
                         "p75={}, p95={}, p98={}, p99={}, p999={}, mean_rate={}, m1={}, m5={}, " +
@@ -218,12 +221,12 @@ public class Slf4jReporter extends ScheduledReporter {
                 convertDuration(snapshot.getMax()),
                 convertDuration(snapshot.getMean()),
                 convertDuration(snapshot.getStdDev()),
-                convertDuration(snapshot.getMedian()),
-                convertDuration(snapshot.get75thPercentile()),
-                convertDuration(snapshot.get95thPercentile()),
-                convertDuration(snapshot.get98thPercentile()),
-                convertDuration(snapshot.get99thPercentile()),
-                convertDuration(snapshot.get999thPercentile()),
+                convertDuration(quantiles[0]),
+                convertDuration(quantiles[1]),
+                convertDuration(quantiles[2]),
+                convertDuration(quantiles[3]),
+                convertDuration(quantiles[4]),
+                convertDuration(quantiles[5]),
                 convertRate(timer.getMeanRate()),
                 convertRate(timer.getOneMinuteRate()),
                 convertRate(timer.getFiveMinuteRate()),
@@ -247,6 +250,7 @@ public class Slf4jReporter extends ScheduledReporter {
 
     private void logHistogram(MetricName name, Histogram histogram) {
         final Snapshot snapshot = histogram.getSnapshot();
+        final double[] quantiles = snapshot.getValues(QUANTILES);
         loggerProxy.log(marker,
                 "type={}, name={}, count={}, min={}, max={}, mean={}, stddev={}, " +
                         "median={}, p75={}, p95={}, p98={}, p99={}, p999={}",
@@ -257,12 +261,12 @@ public class Slf4jReporter extends ScheduledReporter {
                 snapshot.getMax(),
                 snapshot.getMean(),
                 snapshot.getStdDev(),
-                snapshot.getMedian(),
-                snapshot.get75thPercentile(),
-                snapshot.get95thPercentile(),
-                snapshot.get98thPercentile(),
-                snapshot.get99thPercentile(),
-                snapshot.get999thPercentile());
+                quantiles[0],
+                quantiles[1],
+                quantiles[2],
+                quantiles[3],
+                quantiles[4],
+                quantiles[5]);
     }
 
     private void logCounter(MetricName name, Counter counter) {
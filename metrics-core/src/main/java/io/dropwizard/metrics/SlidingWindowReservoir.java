@@ -32,12 +32,28 @@ public class SlidingWindowReservoir implements Reservoir {
 
     @Override
     public Snapshot getSnapshot() {
-        final long[] values = new long[size()];
-        for (int i = 0; i < values.length; i++) {
-            synchronized (this) {
-                values[i] = measurements[i];
-            }
+        return getSnapshot(null);
+    }
+
+    /**
+     * Returns a snapshot of the reservoir's values which is backed by the given buffer, if the
+     * buffer can hold all of them. Reusing a buffer of the reservoir's capacity across snapshots
+     * avoids copying the values into a new array every time.
+     * <p/>
+     * The snapshot overwrites and sorts the buffer, so it must not be modified or passed to another
+     * snapshot while the snapshot is still in use.
+     *
+     * @param buffer a scratch buffer for the snapshot's values, or {@code null}
+     * @return a snapshot of the reservoir's values
+     */
+    public Snapshot getSnapshot(long[] buffer) {
+        final int s;
+        final long[] values;
+        synchronized (this) {
+            s = (int) min(count, measurements.length);
+            values = buffer != null && buffer.length >= s ? buffer : new long[s];
+            System.arraycopy(measurements, 0, values, 0, s);
         }
-        return new UniformSnapshot(values);
+        return new UniformSnapshot(values, s);
     }
 }
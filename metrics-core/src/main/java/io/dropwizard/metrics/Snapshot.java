@@ -15,6 +15,22 @@ public abstract class Snapshot {
      */
     public abstract double getValue(double quantile);
 
+    /**
+     * Returns the values at each of the given quantiles. Implementations may compute them all at
+     * once, which is cheaper than calling {@link #getValue(double)} for each of them on a snapshot
+     * which hasn't been fully ordered yet.
+     *
+     * @param quantiles    the given quantiles, each in {@code [0..1]}
+     * @return the values in the distribution at {@code quantiles}, in the same order
+     */
+    public double[] getValues(double[] quantiles) {
+        final double[] values = new double[quantiles.length];
+        for (int i = 0; i < quantiles.length; i++) {
+            values[i] = getValue(quantiles[i]);
+        }
+        return values;
+    }
+
     /**
      * Returns the entire set of values in the snapshot.
      *
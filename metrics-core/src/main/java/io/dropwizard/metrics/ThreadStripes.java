@@ -0,0 +1,35 @@
+package io.dropwizard.metrics;
+
+/**
+ * Helpers for spreading threads across a table of per-thread stripes.
+ */
+final class ThreadStripes {
+    private static final int MAX_STRIPES = 64;
+
+    /**
+     * The number of stripes to use: the number of processors rounded up to a power of two, and at
+     * most 64.
+     */
+    static final int COUNT = count(Runtime.getRuntime().availableProcessors());
+
+    private ThreadStripes() {
+    }
+
+    /**
+     * Returns a hash of the current thread, suitable for indexing a power-of-two sized table.
+     * Fibonacci hashing spreads sequential thread ids across the table.
+     *
+     * @return the current thread's probe
+     */
+    static int probe() {
+        return (int) ((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    private static int count(int processors) {
+        int stripes = 1;
+        while (stripes < processors && stripes < MAX_STRIPES) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+}
@@ -16,7 +16,7 @@ public class Timer implements Metered, Sampling {
     public static class Context implements AutoCloseable {
         private final Timer timer;
         private final Clock clock;
-        private final long startTime;
+        private long startTime;
 
         private Context(Timer timer, Clock clock) {
             this.timer = timer;
@@ -24,6 +24,11 @@ public class Timer implements Metered, Sampling {
             this.startTime = clock.getTick();
         }
 
+        private Context restart() {
+            this.startTime = clock.getTick();
+            return this;
+        }
+
         /**
          * Updates the timer with the difference between current and start time. Call to this method will
          * not reset the start time. Multiple calls result in multiple updates.
@@ -45,13 +50,15 @@ public class Timer implements Metered, Sampling {
     private final Meter meter;
     private final Histogram histogram;
     private final Clock clock;
+    private final ThreadLocal<Context> threadContexts = new ThreadLocal<Context>();
+    private volatile boolean enabled = true;
 
     /**
-     * Creates a new {@link Timer} using an {@link ExponentiallyDecayingReservoir} and the default
-     * {@link Clock}.
+     * Creates a new {@link Timer} using a {@link LockFreeExponentiallyDecayingReservoir} and the
+     * default {@link Clock}.
      */
     public Timer() {
-        this(new ExponentiallyDecayingReservoir());
+        this(new LockFreeExponentiallyDecayingReservoir());
     }
 
     /**
@@ -70,7 +77,34 @@ public class Timer implements Metered, Sampling {
      * @param clock  the {@link Clock} implementation the timer should use
      */
     public Timer(Reservoir reservoir, Clock clock) {
-        this.meter = new Meter(clock);
+        this(reservoir, clock, false);
+    }
+
+    /**
+     * Creates a new {@link Timer} that uses the given {@link Reservoir} and {@link Clock}.
+     *
+     * @param reservoir the {@link Reservoir} implementation the timer should use
+     * @param clock     the {@link Clock} implementation the timer should use
+     * @param lazyRates whether the timer's rates are computed when read rather than when events
+     *                  are recorded; see {@link Meter#Meter(Clock, boolean)}
+     */
+    public Timer(Reservoir reservoir, Clock clock, boolean lazyRates) {
+        this(reservoir, clock, clock, lazyRates);
+    }
+
+    /**
+     * Creates a new {@link Timer} that measures durations and tracks its rates with different
+     * clocks, such as a precise clock for the former and a {@link Clock.CoarseClock} for the
+     * latter.
+     *
+     * @param reservoir the {@link Reservoir} implementation the timer should use
+     * @param clock     the {@link Clock} implementation used to measure durations
+     * @param rateClock the {@link Clock} implementation used to track the timer's rates
+     * @param lazyRates whether the timer's rates are computed when read rather than when events
+     *                  are recorded; see {@link Meter#Meter(Clock, boolean)}
+     */
+    public Timer(Reservoir reservoir, Clock clock, Clock rateClock, boolean lazyRates) {
+        this.meter = new Meter(rateClock, lazyRates);
         this.clock = clock;
         this.histogram = new Histogram(reservoir);
     }
@@ -128,6 +162,48 @@ public class Timer implements Metered, Sampling {
         return new Context(this, clock);
     }
 
+    /**
+     * Returns the current thread's {@link Context} for this timer, restarted at the current time.
+     * Unlike {@link #time()}, this only allocates the first time a thread calls it. The context
+     * is shared by every event the thread times this way, so it must be stopped before the thread
+     * times the next one; nested events should use {@link #time()} or {@link #start()} instead.
+     *
+     * @return the current thread's {@link Context}
+     * @see Context
+     */
+    public Context threadContext() {
+        final Context context = threadContexts.get();
+        if (context != null) {
+            return context.restart();
+        }
+        final Context created = new Context(this, clock);
+        threadContexts.set(created);
+        return created;
+    }
+
+    /**
+     * Starts timing an event without allocating a {@link Context}. Pass the returned token to
+     * {@link #stop(long)} once the event is over.
+     *
+     * @return the start token
+     */
+    public long start() {
+        return clock.getTick();
+    }
+
+    /**
+     * Records the duration of an event started with {@link #start()}. Like
+     * {@link Context#stop()}, stopping the same token again records another duration.
+     *
+     * @param startToken the token returned by {@link #start()}
+     * @return the elapsed time in nanoseconds
+     */
+    public long stop(long startToken) {
+        final long elapsed = clock.getTick() - startToken;
+        update(elapsed);
+        return elapsed;
+    }
+
     @Override
     public long getCount() {
         return histogram.getCount();
@@ -158,8 +234,22 @@ public class Timer implements Metered, Sampling {
         return histogram.getSnapshot();
     }
 
+    /**
+     * Returns whether the timer records updates. A registry turns the updates of the metrics
+     * it disables into no-ops; see {@link MetricRegistry#disable(MetricFilter)}.
+     *
+     * @return whether the timer is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
     private void update(long duration) {
-        if (duration >= 0) {
+        if (enabled && duration >= 0) {
             histogram.update(duration);
             meter.mark();
         }
@@ -1,7 +1,5 @@
 package io.dropwizard.metrics;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicLongArray;
@@ -79,11 +77,26 @@ public class UniformReservoir implements Reservoir {
 
     @Override
     public Snapshot getSnapshot() {
+        return getSnapshot(null);
+    }
+
+    /**
+     * Returns a snapshot of the reservoir's values which is backed by the given buffer, if the
+     * buffer can hold all of them. Reusing a buffer of the reservoir's capacity across snapshots
+     * avoids copying the values into a new array every time.
+     * <p/>
+     * The snapshot overwrites and sorts the buffer, so it must not be modified or passed to another
+     * snapshot while the snapshot is still in use.
+     *
+     * @param buffer a scratch buffer for the snapshot's values, or {@code null}
+     * @return a snapshot of the reservoir's values
+     */
+    public Snapshot getSnapshot(long[] buffer) {
         final int s = size();
-        final List<Long> copy = new ArrayList<Long>(s);
+        final long[] copy = buffer != null && buffer.length >= s ? buffer : new long[s];
         for (int i = 0; i < s; i++) {
-            copy.add(values.get(i));
+            copy[i] = values.get(i);
         }
-        return new UniformSnapshot(copy);
+        return new UniformSnapshot(copy, s);
     }
 }
@@ -11,11 +11,21 @@ import static java.lang.Math.floor;
 
 /**
  * A statistical snapshot of a {@link UniformSnapshot}.
+ * <p/>
+ * The minimum, maximum, mean and standard deviation are computed up-front in linear time. The
+ * values are only sorted once a quantile or the values themselves are asked for;
+ * {@link #getValues(double[])} avoids even that by selecting just the elements it needs.
  */
 public class UniformSnapshot extends Snapshot {
     private static final Charset UTF_8 = Charset.forName("UTF-8");
 
     private final long[] values;
+    private final int size;
+    private final long min;
+    private final long max;
+    private final double mean;
+    private final double stdDev;
+    private volatile boolean sorted;
 
     /**
      * Create a new {@link Snapshot} with the given values.
@@ -23,12 +33,7 @@ public class UniformSnapshot extends Snapshot {
      * @param values    an unordered set of values in the reservoir
      */
     public UniformSnapshot(Collection<Long> values) {
-        final Object[] copy = values.toArray();
-        this.values = new long[copy.length];
-        for (int i = 0; i < copy.length; i++) {
-            this.values[i] = (Long) copy[i];
-        }
-        Arrays.sort(this.values);
+        this(unbox(values));
     }
 
     /**
@@ -37,8 +42,53 @@ public class UniformSnapshot extends Snapshot {
      * @param values    an unordered set of values in the reservoir
      */
     public UniformSnapshot(long[] values) {
-        this.values = Arrays.copyOf(values, values.length);
-        Arrays.sort(this.values);
+        this(Arrays.copyOf(values, values.length), values.length);
+    }
+
+    /**
+     * Create a new {@link Snapshot} with the first {@code size} elements of the given array. The
+     * snapshot takes ownership of the array and reorders those elements in place.
+     *
+     * @param values    an array whose first {@code size} elements are the values in the reservoir
+     * @param size      the number of values
+     */
+    UniformSnapshot(long[] values, int size) {
+        this.values = values;
+        this.size = size;
+
+        long min = size == 0 ? 0 : Long.MAX_VALUE;
+        long max = size == 0 ? 0 : Long.MIN_VALUE;
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            final long value = values[i];
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+        }
+        this.min = min;
+        this.max = max;
+        this.mean = size == 0 ? 0 : sum / size;
+
+        // two-pass algorithm for variance, avoids numeric overflow
+        if (size <= 1) {
+            this.stdDev = 0;
+        } else {
+            double squares = 0;
+            for (int i = 0; i < size; i++) {
+                final double diff = values[i] - mean;
+                squares += diff * diff;
+            }
+            this.stdDev = Math.sqrt(squares / (size - 1));
+        }
+    }
+
+    private static long[] unbox(Collection<Long> values) {
+        final Object[] copy = values.toArray();
+        final long[] unboxed = new long[copy.length];
+        for (int i = 0; i < copy.length; i++) {
+            unboxed[i] = (Long) copy[i];
+        }
+        return unboxed;
     }
 
     /**
@@ -49,28 +99,45 @@ public class UniformSnapshot extends Snapshot {
      */
     @Override
     public double getValue(double quantile) {
-        if (quantile < 0.0 || quantile > 1.0 || Double.isNaN( quantile )) {
-            throw new IllegalArgumentException(quantile + " is not in [0..1]");
-        }
-
-        if (values.length == 0) {
+        checkQuantile(quantile);
+        if (size == 0) {
             return 0.0;
         }
 
-        final double pos = quantile * (values.length + 1);
-        final int index = (int) pos;
+        final int index = index(quantile);
+        if (index >= 1 && index < size) {
+            sort();
+        }
+        return valueAt(quantile);
+    }
 
-        if (index < 1) {
-            return values[0];
+    /**
+     * Returns the values at each of the given quantiles. Unless the snapshot has been sorted
+     * already, this only partially orders the values, selecting those at the ranks needed.
+     *
+     * @param quantiles    the given quantiles, each in {@code [0..1]}
+     * @return the values in the distribution at {@code quantiles}, in the same order
+     */
+    @Override
+    public double[] getValues(double[] quantiles) {
+        for (double quantile : quantiles) {
+            checkQuantile(quantile);
         }
 
-        if (index >= values.length) {
-            return values[values.length - 1];
+        final double[] result = new double[quantiles.length];
+        if (size == 0) {
+            return result;
         }
 
-        final double lower = values[index - 1];
-        final double upper = values[index];
-        return lower + (pos - floor(pos)) * (upper - lower);
+        synchronized (this) {
+            if (!sorted) {
+                select(quantiles);
+            }
+            for (int i = 0; i < quantiles.length; i++) {
+                result[i] = valueAt(quantiles[i]);
+            }
+        }
+        return result;
     }
 
     /**
@@ -80,7 +147,7 @@ public class UniformSnapshot extends Snapshot {
      */
     @Override
     public int size() {
-        return values.length;
+        return size;
     }
 
     /**
@@ -90,7 +157,8 @@ public class UniformSnapshot extends Snapshot {
      */
     @Override
     public long[] getValues() {
-        return Arrays.copyOf(values, values.length);
+        sort();
+        return Arrays.copyOf(values, size);
     }
 
     /**
@@ -100,10 +168,7 @@ public class UniformSnapshot extends Snapshot {
      */
     @Override
     public long getMax() {
-        if (values.length == 0) {
-            return 0;
-        }
-        return values[values.length - 1];
+        return max;
     }
 
     /**
@@ -113,10 +178,7 @@ public class UniformSnapshot extends Snapshot {
      */
     @Override
     public long getMin() {
-        if (values.length == 0) {
-            return 0;
-        }
-        return values[0];
+        return min;
     }
 
     /**
@@ -126,15 +188,7 @@ public class UniformSnapshot extends Snapshot {
      */
     @Override
     public double getMean() {
-        if (values.length == 0) {
-            return 0;
-        }
-
-        double sum = 0;
-        for (long value : values) {
-            sum += value;
-        }
-        return sum / values.length;
+        return mean;
     }
 
     /**
@@ -144,22 +198,7 @@ public class UniformSnapshot extends Snapshot {
      */
     @Override
     public double getStdDev() {
-        // two-pass algorithm for variance, avoids numeric overflow
-
-        if (values.length <= 1) {
-            return 0;
-        }
-
-        final double mean = getMean();
-        double sum = 0;
-
-        for (long value : values) {
-            final double diff = value - mean;
-            sum += diff * diff;
-        }
-
-        final double variance = sum / (values.length - 1);
-        return Math.sqrt(variance);
+        return stdDev;
     }
 
     /**
@@ -169,13 +208,75 @@ public class UniformSnapshot extends Snapshot {
      */
     @Override
     public void dump(OutputStream output) {
+        sort();
         final PrintWriter out = new PrintWriter(new OutputStreamWriter(output, UTF_8));
         try {
-            for (long value : values) {
-                out.printf("%d%n", value);
+            for (int i = 0; i < size; i++) {
+                out.printf("%d%n", values[i]);
             }
         } finally {
             out.close();
         }
     }
+
+    private static void checkQuantile(double quantile) {
+        if (quantile < 0.0 || quantile > 1.0 || Double.isNaN( quantile )) {
+            throw new IllegalArgumentException(quantile + " is not in [0..1]");
+        }
+    }
+
+    private int index(double quantile) {
+        return (int) (quantile * (size + 1));
+    }
+
+    // the values at the quantile's index and the one before it must be in place
+    private double valueAt(double quantile) {
+        final double pos = quantile * (size + 1);
+        final int index = (int) pos;
+
+        if (index < 1) {
+            return min;
+        }
+
+        if (index >= size) {
+            return max;
+        }
+
+        final double lower = values[index - 1];
+        final double upper = values[index];
+        return lower + (pos - floor(pos)) * (upper - lower);
+    }
+
+    private void sort() {
+        if (!sorted) {
+            synchronized (this) {
+                if (!sorted) {
+                    Arrays.sort(values, 0, size);
+                    sorted = true;
+                }
+            }
+        }
+    }
+
+    // must hold the lock
+    private void select(double[] quantiles) {
+        final int[] ranks = new int[2 * quantiles.length];
+        int count = 0;
+        for (double quantile : quantiles) {
+            final int index = index(quantile);
+            if (index >= 1 && index < size) {
+                ranks[count++] = index - 1;
+                ranks[count++] = index;
+            }
+        }
+        Arrays.sort(ranks, 0, count);
+
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || ranks[distinct - 1] != ranks[i]) {
+                ranks[distinct++] = ranks[i];
+            }
+        }
+        QuickSelect.select(values, 0, size, ranks, 0, distinct);
+    }
 }
@@ -6,10 +6,14 @@ import java.io.PrintWriter;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Comparator;
 
 /**
  * A statistical snapshot of a {@link WeightedSnapshot}.
+ * <p/>
+ * Values and weights are kept in parallel primitive arrays. The minimum, maximum, mean and standard
+ * deviation are computed up-front in linear time; the values are only sorted once a quantile or the
+ * values themselves are asked for, and {@link #getValues(double[])} avoids even that by selecting
+ * just the elements it needs.
  */
 public class WeightedSnapshot extends Snapshot {
 
@@ -30,7 +34,13 @@ public class WeightedSnapshot extends Snapshot {
 
     private final long[] values;
     private final double[] normWeights;
-    private final double[] quantiles;
+    private final int size;
+    private final long min;
+    private final long max;
+    private final double mean;
+    private final double stdDev;
+    // the sum of the weights of the values before each value; set once the values are sorted
+    private volatile double[] quantiles;
 
     /**
      * Create a new {@link Snapshot} with the given values.
@@ -39,36 +49,84 @@ public class WeightedSnapshot extends Snapshot {
      */
     public WeightedSnapshot(Collection<WeightedSample> values) {
         final WeightedSample[] copy = values.toArray( new WeightedSample[]{} );
+        final long[] unpackedValues = new long[copy.length];
+        final double[] unpackedWeights = new double[copy.length];
+        for (int i = 0; i < copy.length; i++) {
+            unpackedValues[i] = copy[i].value;
+            unpackedWeights[i] = copy[i].weight;
+        }
+        this.values = unpackedValues;
+        this.normWeights = unpackedWeights;
+        this.size = copy.length;
+        this.min = min(unpackedValues, copy.length);
+        this.max = max(unpackedValues, copy.length);
+        this.mean = normalize();
+        this.stdDev = stdDev();
+    }
 
-        Arrays.sort(copy, new Comparator<WeightedSample>() {
-            @Override
-            public int compare(WeightedSample o1, WeightedSample o2) {
-                if (o1.value > o2.value)
-                    return 1;
-                if (o1.value < o2.value)
-                    return -1;
-                return 0;
-            }
+    /**
+     * Create a new {@link Snapshot} with the first {@code size} elements of the given arrays. The
+     * snapshot takes ownership of the arrays and reorders those elements in place.
+     *
+     * @param values     an array whose first {@code size} elements are the values in the reservoir
+     * @param weights    an array whose first {@code size} elements are the weights of the values
+     * @param size       the number of values
+     */
+    WeightedSnapshot(long[] values, double[] weights, int size) {
+        this.values = values;
+        this.normWeights = weights;
+        this.size = size;
+        this.min = min(values, size);
+        this.max = max(values, size);
+        this.mean = normalize();
+        this.stdDev = stdDev();
+    }
+
+    private static long min(long[] values, int size) {
+        long min = size == 0 ? 0 : Long.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            min = Math.min(min, values[i]);
         }
-        );
+        return min;
+    }
 
-        this.values = new long[copy.length];
-        this.normWeights = new double[copy.length];
-        this.quantiles = new double[copy.length];
+    private static long max(long[] values, int size) {
+        long max = size == 0 ? 0 : Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
 
+    // normalizes the weights in place and returns the weighted mean
+    private double normalize() {
         double sumWeight = 0;
-        for (WeightedSample sample : copy) {
-            sumWeight += sample.weight;
+        for (int i = 0; i < size; i++) {
+            sumWeight += normWeights[i];
         }
 
-        for (int i = 0; i < copy.length; i++) {
-            this.values[i] = copy[i].value;
-            this.normWeights[i] = copy[i].weight / sumWeight;
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            normWeights[i] = normWeights[i] / sumWeight;
+            sum += values[i] * normWeights[i];
+        }
+        return sum;
+    }
+
+    private double stdDev() {
+        // two-pass algorithm for variance, avoids numeric overflow
+
+        if (size <= 1) {
+            return 0;
         }
 
-        for (int i = 1; i < copy.length; i++) {
-            this.quantiles[i] = this.quantiles[i - 1] + this.normWeights[i - 1];
+        double variance = 0;
+        for (int i = 0; i < size; i++) {
+            final double diff = values[i] - mean;
+            variance += normWeights[i] * diff*diff;
         }
+
+        return Math.sqrt(variance);
     }
 
     /**
@@ -79,14 +137,13 @@ public class WeightedSnapshot extends Snapshot {
      */
     @Override
     public double getValue(double quantile) {
-        if (quantile < 0.0 || quantile > 1.0 || Double.isNaN( quantile )) {
-            throw new IllegalArgumentException(quantile + " is not in [0..1]");
-        }
+        checkQuantile(quantile);
 
-        if (values.length == 0) {
+        if (size == 0) {
             return 0.0;
         }
 
+        final double[] quantiles = sort();
         int posx = Arrays.binarySearch(quantiles, quantile);
         if (posx < 0)
             posx = ((-posx) - 1) - 1;
@@ -95,13 +152,54 @@ public class WeightedSnapshot extends Snapshot {
             return values[0];
         }
 
-        if (posx >= values.length) {
-            return values[values.length - 1];
+        if (posx >= size) {
+            return values[size - 1];
         }
 
         return values[posx];
     }
 
+    /**
+     * Returns the values at each of the given quantiles. Unless the snapshot has been sorted
+     * already, this only partially orders the values, selecting those at the quantiles needed.
+     *
+     * @param quantiles    the given quantiles, each in {@code [0..1]}
+     * @return the values in the distribution at {@code quantiles}, in the same order
+     */
+    @Override
+    public double[] getValues(double[] quantiles) {
+        for (double quantile : quantiles) {
+            checkQuantile(quantile);
+        }
+
+        final double[] result = new double[quantiles.length];
+        if (size == 0) {
+            return result;
+        }
+
+        synchronized (this) {
+            if (this.quantiles != null) {
+                for (int i = 0; i < quantiles.length; i++) {
+                    result[i] = getValue(quantiles[i]);
+                }
+                return result;
+            }
+
+            // visit the quantiles in ascending order
+            final int[] order = new int[quantiles.length];
+            for (int i = 0; i < order.length; i++) {
+                int j = i - 1;
+                while (j >= 0 && quantiles[order[j]] > quantiles[i]) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = i;
+            }
+            select(0, size, 0.0, quantiles, order, 0, order.length, result);
+        }
+        return result;
+    }
+
     /**
      * Returns the number of values in the snapshot.
      *
@@ -109,7 +207,7 @@ public class WeightedSnapshot extends Snapshot {
      */
     @Override
     public int size() {
-        return values.length;
+        return size;
     }
 
     /**
@@ -119,7 +217,8 @@ public class WeightedSnapshot extends Snapshot {
      */
     @Override
     public long[] getValues() {
-        return Arrays.copyOf(values, values.length);
+        sort();
+        return Arrays.copyOf(values, size);
     }
 
     /**
@@ -129,10 +228,7 @@ public class WeightedSnapshot extends Snapshot {
      */
     @Override
     public long getMax() {
-        if (values.length == 0) {
-            return 0;
-        }
-        return values[values.length - 1];
+        return max;
     }
 
     /**
@@ -142,10 +238,7 @@ public class WeightedSnapshot extends Snapshot {
      */
     @Override
     public long getMin() {
-        if (values.length == 0) {
-            return 0;
-        }
-        return values[0];
+        return min;
     }
 
     /**
@@ -155,15 +248,7 @@ public class WeightedSnapshot extends Snapshot {
      */
     @Override
     public double getMean() {
-        if (values.length == 0) {
-            return 0;
-        }
-
-        double sum = 0;
-        for (int i = 0; i < values.length; i++) {
-            sum += values[i] * normWeights[i];
-        }
-        return sum;
+        return mean;
     }
 
     /**
@@ -173,21 +258,7 @@ public class WeightedSnapshot extends Snapshot {
      */
     @Override
     public double getStdDev() {
-        // two-pass algorithm for variance, avoids numeric overflow
-
-        if (values.length <= 1) {
-            return 0;
-        }
-
-        final double mean = getMean();
-        double variance = 0;
-
-        for (int i = 0; i < values.length; i++) {
-            final double diff = values[i] - mean;
-            variance += normWeights[i] * diff*diff;
-        }
-
-        return Math.sqrt(variance);
+        return stdDev;
     }
 
     /**
@@ -197,13 +268,90 @@ public class WeightedSnapshot extends Snapshot {
      */
     @Override
     public void dump(OutputStream output) {
+        sort();
         final PrintWriter out = new PrintWriter(new OutputStreamWriter(output, UTF_8));
         try {
-            for (long value : values) {
-                out.printf("%d%n", value);
+            for (int i = 0; i < size; i++) {
+                out.printf("%d%n", values[i]);
             }
         } finally {
             out.close();
         }
     }
+
+    private static void checkQuantile(double quantile) {
+        if (quantile < 0.0 || quantile > 1.0 || Double.isNaN( quantile )) {
+            throw new IllegalArgumentException(quantile + " is not in [0..1]");
+        }
+    }
+
+    private double[] sort() {
+        double[] quantiles = this.quantiles;
+        if (quantiles == null) {
+            synchronized (this) {
+                quantiles = this.quantiles;
+                if (quantiles == null) {
+                    QuickSelect.sort(values, normWeights, 0, size);
+                    quantiles = new double[size];
+                    for (int i = 1; i < size; i++) {
+                        quantiles[i] = quantiles[i - 1] + normWeights[i - 1];
+                    }
+                    this.quantiles = quantiles;
+                }
+            }
+        }
+        return quantiles;
+    }
+
+    /*
+     * Finds the value at each of the given quantiles within [from..to), where the values before
+     * from weigh before in total. Like getValue(), the value at a quantile is the last one whose
+     * preceding values weigh no more than the quantile. Must hold the lock.
+     */
+    private void select(int from, int to, double before, double[] quantiles,
+                        int[] order, int orderFrom, int orderTo, double[] result) {
+        while (orderFrom < orderTo) {
+            if (to - from <= QuickSelect.INSERTION_SORT_THRESHOLD) {
+                QuickSelect.insertionSort(values, normWeights, from, to);
+                int i = from;
+                double weight = before;
+                for (int k = orderFrom; k < orderTo; k++) {
+                    final double quantile = quantiles[order[k]];
+                    while (i + 1 < to && weight + normWeights[i] <= quantile) {
+                        weight += normWeights[i];
+                        i++;
+                    }
+                    result[order[k]] = values[i];
+                }
+                return;
+            }
+
+            final long bounds = QuickSelect.partition(values, normWeights, from, to);
+            final int lt = QuickSelect.lower(bounds);
+            final int gt = QuickSelect.upper(bounds);
+            double pivotStart = before;
+            for (int i = from; i < lt; i++) {
+                pivotStart += normWeights[i];
+            }
+            double greaterStart = pivotStart;
+            for (int i = lt; i < gt; i++) {
+                greaterStart += normWeights[i];
+            }
+
+            int left = orderFrom;
+            while (left < orderTo && quantiles[order[left]] < pivotStart) {
+                left++;
+            }
+            int right = left;
+            while (right < orderTo && (gt == to || quantiles[order[right]] < greaterStart)) {
+                result[order[right]] = values[lt];
+                right++;
+            }
+
+            select(from, lt, before, quantiles, order, orderFrom, left, result);
+            from = gt;
+            before = greaterStart;
+            orderFrom = right;
+        }
+    }
 }
@@ -0,0 +1,165 @@
+package io.dropwizard.metrics;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class AsyncMetricRegistryListenerTest {
+    private final MetricName foo = MetricName.build("foo");
+    private final MetricName bar = MetricName.build("bar");
+    private final MetricRegistryListener delegate = mock(MetricRegistryListener.class);
+    private final MetricRegistry registry = new MetricRegistry();
+    private final AsyncMetricRegistryListener listener = new AsyncMetricRegistryListener(delegate);
+
+    @After
+    public void tearDown() throws Exception {
+        listener.close();
+    }
+
+    @Test
+    public void deliversTheEventsOfANameInOrder() throws Exception {
+        registry.addListener(listener);
+
+        final Counter counter = registry.counter(foo);
+        assertThat(listener.flush(5, TimeUnit.SECONDS))
+                .isTrue();
+
+        registry.remove(foo);
+        final Timer timer = registry.timer(foo);
+        assertThat(listener.flush(5, TimeUnit.SECONDS))
+                .isTrue();
+
+        final InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).onCounterAdded(foo, counter);
+        inOrder.verify(delegate).onCounterRemoved(foo);
+        inOrder.verify(delegate).onTimerAdded(foo, timer);
+    }
+
+    @Test
+    public void doesNotWaitForTheListener() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<MetricName> added = new ArrayList<MetricName>();
+        final AsyncMetricRegistryListener listener = new AsyncMetricRegistryListener(new MetricRegistryListener.Base() {
+            @Override
+            public void onCounterAdded(MetricName name, Counter counter) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                added.add(name);
+            }
+        });
+        registry.addListener(listener);
+
+        registry.counter(foo);
+        registry.counter(bar);
+
+        assertThat(listener.flush(10, TimeUnit.MILLISECONDS))
+                .isFalse();
+
+        release.countDown();
+
+        assertThat(listener.flush(5, TimeUnit.SECONDS))
+                .isTrue();
+        assertThat(added)
+                .containsExactly(foo, bar);
+        listener.close();
+    }
+
+    @Test
+    public void skipsMetricsWhichWereRemovedWithinTheSameBatch() throws Exception {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        final AsyncMetricRegistryListener listener = new AsyncMetricRegistryListener(delegate, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+        registry.addListener(listener);
+
+        registry.counter(foo);
+        registry.remove(foo);
+        final Counter counter = registry.counter(bar);
+
+        assertThat(listener.getPendingCount())
+                .isEqualTo(3);
+        assertThat(tasks)
+                .hasSize(1);
+
+        tasks.get(0).run();
+
+        verify(delegate).onCounterAdded(bar, counter);
+        verify(delegate, never()).onCounterAdded(eq(foo), any(Counter.class));
+        verify(delegate, never()).onCounterRemoved(foo);
+        assertThat(listener.getPendingCount())
+                .isZero();
+    }
+
+    @Test
+    public void dropsPendingEventsWhenClosedNow() throws Exception {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        final AsyncMetricRegistryListener listener = new AsyncMetricRegistryListener(delegate, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+        registry.addListener(listener);
+
+        registry.counter(foo);
+        registry.counter(bar);
+
+        assertThat(listener.closeNow())
+                .isEqualTo(2);
+
+        registry.timer("baz");
+        for (Runnable task : tasks) {
+            task.run();
+        }
+
+        verify(delegate, never()).onCounterAdded(any(MetricName.class), any(Counter.class));
+        verify(delegate, never()).onTimerAdded(any(MetricName.class), any(Timer.class));
+        assertThat(listener.getPendingCount())
+                .isZero();
+    }
+
+    @Test
+    public void replaysExistingMetricsInTheBackground() throws Exception {
+        final Counter counter = registry.counter(foo);
+
+        registry.addListener(listener);
+
+        assertThat(listener.flush(5, TimeUnit.SECONDS))
+                .isTrue();
+        verify(delegate).onCounterAdded(foo, counter);
+    }
+
+    @Test
+    public void keepsDeliveringAfterTheListenerThrows() throws Exception {
+        final Counter failing = registry.counter(foo);
+        doThrow(new IllegalStateException("boom")).when(delegate).onCounterAdded(foo, failing);
+        registry.addListener(listener);
+
+        final Counter counter = registry.counter(bar);
+
+        assertThat(listener.flush(5, TimeUnit.SECONDS))
+                .isTrue();
+        verify(delegate).onCounterAdded(bar, counter);
+    }
+}
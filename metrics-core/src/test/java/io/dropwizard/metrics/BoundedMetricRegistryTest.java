@@ -0,0 +1,135 @@
+package io.dropwizard.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class BoundedMetricRegistryTest {
+    private final ManualClock clock = new ManualClock();
+    private final MetricRegistryListener listener = mock(MetricRegistryListener.class);
+    private final BoundedMetricRegistry registry = new BoundedMetricRegistry(2, 1, TimeUnit.MINUTES);
+
+    @Before
+    public void setUp() throws Exception {
+        registry.setRateClock(clock);
+        registry.addListener(listener);
+    }
+
+    @Test
+    public void returnsTheSameMetricForTheSameName() throws Exception {
+        assertThat(registry.timer("a")).isSameAs(registry.timer("a"));
+        assertThat(registry.getEvictableCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void returnsOverflowMetricsOnceFull() throws Exception {
+        final Timer a = registry.timer("a");
+        final Timer b = registry.timer("b");
+        final Timer c = registry.timer("c");
+
+        assertThat(c).isNotSameAs(a).isNotSameAs(b);
+        assertThat(registry.getTimers()).containsKeys(MetricName.build("a"), MetricName.build("b"),
+                MetricName.build("overflow.timer"));
+        assertThat(registry.getTimers()).doesNotContainKey(MetricName.build("c"));
+        assertThat(registry.timer("d")).isSameAs(c);
+        assertThat(registry.counter("e")).isSameAs(registry.getCounters().get(MetricName.build("overflow.counter")));
+    }
+
+    @Test
+    public void evictsIdleMetricsAndNotifiesListeners() throws Exception {
+        registry.counter("a");
+        registry.counter("b");
+
+        clock.addSeconds(30);
+        registry.counter("a");
+        clock.addSeconds(31);
+
+        assertThat(registry.evictIdle()).isEqualTo(1);
+        assertThat(registry.getCounters()).containsOnlyKeys(MetricName.build("a"));
+        assertThat(registry.getEvictableCount()).isEqualTo(1);
+        verify(listener).onCounterRemoved(MetricName.build("b"));
+        verify(listener, never()).onCounterRemoved(MetricName.build("a"));
+    }
+
+    @Test
+    public void metricsWhoseCountChangesAreNotIdle() throws Exception {
+        final Counter counter = registry.counter("a");
+        registry.evictIdle();
+
+        clock.addSeconds(61);
+        counter.inc();
+
+        assertThat(registry.evictIdle()).isZero();
+
+        clock.addSeconds(61);
+
+        assertThat(registry.evictIdle()).isEqualTo(1);
+    }
+
+    @Test
+    public void makesRoomForNewMetricsOnceIdleOnesAreEvicted() throws Exception {
+        registry.meter("a");
+        registry.meter("b");
+
+        clock.addSeconds(61);
+        final Meter c = registry.meter("c");
+
+        assertThat(registry.getMeters()).containsOnlyKeys(MetricName.build("c"));
+        assertThat(c).isSameAs(registry.meter("c"));
+    }
+
+    @Test
+    public void neverEvictsOrCountsRegisteredMetrics() throws Exception {
+        final Counter registered = registry.register("registered", new Counter());
+        registry.counter("a");
+        registry.counter("b");
+
+        assertThat(registry.counter("registered")).isSameAs(registered);
+
+        clock.addSeconds(61);
+        registry.evictIdle();
+
+        assertThat(registry.getCounters()).containsOnlyKeys(MetricName.build("registered"));
+    }
+
+    @Test
+    public void tracksMetricsWhoseNameWasEvictedWhileTheyWereCreated() throws Exception {
+        registry.timer(MetricName.build("a"), new MetricRegistry.MetricSupplier<Timer>() {
+            @Override
+            public Timer newMetric() {
+                clock.addSeconds(61);
+                registry.evictIdle();
+                return new Timer();
+            }
+        });
+
+        assertThat(registry.getEvictableCount()).isEqualTo(1);
+
+        clock.addSeconds(61);
+
+        assertThat(registry.evictIdle()).isEqualTo(1);
+        assertThat(registry.getTimers()).isEmpty();
+    }
+
+    @Test
+    public void forgetsRemovedMetrics() throws Exception {
+        registry.histogram("a");
+        registry.histogram("b");
+        registry.remove(MetricName.build("a"));
+
+        assertThat(registry.getEvictableCount()).isEqualTo(1);
+        assertThat(registry.histogram("c")).isNotSameAs(registry.histogram("overflow.histogram"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNamesOfMetricsOfAnotherType() throws Exception {
+        registry.counter("a");
+        registry.timer("a");
+    }
+}
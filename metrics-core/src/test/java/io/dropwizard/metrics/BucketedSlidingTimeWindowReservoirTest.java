@@ -0,0 +1,96 @@
+package io.dropwizard.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BucketedSlidingTimeWindowReservoirTest {
+    private final Clock clock = mock(Clock.class);
+    private final BucketedSlidingTimeWindowReservoir reservoir = new BucketedSlidingTimeWindowReservoir(10, TimeUnit.NANOSECONDS, clock);
+
+    @Test
+    public void storesMeasurementsWithDuplicateTicks() throws Exception {
+        when(clock.getTick()).thenReturn(20L);
+
+        reservoir.update(1);
+        reservoir.update(2);
+
+        assertThat(reservoir.getSnapshot().getValues())
+                .containsOnly(1, 2);
+    }
+
+    @Test
+    public void boundsMeasurementsToATimeWindow() throws Exception {
+        when(clock.getTick()).thenReturn(0L);
+        reservoir.update(1);
+
+        when(clock.getTick()).thenReturn(5L);
+        reservoir.update(2);
+
+        when(clock.getTick()).thenReturn(10L);
+        reservoir.update(3);
+
+        when(clock.getTick()).thenReturn(15L);
+        reservoir.update(4);
+
+        when(clock.getTick()).thenReturn(20L);
+        reservoir.update(5);
+
+        assertThat(reservoir.getSnapshot().getValues())
+                .containsOnly(4, 5);
+        assertThat(reservoir.size())
+                .isEqualTo(2);
+    }
+
+    @Test
+    public void recyclesExpiredSlices() throws Exception {
+        final ManualClock clock = new ManualClock();
+        final BucketedSlidingTimeWindowReservoir reservoir =
+                new BucketedSlidingTimeWindowReservoir(1, TimeUnit.SECONDS, clock, 10, 100);
+
+        for (int i = 0; i < 100; i++) {
+            reservoir.update(i);
+            clock.addMillis(50);
+        }
+
+        // the last second holds 20 measurements, but the slice holding the oldest two of them is
+        // only partly inside the window and has already expired
+        assertThat(reservoir.getSnapshot().getValues())
+                .containsOnly(82, 83, 84, 85, 86, 87, 88, 89, 90, 91, 92, 93, 94, 95, 96, 97, 98, 99);
+
+        clock.addSeconds(1);
+
+        assertThat(reservoir.getSnapshot().size())
+                .isZero();
+    }
+
+    @Test
+    public void boundsMemoryAtAnyRate() throws Exception {
+        final ManualClock clock = new ManualClock();
+        final BucketedSlidingTimeWindowReservoir reservoir =
+                new BucketedSlidingTimeWindowReservoir(1, TimeUnit.SECONDS, clock, 10, 100);
+
+        // 10,000 small values in one slice, then 100 large values in the next
+        for (int i = 0; i < 10000; i++) {
+            reservoir.update(1);
+        }
+        clock.addMillis(100);
+        for (int i = 0; i < 100; i++) {
+            reservoir.update(1000);
+        }
+
+        final Snapshot snapshot = reservoir.getSnapshot();
+
+        assertThat(snapshot.size())
+                .isEqualTo(200);
+        // the small values stand for 100 measurements each, so they dominate the distribution
+        assertThat(snapshot.get98thPercentile())
+                .isEqualTo(1);
+        assertThat(snapshot.getMax())
+                .isEqualTo(1000);
+    }
+}
@@ -0,0 +1,95 @@
+package io.dropwizard.metrics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class BufferedReservoirTest {
+    @Test
+    public void snapshotsIncludeBufferedValues() throws Exception {
+        final BufferedReservoir reservoir = new BufferedReservoir(new SlidingWindowReservoir(10));
+
+        reservoir.update(1);
+        reservoir.update(2);
+        reservoir.update(3);
+
+        assertThat(reservoir.size())
+                .isEqualTo(3);
+        assertThat(reservoir.getSnapshot().getValues())
+                .containsOnly(1, 2, 3);
+    }
+
+    @Test
+    public void recordsValuesOnceTheBufferIsFull() throws Exception {
+        final Reservoir delegate = mock(Reservoir.class);
+        final BufferedReservoir reservoir = new BufferedReservoir(delegate, 3);
+
+        reservoir.update(1);
+        reservoir.update(2);
+
+        verify(delegate, never()).update(1);
+
+        reservoir.update(3);
+
+        verify(delegate).update(1);
+        verify(delegate).update(2);
+        verify(delegate).update(3);
+    }
+
+    @Test
+    public void recordsEachValueOnce() throws Exception {
+        final Reservoir delegate = mock(Reservoir.class);
+        final BufferedReservoir reservoir = new BufferedReservoir(delegate, 2);
+
+        reservoir.update(1);
+        reservoir.getSnapshot();
+        reservoir.getSnapshot();
+
+        verify(delegate, times(1)).update(1);
+    }
+
+    @Test
+    public void recordsValuesFromManyThreads() throws Exception {
+        final BufferedReservoir reservoir = new BufferedReservoir(new SlidingWindowReservoir(100000), 16);
+        final int threadCount = 8;
+        final int updates = 10000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < threadCount; t++) {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < updates; i++) {
+                        reservoir.update(i);
+                        if (i % 1000 == 0) {
+                            reservoir.getSnapshot();
+                        }
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(reservoir.size())
+                .isEqualTo(threadCount * updates);
+    }
+}
@@ -5,8 +5,10 @@ import org.junit.Test;
 import io.dropwizard.metrics.Clock;
 
 import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
 import static org.assertj.core.api.Assertions.offset;
 
 public class ClockTest {
@@ -41,4 +43,49 @@ public class ClockTest {
         assertThat(Clock.defaultClock())
                 .isInstanceOf(Clock.UserTimeClock.class);
     }
+
+    @Test
+    public void coarseClock() throws Exception {
+        final Clock.CoarseClock clock = new Clock.CoarseClock(1, TimeUnit.MILLISECONDS);
+        try {
+            Thread.sleep(20);
+
+            assertThat((double) clock.getTime())
+                    .isEqualTo(System.currentTimeMillis(),
+                               offset(100.0));
+
+            assertThat((double) clock.getTick())
+                    .isEqualTo(System.nanoTime(),
+                               offset(100000000.0));
+        } finally {
+            clock.stop();
+        }
+    }
+
+    @Test
+    public void coarseClockStopsAdvancingOnceStopped() throws Exception {
+        final Clock.CoarseClock clock = new Clock.CoarseClock(1, TimeUnit.MILLISECONDS);
+        clock.stop();
+        Thread.sleep(20);
+        final long tick = clock.getTick();
+        Thread.sleep(20);
+
+        assertThat(clock.getTick())
+                .isEqualTo(tick);
+    }
+
+    @Test
+    public void theSharedCoarseClockCantBeStopped() throws Exception {
+        final Clock.CoarseClock clock = (Clock.CoarseClock) Clock.coarseClock();
+        try {
+            clock.stop();
+            failBecauseExceptionWasNotThrown(UnsupportedOperationException.class);
+        } catch (UnsupportedOperationException e) {
+            final long tick = clock.getTick();
+            Thread.sleep(20);
+
+            assertThat(clock.getTick())
+                    .isGreaterThan(tick);
+        }
+    }
 }
@@ -0,0 +1,159 @@
+package io.dropwizard.metrics;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+public class CompiledMetricFilterTest {
+    private final Metric metric = mock(Metric.class);
+
+    @Test
+    public void matchesEverythingByDefault() throws Exception {
+        final CompiledMetricFilter filter = CompiledMetricFilter.builder().build();
+
+        assertThat(matches(filter, "foo.bar"))
+                .isTrue();
+        assertThat(filter.matches(MetricName.EMPTY, metric))
+                .isTrue();
+        assertThat(filter.getPrefixes())
+                .isNull();
+    }
+
+    @Test
+    public void matchesIncludedPrefixesAtSegmentBoundaries() throws Exception {
+        final CompiledMetricFilter filter = CompiledMetricFilter.builder()
+                .include("com.example.db")
+                .build();
+
+        assertThat(matches(filter, "com.example.db"))
+                .isTrue();
+        assertThat(matches(filter, "com.example.db.queries"))
+                .isTrue();
+        assertThat(matches(filter, "com.example.dbcp"))
+                .isFalse();
+        assertThat(matches(filter, "com.example"))
+                .isFalse();
+    }
+
+    @Test
+    public void matchesGlobs() throws Exception {
+        final CompiledMetricFilter filter = CompiledMetricFilter.builder()
+                .include("jvm.memory.*.used")
+                .include("http.**.5??")
+                .build();
+
+        assertThat(matches(filter, "jvm.memory.heap.used"))
+                .isTrue();
+        assertThat(matches(filter, "jvm.memory.pools.eden.used"))
+                .isFalse();
+        assertThat(matches(filter, "jvm.memory.heap.committed"))
+                .isFalse();
+        assertThat(matches(filter, "http.requests.get.503"))
+                .isTrue();
+        assertThat(matches(filter, "http.503"))
+                .isFalse();
+        assertThat(matches(filter, "http.requests.404"))
+                .isFalse();
+    }
+
+    @Test
+    public void excludesPatterns() throws Exception {
+        final CompiledMetricFilter filter = CompiledMetricFilter.builder()
+                .include("com.example")
+                .exclude("com.example.db.pool")
+                .exclude("*.example.*.debug")
+                .build();
+
+        assertThat(matches(filter, "com.example.db.queries"))
+                .isTrue();
+        assertThat(matches(filter, "com.example.db.pool.active"))
+                .isFalse();
+        assertThat(matches(filter, "com.example.cache.debug"))
+                .isFalse();
+    }
+
+    @Test
+    public void matchesTags() throws Exception {
+        final CompiledMetricFilter filter = CompiledMetricFilter.builder()
+                .withTag("env", "prod*")
+                .withoutTag("debug")
+                .build();
+
+        assertThat(filter.matches(MetricName.build("foo").tagged("env", "prod-eu"), metric))
+                .isTrue();
+        assertThat(filter.matches(MetricName.build("foo").tagged("env", "staging"), metric))
+                .isFalse();
+        assertThat(filter.matches(MetricName.build("foo"), metric))
+                .isFalse();
+        assertThat(filter.matches(MetricName.build("foo").tagged("env", "prod", "debug", "true"), metric))
+                .isFalse();
+    }
+
+    @Test
+    public void reducesIncludesToTheirShortestLiteralPrefixes() throws Exception {
+        assertThat(CompiledMetricFilter.builder()
+                .include("b.c")
+                .include("a.b.*.d")
+                .include("a-b")
+                .include("a")
+                .build()
+                .getPrefixes())
+                .containsExactly("a", "a-b", "b.c");
+
+        assertThat(CompiledMetricFilter.builder()
+                .include("a")
+                .include("*.b")
+                .build()
+                .getPrefixes())
+                .isNull();
+    }
+
+    @Test
+    public void cachesResultsPerName() throws Exception {
+        final CompiledMetricFilter filter = CompiledMetricFilter.builder()
+                .withTag("env", "prod")
+                .build();
+        final MetricName name = spy(MetricName.build("foo").tagged("env", "prod"));
+
+        assertThat(filter.matches(name, metric))
+                .isTrue();
+        assertThat(filter.matches(name, metric))
+                .isTrue();
+
+        verify(name).getTags();
+    }
+
+    @Test
+    public void onlyScansIncludedSubtreesOfTheRegistry() throws Exception {
+        final MetricRegistry registry = new MetricRegistry();
+        registry.counter("a");
+        registry.counter("a-b");
+        registry.counter(MetricName.build("a.b").tagged("x", "y"));
+        registry.counter("ab");
+        registry.counter("b.c.d");
+        registry.timer("a.timer");
+
+        final MetricFilter filter = spy(CompiledMetricFilter.builder()
+                .include("a")
+                .include("b.c")
+                .build());
+
+        assertThat(registry.getCounters(filter).keySet())
+                .containsExactly(MetricName.build("a"), MetricName.build("a.b").tagged("x", "y"),
+                        MetricName.build("b.c.d"));
+        verify(filter, never()).matches(MetricName.build("ab"), registry.counter("ab"));
+
+        registry.removeMatching(filter);
+
+        assertThat(registry.getNames())
+                .containsOnly(MetricName.build("a-b"), MetricName.build("ab"));
+    }
+
+    private boolean matches(MetricFilter filter, String name) {
+        return filter.matches(MetricName.build(name), metric);
+    }
+}
@@ -85,12 +85,8 @@ public class CsvReporterTest {
         when(snapshot.getMean()).thenReturn(3.0);
         when(snapshot.getMin()).thenReturn(4L);
         when(snapshot.getStdDev()).thenReturn(5.0);
-        when(snapshot.getMedian()).thenReturn(6.0);
-        when(snapshot.get75thPercentile()).thenReturn(7.0);
-        when(snapshot.get95thPercentile()).thenReturn(8.0);
-        when(snapshot.get98thPercentile()).thenReturn(9.0);
-        when(snapshot.get99thPercentile()).thenReturn(10.0);
-        when(snapshot.get999thPercentile()).thenReturn(11.0);
+        when(snapshot.getValues(new double[]{0.5, 0.75, 0.95, 0.98, 0.99, 0.999}))
+                .thenReturn(new double[]{6.0, 7.0, 8.0, 9.0, 10.0, 11.0});
 
         when(histogram.getSnapshot()).thenReturn(snapshot);
 
@@ -143,12 +139,15 @@ public class CsvReporterTest {
         when(snapshot.getMean()).thenReturn((double) TimeUnit.MILLISECONDS.toNanos(200));
         when(snapshot.getMin()).thenReturn(TimeUnit.MILLISECONDS.toNanos(300));
         when(snapshot.getStdDev()).thenReturn((double) TimeUnit.MILLISECONDS.toNanos(400));
-        when(snapshot.getMedian()).thenReturn((double) TimeUnit.MILLISECONDS.toNanos(500));
-        when(snapshot.get75thPercentile()).thenReturn((double) TimeUnit.MILLISECONDS.toNanos(600));
-        when(snapshot.get95thPercentile()).thenReturn((double) TimeUnit.MILLISECONDS.toNanos(700));
-        when(snapshot.get98thPercentile()).thenReturn((double) TimeUnit.MILLISECONDS.toNanos(800));
-        when(snapshot.get99thPercentile()).thenReturn((double) TimeUnit.MILLISECONDS.toNanos(900));
-        when(snapshot.get999thPercentile()).thenReturn((double) TimeUnit.MILLISECONDS.toNanos(1000));
+        when(snapshot.getValues(new double[]{0.5, 0.75, 0.95, 0.98, 0.99, 0.999}))
+                .thenReturn(new double[]{
+                        TimeUnit.MILLISECONDS.toNanos(500),
+                        TimeUnit.MILLISECONDS.toNanos(600),
+                        TimeUnit.MILLISECONDS.toNanos(700),
+                        TimeUnit.MILLISECONDS.toNanos(800),
+                        TimeUnit.MILLISECONDS.toNanos(900),
+                        TimeUnit.MILLISECONDS.toNanos(1000)
+                });
 
         when(timer.getSnapshot()).thenReturn(snapshot);
 
@@ -0,0 +1,107 @@
+package io.dropwizard.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class DefaultMetricFactoryTest {
+    private final Reservoir hot = mock(Reservoir.class);
+    private final Reservoir hotter = mock(Reservoir.class);
+    private final MetricRegistry registry = new MetricRegistry();
+
+    @Test
+    public void createsTheRegistrysDefaultMetrics() throws Exception {
+        assertThat(registry.getMetricFactory())
+                .isInstanceOf(DefaultMetricFactory.class);
+
+        registry.timer("timer").update(1, TimeUnit.SECONDS);
+
+        assertThat(registry.timer("timer").getSnapshot().getValues())
+                .containsOnly(1000000000L);
+    }
+
+    @Test
+    public void usesTheReservoirOfTheLongestMatchingPrefix() throws Exception {
+        registry.setMetricFactory(DefaultMetricFactory.builder()
+                .withReservoir("db", supplierOf(hot))
+                .withReservoir("db.queries", supplierOf(hotter))
+                .build());
+
+        registry.histogram("db.connections").update(1);
+        registry.timer("db.queries.select").update(2, TimeUnit.NANOSECONDS);
+        registry.histogram("dbcp.connections").update(3);
+
+        verify(hot).update(1);
+        verify(hotter).update(2);
+        verifyZeroInteractions(hot, hotter);
+    }
+
+    @Test
+    public void delegatesToTheFactoryOfAMatchingPrefix() throws Exception {
+        final Counter counter = new Counter();
+        registry.setMetricFactory(DefaultMetricFactory.builder()
+                .withFactory("jdbi", new DefaultMetricFactory() {
+                    @Override
+                    public Counter newCounter(MetricName name) {
+                        return counter;
+                    }
+                })
+                .build());
+
+        assertThat(registry.counter("jdbi.statements"))
+                .isSameAs(counter);
+        assertThat(registry.counter("jetty.requests"))
+                .isNotSameAs(counter);
+    }
+
+    @Test
+    public void timesWithTheGivenClock() throws Exception {
+        final ManualClock clock = new ManualClock();
+        registry.setMetricFactory(DefaultMetricFactory.builder()
+                .withReservoir(supplierOf(hot))
+                .withClock(clock)
+                .build());
+
+        registry.timer("timer").time(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                clock.addNanos(42);
+                return null;
+            }
+        });
+
+        verify(hot).update(42);
+    }
+
+    @Test
+    public void leavesMetricsFromSuppliersAlone() throws Exception {
+        registry.setMetricFactory(DefaultMetricFactory.builder()
+                .withReservoir(supplierOf(hot))
+                .build());
+
+        registry.histogram("histogram", new MetricRegistry.MetricSupplier<Histogram>() {
+            @Override
+            public Histogram newMetric() {
+                return new Histogram(hotter);
+            }
+        }).update(1);
+
+        verify(hotter).update(1);
+        verifyZeroInteractions(hot);
+    }
+
+    private static MetricFactory.ReservoirSupplier supplierOf(final Reservoir reservoir) {
+        return new MetricFactory.ReservoirSupplier() {
+            @Override
+            public Reservoir newReservoir(Clock rateClock) {
+                return reservoir;
+            }
+        };
+    }
+}
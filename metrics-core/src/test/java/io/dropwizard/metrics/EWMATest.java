@@ -218,6 +218,40 @@ public class EWMATest {
     }
 
 
+    @Test
+    public void ticksManyIntervalsAtOnce() throws Exception {
+        final EWMA ewma = EWMA.oneMinuteEWMA();
+        ewma.update(3);
+        ewma.tick(13);
+
+        final EWMA expected = EWMA.oneMinuteEWMA();
+        expected.update(3);
+        expected.tick();
+        elapseMinute(expected);
+
+        assertThat(ewma.getRate(TimeUnit.SECONDS))
+                .isEqualTo(expected.getRate(TimeUnit.SECONDS), offset(0.000001));
+    }
+
+    @Test
+    public void spreadsEventsOverManyIntervals() throws Exception {
+        final EWMA ewma = EWMA.fiveMinuteEWMA();
+        ewma.update(3);
+        ewma.tick();
+        ewma.tick(24, 12);
+
+        final EWMA expected = EWMA.fiveMinuteEWMA();
+        expected.update(3);
+        expected.tick();
+        for (int i = 0; i < 12; i++) {
+            expected.update(2);
+            expected.tick();
+        }
+
+        assertThat(ewma.getRate(TimeUnit.SECONDS))
+                .isEqualTo(expected.getRate(TimeUnit.SECONDS), offset(0.000001));
+    }
+
     private void elapseMinute(EWMA ewma) {
         for (int i = 1; i <= 12; i++) {
             ewma.tick();
@@ -278,6 +278,53 @@ public class JmxReporterTest {
     	
     }
 
+    @Test
+    public void registersMBeansAsynchronously() throws Exception {
+        final MBeanServer mockedMBeanServer = mock(MBeanServer.class);
+        final MetricRegistry testRegistry = new MetricRegistry();
+        final JmxReporter testJmxReporter = JmxReporter.forRegistry(testRegistry)
+                .registerWith(mockedMBeanServer)
+                .inDomain(name)
+                .registerAsynchronously(true)
+                .build();
+
+        testJmxReporter.start();
+        testRegistry.timer("test");
+
+        final ObjectName objectName = testJmxReporter.getObjectNameFactory()
+                .createName("timers", name, MetricName.build("test"));
+        verify(mockedMBeanServer, timeout(5000)).registerMBean(any(Object.class), eq(objectName));
+
+        testJmxReporter.stop();
+
+        verify(mockedMBeanServer).unregisterMBean(objectName);
+    }
+
+    @Test
+    public void exposesASwitchboard() throws Exception {
+        final MetricRegistry testRegistry = new MetricRegistry();
+        final Counter counter = testRegistry.counter("test.counter");
+        final JmxReporter testJmxReporter = JmxReporter.forRegistry(testRegistry)
+                .registerWith(mBeanServer)
+                .inDomain(name)
+                .exposeSwitchboard(true)
+                .build();
+        final ObjectName switchboard = new ObjectName(name, "type", "MetricSwitchboard");
+
+        testJmxReporter.start();
+        mBeanServer.invoke(switchboard, "disable", new Object[]{"test"}, new String[]{String.class.getName()});
+
+        assertThat(counter.isEnabled())
+                .isFalse();
+        assertThat((String[]) mBeanServer.getAttribute(switchboard, "DisabledMetrics"))
+                .containsExactly("test.counter");
+
+        testJmxReporter.stop();
+
+        assertThat(mBeanServer.isRegistered(switchboard))
+                .isFalse();
+    }
+
     @Test
     public void testJmxMetricNameWithAsterisk() {
         MetricRegistry metricRegistry = new MetricRegistry();
@@ -0,0 +1,146 @@
+package io.dropwizard.metrics;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+public class LogLinearHistogramReservoirTest {
+    private final LogLinearHistogramReservoir reservoir = new LogLinearHistogramReservoir(3);
+
+    @Test
+    public void countsEveryValue() throws Exception {
+        for (int i = 1; i <= 100000; i++) {
+            reservoir.update(i);
+        }
+
+        assertThat(reservoir.size())
+                .isEqualTo(100000);
+        assertThat(reservoir.getSnapshot().size())
+                .isEqualTo(100000);
+    }
+
+    @Test
+    public void resolvesQuantilesToTheSignificantDigits() throws Exception {
+        for (int i = 1; i <= 100000; i++) {
+            reservoir.update(i);
+        }
+
+        final Snapshot snapshot = reservoir.getSnapshot();
+
+        assertThat(snapshot.getMedian())
+                .isEqualTo(50000, offset(50.0));
+        assertThat(snapshot.get99thPercentile())
+                .isEqualTo(99000, offset(99.0));
+        assertThat(snapshot.get999thPercentile())
+                .isEqualTo(99900, offset(99.9));
+        assertThat(snapshot.getMin())
+                .isEqualTo(1);
+        assertThat((double) snapshot.getMax())
+                .isEqualTo(100000, offset(100.0));
+        assertThat(snapshot.getMean())
+                .isEqualTo(50000.5, offset(50.0));
+        assertThat(snapshot.getStdDev())
+                .isEqualTo(28867.5, offset(30.0));
+    }
+
+    @Test
+    public void smallValuesAreExact() throws Exception {
+        reservoir.update(1);
+        reservoir.update(2);
+        reservoir.update(3);
+        reservoir.update(4);
+        reservoir.update(5);
+
+        final Snapshot snapshot = reservoir.getSnapshot();
+
+        assertThat(snapshot.getValues())
+                .containsOnly(1, 2, 3, 4, 5);
+        assertThat(snapshot.getMedian())
+                .isEqualTo(3.0);
+        assertThat(snapshot.getMin())
+                .isEqualTo(1);
+        assertThat(snapshot.getMax())
+                .isEqualTo(5);
+        assertThat(snapshot.getMean())
+                .isEqualTo(3.0);
+    }
+
+    @Test
+    public void clampsValuesOutsideTheTrackableRange() throws Exception {
+        final LogLinearHistogramReservoir reservoir = new LogLinearHistogramReservoir(2, 1000);
+        reservoir.update(-5);
+        reservoir.update(Long.MAX_VALUE);
+
+        final Snapshot snapshot = reservoir.getSnapshot();
+
+        assertThat(snapshot.getMin())
+                .isEqualTo(0);
+        assertThat(snapshot.getMax())
+                .isGreaterThanOrEqualTo(1000)
+                .isLessThan(1024);
+    }
+
+    @Test
+    public void tracksTheFullLongRangeByDefault() throws Exception {
+        final LogLinearHistogramReservoir reservoir = new LogLinearHistogramReservoir();
+        reservoir.update(Long.MAX_VALUE);
+
+        assertThat(reservoir.getSnapshot().getMax())
+                .isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void anEmptySnapshotReturnsZeroes() throws Exception {
+        final Snapshot snapshot = reservoir.getSnapshot();
+
+        assertThat(snapshot.size())
+                .isZero();
+        assertThat(snapshot.getValues())
+                .isEmpty();
+        assertThat(snapshot.getMedian())
+                .isZero();
+        assertThat(snapshot.getMin())
+                .isZero();
+        assertThat(snapshot.getMax())
+                .isZero();
+        assertThat(snapshot.getMean())
+                .isZero();
+        assertThat(snapshot.getStdDev())
+                .isZero();
+    }
+
+    @Test
+    public void dumpsToAStream() throws Exception {
+        reservoir.update(1);
+        reservoir.update(1);
+        reservoir.update(7);
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        reservoir.getSnapshot().dump(output);
+
+        assertThat(output.toString())
+                .isEqualTo(String.format("1%n1%n7%n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void disallowsTooManySignificantDigits() throws Exception {
+        new LogLinearHistogramReservoir(6);
+    }
+
+    @Test
+    public void worksAsATimerReservoir() throws Exception {
+        final Timer timer = new Timer(reservoir);
+        for (int i = 1; i <= 1000; i++) {
+            timer.update(i, TimeUnit.MICROSECONDS);
+        }
+
+        assertThat(timer.getCount())
+                .isEqualTo(1000);
+        assertThat(timer.getSnapshot().get999thPercentile())
+                .isEqualTo(999000, offset(999.0));
+    }
+}
@@ -61,21 +61,55 @@ public class MeterApproximationTest {
                 .isEqualTo(ratePerMinute, offset(0.1*ratePerMinute));
     }
 
+    @Test
+    public void lazyMeter1MinuteMeanApproximation() throws Exception {
+        final Meter meter = simulateMetronome(
+                62934, TimeUnit.MILLISECONDS,
+                3, TimeUnit.MINUTES, true);
+
+        assertThat(meter.getOneMinuteRate()*60.0)
+                .isEqualTo(ratePerMinute, offset(0.1*ratePerMinute));
+    }
+
+    @Test
+    public void lazyMeter15MinuteMeanApproximation() throws Exception {
+        final Meter meter = simulateMetronome(
+                62934, TimeUnit.MILLISECONDS,
+                38, TimeUnit.MINUTES, true);
+
+        assertThat(meter.getFifteenMinuteRate()*60.0)
+                .isEqualTo(ratePerMinute, offset(0.1*ratePerMinute));
+    }
+
     private Meter simulateMetronome(
             long introDelay, TimeUnit introDelayUnit,
             long duration, TimeUnit durationUnit) {
+        return simulateMetronome(introDelay, introDelayUnit, duration, durationUnit, false);
+    }
+
+    private Meter simulateMetronome(
+            long introDelay, TimeUnit introDelayUnit,
+            long duration, TimeUnit durationUnit, boolean lazyRates) {
         
         final ManualClock clock = new ManualClock();
-        final Meter meter = new Meter(clock);
+        final Meter meter = new Meter(clock, lazyRates);
         
         clock.addNanos(introDelayUnit.toNanos(introDelay));
         
         final long endTick = clock.getTick() + durationUnit.toNanos(duration);
         final long marksIntervalInNanos = TimeUnit.MINUTES.toNanos(1) / ratePerMinute;
         
+        // lazy rates are folded when read, so read them once a minute like a reporter would
+        final long readIntervalInNanos = TimeUnit.MINUTES.toNanos(1);
+        long nextReadTick = lazyRates ? clock.getTick() : Long.MAX_VALUE;
+
         while (clock.getTick() <= endTick) {
             clock.addNanos(marksIntervalInNanos);
             meter.mark();
+            if (clock.getTick() >= nextReadTick) {
+                meter.getOneMinuteRate();
+                nextReadTick += readIntervalInNanos;
+            }
         }
         
         return meter;
@@ -11,6 +11,8 @@ import java.util.concurrent.TimeUnit;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.offset;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class MeterTest {
@@ -58,4 +60,32 @@ public class MeterTest {
         assertThat(meter.getFifteenMinuteRate())
                 .isEqualTo(0.1988, offset(0.001));
     }
+
+    @Test
+    public void lazyRatesSpreadEventsOverTheElapsedIntervals() throws Exception {
+        final Clock clock = mock(Clock.class);
+        final Meter meter = new Meter(clock, true);
+        when(clock.getTick()).thenReturn(TimeUnit.SECONDS.toNanos(10));
+
+        meter.mark();
+        meter.mark(2);
+
+        // marking doesn't read the clock
+        verify(clock, times(1)).getTick();
+
+        assertThat(meter.getCount())
+                .isEqualTo(3);
+
+        assertThat(meter.getMeanRate())
+                .isEqualTo(0.3, offset(0.001));
+
+        assertThat(meter.getOneMinuteRate())
+                .isEqualTo(0.3, offset(0.001));
+
+        assertThat(meter.getFiveMinuteRate())
+                .isEqualTo(0.3, offset(0.001));
+
+        assertThat(meter.getFifteenMinuteRate())
+                .isEqualTo(0.3, offset(0.001));
+    }
 }
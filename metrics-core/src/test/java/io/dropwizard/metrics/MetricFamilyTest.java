@@ -0,0 +1,138 @@
+package io.dropwizard.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class MetricFamilyTest {
+    private final MetricRegistry registry = new MetricRegistry();
+    private final MetricName name = MetricName.build("requests");
+
+    @Test
+    public void registersTaggedMetricsAsTheyAreLookedUp() throws Exception {
+        final MetricFamily<Timer> family = registry.timerFamily(name, "method", "status");
+
+        final Timer timer = family.get("GET", "200");
+
+        assertThat(registry.getTimers())
+                .containsOnlyKeys(name.tagged("method", "GET", "status", "200"));
+        assertThat(registry.getTimers().get(name.tagged("method", "GET", "status", "200")))
+                .isSameAs(timer);
+    }
+
+    @Test
+    public void returnsTheSameMetricForTheSameTagValues() throws Exception {
+        final MetricFamily<Counter> family = registry.counterFamily(name, "method");
+
+        assertThat(family.get("GET"))
+                .isSameAs(family.get(new String("GET")))
+                .isNotSameAs(family.get("POST"));
+    }
+
+    @Test
+    public void looksUpMetricsOfEveryArity() throws Exception {
+        final MetricFamily<Meter> family = registry.meterFamily(name, "a", "b", "c");
+
+        assertThat(family.get("1", "2", "3"))
+                .isSameAs(family.getTagged("1", "2", "3"))
+                .isSameAs(registry.meter(name.tagged("a", "1", "b", "2", "c", "3")));
+
+        final MetricFamily<Histogram> wide = registry.histogramFamily(name, "a", "b", "c", "d");
+        assertThat(wide.getTagged("1", "2", "3", "4"))
+                .isSameAs(wide.getTagged("1", "2", "3", "4"));
+    }
+
+    @Test
+    public void keepsManyChildren() throws Exception {
+        final MetricFamily<Counter> family = registry.counterFamily(name, "id", "kind");
+
+        for (int i = 0; i < 1000; i++) {
+            family.get(Integer.toString(i), i % 2 == 0 ? "even" : "odd").inc(i);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(family.get(Integer.toString(i), i % 2 == 0 ? "even" : "odd").getCount())
+                    .isEqualTo(i);
+        }
+        assertThat(registry.getCounters())
+                .hasSize(1000);
+    }
+
+    @Test
+    public void replacesMetricsRemovedFromTheRegistry() throws Exception {
+        final MetricFamily<Counter> family = registry.counterFamily(name, "method");
+        final Counter removed = family.get("GET");
+        final Counter kept = family.get("POST");
+
+        registry.removeMatching(new MetricFilter() {
+            @Override
+            public boolean matches(MetricName name, Metric metric) {
+                return "GET".equals(name.getTags().get("method"));
+            }
+        });
+        final Counter replaced = family.get("GET");
+
+        assertThat(replaced)
+                .isNotSameAs(removed)
+                .isSameAs(registry.getCounters().get(name.tagged("method", "GET")))
+                .isSameAs(family.get("GET"));
+        assertThat(family.get("POST"))
+                .isSameAs(kept);
+    }
+
+    @Test
+    public void doesNotCacheOverflowMetrics() throws Exception {
+        final ManualClock clock = new ManualClock();
+        final BoundedMetricRegistry registry = new BoundedMetricRegistry(1, 1, TimeUnit.MINUTES);
+        registry.setRateClock(clock);
+        final MetricFamily<Counter> family = registry.counterFamily(name, "method");
+
+        family.get("GET");
+        final Counter overflow = family.get("POST");
+
+        assertThat(overflow)
+                .isSameAs(registry.getCounters().get(MetricName.build("overflow.counter")));
+
+        clock.addSeconds(61);
+        registry.evictIdle();
+
+        assertThat(family.get("POST"))
+                .isNotSameAs(overflow)
+                .isSameAs(registry.getCounters().get(name.tagged("method", "POST")));
+    }
+
+    @Test
+    public void acceptsNullTagValues() throws Exception {
+        final MetricFamily<Counter> family = registry.counterFamily(name, "a", "b");
+
+        assertThat(family.get(null, "1"))
+                .isSameAs(family.get(null, "1"))
+                .isNotSameAs(family.get("1", null));
+    }
+
+    @Test
+    public void rejectsTheWrongNumberOfTagValues() throws Exception {
+        final MetricFamily<Counter> family = registry.counterFamily(name, "a", "b");
+
+        try {
+            family.get("1");
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage())
+                    .contains("Expected 2 tag values");
+        }
+    }
+
+    @Test
+    public void hasANameAndTagKeys() throws Exception {
+        final MetricFamily<Timer> family = registry.timerFamily(name, "method", "status");
+
+        assertThat(family.getName())
+                .isEqualTo(name);
+        assertThat(family.getTagKeys())
+                .containsExactly("method", "status");
+    }
+}
@@ -88,4 +88,58 @@ public class MetricNameTest {
         assertThat(b.resolve("key").compareTo(b)).isLessThan(0);
         assertThat(b.compareTo(b.resolve("key"))).isGreaterThan(0);
     }
+
+    @Test
+    public void testCompareToWithMissingTags() {
+        final MetricName a = MetricName.build("key").tagged("a", "1");
+        final MetricName ab = MetricName.build("key").tagged("a", "1", "b", "2");
+        final MetricName b = MetricName.build("key").tagged("b", "2");
+
+        assertThat(ab.compareTo(a)).isGreaterThan(0);
+        assertThat(a.compareTo(ab)).isLessThan(0);
+        assertThat(a.compareTo(b)).isGreaterThan(0);
+        assertThat(b.compareTo(a)).isLessThan(0);
+        assertThat(ab.compareTo(MetricName.build("key").tagged("b", "2", "a", "1"))).isEqualTo(0);
+    }
+
+    @Test
+    public void testEqualityAcrossConstructionPaths() {
+        final Map<String, String> tags = new HashMap<String, String>();
+        tags.put("foo", "bar");
+        tags.put("baz", "biz");
+
+        final MetricName fromMap = new MetricName("a.b", tags);
+        final MetricName fromPairs = MetricName.build("a").resolve("b").tagged("foo", "bar", "baz", "biz");
+        final MetricName fromJoin = MetricName.join(new MetricName("a").tagged("baz", "biz"),
+                new MetricName("b").tagged("foo", "bar"));
+
+        assertThat(fromPairs).isEqualTo(fromMap);
+        assertThat(fromJoin).isEqualTo(fromMap);
+        assertThat(fromPairs.hashCode()).isEqualTo(fromMap.hashCode());
+        assertThat(fromJoin.hashCode()).isEqualTo(fromMap.hashCode());
+        assertThat(fromMap).isNotEqualTo(fromMap.tagged("foo", "other", "x", "y"));
+    }
+
+    @Test
+    public void testTagsAreSortedByKey() {
+        final MetricName name = MetricName.build("key").tagged("c", "3", "a", "1", "b", "2");
+
+        assertThat(name.getTags().keySet()).containsExactly("a", "b", "c");
+        assertThat(name.toString()).isEqualTo("key{a=1, b=2, c=3}");
+    }
+
+    @Test
+    public void testLaterPairsOverrideEarlierOnes() {
+        final MetricName name = MetricName.EMPTY.tagged("foo", "bar", "foo", "baz");
+
+        assertThat(name.getTags()).hasSize(1).containsEntry("foo", "baz");
+    }
+
+    @Test
+    public void testInternReturnsCanonicalInstance() {
+        final MetricName first = MetricName.build("interned").tagged("foo", "bar").intern();
+        final MetricName second = MetricName.build("interned").tagged("foo", "bar").intern();
+
+        assertThat(second).isSameAs(first);
+    }
 }
@@ -19,8 +19,12 @@ import io.dropwizard.metrics.Timer;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
 import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Mockito.*;
 
@@ -171,6 +175,40 @@ public class MetricRegistryTest {
         verify(listener).onTimerAdded(THING, timer1);
     }
 
+    @Test
+    public void accessingACustomTimerRegistersAndReusesIt() throws Exception {
+        final MetricRegistry.MetricSupplier<Timer> supplier = new MetricRegistry.MetricSupplier<Timer>() {
+            @Override
+            public Timer newMetric() {
+                return new Timer(new LogLinearHistogramReservoir());
+            }
+        };
+        final Timer timer1 = registry.timer(THING, supplier);
+        final Timer timer2 = registry.timer(THING, supplier);
+
+        assertThat(timer1)
+                .isSameAs(timer2);
+
+        verify(listener).onTimerAdded(THING, timer1);
+    }
+
+    @Test
+    public void accessingACustomHistogramRegistersAndReusesIt() throws Exception {
+        final MetricRegistry.MetricSupplier<Histogram> supplier = new MetricRegistry.MetricSupplier<Histogram>() {
+            @Override
+            public Histogram newMetric() {
+                return new Histogram(new LogLinearHistogramReservoir());
+            }
+        };
+        final Histogram histogram1 = registry.histogram(THING, supplier);
+        final Histogram histogram2 = registry.histogram(THING, supplier);
+
+        assertThat(histogram1)
+                .isSameAs(histogram2);
+
+        verify(listener).onHistogramAdded(THING, histogram1);
+    }
+
     @Test
     public void removingATimerTriggersANotification() throws Exception {
         registry.register(THING, timer);
@@ -248,6 +286,39 @@ public class MetricRegistryTest {
                 .contains(entry(TIMER2, timer));
     }
 
+    @Test
+    public void mapsOfMetricsReflectLaterRegistrationsAndRemovals() throws Exception {
+        final Map<MetricName, Counter> counters = registry.getCounters();
+
+        registry.register(COUNTER, counter);
+        registry.register(GAUGE, gauge);
+
+        assertThat(counters).containsOnly(entry(COUNTER, counter));
+
+        registry.remove(COUNTER);
+
+        assertThat(counters).isEmpty();
+        assertThat(registry.getGauges()).containsOnly(entry(GAUGE, gauge));
+    }
+
+    @Test
+    public void filteredMapsOfMetricsOnlyContainMatchingMetricsOfTheirType() throws Exception {
+        registry.register(COUNTER, counter);
+        registry.register(COUNTER2, counter);
+        registry.register(GAUGE2, gauge);
+
+        final MetricFilter filter = new MetricFilter() {
+            @Override
+            public boolean matches(MetricName name, Metric metric) {
+                return name.getKey().endsWith("2");
+            }
+        };
+
+        assertThat(registry.getCounters(filter)).containsOnly(entry(COUNTER2, counter));
+        assertThat(registry.getGauges(filter)).containsOnly(entry(GAUGE2, gauge));
+        assertThat(registry.getTimers(filter)).isEmpty();
+    }
+
     @Test
     public void hasASetOfRegisteredMetricNames() throws Exception {
         registry.register(GAUGE2, gauge);
@@ -415,4 +486,148 @@ public class MetricRegistryTest {
         verify(listener).onTimerRemoved(timer1);
         verify(listener).onHistogramRemoved(histogram1);
     }
+
+    @Test
+    public void disablesMetricsMatchingAFilter() throws Exception {
+        final Counter counter = registry.counter("db.queries");
+        final Timer timer = registry.timer("db.latency");
+        final Meter meter = registry.meter("http.requests");
+
+        registry.disable(CompiledMetricFilter.builder().include("db").build());
+        counter.inc();
+        timer.update(1, TimeUnit.SECONDS);
+        meter.mark();
+
+        assertThat(counter.getCount())
+                .isZero();
+        assertThat(timer.getCount())
+                .isZero();
+        assertThat(meter.getCount())
+                .isEqualTo(1);
+        assertThat(registry.isEnabled(MetricName.build("db.queries")))
+                .isFalse();
+
+        registry.enable(MetricFilter.ALL);
+        counter.inc();
+
+        assertThat(counter.getCount())
+                .isEqualTo(1);
+        assertThat(timer.isEnabled())
+                .isTrue();
+    }
+
+    @Test
+    public void looksUpTaggedMetricsOnTheSwitchboard() throws Exception {
+        final MetricName tagged = MetricName.build("db.queries").tagged("shard", "1");
+        registry.counter(tagged);
+        registry.counter("db.queries");
+
+        final MetricSwitchboard switchboard = new MetricSwitchboard(registry);
+        switchboard.disable("db.queries");
+
+        assertThat(switchboard.isEnabled(tagged))
+                .isFalse();
+        assertThat(switchboard.isEnabled("db.queries"))
+                .isFalse();
+
+        switchboard.enable("db");
+
+        assertThat(switchboard.isEnabled(tagged))
+                .isTrue();
+    }
+
+    @Test(timeout = 5000)
+    public void doesNotUndoAToggleWhichRacesARegistration() throws Exception {
+        final MetricName name = MetricName.build("db.queries");
+        final AtomicBoolean block = new AtomicBoolean();
+        final CountDownLatch reading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        registry.disable(new MetricFilter() {
+            @Override
+            public boolean matches(MetricName n, Metric metric) {
+                // holds up the registration after it has read this toggle
+                if (block.compareAndSet(true, false)) {
+                    reading.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return n.equals(name);
+            }
+        });
+
+        final Counter counter = new Counter();
+        block.set(true);
+        final Thread registering = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                registry.register(name, counter);
+            }
+        });
+        registering.start();
+        reading.await();
+
+        final Thread enabling = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                registry.enable(CompiledMetricFilter.builder().include("db").build());
+            }
+        });
+        enabling.start();
+        // let the toggle either finish or wait for the registration
+        while (enabling.getState() != Thread.State.BLOCKED
+                && enabling.getState() != Thread.State.TERMINATED) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        registering.join();
+        enabling.join();
+
+        assertThat(registry.isEnabled(name))
+                .isTrue();
+        assertThat(counter.isEnabled())
+                .isTrue();
+    }
+
+    @Test
+    public void appliesTheLastMatchingToggleToMetricsRegisteredLater() throws Exception {
+        registry.disable(CompiledMetricFilter.builder().include("db").build());
+        registry.enable(CompiledMetricFilter.builder().include("db.pool").build());
+
+        assertThat(registry.histogram("db.queries.rows").isEnabled())
+                .isFalse();
+        assertThat(registry.counter("db.pool.active").isEnabled())
+                .isTrue();
+        assertThat(registry.counter("http.requests").isEnabled())
+                .isTrue();
+
+        // toggling an equal filter again replaces the earlier toggle
+        registry.disable(CompiledMetricFilter.builder().include("db.pool").build());
+
+        assertThat(registry.counter("db.pool.active").isEnabled())
+                .isFalse();
+        assertThat(registry.counter("db.pool.idle").isEnabled())
+                .isFalse();
+    }
+
+    @Test
+    public void createsMetersAndTimersWithTheRateClock() throws Exception {
+        final ManualClock clock = new ManualClock();
+        registry.setRateClock(clock);
+
+        final Meter meter = registry.meter("meter");
+        final Timer timer = registry.timer("timer");
+        meter.mark();
+        timer.update(1, TimeUnit.SECONDS);
+        clock.addSeconds(10);
+
+        assertThat(registry.getRateClock())
+                .isSameAs(clock);
+        assertThat(meter.getMeanRate())
+                .isEqualTo(0.1, offset(0.001));
+        assertThat(timer.getMeanRate())
+                .isEqualTo(0.1, offset(0.001));
+    }
 }
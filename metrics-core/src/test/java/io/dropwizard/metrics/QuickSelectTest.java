@@ -0,0 +1,51 @@
+package io.dropwizard.metrics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QuickSelectTest {
+    private final Random random = new Random(1);
+
+    @Test
+    public void sortsValuesAlongWithTheirWeights() throws Exception {
+        final long[] values = new long[1000];
+        final double[] weights = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(100);
+            weights[i] = values[i] / 10.0;
+        }
+        final long[] expected = values.clone();
+        Arrays.sort(expected);
+
+        QuickSelect.sort(values, weights, 0, values.length);
+
+        assertThat(values)
+                .isEqualTo(expected);
+        for (int i = 0; i < values.length; i++) {
+            assertThat(weights[i])
+                    .isEqualTo(values[i] / 10.0);
+        }
+    }
+
+    @Test
+    public void selectsRanks() throws Exception {
+        final long[] values = new long[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextLong();
+        }
+        final long[] expected = values.clone();
+        Arrays.sort(expected);
+        final int[] ranks = { 0, 1, 499, 500, 949, 950, 998, 999 };
+
+        QuickSelect.select(values, 0, values.length, ranks, 0, ranks.length);
+
+        for (int rank : ranks) {
+            assertThat(values[rank])
+                    .isEqualTo(expected[rank]);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package io.dropwizard.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RegistrySnapshotTest {
+    private final MetricRegistry registry = new MetricRegistry();
+    private final Clock clock = mock(Clock.class);
+    @SuppressWarnings("unchecked")
+    private final Gauge<Integer> gauge = mock(Gauge.class);
+    private final Meter meter = mock(Meter.class);
+    private final Timer timer = mock(Timer.class);
+    private final Snapshot snapshot = mock(Snapshot.class);
+
+    @Before
+    public void setUp() throws Exception {
+        when(clock.getTime()).thenReturn(12345L);
+        when(gauge.getValue()).thenReturn(7);
+        when(meter.getCount()).thenReturn(3L);
+        when(meter.getMeanRate()).thenReturn(1.0);
+        when(meter.getOneMinuteRate()).thenReturn(2.0);
+        when(meter.getFiveMinuteRate()).thenReturn(3.0);
+        when(meter.getFifteenMinuteRate()).thenReturn(4.0);
+        when(timer.getCount()).thenReturn(5L);
+        when(timer.getFifteenMinuteRate()).thenReturn(6.0);
+        when(timer.getSnapshot()).thenReturn(snapshot);
+    }
+
+    @Test
+    public void samplesEachTypeOfMetricInNameOrder() throws Exception {
+        registry.register("b-gauge", gauge);
+        registry.counter("b-counter").inc(2);
+        registry.counter("a-counter").inc(1);
+        registry.histogram("histogram").update(10);
+        registry.register("meter", meter);
+        registry.register("timer", timer);
+
+        final RegistrySnapshot sample = RegistrySnapshot.collect(registry, MetricFilter.ALL, clock);
+
+        assertThat(sample.getTimestamp()).isEqualTo(12345L);
+
+        assertThat(sample.getGauges().size()).isEqualTo(1);
+        assertThat(sample.getGauges().getValue(0)).isEqualTo(7);
+
+        assertThat(sample.getCounters().size()).isEqualTo(2);
+        assertThat(sample.getCounters().getName(0)).isEqualTo(MetricName.build("a-counter"));
+        assertThat(sample.getCounters().getCount(0)).isEqualTo(1);
+        assertThat(sample.getCounters().getCount(1)).isEqualTo(2);
+
+        assertThat(sample.getHistograms().getCount(0)).isEqualTo(1);
+        assertThat(sample.getHistograms().getSnapshot(0).getMax()).isEqualTo(10);
+
+        assertThat(sample.getMeters().getCount(0)).isEqualTo(3);
+        assertThat(sample.getMeters().getMeanRate(0)).isEqualTo(1.0);
+        assertThat(sample.getMeters().getOneMinuteRate(0)).isEqualTo(2.0);
+        assertThat(sample.getMeters().getFiveMinuteRate(0)).isEqualTo(3.0);
+        assertThat(sample.getMeters().getFifteenMinuteRate(0)).isEqualTo(4.0);
+
+        assertThat(sample.getTimers().getCount(0)).isEqualTo(5);
+        assertThat(sample.getTimers().getFifteenMinuteRate(0)).isEqualTo(6.0);
+        assertThat(sample.getTimers().getSnapshot(0)).isSameAs(snapshot);
+    }
+
+    @Test
+    public void evaluatesEachMetricOnceNoMatterHowOftenItIsRead() throws Exception {
+        registry.register("gauge", gauge);
+        registry.register("timer", timer);
+
+        final RegistrySnapshot sample = RegistrySnapshot.collect(registry, MetricFilter.ALL, clock);
+        sample.getGauges().getValue(0);
+        sample.getGauges().getValue(0);
+        sample.getTimers().getSnapshot(0);
+        sample.getTimers().getSnapshot(0);
+
+        verify(gauge, times(1)).getValue();
+        verify(timer, times(1)).getSnapshot();
+    }
+
+    @Test
+    public void onlySamplesMatchingMetrics() throws Exception {
+        registry.counter("included");
+        registry.counter("excluded");
+
+        final RegistrySnapshot sample = RegistrySnapshot.collect(registry, new MetricFilter() {
+            @Override
+            public boolean matches(MetricName name, Metric metric) {
+                return name.getKey().equals("included");
+            }
+        }, clock);
+
+        assertThat(sample.getCounters().size()).isEqualTo(1);
+        assertThat(sample.getCounters().getName(0)).isEqualTo(MetricName.build("included"));
+    }
+
+    @Test
+    public void rethrowsTheExceptionAGaugeThrewWhenItsValueIsRead() throws Exception {
+        final IllegalStateException cause = new IllegalStateException("broken");
+        when(gauge.getValue()).thenThrow(cause);
+        registry.register("gauge", gauge);
+
+        final RegistrySnapshot sample = RegistrySnapshot.collect(registry, MetricFilter.ALL, clock);
+
+        try {
+            sample.getGauges().getValue(0);
+            failBecauseExceptionWasNotThrown(IllegalStateException.class);
+        } catch (IllegalStateException e) {
+            assertThat(e).isSameAs(cause);
+        }
+    }
+
+    @Test
+    public void samplesCanBeReadAsMetrics() throws Exception {
+        registry.register("timer", timer);
+
+        final RegistrySnapshot sample = RegistrySnapshot.collect(registry, MetricFilter.ALL, clock);
+        final Timer sampled = sample.getTimers().<Timer>toMetrics(MetricFilter.ALL).get(MetricName.build("timer"));
+
+        assertThat(sampled.getCount()).isEqualTo(5);
+        assertThat(sampled.getFifteenMinuteRate()).isEqualTo(6.0);
+        assertThat(sampled.getSnapshot()).isSameAs(snapshot);
+
+        sampled.update(1, TimeUnit.SECONDS);
+
+        assertThat(sampled.getCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void sharesTheSampledMetricsBetweenConsumers() throws Exception {
+        registry.register("timer", timer);
+        registry.counter("counter").inc();
+
+        final RegistrySnapshot sample = RegistrySnapshot.collect(registry, MetricFilter.ALL, clock);
+
+        assertThat(sample.getTimers().<Timer>toMetrics(MetricFilter.ALL).get(MetricName.build("timer")))
+                .isSameAs(sample.getTimers().<Timer>toMetrics(MetricFilter.ALL).get(MetricName.build("timer")));
+        assertThat(sample.getCounters().<Counter>toMetrics(MetricFilter.ALL).get(MetricName.build("counter")))
+                .isSameAs(sample.getCounters().<Counter>toMetrics(MetricFilter.ALL).get(MetricName.build("counter")));
+    }
+
+    @Test
+    public void ignoresUpdatesToTheSampledMetrics() throws Exception {
+        registry.counter("counter").inc();
+        registry.meter("meter").mark();
+
+        final RegistrySnapshot sample = RegistrySnapshot.collect(registry, MetricFilter.ALL, clock);
+        final Counter counter = sample.getCounters().<Counter>toMetrics(MetricFilter.ALL).get(MetricName.build("counter"));
+        final Meter meter = sample.getMeters().<Meter>toMetrics(MetricFilter.ALL).get(MetricName.build("meter"));
+        counter.inc(10);
+        meter.mark(10);
+
+        final RegistrySnapshot other = RegistrySnapshot.collect(registry, MetricFilter.ALL, clock);
+
+        assertThat(counter.getCount())
+                .isEqualTo(1);
+        assertThat(meter.getCount())
+                .isEqualTo(1);
+        assertThat(other.getCounters().<Counter>toMetrics(MetricFilter.ALL).get(MetricName.build("counter")).getCount())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void samplesInParallelOnAPool() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            registry.counter(String.format("counter-%04d", i)).inc(i);
+        }
+
+        final RegistrySnapshot sample = RegistrySnapshot.collect(registry, MetricFilter.ALL, clock,
+                new ForkJoinPool(4), 0, TimeUnit.SECONDS);
+
+        assertThat(sample.getSkipped()).isZero();
+        assertThat(sample.getCounters().size()).isEqualTo(1000);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(sample.getCounters().getName(i)).isEqualTo(MetricName.build(String.format("counter-%04d", i)));
+            assertThat(sample.getCounters().getCount(i)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    public void leavesMetricsWhichArentSampledByTheDeadlineOut() throws Exception {
+        final Gauge<Integer> slow = new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 1;
+            }
+        };
+        for (int i = 0; i < 10; i++) {
+            registry.register("gauge-" + i, slow);
+        }
+        registry.counter("counter").inc();
+
+        final RegistrySnapshot sample = RegistrySnapshot.collect(registry, MetricFilter.ALL, clock,
+                null, 30, TimeUnit.MILLISECONDS);
+
+        assertThat(sample.getSkipped()).isGreaterThan(0);
+        assertThat(sample.getGauges().size() + sample.getCounters().size() + sample.getSkipped())
+                .isEqualTo(11);
+        assertThat(sample.getGauges().size()).isLessThan(10);
+        for (int i = 0; i < sample.getGauges().size(); i++) {
+            assertThat(sample.getGauges().getValue(i)).isEqualTo(1);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void doesNotWaitForAMetricWhichBlocksPastTheDeadline() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        registry.register("blocked", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 1;
+            }
+        });
+        registry.counter("counter").inc();
+        final ForkJoinPool pool = new ForkJoinPool(1);
+
+        try {
+            final RegistrySnapshot sample = RegistrySnapshot.collect(registry, MetricFilter.ALL, clock,
+                    pool, 50, TimeUnit.MILLISECONDS);
+
+            assertThat(sample.getSkipped()).isEqualTo(2);
+            assertThat(sample.getGauges().getSkippedNames())
+                    .containsExactly(MetricName.build("blocked"));
+            assertThat(sample.getCounters().size()).isZero();
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void versionsSamplesOfARegistry() throws Exception {
+        final RegistrySnapshot first = registry.snapshot();
+        final RegistrySnapshot second = RegistrySnapshot.collect(registry, MetricFilter.ALL, clock);
+        final RegistrySnapshot third = registry.snapshot();
+
+        assertThat(first.getVersion()).isLessThan(second.getVersion());
+        assertThat(second.getVersion()).isLessThan(third.getVersion());
+    }
+
+    @Test
+    public void keepsSummaryStatisticsInColumns() throws Exception {
+        when(snapshot.getMax()).thenReturn(100L);
+        when(snapshot.getValues(new double[]{0.5, 0.75, 0.95, 0.98, 0.99, 0.999}))
+                .thenReturn(new double[]{50.0, 75.0, 95.0, 98.0, 99.0, 99.9});
+        registry.register("timer", timer);
+        final Histogram histogram = registry.histogram("histogram");
+        histogram.update(1);
+        histogram.update(3);
+
+        final RegistrySnapshot sample = registry.snapshot();
+
+        assertThat(sample.getTimers().getStatistic(0, RegistrySnapshot.Statistic.MAX)).isEqualTo(100.0);
+        assertThat(sample.getTimers().getStatistic(0, RegistrySnapshot.Statistic.P99)).isEqualTo(99.0);
+        assertThat(sample.getHistograms().getStatistic(0, RegistrySnapshot.Statistic.MIN)).isEqualTo(1.0);
+        assertThat(sample.getHistograms().getStatistic(0, RegistrySnapshot.Statistic.MEAN)).isEqualTo(2.0);
+    }
+
+    @Test
+    public void computesDeltasBetweenSamples() throws Exception {
+        final Counter kept = registry.counter("b-kept");
+        final Counter unchanged = registry.counter("c-unchanged");
+        registry.counter("d-removed").inc(5);
+        final Meter meter = registry.meter("meter");
+        registry.register("gauge", gauge);
+        kept.inc(10);
+        unchanged.inc(3);
+        meter.mark(2);
+
+        final RegistrySnapshot before = registry.snapshot();
+
+        kept.inc(4);
+        meter.mark();
+        registry.remove(MetricName.build("d-removed"));
+        registry.counter("a-added").inc(7);
+
+        final RegistrySnapshot after = registry.snapshot();
+        final RegistrySnapshot.Delta delta = after.deltaFrom(before);
+
+        assertThat(delta.getFrom()).isSameAs(before);
+        assertThat(delta.getTo()).isSameAs(after);
+        assertThat(after.getCounters().getName(0)).isEqualTo(MetricName.build("a-added"));
+        assertThat(delta.getCounterDelta(0)).isEqualTo(7);
+        assertThat(delta.getCounterDelta(1)).isEqualTo(4);
+        assertThat(delta.getCounterDelta(2)).isZero();
+        assertThat(delta.getMeterDelta(0)).isEqualTo(1);
+        assertThat(delta.isGaugeChanged(0)).isFalse();
+        assertThat(delta.getRemoved()).containsExactly(MetricName.build("d-removed"));
+    }
+
+    @Test
+    public void carriesSkippedMetricsOverToTheNextDelta() throws Exception {
+        final Counter counter = registry.counter("counter");
+        registry.counter("gone");
+        counter.inc(5);
+        final RegistrySnapshot first = registry.snapshot();
+
+        counter.inc(2);
+        final RegistrySnapshot second = RegistrySnapshot.collect(registry, MetricFilter.ALL, clock,
+                null, 1, TimeUnit.NANOSECONDS, first);
+
+        assertThat(second.getCounters().size()).isZero();
+        assertThat(second.getCounters().getSkippedNames())
+                .containsExactly(MetricName.build("counter"), MetricName.build("gone"));
+        assertThat(second.deltaFrom(first).getRemoved()).isEmpty();
+
+        counter.inc(3);
+        registry.remove(MetricName.build("gone"));
+        final RegistrySnapshot third = registry.snapshot();
+        final RegistrySnapshot.Delta delta = third.deltaFrom(second);
+
+        assertThat(delta.getCounterDelta(0)).isEqualTo(5);
+        assertThat(delta.getRemoved()).containsExactly(MetricName.build("gone"));
+    }
+
+    @Test
+    public void doesNotReportMetricsWhichChangedTypeAsRemoved() throws Exception {
+        registry.counter("metric");
+        final RegistrySnapshot before = registry.snapshot();
+
+        registry.remove(MetricName.build("metric"));
+        registry.timer("metric");
+        final RegistrySnapshot.Delta delta = registry.snapshot().deltaFrom(before);
+
+        assertThat(delta.getRemoved()).isEmpty();
+        assertThat(delta.getTimerDelta(0)).isZero();
+    }
+
+    @Test
+    public void rejectsDeltasFromSamplesWhichArentOlderOrOfAnotherRegistry() throws Exception {
+        final RegistrySnapshot first = registry.snapshot();
+        final RegistrySnapshot second = registry.snapshot();
+
+        try {
+            first.deltaFrom(second);
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("not older");
+        }
+        try {
+            second.deltaFrom(new MetricRegistry().snapshot());
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("another registry");
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package io.dropwizard.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReportingHubTest {
+    private final MetricRegistry registry = new MetricRegistry();
+    private final List<Runnable> tasks = new ArrayList<Runnable>();
+    private final Executor executor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+    };
+    private final ReportingHub hub = new ReportingHub(registry, MetricFilter.ALL, Clock.defaultClock(),
+            mock(ScheduledExecutorService.class), executor);
+    @SuppressWarnings("unchecked")
+    private final Gauge<String> gauge = mock(Gauge.class);
+
+    @Before
+    public void setUp() throws Exception {
+        when(gauge.getValue()).thenReturn("value");
+        registry.register("gauge", gauge);
+        registry.counter("counter").inc(3);
+    }
+
+    @Test
+    public void handsOneSampleToEverySink() throws Exception {
+        final RecordingSink first = new RecordingSink();
+        final RecordingSink second = new RecordingSink();
+        hub.addSink(first);
+        hub.addSink(second);
+
+        final RegistrySnapshot snapshot = hub.report();
+        runTasks();
+
+        assertThat(first.snapshots).containsExactly(snapshot);
+        assertThat(second.snapshots).containsExactly(snapshot);
+        verify(gauge, times(1)).getValue();
+    }
+
+    @Test
+    public void skipsSamplesForBusySinks() throws Exception {
+        final RecordingSink sink = new RecordingSink();
+        hub.addSink(sink);
+
+        final RegistrySnapshot first = hub.report();
+        hub.report();
+        runTasks();
+        final RegistrySnapshot third = hub.report();
+        runTasks();
+
+        assertThat(sink.snapshots).containsExactly(first, third);
+        assertThat(((Counter) hub.getMetrics().get(MetricName.build("skipped-samples"))).getCount())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void timesCollection() throws Exception {
+        hub.report();
+        hub.report();
+
+        assertThat(((Timer) hub.getMetrics().get(MetricName.build("collection-time"))).getCount())
+                .isEqualTo(2);
+    }
+
+    @Test
+    public void countsMetricsLeftOutOfSamplesByTheDeadline() throws Exception {
+        final ReportingHub hub = ReportingHub.forRegistry(registry)
+                .scheduleOn(mock(ScheduledExecutorService.class))
+                .reportOn(executor)
+                .collectInParallel(new ForkJoinPool(2))
+                .collectWithin(1, TimeUnit.NANOSECONDS)
+                .build();
+
+        final RegistrySnapshot snapshot = hub.report();
+
+        assertThat(snapshot.getSkipped()).isGreaterThan(0);
+        assertThat(((Counter) hub.getMetrics().get(MetricName.build("skipped-metrics"))).getCount())
+                .isEqualTo(snapshot.getSkipped());
+    }
+
+    @Test(timeout = 5000)
+    public void doesNotWaitForAMetricWhichBlocksPastTheDeadline() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        registry.register("blocked", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 1;
+            }
+        });
+        final ReportingHub hub = ReportingHub.forRegistry(registry)
+                .scheduleOn(mock(ScheduledExecutorService.class))
+                .reportOn(executor)
+                .collectWithin(50, TimeUnit.MILLISECONDS)
+                .build();
+
+        try {
+            assertThat(hub.report().getSkipped()).isGreaterThan(0);
+        } finally {
+            release.countDown();
+            hub.stop();
+        }
+    }
+
+    @Test
+    public void removedSinksReceiveNoMoreSamples() throws Exception {
+        final RecordingSink sink = new RecordingSink();
+        hub.addSink(sink);
+        hub.removeSink(sink);
+
+        hub.report();
+        runTasks();
+
+        assertThat(sink.snapshots).isEmpty();
+    }
+
+    @Test
+    public void scheduledReportersAreSinks() throws Exception {
+        final List<SortedMap<MetricName, ?>> reported = new ArrayList<SortedMap<MetricName, ?>>();
+        final ScheduledReporter reporter = new ScheduledReporter(registry, "example",
+                new MetricFilter() {
+                    @Override
+                    public boolean matches(MetricName name, Metric metric) {
+                        return !name.getKey().equals("gauge");
+                    }
+                }, TimeUnit.SECONDS, TimeUnit.MILLISECONDS) {
+            @Override
+            public void report(SortedMap<MetricName, Gauge> gauges,
+                               SortedMap<MetricName, Counter> counters,
+                               SortedMap<MetricName, Histogram> histograms,
+                               SortedMap<MetricName, Meter> meters,
+                               SortedMap<MetricName, Timer> timers) {
+                reported.add(gauges);
+                reported.add(counters);
+            }
+        };
+        hub.addSink(reporter);
+
+        hub.report();
+        registry.counter("counter").inc();
+        runTasks();
+
+        assertThat(reported).hasSize(2);
+        assertThat(reported.get(0)).isEmpty();
+        final Counter counter = (Counter) reported.get(1).get(MetricName.build("counter"));
+        assertThat(counter.getCount()).isEqualTo(3);
+    }
+
+    private void runTasks() {
+        final List<Runnable> pending = new ArrayList<Runnable>(tasks);
+        tasks.clear();
+        for (Runnable task : pending) {
+            task.run();
+        }
+    }
+
+    private static class RecordingSink implements ReportingHub.Sink {
+        private final List<RegistrySnapshot> snapshots = new ArrayList<RegistrySnapshot>();
+
+        @Override
+        public void report(RegistrySnapshot snapshot) {
+            snapshots.add(snapshot);
+        }
+    }
+}
@@ -28,4 +28,24 @@ public class SlidingWindowReservoirTest {
         assertThat(reservoir.getSnapshot().getValues())
                 .containsOnly(2, 3, 4);
     }
+
+    @Test
+    public void snapshotsCanReuseABuffer() throws Exception {
+        final long[] buffer = new long[3];
+        reservoir.update(3);
+        reservoir.update(1);
+
+        final Snapshot snapshot = reservoir.getSnapshot(buffer);
+
+        assertThat(snapshot.getValues())
+                .containsOnly(1, 3);
+
+        reservoir.update(2);
+
+        // the snapshot is unaffected by later updates
+        assertThat(snapshot.size())
+                .isEqualTo(2);
+        assertThat(reservoir.getSnapshot(buffer).getValues())
+                .containsOnly(1, 2, 3);
+    }
 }
@@ -138,4 +138,33 @@ public class TimerTest {
         verify(reservoir).update(50000000);
     }
 
+    @Test
+    public void timesWithStartTokens() throws Exception {
+        final long start = timer.start();
+
+        assertThat(timer.stop(start))
+                .isEqualTo(50000000);
+
+        assertThat(timer.getCount())
+                .isEqualTo(1);
+
+        verify(reservoir).update(50000000);
+    }
+
+    @Test
+    public void reusesThreadContexts() throws Exception {
+        final Timer.Context context = timer.threadContext();
+        context.stop();
+
+        final Timer.Context again = timer.threadContext();
+        again.stop();
+
+        assertThat(again)
+                .isSameAs(context);
+
+        assertThat(timer.getCount())
+                .isEqualTo(2);
+
+        verify(reservoir, times(2)).update(50000000);
+    }
 }
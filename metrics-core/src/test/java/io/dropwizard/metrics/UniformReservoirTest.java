@@ -31,4 +31,32 @@ public class UniformReservoirTest {
         }
     }
 
+    @Test
+    public void snapshotsCanReuseABuffer() throws Exception {
+        final UniformReservoir reservoir = new UniformReservoir(100);
+        final long[] buffer = new long[100];
+        for (int i = 0; i < 10; i++) {
+            reservoir.update(i);
+        }
+
+        final Snapshot snapshot = reservoir.getSnapshot(buffer);
+
+        assertThat(snapshot.size())
+                .isEqualTo(10);
+        assertThat(snapshot.getValues())
+                .containsOnly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        assertThat(buffer[9])
+                .isEqualTo(9);
+    }
+
+    @Test
+    public void snapshotsIgnoreBuffersWhichAreTooSmall() throws Exception {
+        final UniformReservoir reservoir = new UniformReservoir(100);
+        for (int i = 0; i < 10; i++) {
+            reservoir.update(i);
+        }
+
+        assertThat(reservoir.getSnapshot(new long[5]).getValues())
+                .containsOnly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    }
 }
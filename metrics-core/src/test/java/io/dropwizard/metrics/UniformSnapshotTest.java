@@ -8,6 +8,7 @@ import io.dropwizard.metrics.UniformSnapshot;
 import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -200,4 +201,33 @@ public class UniformSnapshotTest {
         assertThat(singleItemSnapshot.getStdDev())
                 .isZero();
     }
+
+    @Test
+    public void selectsManyQuantilesAtOnce() throws Exception {
+        assertThat(snapshot.getValues(new double[]{ 0.5, 0.0, 0.75, 1.0 }))
+                .containsExactly(3.0, 1.0, 4.5, 5.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void disallowsQuantilesOverOne() {
+        snapshot.getValues(new double[]{ 0.5, 1.5 });
+    }
+
+    @Test
+    public void selectsTheSameValuesAsSorting() throws Exception {
+        final Random random = new Random(1);
+        final long[] values = new long[1028];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(500);
+        }
+        final double[] quantiles = { 0.999, 0.5, 0.75, 0.95, 0.98, 0.99, 0.001 };
+
+        final double[] selected = new UniformSnapshot(values).getValues(quantiles);
+        final Snapshot sorted = new UniformSnapshot(values);
+
+        for (int i = 0; i < quantiles.length; i++) {
+            assertThat(selected[i])
+                    .isEqualTo(sorted.getValue(quantiles[i]));
+        }
+    }
 }
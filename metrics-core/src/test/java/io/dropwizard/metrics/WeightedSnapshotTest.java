@@ -9,6 +9,7 @@ import io.dropwizard.metrics.WeightedSnapshot.WeightedSample;
 import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.offset;
@@ -216,4 +217,29 @@ public class WeightedSnapshotTest {
                 .isEqualTo(2);
     }
 
+    @Test
+    public void selectsManyQuantilesAtOnce() throws Exception {
+        assertThat(snapshot.getValues(new double[]{ 0.75, 0.0, 0.5, 1.0 }))
+                .containsExactly(4.0, 1.0, 3.0, 5.0);
+    }
+
+    @Test
+    public void selectsTheSameValuesAsSorting() throws Exception {
+        final Random random = new Random(1);
+        final long[] values = new long[1028];
+        final double[] weights = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(500);
+            weights[i] = random.nextDouble();
+        }
+        final double[] quantiles = { 0.999, 0.5, 0.75, 0.95, 0.98, 0.99, 0.001 };
+
+        final double[] selected = new WeightedSnapshot(WeightedArray(values, weights)).getValues(quantiles);
+        final Snapshot sorted = new WeightedSnapshot(WeightedArray(values, weights));
+
+        for (int i = 0; i < quantiles.length; i++) {
+            assertThat(selected[i])
+                    .isEqualTo(sorted.getValue(quantiles[i]));
+        }
+    }
 }
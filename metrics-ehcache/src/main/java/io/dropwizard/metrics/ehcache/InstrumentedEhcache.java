@@ -269,51 +269,51 @@ public class InstrumentedEhcache extends EhcacheDecoratorAdapter {
 
     @Override
     public Element get(Object key) throws IllegalStateException, CacheException {
-        final Timer.Context ctx = getTimer.time();
+        final long start = getTimer.start();
         try {
             return underlyingCache.get(key);
         } finally {
-            ctx.stop();
+            getTimer.stop(start);
         }
     }
 
     @Override
     public Element get(Serializable key) throws IllegalStateException, CacheException {
-        final Timer.Context ctx = getTimer.time();
+        final long start = getTimer.start();
         try {
             return underlyingCache.get(key);
         } finally {
-            ctx.stop();
+            getTimer.stop(start);
         }
     }
 
     @Override
     public void put(Element element) throws IllegalArgumentException, IllegalStateException, CacheException {
-        final Timer.Context ctx = putTimer.time();
+        final long start = putTimer.start();
         try {
             underlyingCache.put(element);
         } finally {
-            ctx.stop();
+            putTimer.stop(start);
         }
     }
 
     @Override
     public void put(Element element, boolean doNotNotifyCacheReplicators) throws IllegalArgumentException, IllegalStateException, CacheException {
-        final Timer.Context ctx = putTimer.time();
+        final long start = putTimer.start();
         try {
             underlyingCache.put(element, doNotNotifyCacheReplicators);
         } finally {
-            ctx.stop();
+            putTimer.stop(start);
         }
     }
 
     @Override
     public Element putIfAbsent(Element element) throws NullPointerException {
-        final Timer.Context ctx = putTimer.time();
+        final long start = putTimer.start();
         try {
             return underlyingCache.putIfAbsent(element);
         } finally {
-            ctx.stop();
+            putTimer.stop(start);
         }
     }
 }
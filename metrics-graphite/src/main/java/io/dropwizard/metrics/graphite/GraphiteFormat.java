@@ -0,0 +1,227 @@
+package io.dropwizard.metrics.graphite;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Formats the numbers of the Carbon plaintext protocol as US-ASCII digits, without going through
+ * {@link java.util.Formatter}.
+ */
+final class GraphiteFormat {
+    // beyond this, scaling by a hundred loses the exact cents, so let the formatter print the digits
+    private static final double MAX_SCALED = 1e13;
+    private static final int MAX_LONG_DIGITS = 20;
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private GraphiteFormat() {
+    }
+
+    /**
+     * Formats the given value with two decimals, as {@code String.format(Locale.US, "%2.2f", v)}
+     * does but for values which lie exactly halfway between two hundredths, which may round the
+     * other way.
+     *
+     * @param v a value
+     * @return {@code v} with two decimals
+     */
+    static String format(double v) {
+        if (!(Math.abs(v) < MAX_SCALED)) {
+            // NaN, infinities and huge values
+            return String.format(Locale.US, "%2.2f", v);
+        }
+        final char[] chars = new char[MAX_LONG_DIGITS + 2];
+        int pos = chars.length;
+        long cents = Math.round(Math.abs(v) * 100);
+        chars[--pos] = (char) ('0' + cents % 10);
+        cents /= 10;
+        chars[--pos] = (char) ('0' + cents % 10);
+        cents /= 10;
+        chars[--pos] = '.';
+        do {
+            chars[--pos] = (char) ('0' + cents % 10);
+            cents /= 10;
+        } while (cents > 0);
+        // the sign bit, so that -0.0 and tiny negative values are printed as -0.00 like Formatter does
+        if (Double.doubleToRawLongBits(v) < 0) {
+            chars[--pos] = '-';
+        }
+        return new String(chars, pos, chars.length - pos);
+    }
+
+    /**
+     * Replaces each run of whitespace in the given string with a dash, as the regular expression
+     * {@code [\s]+} would.
+     *
+     * @param s a string
+     * @return {@code s} without whitespace, or {@code s} itself if it has none
+     */
+    static String sanitize(String s) {
+        int i = 0;
+        while (i < s.length() && !isWhitespace(s.charAt(i))) {
+            i++;
+        }
+        if (i == s.length()) {
+            return s;
+        }
+        final StringBuilder builder = new StringBuilder(s.length());
+        builder.append(s, 0, i);
+        boolean whitespace = false;
+        for (; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (isWhitespace(c)) {
+                if (!whitespace) {
+                    builder.append('-');
+                    whitespace = true;
+                }
+            } else {
+                builder.append(c);
+                whitespace = false;
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Puts a whole plaintext line into the buffer, unless it doesn't fit. If it doesn't, the buffer's
+     * position is left somewhere after where the line would have started. The name and value are
+     * put as they are, so senders sanitize them first.
+     *
+     * @param buffer    the buffer to put the line into
+     * @param scratch   a scratch array of at least twenty bytes
+     * @param name      the name of the metric
+     * @param value     the value of the metric
+     * @param timestamp the timestamp of the metric
+     * @return whether the line fit into the buffer
+     */
+    static boolean putLine(ByteBuffer buffer, byte[] scratch, String name, String value, long timestamp) {
+        if (put(buffer, name, 0, false) < name.length() || !buffer.hasRemaining()) {
+            return false;
+        }
+        buffer.put((byte) ' ');
+        if (put(buffer, value, 0, false) < value.length() || buffer.remaining() < length(timestamp) + 2) {
+            return false;
+        }
+        buffer.put((byte) ' ');
+        put(buffer, scratch, timestamp);
+        buffer.put((byte) '\n');
+        return true;
+    }
+
+    /**
+     * Encodes the given string as UTF-8 into the buffer from the given index on, replacing each run
+     * of whitespace with a dash, for as long as the buffer has room for the next character. A string
+     * which didn't fit can be continued from the returned index once the buffer has been emptied.
+     *
+     * @param buffer the buffer to put the bytes into
+     * @param s      a string
+     * @param start  the index of the first character to encode
+     * @return the index of the first character which wasn't encoded, or the length of {@code s}
+     */
+    static int put(ByteBuffer buffer, String s, int start) {
+        return put(buffer, s, start, true);
+    }
+
+    private static int put(ByteBuffer buffer, String s, int start, boolean sanitize) {
+        final int length = s.length();
+        for (int i = start; i < length; i++) {
+            final char c = s.charAt(i);
+            if (sanitize && isWhitespace(c)) {
+                // only the first of a run becomes a dash, wherever the string was continued from
+                if (i == 0 || !isWhitespace(s.charAt(i - 1))) {
+                    if (!buffer.hasRemaining()) {
+                        return i;
+                    }
+                    buffer.put((byte) '-');
+                }
+            } else if (c < 0x80) {
+                if (!buffer.hasRemaining()) {
+                    return i;
+                }
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                if (buffer.remaining() < 2) {
+                    return i;
+                }
+                buffer.put((byte) (0xc0 | c >> 6));
+                buffer.put((byte) (0x80 | c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                if (buffer.remaining() < 4) {
+                    return i;
+                }
+                final int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                buffer.put((byte) (0xf0 | codePoint >> 18));
+                buffer.put((byte) (0x80 | codePoint >> 12 & 0x3f));
+                buffer.put((byte) (0x80 | codePoint >> 6 & 0x3f));
+                buffer.put((byte) (0x80 | codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                if (!buffer.hasRemaining()) {
+                    return i;
+                }
+                // an unpaired surrogate, which the UTF-8 encoder replaces as well
+                buffer.put((byte) '?');
+            } else {
+                if (buffer.remaining() < 3) {
+                    return i;
+                }
+                buffer.put((byte) (0xe0 | c >> 12));
+                buffer.put((byte) (0x80 | c >> 6 & 0x3f));
+                buffer.put((byte) (0x80 | c & 0x3f));
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Returns whether the character is in the {@code \s} class of regular expressions.
+     *
+     * @param c a character
+     * @return whether {@code c} is whitespace
+     */
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000b' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Returns the number of bytes {@link #put(ByteBuffer, byte[], long)} puts for the given value.
+     *
+     * @param n a value
+     * @return the number of digits of {@code n}, and one for its sign if it is negative
+     */
+    static int length(long n) {
+        if (n == Long.MIN_VALUE) {
+            return MIN_LONG.length;
+        }
+        int length = n < 0 ? 2 : 1;
+        for (long m = Math.abs(n); m >= 10; m /= 10) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Puts the decimal digits of the given value into the buffer, which must have room for twenty
+     * bytes.
+     *
+     * @param buffer  the buffer to put the digits into
+     * @param scratch a scratch array of at least twenty bytes
+     * @param n       a value
+     */
+    static void put(ByteBuffer buffer, byte[] scratch, long n) {
+        if (n == Long.MIN_VALUE) {
+            // has no positive counterpart
+            buffer.put(MIN_LONG);
+            return;
+        }
+        if (n < 0) {
+            buffer.put((byte) '-');
+            n = -n;
+        }
+        int pos = MAX_LONG_DIGITS;
+        do {
+            scratch[--pos] = (byte) ('0' + n % 10);
+            n /= 10;
+        } while (n > 0);
+        buffer.put(scratch, pos, MAX_LONG_DIGITS - pos);
+    }
+}
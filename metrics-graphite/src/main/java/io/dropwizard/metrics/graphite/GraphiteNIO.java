@@ -0,0 +1,272 @@
+package io.dropwizard.metrics.graphite;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A client to a Carbon server via TCP, which encodes each line straight into a reused direct
+ * buffer and writes it out through a non-blocking {@link SocketChannel}. Connecting and writing
+ * give up after a timeout, so a Carbon relay which stops reading can't hold up the reporter for
+ * longer than that.
+ * <p/>
+ * Like {@link Graphite}, it replaces each run of whitespace in names and values with a dash. Lines
+ * are encoded as UTF-8.
+ * <p/>
+ * A line may span two buffers, so a write which fails can leave part of one on the wire. The
+ * connection is closed whenever a write fails, and has to be {@link #connect() connected} again
+ * before anything more is sent.
+ */
+public class GraphiteNIO implements GraphiteSender {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+    private static final int MAX_LONG_BYTES = 20;
+
+    private final String hostname;
+    private final int port;
+    private final InetSocketAddress address;
+    private final ByteBuffer buffer;
+    private final byte[] scratch;
+    private final long connectTimeoutNanos;
+    private final long writeTimeoutNanos;
+
+    private SocketChannel channel;
+    private Selector selector;
+    private int failures;
+
+    /**
+     * Creates a new client which connects to the given address, with a 64KiB buffer and five second
+     * timeouts.
+     *
+     * @param hostname The hostname of the Carbon server
+     * @param port     The port of the Carbon server
+     */
+    public GraphiteNIO(String hostname, int port) {
+        this(hostname, port, null, DEFAULT_BUFFER_SIZE,
+                DEFAULT_TIMEOUT_MILLIS, DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new client which connects to the given address, with a 64KiB buffer and five second
+     * timeouts.
+     *
+     * @param address the address of the Carbon server
+     */
+    public GraphiteNIO(InetSocketAddress address) {
+        this(address, DEFAULT_BUFFER_SIZE, DEFAULT_TIMEOUT_MILLIS, DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new client which connects to the given address.
+     *
+     * @param address        the address of the Carbon server
+     * @param bufferSize     the size of the buffer lines are encoded into, in bytes
+     * @param connectTimeout the maximum time to wait for the connection
+     * @param writeTimeout   the maximum time to wait for the server to accept a buffer
+     * @param unit           the unit for {@code connectTimeout} and {@code writeTimeout}
+     */
+    public GraphiteNIO(InetSocketAddress address,
+                       int bufferSize,
+                       long connectTimeout,
+                       long writeTimeout,
+                       TimeUnit unit) {
+        this(null, -1, address, bufferSize, connectTimeout, writeTimeout, unit);
+    }
+
+    private GraphiteNIO(String hostname,
+                        int port,
+                        InetSocketAddress address,
+                        int bufferSize,
+                        long connectTimeout,
+                        long writeTimeout,
+                        TimeUnit unit) {
+        if (bufferSize < MAX_LONG_BYTES + 1) {
+            throw new IllegalArgumentException("bufferSize must be more than " + MAX_LONG_BYTES + " bytes");
+        }
+        this.hostname = hostname;
+        this.port = port;
+        this.address = address;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.scratch = new byte[MAX_LONG_BYTES];
+        this.connectTimeoutNanos = unit.toNanos(connectTimeout);
+        this.writeTimeoutNanos = unit.toNanos(writeTimeout);
+    }
+
+    @Override
+    public void connect() throws IllegalStateException, IOException {
+        if (isConnected()) {
+            throw new IllegalStateException("Already connected");
+        }
+        InetSocketAddress address = this.address;
+        if (address == null) {
+            address = new InetSocketAddress(hostname, port);
+        }
+        if (address.getAddress() == null) {
+            // retry lookup, just in case the DNS changed
+            address = new InetSocketAddress(address.getHostName(), address.getPort());
+
+            if (address.getAddress() == null) {
+                throw new UnknownHostException(address.getHostName());
+            }
+        }
+
+        buffer.clear();
+        this.channel = SocketChannel.open();
+        this.selector = Selector.open();
+        try {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_CONNECT);
+            if (!channel.connect(address)) {
+                await(System.nanoTime() + connectTimeoutNanos, "connect to " + address);
+                channel.finishConnect();
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return channel != null && channel.isConnected();
+    }
+
+    @Override
+    public void send(String name, String value, long timestamp) throws IOException {
+        try {
+            if (channel == null) {
+                throw new IOException("Not connected");
+            }
+            put(name);
+            put((byte) ' ');
+            put(value);
+            put((byte) ' ');
+            if (buffer.remaining() < MAX_LONG_BYTES + 1) {
+                write();
+            }
+            GraphiteFormat.put(buffer, scratch, timestamp);
+            buffer.put((byte) '\n');
+            this.failures = 0;
+        } catch (IOException e) {
+            failures++;
+            throw e;
+        }
+    }
+
+    @Override
+    public int getFailures() {
+        return failures;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (channel != null && buffer.position() > 0) {
+            try {
+                write();
+            } catch (IOException e) {
+                failures++;
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (isConnected()) {
+                flush();
+            }
+        } finally {
+            disconnect();
+        }
+    }
+
+    private void disconnect() throws IOException {
+        buffer.clear();
+        try {
+            if (selector != null) {
+                selector.close();
+            }
+        } finally {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } finally {
+                this.selector = null;
+                this.channel = null;
+            }
+        }
+    }
+
+    /*
+     * Encodes the string as UTF-8, replacing each run of whitespace with a dash.
+     */
+    private void put(String s) throws IOException {
+        int i = 0;
+        while ((i = GraphiteFormat.put(buffer, s, i)) < s.length()) {
+            write();
+        }
+    }
+
+    private void put(byte b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            write();
+        }
+        buffer.put(b);
+    }
+
+    /*
+     * Writes out the whole buffer, waiting for the server to make room for it for no longer than
+     * the write timeout. If that fails, the connection is closed, since the server may have been
+     * sent only part of a line.
+     */
+    private void write() throws IOException {
+        if (channel == null) {
+            throw new IOException("Not connected");
+        }
+        buffer.flip();
+        try {
+            long deadline = 0;
+            while (buffer.hasRemaining()) {
+                if (channel.write(buffer) == 0) {
+                    if (deadline == 0) {
+                        deadline = System.nanoTime() + writeTimeoutNanos;
+                    }
+                    channel.keyFor(selector).interestOps(SelectionKey.OP_WRITE);
+                    await(deadline, "write to " + channel.getRemoteAddress());
+                }
+            }
+        } catch (IOException e) {
+            // whatever is left is lost, rather than waited for again or completed by the next line
+            try {
+                disconnect();
+            } catch (IOException ignored) {
+                // the write failure is the one to report
+            }
+            throw e;
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void await(long deadline, String operation) throws IOException {
+        while (true) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new SocketTimeoutException("Timed out trying to " + operation);
+            }
+            final int selected = selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+            if (selected > 0) {
+                selector.selectedKeys().clear();
+                return;
+            }
+        }
+    }
+}
@@ -1,22 +1,48 @@
 package io.dropwizard.metrics.graphite;
 
 import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
 import com.rabbitmq.client.DefaultSocketConfigurator;
+import io.dropwizard.metrics.Gauge;
+import io.dropwizard.metrics.Meter;
+import io.dropwizard.metrics.Metric;
+import io.dropwizard.metrics.MetricName;
+import io.dropwizard.metrics.MetricSet;
+import io.dropwizard.metrics.Timer;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.regex.Pattern;
 
 /**
  * A rabbit-mq client to a Carbon server.
+ * <p/>
+ * By default, each metric is published as a message of its own, routed by its name. A client
+ * created with a routing key and a batch size instead packs as many lines as fit into a message
+ * body of that size, like Carbon's AMQP listener reads with {@code AMQP_METRIC_NAME_IN_BODY}
+ * enabled, and publishes the rest on {@link #flush()}. With publisher confirms, the broker's
+ * acknowledgements are handled as they arrive rather than waited for.
+ * <p/>
+ * The client is a {@link MetricSet} of its own metrics: {@code latency}, the time from publishing a
+ * message until the broker confirms it, or until it is written out without confirms;
+ * {@code backlog}, the number of messages which haven't been confirmed yet; and {@code nacks}, the
+ * messages the broker couldn't take.
  */
-public class GraphiteRabbitMQ implements GraphiteSender {
+public class GraphiteRabbitMQ implements GraphiteSender, MetricSet {
 
-    private static final Pattern WHITESPACE = Pattern.compile("[\\s]+");
+    private static final int MAX_LONG_BYTES = 20;
 
     private static final Charset UTF_8 = Charset.forName("UTF-8");
 
@@ -28,6 +54,21 @@ public class GraphiteRabbitMQ implements GraphiteSender {
     private Connection connection;
     private Channel channel;
     private String exchange;
+    private final String routingKey;
+    private final boolean publisherConfirms;
+    private final ByteBuffer buffer;
+    private final byte[] scratch;
+
+    // the time each unconfirmed message was published at, by its delivery tag
+    private final ConcurrentNavigableMap<Long, Long> unconfirmed = new ConcurrentSkipListMap<Long, Long>();
+    private final Timer latency = new Timer();
+    private final Meter nacks = new Meter();
+    private final Gauge<Integer> backlog = new Gauge<Integer>() {
+        @Override
+        public Integer getValue() {
+            return unconfirmed.size();
+        }
+    };
 
     private int failures;
 
@@ -40,6 +81,39 @@ public class GraphiteRabbitMQ implements GraphiteSender {
     public GraphiteRabbitMQ(final ConnectionFactory connectionFactory, final String exchange) {
         this.connectionFactory = connectionFactory;
         this.exchange = exchange;
+        this.routingKey = null;
+        this.publisherConfirms = false;
+        this.buffer = null;
+        this.scratch = null;
+    }
+
+    /**
+     * Creates a new client with a given a {@link com.rabbitmq.client.ConnectionFactory} and an amqp exchange, which
+     * publishes the lines in batches of at most {@code batchSize} bytes under a single routing key
+     *
+     * @param connectionFactory the {@link com.rabbitmq.client.ConnectionFactory} used to establish connection and publish to graphite server
+     * @param exchange          the amqp exchange
+     * @param routingKey        the routing key of every message
+     * @param batchSize         the most bytes of lines to publish in a single message
+     * @param publisherConfirms whether to have the broker confirm each message
+     */
+    public GraphiteRabbitMQ(final ConnectionFactory connectionFactory,
+                            final String exchange,
+                            final String routingKey,
+                            final int batchSize,
+                            final boolean publisherConfirms) {
+        if (routingKey == null) {
+            throw new IllegalArgumentException("routingKey must not be null");
+        }
+        if (batchSize <= MAX_LONG_BYTES + 1) {
+            throw new IllegalArgumentException("batchSize must be more than " + (MAX_LONG_BYTES + 1) + " bytes");
+        }
+        this.connectionFactory = connectionFactory;
+        this.exchange = exchange;
+        this.routingKey = routingKey;
+        this.publisherConfirms = publisherConfirms;
+        this.buffer = ByteBuffer.allocate(batchSize);
+        this.scratch = new byte[MAX_LONG_BYTES];
     }
 
     /**
@@ -91,6 +165,10 @@ public class GraphiteRabbitMQ implements GraphiteSender {
             final Integer rabbitRequestedHeartbeatInSeconds) {
 
         this.exchange = exchange;
+        this.routingKey = null;
+        this.publisherConfirms = false;
+        this.buffer = null;
+        this.scratch = null;
 
         this.connectionFactory = new ConnectionFactory();
 
@@ -123,6 +201,12 @@ public class GraphiteRabbitMQ implements GraphiteSender {
         }
 
         channel = connection.createChannel();
+        if (publisherConfirms) {
+            // delivery tags start over on every channel
+            unconfirmed.clear();
+            channel.addConfirmListener(new Confirmations());
+            channel.confirmSelect();
+        }
     }
 
     @Override
@@ -134,15 +218,24 @@ public class GraphiteRabbitMQ implements GraphiteSender {
     public void send(String name, String value, long timestamp) throws IOException {
         try {
             final String sanitizedName = sanitize(name);
-            final String sanitizedValue = sanitize(value);
-
-            final String message =
-                    new StringBuilder()
-                            .append(sanitizedName).append(' ')
-                            .append(sanitizedValue).append(' ')
-                            .append(Long.toString(timestamp)).append('\n').toString();
+            if (buffer == null) {
+                publish(sanitizedName, line(sanitizedName, value, timestamp));
+                return;
+            }
 
-            channel.basicPublish(exchange, sanitizedName, null, message.getBytes(UTF_8));
+            final String sanitizedValue = sanitize(value);
+            final int mark = buffer.position();
+            if (!GraphiteFormat.putLine(buffer, scratch, sanitizedName, sanitizedValue, timestamp)) {
+                buffer.position(mark);
+                if (mark > 0) {
+                    publishBatch();
+                }
+                if (!GraphiteFormat.putLine(buffer, scratch, sanitizedName, sanitizedValue, timestamp)) {
+                    // too long for a batch, so it goes out on its own
+                    buffer.clear();
+                    publish(routingKey, line(sanitizedName, value, timestamp));
+                }
+            }
         } catch (IOException e) {
             failures++;
             throw e;
@@ -151,13 +244,29 @@ public class GraphiteRabbitMQ implements GraphiteSender {
 
     @Override
     public void flush() throws IOException {
-    	  // Nothing to do
+        if (buffer != null && buffer.position() > 0) {
+            try {
+                publishBatch();
+            } catch (IOException e) {
+                failures++;
+                throw e;
+            }
+        }
     }
 
     @Override
     public void close() throws IOException {
-        if (connection != null) {
-            connection.close();
+        try {
+            if (isConnected()) {
+                flush();
+            }
+        } finally {
+            if (buffer != null) {
+                buffer.clear();
+            }
+            if (connection != null) {
+                connection.close();
+            }
         }
     }
 
@@ -166,8 +275,79 @@ public class GraphiteRabbitMQ implements GraphiteSender {
         return failures;
     }
 
+    @Override
+    public Map<MetricName, Metric> getMetrics() {
+        final Map<MetricName, Metric> metrics = new HashMap<MetricName, Metric>();
+        metrics.put(MetricName.build("latency"), latency);
+        metrics.put(MetricName.build("backlog"), backlog);
+        metrics.put(MetricName.build("nacks"), nacks);
+        return Collections.unmodifiableMap(metrics);
+    }
+
     public String sanitize(String s) {
-        return WHITESPACE.matcher(s).replaceAll("-");
+        return GraphiteFormat.sanitize(s);
+    }
+
+    private byte[] line(String sanitizedName, String value, long timestamp) {
+        final String message =
+                new StringBuilder()
+                        .append(sanitizedName).append(' ')
+                        .append(sanitize(value)).append(' ')
+                        .append(Long.toString(timestamp)).append('\n').toString();
+        return message.getBytes(UTF_8);
+    }
+
+    private void publishBatch() throws IOException {
+        final byte[] body = Arrays.copyOf(buffer.array(), buffer.position());
+        // a batch which couldn't be published is lost rather than published again with the next one
+        buffer.clear();
+        publish(routingKey, body);
+    }
+
+    private void publish(String routingKey, byte[] body) throws IOException {
+        final long start = System.nanoTime();
+        if (!publisherConfirms) {
+            channel.basicPublish(exchange, routingKey, null, body);
+            latency.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return;
+        }
+        final long deliveryTag = channel.getNextPublishSeqNo();
+        unconfirmed.put(deliveryTag, start);
+        try {
+            channel.basicPublish(exchange, routingKey, null, body);
+        } catch (IOException e) {
+            unconfirmed.remove(deliveryTag);
+            throw e;
+        }
     }
 
+    /**
+     * Settles the unconfirmed messages as the broker acknowledges them, on the connection's thread.
+     */
+    private class Confirmations implements ConfirmListener {
+        @Override
+        public void handleAck(long deliveryTag, boolean multiple) {
+            final long now = System.nanoTime();
+            for (Iterator<Long> i = confirmed(deliveryTag, multiple); i.hasNext(); ) {
+                latency.update(now - i.next(), TimeUnit.NANOSECONDS);
+                i.remove();
+            }
+        }
+
+        @Override
+        public void handleNack(long deliveryTag, boolean multiple) {
+            for (Iterator<Long> i = confirmed(deliveryTag, multiple); i.hasNext(); ) {
+                i.next();
+                i.remove();
+                nacks.mark();
+            }
+        }
+
+        private Iterator<Long> confirmed(long deliveryTag, boolean multiple) {
+            final Map<Long, Long> confirmed = multiple
+                    ? unconfirmed.headMap(deliveryTag, true)
+                    : unconfirmed.subMap(deliveryTag, true, deliveryTag, true);
+            return confirmed.values().iterator();
+        }
+    }
 }
@@ -18,9 +18,10 @@ import org.slf4j.LoggerFactory;
 import io.dropwizard.metrics.*;
 
 import java.io.IOException;
-import java.util.Locale;
 import java.util.Map;
 import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -135,10 +136,32 @@ public class GraphiteReporter extends ScheduledReporter {
     }
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GraphiteReporter.class);
+    private static final double[] QUANTILES = {0.5, 0.75, 0.95, 0.98, 0.99, 0.999};
 
+    /**
+     * The suffixes of the reported values; the full name for each is cached per metric.
+     */
+    private enum Suffix {
+        NONE(null), COUNT("count"), MAX("max"), MEAN("mean"), MIN("min"), STDDEV("stddev"),
+        P50("p50"), P75("p75"), P95("p95"), P98("p98"), P99("p99"), P999("p999"),
+        M1_RATE("m1_rate"), M5_RATE("m5_rate"), M15_RATE("m15_rate"), MEAN_RATE("mean_rate");
+
+        private final String key;
+
+        Suffix(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final int SUFFIXES = Suffix.values().length;
+
+    private final MetricRegistry registry;
     private final GraphiteSender graphite;
     private final Clock clock;
     private final MetricName prefix;
+    private final ConcurrentMap<MetricName, String[]> names;
+    private final MetricRegistryListener listener;
+    private volatile boolean caching;
 
     private GraphiteReporter(MetricRegistry registry,
                              GraphiteSender graphite,
@@ -148,9 +171,29 @@ public class GraphiteReporter extends ScheduledReporter {
                              TimeUnit durationUnit,
                              MetricFilter filter) {
         super(registry, "graphite-reporter", filter, rateUnit, durationUnit);
+        this.registry = registry;
         this.graphite = graphite;
         this.clock = clock;
         this.prefix = MetricName.build(prefix);
+        this.names = new ConcurrentHashMap<MetricName, String[]>();
+        this.listener = new NameCacheInvalidator();
+    }
+
+    /**
+     * Starts the reporter polling at the given period, caching the full names of the metrics it
+     * reports until it is stopped.
+     *
+     * @param period the amount of time between polls
+     * @param unit   the unit for {@code period}
+     */
+    @Override
+    public synchronized void start(long period, TimeUnit unit) {
+        if (!caching) {
+            // names are only cached once the invalidator hears about removals
+            registry.addListener(listener);
+            this.caching = true;
+        }
+        super.start(period, unit);
     }
 
     @Override
@@ -209,6 +252,12 @@ public class GraphiteReporter extends ScheduledReporter {
 
     @Override
     public void stop() {
+        synchronized (this) {
+            // stop caching before clearing, so a concurrent report can't leave names behind
+            this.caching = false;
+            registry.removeListener(listener);
+            names.clear();
+        }
         try {
             super.stop();
         } finally {
@@ -222,74 +271,76 @@ public class GraphiteReporter extends ScheduledReporter {
 
     private void reportTimer(MetricName name, Timer timer, long timestamp) throws IOException {
         final Snapshot snapshot = timer.getSnapshot();
+        final double[] quantiles = snapshot.getValues(QUANTILES);
 
-        graphite.send(prefix(name, "max"), format(convertDuration(snapshot.getMax())), timestamp);
-        graphite.send(prefix(name, "mean"), format(convertDuration(snapshot.getMean())), timestamp);
-        graphite.send(prefix(name, "min"), format(convertDuration(snapshot.getMin())), timestamp);
-        graphite.send(prefix(name, "stddev"),
+        graphite.send(prefix(name, Suffix.MAX), format(convertDuration(snapshot.getMax())), timestamp);
+        graphite.send(prefix(name, Suffix.MEAN), format(convertDuration(snapshot.getMean())), timestamp);
+        graphite.send(prefix(name, Suffix.MIN), format(convertDuration(snapshot.getMin())), timestamp);
+        graphite.send(prefix(name, Suffix.STDDEV),
                       format(convertDuration(snapshot.getStdDev())),
                       timestamp);
-        graphite.send(prefix(name, "p50"),
-                      format(convertDuration(snapshot.getMedian())),
+        graphite.send(prefix(name, Suffix.P50),
+                      format(convertDuration(quantiles[0])),
                       timestamp);
-        graphite.send(prefix(name, "p75"),
-                      format(convertDuration(snapshot.get75thPercentile())),
+        graphite.send(prefix(name, Suffix.P75),
+                      format(convertDuration(quantiles[1])),
                       timestamp);
-        graphite.send(prefix(name, "p95"),
-                      format(convertDuration(snapshot.get95thPercentile())),
+        graphite.send(prefix(name, Suffix.P95),
+                      format(convertDuration(quantiles[2])),
                       timestamp);
-        graphite.send(prefix(name, "p98"),
-                      format(convertDuration(snapshot.get98thPercentile())),
+        graphite.send(prefix(name, Suffix.P98),
+                      format(convertDuration(quantiles[3])),
                       timestamp);
-        graphite.send(prefix(name, "p99"),
-                      format(convertDuration(snapshot.get99thPercentile())),
+        graphite.send(prefix(name, Suffix.P99),
+                      format(convertDuration(quantiles[4])),
                       timestamp);
-        graphite.send(prefix(name, "p999"),
-                      format(convertDuration(snapshot.get999thPercentile())),
+        graphite.send(prefix(name, Suffix.P999),
+                      format(convertDuration(quantiles[5])),
                       timestamp);
 
         reportMetered(name, timer, timestamp);
     }
 
     private void reportMetered(MetricName name, Metered meter, long timestamp) throws IOException {
-        graphite.send(prefix(name, "count"), format(meter.getCount()), timestamp);
-        graphite.send(prefix(name, "m1_rate"),
+        graphite.send(prefix(name, Suffix.COUNT), format(meter.getCount()), timestamp);
+        graphite.send(prefix(name, Suffix.M1_RATE),
                       format(convertRate(meter.getOneMinuteRate())),
                       timestamp);
-        graphite.send(prefix(name, "m5_rate"),
+        graphite.send(prefix(name, Suffix.M5_RATE),
                       format(convertRate(meter.getFiveMinuteRate())),
                       timestamp);
-        graphite.send(prefix(name, "m15_rate"),
+        graphite.send(prefix(name, Suffix.M15_RATE),
                       format(convertRate(meter.getFifteenMinuteRate())),
                       timestamp);
-        graphite.send(prefix(name, "mean_rate"),
+        graphite.send(prefix(name, Suffix.MEAN_RATE),
                       format(convertRate(meter.getMeanRate())),
                       timestamp);
     }
 
     private void reportHistogram(MetricName name, Histogram histogram, long timestamp) throws IOException {
         final Snapshot snapshot = histogram.getSnapshot();
-        graphite.send(prefix(name, "count"), format(histogram.getCount()), timestamp);
-        graphite.send(prefix(name, "max"), format(snapshot.getMax()), timestamp);
-        graphite.send(prefix(name, "mean"), format(snapshot.getMean()), timestamp);
-        graphite.send(prefix(name, "min"), format(snapshot.getMin()), timestamp);
-        graphite.send(prefix(name, "stddev"), format(snapshot.getStdDev()), timestamp);
-        graphite.send(prefix(name, "p50"), format(snapshot.getMedian()), timestamp);
-        graphite.send(prefix(name, "p75"), format(snapshot.get75thPercentile()), timestamp);
-        graphite.send(prefix(name, "p95"), format(snapshot.get95thPercentile()), timestamp);
-        graphite.send(prefix(name, "p98"), format(snapshot.get98thPercentile()), timestamp);
-        graphite.send(prefix(name, "p99"), format(snapshot.get99thPercentile()), timestamp);
-        graphite.send(prefix(name, "p999"), format(snapshot.get999thPercentile()), timestamp);
+        final double[] quantiles = snapshot.getValues(QUANTILES);
+        graphite.send(prefix(name, Suffix.COUNT), format(histogram.getCount()), timestamp);
+        graphite.send(prefix(name, Suffix.MAX), format(snapshot.getMax()), timestamp);
+        graphite.send(prefix(name, Suffix.MEAN), format(snapshot.getMean()), timestamp);
+        graphite.send(prefix(name, Suffix.MIN), format(snapshot.getMin()), timestamp);
+        graphite.send(prefix(name, Suffix.STDDEV), format(snapshot.getStdDev()), timestamp);
+        graphite.send(prefix(name, Suffix.P50), format(quantiles[0]), timestamp);
+        graphite.send(prefix(name, Suffix.P75), format(quantiles[1]), timestamp);
+        graphite.send(prefix(name, Suffix.P95), format(quantiles[2]), timestamp);
+        graphite.send(prefix(name, Suffix.P98), format(quantiles[3]), timestamp);
+        graphite.send(prefix(name, Suffix.P99), format(quantiles[4]), timestamp);
+        graphite.send(prefix(name, Suffix.P999), format(quantiles[5]), timestamp);
     }
 
     private void reportCounter(MetricName name, Counter counter, long timestamp) throws IOException {
-        graphite.send(prefix(name, "count"), format(counter.getCount()), timestamp);
+        graphite.send(prefix(name, Suffix.COUNT), format(counter.getCount()), timestamp);
     }
 
     private void reportGauge(MetricName name, Gauge gauge, long timestamp) throws IOException {
         final String value = format(gauge.getValue());
         if (value != null) {
-            graphite.send(prefix(name), value, timestamp);
+            graphite.send(prefix(name, Suffix.NONE), value, timestamp);
         }
     }
 
@@ -310,8 +361,61 @@ public class GraphiteReporter extends ScheduledReporter {
         return null;
     }
 
-    private String prefix(MetricName name, String... components) {
-        return MetricName.join(MetricName.join(prefix, name), MetricName.build(components)).getKey();
+    /*
+     * Returns the full name of the given value of the metric, which is built once and then cached
+     * until the metric is removed from the registry. Names are only cached while the reporter
+     * listens for removals, and only for metrics the registry holds.
+     */
+    private String prefix(MetricName name, Suffix suffix) {
+        String[] cached = names.get(name);
+        if (cached == null) {
+            cached = new String[SUFFIXES];
+            final String[] existing = names.putIfAbsent(name, cached);
+            if (existing != null) {
+                cached = existing;
+            } else if (!caching || !registry.getMetrics().containsKey(name)) {
+                // checked after the put, so either the invalidator or stop() sees the entry, or
+                // this does and takes it back out
+                names.remove(name, cached);
+            }
+        }
+        String full = cached[suffix.ordinal()];
+        if (full == null) {
+            final MetricName prefixed = MetricName.join(prefix, name);
+            full = suffix.key == null ? prefixed.getKey() : prefixed.resolve(suffix.key).getKey();
+            cached[suffix.ordinal()] = full;
+        }
+        return full;
+    }
+
+    /*
+     * Forgets the names of the metrics which are removed from the registry.
+     */
+    private class NameCacheInvalidator extends MetricRegistryListener.Base {
+        @Override
+        public void onGaugeRemoved(MetricName name) {
+            names.remove(name);
+        }
+
+        @Override
+        public void onCounterRemoved(MetricName name) {
+            names.remove(name);
+        }
+
+        @Override
+        public void onHistogramRemoved(MetricName name) {
+            names.remove(name);
+        }
+
+        @Override
+        public void onMeterRemoved(MetricName name) {
+            names.remove(name);
+        }
+
+        @Override
+        public void onTimerRemoved(MetricName name) {
+            names.remove(name);
+        }
     }
 
     private String format(long n) {
@@ -321,6 +425,6 @@ public class GraphiteReporter extends ScheduledReporter {
     private String format(double v) {
         // the Carbon plaintext format is pretty underspecified, but it seems like it just wants
         // US-formatted digits
-        return String.format(Locale.US, "%2.2f", v);
+        return GraphiteFormat.format(v);
     }
 }
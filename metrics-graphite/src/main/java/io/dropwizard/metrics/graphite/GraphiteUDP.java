@@ -5,19 +5,33 @@ import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
 import java.nio.charset.Charset;
-import java.util.regex.Pattern;
 
 /**
- * A client to a Carbon server using unconnected UDP
+ * A client to a Carbon server using unconnected UDP.
+ * <p/>
+ * Lines are packed into a reused direct buffer and sent as one datagram whenever the next line
+ * wouldn't fit into the payload size, and on {@link #flush()}. No line is split across datagrams;
+ * one which is longer than the payload size on its own is sent in a datagram of its own. The
+ * default payload size of 1432 bytes fits into an Ethernet frame of 1500 bytes along with the IPv6
+ * and UDP headers, so datagrams aren't fragmented. Networks with jumbo frames can use larger ones.
  */
 public class GraphiteUDP implements GraphiteSender {
 
-    private static final Pattern WHITESPACE = Pattern.compile("[\\s]+");
+    /**
+     * The default payload size, which fits into a 1500 byte Ethernet frame.
+     */
+    public static final int DEFAULT_PAYLOAD_SIZE = 1432;
+
+    // the largest payload of a UDP datagram over IPv4
+    private static final int MAX_PAYLOAD_SIZE = 65507;
+    private static final int MAX_LONG_BYTES = 20;
 
     private static final Charset UTF_8 = Charset.forName("UTF-8");
 
     private final String hostname;
     private final int port;
+    private final ByteBuffer buffer;
+    private final byte[] scratch;
     private InetSocketAddress address;
 
     private DatagramChannel datagramChannel = null;
@@ -30,9 +44,19 @@ public class GraphiteUDP implements GraphiteSender {
      * @param port The port of the Carbon server
      */
     public GraphiteUDP(String hostname, int port) {
-        this.hostname = hostname;
-        this.port = port;
-        this.address = null;
+        this(hostname, port, DEFAULT_PAYLOAD_SIZE);
+    }
+
+    /**
+     * Creates a new client which sends data to given address using UDP, in datagrams of at most the
+     * given payload size
+     *
+     * @param hostname    The hostname of the Carbon server
+     * @param port        The port of the Carbon server
+     * @param payloadSize The most bytes of lines to send in a single datagram
+     */
+    public GraphiteUDP(String hostname, int port, int payloadSize) {
+        this(hostname, port, null, payloadSize);
     }
 
     /**
@@ -41,9 +65,30 @@ public class GraphiteUDP implements GraphiteSender {
      * @param address the address of the Carbon server
      */
     public GraphiteUDP(InetSocketAddress address) {
-        this.hostname = null;
-        this.port = -1;
+        this(address, DEFAULT_PAYLOAD_SIZE);
+    }
+
+    /**
+     * Creates a new client which sends data to given address using UDP, in datagrams of at most the
+     * given payload size
+     *
+     * @param address     the address of the Carbon server
+     * @param payloadSize The most bytes of lines to send in a single datagram
+     */
+    public GraphiteUDP(InetSocketAddress address, int payloadSize) {
+        this(null, -1, address, payloadSize);
+    }
+
+    private GraphiteUDP(String hostname, int port, InetSocketAddress address, int payloadSize) {
+        if (payloadSize <= MAX_LONG_BYTES + 1 || payloadSize > MAX_PAYLOAD_SIZE) {
+            throw new IllegalArgumentException("payloadSize must be between " + (MAX_LONG_BYTES + 2)
+                    + " and " + MAX_PAYLOAD_SIZE + " bytes");
+        }
+        this.hostname = hostname;
+        this.port = port;
         this.address = address;
+        this.buffer = ByteBuffer.allocateDirect(payloadSize);
+        this.scratch = new byte[MAX_LONG_BYTES];
     }
 
     @Override
@@ -67,7 +112,7 @@ public class GraphiteUDP implements GraphiteSender {
 
     @Override
     public boolean isConnected() {
-    		return datagramChannel != null && !datagramChannel.socket().isClosed();
+        return datagramChannel != null && !datagramChannel.socket().isClosed();
     }
 
     @Override
@@ -78,16 +123,21 @@ public class GraphiteUDP implements GraphiteSender {
         }
 
         try {
-            StringBuilder buf = new StringBuilder();
-            buf.append(sanitize(name));
-            buf.append(' ');
-            buf.append(sanitize(value));
-            buf.append(' ');
-            buf.append(Long.toString(timestamp));
-            buf.append('\n');
-            String str = buf.toString();
-            ByteBuffer byteBuffer = ByteBuffer.wrap(str.getBytes(UTF_8));
-            datagramChannel.send(byteBuffer, address);
+            final String sanitizedName = sanitize(name);
+            final String sanitizedValue = sanitize(value);
+            final int mark = buffer.position();
+            if (!GraphiteFormat.putLine(buffer, scratch, sanitizedName, sanitizedValue, timestamp)) {
+                buffer.position(mark);
+                if (mark > 0) {
+                    write();
+                }
+                if (!GraphiteFormat.putLine(buffer, scratch, sanitizedName, sanitizedValue, timestamp)) {
+                    // too long for a datagram of the payload size, so it goes out on its own
+                    buffer.clear();
+                    final String line = sanitizedName + ' ' + sanitizedValue + ' ' + timestamp + '\n';
+                    datagramChannel.send(ByteBuffer.wrap(line.getBytes(UTF_8)), address);
+                }
+            }
             this.failures = 0;
         } catch (IOException e) {
             failures++;
@@ -102,16 +152,41 @@ public class GraphiteUDP implements GraphiteSender {
 
     @Override
     public void flush() throws IOException {
-    	  // Nothing to do
+        if (buffer.position() > 0) {
+            if (!isConnected()) {
+                connect();
+            }
+            try {
+                write();
+                this.failures = 0;
+            } catch (IOException e) {
+                failures++;
+                throw e;
+            }
+        }
     }
 
     @Override
     public void close() throws IOException {
-        // Leave channel & socket open for next metrics
+        // Leave channel & socket open for next metrics, but don't keep lines back
+        flush();
     }
 
     protected String sanitize(String s) {
-        return WHITESPACE.matcher(s).replaceAll("-");
+        return GraphiteFormat.sanitize(s);
+    }
+
+    /*
+     * Sends the buffered lines as one datagram.
+     */
+    private void write() throws IOException {
+        buffer.flip();
+        try {
+            datagramChannel.send(buffer, address);
+        } finally {
+            // a datagram which couldn't be sent is lost rather than sent again with the next one
+            buffer.clear();
+        }
     }
 
 }
@@ -6,7 +6,6 @@ import org.slf4j.LoggerFactory;
 import javax.net.SocketFactory;
 
 import java.io.BufferedWriter;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
@@ -16,24 +15,32 @@ import java.net.Socket;
 import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.regex.Pattern;
 
 /**
  * A client to a Carbon server that sends all metrics after they have been pickled in configurable sized batches
+ * <p/>
+ * Metrics are pickled with protocol 2 as they are sent, straight into a buffer which is reused for every batch.
+ * Names are pickled as UTF-8 unicode strings, and values as floats where they are numbers.
  */
 public class PickledGraphite implements GraphiteSender {
 
-    private static final Pattern WHITESPACE = Pattern.compile("[\\s]+");
     private static final Charset UTF_8 = Charset.forName("UTF-8");
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PickledGraphite.class);
     private final static int DEFAULT_BATCH_SIZE = 100;
 
+    // the length of the header, the batch's opening opcodes, and its closing ones
+    private static final int HEADER_LENGTH = 4;
+    private static final int OPENING_LENGTH = 4;
+    private static final int CLOSING_LENGTH = 2;
+    // a rough estimate of the size of a pickled metric
+    private static final int METRIC_LENGTH = 64;
+
     private int batchSize;
-    // graphite expects a python-pickled list of nested tuples.
-    private List<MetricTuple> metrics = new LinkedList<MetricTuple>();
+    // graphite expects a python-pickled list of nested tuples, which is pickled into this buffer
+    // as the metrics are sent; it only grows, and is reused for every batch.
+    private ByteBuffer buffer;
+    private int pending;
 
     private final String hostname;
     private final int port;
@@ -101,6 +108,7 @@ public class PickledGraphite implements GraphiteSender {
         this.socketFactory = socketFactory;
         this.charset = charset;
         this.batchSize = batchSize;
+        this.buffer = newBuffer(batchSize);
     }
 
     /**
@@ -167,6 +175,11 @@ public class PickledGraphite implements GraphiteSender {
         this.socketFactory = socketFactory;
         this.charset = charset;
         this.batchSize = batchSize;
+        this.buffer = newBuffer(batchSize);
+    }
+
+    private static ByteBuffer newBuffer(int batchSize) {
+        return ByteBuffer.allocate(HEADER_LENGTH + OPENING_LENGTH + Math.max(batchSize, 1) * METRIC_LENGTH + CLOSING_LENGTH);
     }
 
     @Override
@@ -194,9 +207,9 @@ public class PickledGraphite implements GraphiteSender {
     /**
      * Convert the metric to a python tuple of the form:
      * <p/>
-     * (timestamp, (name, value))
+     * (name, (timestamp, value))
      * <p/>
-     * And add it to the list of metrics. If we reach the batch size, write them out.
+     * And pickle it into the current batch. If we reach the batch size, write them out.
      *
      * @param name
      *            the name of the metric
@@ -209,9 +222,14 @@ public class PickledGraphite implements GraphiteSender {
      */
     @Override
     public void send(String name, String value, long timestamp) throws IOException {
-        metrics.add(new MetricTuple(sanitize(name), timestamp, sanitize(value)));
+        if (pending == 0) {
+            buffer.position(HEADER_LENGTH);
+            buffer.put(PROTO).put(PROTOCOL).put(EMPTY_LIST).put(MARK);
+        }
+        putTuple(sanitize(name), timestamp, sanitize(value));
+        pending++;
 
-        if (metrics.size() >= batchSize) {
+        if (pending >= batchSize) {
             writeMetrics();
         }
     }
@@ -247,24 +265,23 @@ public class PickledGraphite implements GraphiteSender {
     }
 
     /**
-     * 1. Run the pickler script to package all the pending metrics into a single message
-     * 2. Send the message to graphite
-     * 3. Clear out the list of metrics
+     * 1. Close the list of the pending metrics and patch its length into the header
+     * 2. Send the batch to graphite
+     * 3. Start over with an empty buffer
      */
     private void writeMetrics() throws IOException {
-        if (!metrics.isEmpty()) {
+        if (pending > 0) {
             try {
-                byte[] payload = pickleMetrics(metrics);
-                byte[] header = ByteBuffer.allocate(4).putInt(payload.length).array();
+                buffer.put(APPENDS).put(STOP);
+                buffer.putInt(0, buffer.position() - HEADER_LENGTH);
 
                 @SuppressWarnings("resource")
                 OutputStream outputStream = socket.getOutputStream();
-                outputStream.write(header);
-                outputStream.write(payload);
+                outputStream.write(buffer.array(), buffer.arrayOffset(), buffer.position());
                 outputStream.flush();
 
                 if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("Wrote {} metrics", metrics.size());
+                    LOGGER.debug("Wrote {} metrics", pending);
                 }
             } catch (IOException e) {
                 this.failures++;
@@ -272,95 +289,124 @@ public class PickledGraphite implements GraphiteSender {
             } finally {
                 // if there was an error, we might miss some data. for now, drop those on the floor and
                 // try to keep going.
-                metrics.clear();
+                buffer.clear();
+                pending = 0;
             }
-
         }
     }
 
     /**
-     * Minimally necessary pickle opcodes.
+     * Minimally necessary pickle opcodes of protocol 2.
      */
-    private final char
+    private static final byte
+            PROTO = (byte) 0x80,
+            PROTOCOL = 2,
+            EMPTY_LIST = ']',
             MARK = '(',
-            STOP = '.',
-            LONG = 'L',
-            STRING = 'S',
-            APPEND = 'a',
-            LIST = 'l',
-            TUPLE = 't',
-            QUOTE = '\'',
-            LF = '\n';
+            BINUNICODE = 'X',
+            BININT = 'J',
+            LONG1 = (byte) 0x8a,
+            BINFLOAT = 'G',
+            TUPLE2 = (byte) 0x86,
+            APPENDS = 'e',
+            STOP = '.';
 
     /**
      * See: http://readthedocs.org/docs/graphite/en/1.0/feeding-carbon.html
-     *
-     * @throws IOException
      */
-    byte[] pickleMetrics(List<MetricTuple> metrics) throws IOException {
-        ByteArrayOutputStream out = new ByteArrayOutputStream(metrics.size() * 75); // Extremely rough estimate of 75 bytes per message
-        Writer pickled = new OutputStreamWriter(out, charset);
-
-        pickled.append(MARK);
-        pickled.append(LIST);
-
-        for (MetricTuple tuple : metrics) {
-            // start the outer tuple
-            pickled.append(MARK);
-
-            // the metric name is a string.
-            pickled.append(STRING);
-            // the single quotes are to match python's repr("abcd")
-            pickled.append(QUOTE);
-            pickled.append(tuple.name);
-            pickled.append(QUOTE);
-            pickled.append(LF);
-
-            // start the inner tuple
-            pickled.append(MARK);
-
-            // timestamp is a long
-            pickled.append(LONG);
-            pickled.append(Long.toString(tuple.timestamp));
-            // the trailing L is to match python's repr(long(1234))
-            pickled.append(LONG);
-            pickled.append(LF);
-
-            // and the value is a string.
-            pickled.append(STRING);
-            pickled.append(QUOTE);
-            pickled.append(tuple.value);
-            pickled.append(QUOTE);
-            pickled.append(LF);
-
-            pickled.append(TUPLE); // inner close
-            pickled.append(TUPLE); // outer close
-
-            pickled.append(APPEND);
+    private void putTuple(String name, long timestamp, String value) {
+        putUnicode(name);
+
+        // the inner tuple of the timestamp and the value
+        ensureRemaining(1 + 1 + 8);
+        if (timestamp == (int) timestamp) {
+            buffer.put(BININT).putInt(Integer.reverseBytes((int) timestamp));
+        } else {
+            buffer.put(LONG1).put((byte) 8).putLong(Long.reverseBytes(timestamp));
+        }
+        final double number = parse(value);
+        if (number == number || "NaN".equals(value)) {
+            ensureRemaining(1 + 8);
+            buffer.put(BINFLOAT).putLong(Double.doubleToRawLongBits(number));
+        } else {
+            putUnicode(value);
         }
 
-        // every pickle ends with STOP
-        pickled.append(STOP);
-
-        pickled.flush();
+        ensureRemaining(2);
+        buffer.put(TUPLE2); // inner close
+        buffer.put(TUPLE2); // outer close
+    }
 
-        return out.toByteArray();
+    /**
+     * Parses the value as a number, or returns NaN if it is none.
+     */
+    private static double parse(String value) {
+        if (value.isEmpty()) {
+            return Double.NaN;
+        }
+        final char first = value.charAt(0);
+        if ((first < '0' || first > '9') && first != '-' && first != '+' && first != '.'
+                && first != 'N' && first != 'I') {
+            // not a number, which is cheaper to tell than to catch the exception
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
     }
 
-    static class MetricTuple {
-        String name;
-        long timestamp;
-        String value;
+    /**
+     * Pickles the string as BINUNICODE: its length as a little-endian int, and its UTF-8 bytes.
+     */
+    private void putUnicode(String s) {
+        final int length = s.length();
+        ensureRemaining(1 + 4 + length * 3);
+        buffer.put(BINUNICODE);
+        final int lengthPosition = buffer.position();
+        buffer.position(lengthPosition + 4);
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xc0 | c >> 6));
+                buffer.put((byte) (0x80 | c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                // a pair of chars takes four bytes, no more than the six they are budgeted
+                final int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                buffer.put((byte) (0xf0 | codePoint >> 18));
+                buffer.put((byte) (0x80 | codePoint >> 12 & 0x3f));
+                buffer.put((byte) (0x80 | codePoint >> 6 & 0x3f));
+                buffer.put((byte) (0x80 | codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // an unpaired surrogate, which the UTF-8 encoder replaces as well
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xe0 | c >> 12));
+                buffer.put((byte) (0x80 | c >> 6 & 0x3f));
+                buffer.put((byte) (0x80 | c & 0x3f));
+            }
+        }
+        buffer.putInt(lengthPosition, Integer.reverseBytes(buffer.position() - lengthPosition - 4));
+    }
 
-        MetricTuple(String name, long timestamp, String value) {
-            this.name = name;
-            this.timestamp = timestamp;
-            this.value = value;
+    /**
+     * Grows the buffer if it has less room than the given number of bytes, and the closing opcodes.
+     */
+    private void ensureRemaining(int bytes) {
+        if (buffer.remaining() < bytes + CLOSING_LENGTH) {
+            final ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2,
+                    buffer.position() + bytes + CLOSING_LENGTH));
+            buffer.flip();
+            grown.put(buffer);
+            this.buffer = grown;
         }
     }
 
     protected String sanitize(String s) {
-        return WHITESPACE.matcher(s).replaceAll("-");
+        return GraphiteFormat.sanitize(s);
     }
 
 }
@@ -0,0 +1,76 @@
+package io.dropwizard.metrics.graphite;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GraphiteFormatTest {
+    @Test
+    public void formatsDoublesLikeTheFormatter() throws Exception {
+        final double[] values = {0, -0.0, 1, 0.125, -0.001, 1.5, 99.999, 123456.789, -42.42,
+                1e12, 1e20, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (double v : values) {
+            assertThat(GraphiteFormat.format(v))
+                    .isEqualTo(String.format(Locale.US, "%2.2f", v));
+        }
+    }
+
+    @Test
+    public void formatsRandomDoublesLikeTheFormatter() throws Exception {
+        final Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            // three decimals at most, so that none lies halfway between two hundredths
+            final double v = (random.nextInt(2000000) - 1000000) / 1000.0 + 0.0001;
+            assertThat(GraphiteFormat.format(v))
+                    .isEqualTo(String.format(Locale.US, "%2.2f", v));
+        }
+    }
+
+    @Test
+    public void sanitizesRunsOfWhitespace() throws Exception {
+        final String clean = "name.without.whitespace";
+
+        assertThat(GraphiteFormat.sanitize(clean))
+                .isSameAs(clean);
+        assertThat(GraphiteFormat.sanitize(" name \t\r\nwith\u000b\fwhitespace  "))
+                .isEqualTo("-name-with-whitespace-");
+    }
+
+    @Test
+    public void putsLongsAsAsciiDigits() throws Exception {
+        final long[] values = {0, 7, -7, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE};
+        final ByteBuffer buffer = ByteBuffer.allocate(32);
+        final byte[] scratch = new byte[20];
+        for (long n : values) {
+            buffer.clear();
+            GraphiteFormat.put(buffer, scratch, n);
+            assertThat(new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII))
+                    .isEqualTo(Long.toString(n));
+            assertThat(GraphiteFormat.length(n))
+                    .isEqualTo(buffer.position());
+        }
+    }
+
+    @Test
+    public void continuesStringsWhichDidNotFit() throws Exception {
+        final String s = "caf\u00e9  au\tlait \ud83d\ude00";
+        final ByteBuffer buffer = ByteBuffer.allocate(5);
+        final StringBuilder encoded = new StringBuilder();
+        int i = 0;
+        while (true) {
+            buffer.clear();
+            i = GraphiteFormat.put(buffer, s, i);
+            encoded.append(new String(buffer.array(), 0, buffer.position(), StandardCharsets.ISO_8859_1));
+            if (i == s.length()) {
+                break;
+            }
+        }
+        assertThat(new String(encoded.toString().getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8))
+                .isEqualTo("caf\u00e9-au-lait-\ud83d\ude00");
+    }
+}
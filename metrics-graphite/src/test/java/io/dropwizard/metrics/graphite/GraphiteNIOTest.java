@@ -0,0 +1,139 @@
+package io.dropwizard.metrics.graphite;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Fail.failBecauseExceptionWasNotThrown;
+
+public class GraphiteNIOTest {
+    private ServerSocket server;
+    private InetSocketAddress address;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void sendsSanitizedLines() throws Exception {
+        // small enough that the lines span several writes
+        final GraphiteNIO graphite = new GraphiteNIO(address, 32, 1, 1, TimeUnit.SECONDS);
+        graphite.connect();
+        final Socket socket = server.accept();
+
+        graphite.send("name with  spaces", "1.00", 100);
+        graphite.send("caf\u00e9.\ud83d\ude00", "-2", -1);
+        graphite.close();
+
+        assertThat(readAll(socket))
+                .isEqualTo("name-with-spaces 1.00 100\ncaf\u00e9.\ud83d\ude00 -2 -1\n");
+        assertThat(graphite.isConnected())
+                .isFalse();
+        assertThat(graphite.getFailures())
+                .isZero();
+        socket.close();
+    }
+
+    @Test
+    public void givesUpOnAServerWhichStopsReading() throws Exception {
+        final GraphiteNIO graphite = new GraphiteNIO(address, 64 * 1024, 1, 100, TimeUnit.MILLISECONDS);
+        graphite.connect();
+        final Socket socket = server.accept();
+
+        try {
+            // fills the socket buffers of both ends
+            for (int i = 0; i < 10000000; i++) {
+                graphite.send("a.rather.long.metric.name.to.fill.the.buffers.quickly", "1.00", i);
+            }
+            failBecauseExceptionWasNotThrown(SocketTimeoutException.class);
+        } catch (SocketTimeoutException e) {
+            assertThat(graphite.getFailures())
+                    .isEqualTo(1);
+        } finally {
+            graphite.close();
+            socket.close();
+        }
+    }
+
+    @Test
+    public void closesTheConnectionWhenAWriteFails() throws Exception {
+        // small enough that lines span writes, so the failed one may leave part of a line behind
+        final GraphiteNIO graphite = new GraphiteNIO(address, 32, 1, 100, TimeUnit.MILLISECONDS);
+        graphite.connect();
+        final Socket stalled = server.accept();
+
+        try {
+            for (int i = 0; i < 10000000; i++) {
+                graphite.send("a.rather.long.metric.name.to.fill.the.buffers.quickly", "1.00", i);
+            }
+            failBecauseExceptionWasNotThrown(SocketTimeoutException.class);
+        } catch (SocketTimeoutException e) {
+            assertThat(graphite.isConnected())
+                    .isFalse();
+        }
+
+        try {
+            graphite.send("after.failure", "1", 100);
+            failBecauseExceptionWasNotThrown(IOException.class);
+        } catch (IOException e) {
+            assertThat(e.getMessage())
+                    .isEqualTo("Not connected");
+        }
+
+        // the server sees the end of the stream rather than the next line
+        readAll(stalled);
+        stalled.close();
+
+        graphite.connect();
+        final Socket socket = server.accept();
+        graphite.send("after.reconnect", "1", 100);
+        graphite.close();
+
+        assertThat(readAll(socket))
+                .isEqualTo("after.reconnect 1 100\n");
+        assertThat(graphite.getFailures())
+                .isZero();
+        socket.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void doesNotConnectTwice() throws Exception {
+        final GraphiteNIO graphite = new GraphiteNIO(address);
+        graphite.connect();
+        try {
+            graphite.connect();
+        } finally {
+            graphite.close();
+        }
+    }
+
+    private static String readAll(Socket socket) throws Exception {
+        final InputStream input = socket.getInputStream();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final byte[] bytes = new byte[1024];
+        int n;
+        while ((n = input.read(bytes)) >= 0) {
+            output.write(bytes, 0, n);
+        }
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
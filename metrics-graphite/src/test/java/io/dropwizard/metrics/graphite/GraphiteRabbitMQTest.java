@@ -2,12 +2,18 @@ package io.dropwizard.metrics.graphite;
 
 import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
+import io.dropwizard.metrics.Gauge;
+import io.dropwizard.metrics.Meter;
+import io.dropwizard.metrics.MetricName;
+import io.dropwizard.metrics.Timer;
 import io.dropwizard.metrics.graphite.GraphiteRabbitMQ;
 
 import java.io.IOException;
@@ -110,6 +116,97 @@ public class GraphiteRabbitMQTest
         assertThat(graphite.getFailures()).isZero();
     }
 
+    @Test
+    public void shouldBatchMetricsIntoMessagesOfTheBatchSize() throws Exception {
+        final GraphiteRabbitMQ graphite = new GraphiteRabbitMQ(connectionFactory, "graphite", "carbon", 64, false);
+        graphite.connect();
+
+        for (int i = 0; i < 5; i++) {
+            graphite.send("name to sanitize." + i, "1.00", 100 + i);
+        }
+
+        verify(channel).basicPublish("graphite", "carbon", null,
+                "name-to-sanitize.0 1.00 100\nname-to-sanitize.1 1.00 101\n".getBytes(UTF_8));
+        verify(channel).basicPublish("graphite", "carbon", null,
+                "name-to-sanitize.2 1.00 102\nname-to-sanitize.3 1.00 103\n".getBytes(UTF_8));
+        verifyNoMoreInteractions(channel);
+
+        graphite.flush();
+
+        verify(channel).basicPublish("graphite", "carbon", null,
+                "name-to-sanitize.4 1.00 104\n".getBytes(UTF_8));
+        assertThat(graphite.getFailures()).isZero();
+        assertThat(((Timer) graphite.getMetrics().get(MetricName.build("latency"))).getCount())
+                .isEqualTo(3);
+    }
+
+    @Test
+    public void shouldPublishMetricsLongerThanTheBatchSizeOnTheirOwn() throws Exception {
+        final GraphiteRabbitMQ graphite = new GraphiteRabbitMQ(connectionFactory, "graphite", "carbon", 32, false);
+        graphite.connect();
+
+        graphite.send("short", "1", 100);
+        graphite.send("a.rather.long.metric.name.which.does.not.fit", "1", 100);
+        graphite.close();
+
+        verify(channel).basicPublish("graphite", "carbon", null, "short 1 100\n".getBytes(UTF_8));
+        verify(channel).basicPublish("graphite", "carbon", null,
+                "a.rather.long.metric.name.which.does.not.fit 1 100\n".getBytes(UTF_8));
+        verify(connection).close();
+    }
+
+    @Test
+    public void shouldSanitizeBatchedMetricsWithTheOverriddenSanitizer() throws Exception {
+        final GraphiteRabbitMQ graphite = new GraphiteRabbitMQ(connectionFactory, "graphite", "carbon", 32, false) {
+            @Override
+            public String sanitize(String s) {
+                return s.replace(' ', '_');
+            }
+        };
+        graphite.connect();
+
+        graphite.send("name with spaces", "1", 100);
+        graphite.send("a longer name with spaces which does not fit", "2", 100);
+        graphite.close();
+
+        verify(channel).basicPublish("graphite", "carbon", null, "name_with_spaces 1 100\n".getBytes(UTF_8));
+        verify(channel).basicPublish("graphite", "carbon", null,
+                "a_longer_name_with_spaces_which_does_not_fit 2 100\n".getBytes(UTF_8));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldSettlePublisherConfirmsWithoutWaiting() throws Exception {
+        when(channel.getNextPublishSeqNo()).thenReturn(1L, 2L, 3L);
+        final GraphiteRabbitMQ graphite = new GraphiteRabbitMQ(connectionFactory, "graphite", "carbon", 1024, true);
+        graphite.connect();
+
+        final ArgumentCaptor<ConfirmListener> listener = ArgumentCaptor.forClass(ConfirmListener.class);
+        verify(channel).addConfirmListener(listener.capture());
+        verify(channel).confirmSelect();
+
+        for (int i = 0; i < 3; i++) {
+            graphite.send("name", "value", 100 + i);
+            graphite.flush();
+        }
+
+        final Gauge<Integer> backlog = (Gauge<Integer>) graphite.getMetrics().get(MetricName.build("backlog"));
+        final Timer latency = (Timer) graphite.getMetrics().get(MetricName.build("latency"));
+        final Meter nacks = (Meter) graphite.getMetrics().get(MetricName.build("nacks"));
+        assertThat(backlog.getValue()).isEqualTo(3);
+
+        listener.getValue().handleAck(2, true);
+
+        assertThat(backlog.getValue()).isEqualTo(1);
+        assertThat(latency.getCount()).isEqualTo(2);
+
+        listener.getValue().handleNack(3, false);
+
+        assertThat(backlog.getValue()).isZero();
+        assertThat(latency.getCount()).isEqualTo(2);
+        assertThat(nacks.getCount()).isEqualTo(1);
+    }
+
     @Test
     public void shouldFailWhenGraphiteHostUnavailable() throws Exception {
         ConnectionFactory connectionFactory = new ConnectionFactory();
@@ -12,15 +12,19 @@ import io.dropwizard.metrics.Timer;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 
 import io.dropwizard.metrics.*;
 
 import java.net.UnknownHostException;
+import java.util.Collections;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 
 public class GraphiteReporterTest {
@@ -190,12 +194,8 @@ public class GraphiteReporterTest {
         when(snapshot.getMean()).thenReturn(3.0);
         when(snapshot.getMin()).thenReturn(4L);
         when(snapshot.getStdDev()).thenReturn(5.0);
-        when(snapshot.getMedian()).thenReturn(6.0);
-        when(snapshot.get75thPercentile()).thenReturn(7.0);
-        when(snapshot.get95thPercentile()).thenReturn(8.0);
-        when(snapshot.get98thPercentile()).thenReturn(9.0);
-        when(snapshot.get99thPercentile()).thenReturn(10.0);
-        when(snapshot.get999thPercentile()).thenReturn(11.0);
+        when(snapshot.getValues(new double[]{0.5, 0.75, 0.95, 0.98, 0.99, 0.999}))
+                .thenReturn(new double[]{6.0, 7.0, 8.0, 9.0, 10.0, 11.0});
 
         when(histogram.getSnapshot()).thenReturn(snapshot);
 
@@ -266,13 +266,15 @@ public class GraphiteReporterTest {
         when(snapshot.getMean()).thenReturn((double) TimeUnit.MILLISECONDS.toNanos(200));
         when(snapshot.getMin()).thenReturn(TimeUnit.MILLISECONDS.toNanos(300));
         when(snapshot.getStdDev()).thenReturn((double) TimeUnit.MILLISECONDS.toNanos(400));
-        when(snapshot.getMedian()).thenReturn((double) TimeUnit.MILLISECONDS.toNanos(500));
-        when(snapshot.get75thPercentile()).thenReturn((double) TimeUnit.MILLISECONDS.toNanos(600));
-        when(snapshot.get95thPercentile()).thenReturn((double) TimeUnit.MILLISECONDS.toNanos(700));
-        when(snapshot.get98thPercentile()).thenReturn((double) TimeUnit.MILLISECONDS.toNanos(800));
-        when(snapshot.get99thPercentile()).thenReturn((double) TimeUnit.MILLISECONDS.toNanos(900));
-        when(snapshot.get999thPercentile()).thenReturn((double) TimeUnit.MILLISECONDS
-                                                                        .toNanos(1000));
+        when(snapshot.getValues(new double[]{0.5, 0.75, 0.95, 0.98, 0.99, 0.999}))
+                .thenReturn(new double[]{
+                        TimeUnit.MILLISECONDS.toNanos(500),
+                        TimeUnit.MILLISECONDS.toNanos(600),
+                        TimeUnit.MILLISECONDS.toNanos(700),
+                        TimeUnit.MILLISECONDS.toNanos(800),
+                        TimeUnit.MILLISECONDS.toNanos(900),
+                        TimeUnit.MILLISECONDS.toNanos(1000)
+                });
 
         when(timer.getSnapshot()).thenReturn(snapshot);
 
@@ -350,6 +352,97 @@ public class GraphiteReporterTest {
         verifyNoMoreInteractions(graphite);
     }
 
+    @Test
+    public void cachesNamesUntilTheMetricIsRemoved() throws Exception {
+        reporter.start(1, TimeUnit.HOURS);
+        final ArgumentCaptor<MetricRegistryListener> listener = ArgumentCaptor.forClass(MetricRegistryListener.class);
+        verify(registry).addListener(listener.capture());
+        final Counter counter = registered("counter");
+
+        reporter.report(this.<Gauge>map(), map("counter", counter), this.<Histogram>map(),
+                        this.<Meter>map(), this.<Timer>map());
+        reporter.report(this.<Gauge>map(), map("counter", counter), this.<Histogram>map(),
+                        this.<Meter>map(), this.<Timer>map());
+        listener.getValue().onCounterRemoved(MetricName.build("counter"));
+        reporter.report(this.<Gauge>map(), map("counter", counter), this.<Histogram>map(),
+                        this.<Meter>map(), this.<Timer>map());
+
+        final ArgumentCaptor<String> names = ArgumentCaptor.forClass(String.class);
+        verify(graphite, times(3)).send(names.capture(), eq("100"), eq(timestamp));
+        assertThat(names.getAllValues().get(0))
+                .isEqualTo("prefix.counter.count");
+        assertThat(names.getAllValues().get(1))
+                .isSameAs(names.getAllValues().get(0));
+        assertThat(names.getAllValues().get(2))
+                .isEqualTo("prefix.counter.count")
+                .isNotSameAs(names.getAllValues().get(0));
+        reporter.stop();
+    }
+
+    @Test
+    public void doesNotListenOrCacheNamesUntilStarted() throws Exception {
+        final Counter counter = registered("counter");
+
+        reporter.report(this.<Gauge>map(), map("counter", counter), this.<Histogram>map(),
+                        this.<Meter>map(), this.<Timer>map());
+        reporter.report(this.<Gauge>map(), map("counter", counter), this.<Histogram>map(),
+                        this.<Meter>map(), this.<Timer>map());
+
+        verify(registry, never()).addListener(any(MetricRegistryListener.class));
+        final ArgumentCaptor<String> names = ArgumentCaptor.forClass(String.class);
+        verify(graphite, times(2)).send(names.capture(), eq("100"), eq(timestamp));
+        assertThat(names.getAllValues().get(1))
+                .isEqualTo("prefix.counter.count")
+                .isNotSameAs(names.getAllValues().get(0));
+    }
+
+    @Test
+    public void doesNotCacheNamesOfMetricsOutsideTheRegistry() throws Exception {
+        final Counter counter = registered("counter");
+        reporter.start(1, TimeUnit.HOURS);
+
+        reporter.report(this.<Gauge>map(), map("other", counter), this.<Histogram>map(),
+                        this.<Meter>map(), this.<Timer>map());
+        reporter.report(this.<Gauge>map(), map("other", counter), this.<Histogram>map(),
+                        this.<Meter>map(), this.<Timer>map());
+
+        final ArgumentCaptor<String> names = ArgumentCaptor.forClass(String.class);
+        verify(graphite, times(2)).send(names.capture(), eq("100"), eq(timestamp));
+        assertThat(names.getAllValues().get(1))
+                .isEqualTo("prefix.other.count")
+                .isNotSameAs(names.getAllValues().get(0));
+        reporter.stop();
+    }
+
+    @Test
+    public void doesNotCacheNamesOnceStopped() throws Exception {
+        final Counter counter = registered("counter");
+
+        reporter.start(1, TimeUnit.HOURS);
+        reporter.stop();
+        reporter.report(this.<Gauge>map(), map("counter", counter), this.<Histogram>map(),
+                        this.<Meter>map(), this.<Timer>map());
+        reporter.report(this.<Gauge>map(), map("counter", counter), this.<Histogram>map(),
+                        this.<Meter>map(), this.<Timer>map());
+
+        final ArgumentCaptor<String> names = ArgumentCaptor.forClass(String.class);
+        verify(graphite, times(2)).send(names.capture(), eq("100"), eq(timestamp));
+        assertThat(names.getAllValues().get(1))
+                .isEqualTo("prefix.counter.count")
+                .isNotSameAs(names.getAllValues().get(0));
+    }
+
+    @Test
+    public void stopsListeningOnReporterStop() throws Exception {
+        reporter.start(1, TimeUnit.HOURS);
+        final ArgumentCaptor<MetricRegistryListener> listener = ArgumentCaptor.forClass(MetricRegistryListener.class);
+        verify(registry).addListener(listener.capture());
+
+        reporter.stop();
+
+        verify(registry).removeListener(listener.getValue());
+    }
+
     private <T> SortedMap<MetricName, T> map() {
         return new TreeMap<MetricName, T>();
     }
@@ -360,6 +453,14 @@ public class GraphiteReporterTest {
         return map;
     }
 
+    private Counter registered(String name) {
+        final Counter counter = mock(Counter.class);
+        when(counter.getCount()).thenReturn(100L);
+        when(registry.getMetrics())
+                .thenReturn(Collections.<MetricName, Metric>singletonMap(MetricName.build(name), counter));
+        return counter;
+    }
+
     private <T> Gauge gauge(T value) {
         final Gauge gauge = mock(Gauge.class);
         when(gauge.getValue()).thenReturn(value);
@@ -0,0 +1,111 @@
+package io.dropwizard.metrics.graphite;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GraphiteUDPTest {
+    private DatagramChannel server;
+    private InetSocketAddress address;
+
+    @Before
+    public void setUp() throws Exception {
+        server = DatagramChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.socket().getLocalPort());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test(timeout = 5000)
+    public void packsLinesIntoDatagramsOfThePayloadSize() throws Exception {
+        final GraphiteUDP graphite = new GraphiteUDP(address, 64);
+        graphite.connect();
+
+        for (int i = 0; i < 5; i++) {
+            graphite.send("name with  spaces." + i, "1.00", 100 + i);
+        }
+
+        // two lines to a datagram, rather than one each
+        assertThat(receive(2))
+                .containsExactly("name-with-spaces.0 1.00 100\nname-with-spaces.1 1.00 101\n",
+                        "name-with-spaces.2 1.00 102\nname-with-spaces.3 1.00 103\n");
+
+        server.configureBlocking(false);
+        assertThat(server.receive(ByteBuffer.allocate(64)))
+                .isNull();
+        server.configureBlocking(true);
+
+        graphite.flush();
+
+        assertThat(receive(1))
+                .containsExactly("name-with-spaces.4 1.00 104\n");
+        assertThat(graphite.getFailures())
+                .isZero();
+    }
+
+    @Test(timeout = 5000)
+    public void sendsALineLongerThanThePayloadOnItsOwn() throws Exception {
+        final GraphiteUDP graphite = new GraphiteUDP(address, 32);
+        graphite.connect();
+
+        graphite.send("short", "1", 100);
+        graphite.send("a.rather.long.metric.name.which.does.not.fit", "caf\u00e9", 100);
+        graphite.send("short", "2", 100);
+        graphite.close();
+
+        assertThat(receive(3))
+                .containsExactly("short 1 100\n",
+                        "a.rather.long.metric.name.which.does.not.fit caf\u00e9 100\n",
+                        "short 2 100\n");
+    }
+
+    @Test(timeout = 5000)
+    public void sanitizesLinesWithTheOverriddenSanitizer() throws Exception {
+        final GraphiteUDP graphite = new GraphiteUDP(address, 32) {
+            @Override
+            protected String sanitize(String s) {
+                return s.replace(' ', '_');
+            }
+        };
+        graphite.connect();
+
+        graphite.send("name with spaces", "1", 100);
+        graphite.send("a longer name with spaces which does not fit", "2", 100);
+        graphite.close();
+
+        assertThat(receive(2))
+                .containsExactly("name_with_spaces 1 100\n",
+                        "a_longer_name_with_spaces_which_does_not_fit 2 100\n");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPayloadsLargerThanADatagram() throws Exception {
+        new GraphiteUDP(address, 65508);
+    }
+
+    private List<String> receive(int count) throws Exception {
+        final List<String> datagrams = new ArrayList<String>();
+        final ByteBuffer buffer = ByteBuffer.allocate(65536);
+        for (int i = 0; i < count; i++) {
+            buffer.clear();
+            server.receive(buffer);
+            buffer.flip();
+            datagrams.add(StandardCharsets.UTF_8.decode(buffer).toString());
+        }
+        return datagrams;
+    }
+}
@@ -158,6 +158,45 @@ public class PickledGraphiteTest {
             .isEqualTo("name value-woo 100\n");
     }
 
+    @Test
+    public void picklesNumbersAsFloats() throws Exception {
+        graphite.connect();
+        graphite.send("name", "1.50", 100);
+        graphite.send("name", "-2", 100);
+        graphite.close();
+
+        assertThat(unpickleOutput())
+            .isEqualTo("name 1.5 100\nname -2.0 100\n");
+    }
+
+    @Test
+    public void picklesUnicodeNamesAndLongTimestamps() throws Exception {
+        graphite.connect();
+        graphite.send("caf\u00e9.\u20ac", "value", 4102444800L);
+        graphite.close();
+
+        assertThat(unpickleOutput())
+            .isEqualTo("caf\u00e9.\u20ac value 4102444800\n");
+    }
+
+    @Test
+    public void growsTheBufferForLargeMetrics() throws Exception {
+        final StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            name.append("segment.");
+        }
+        name.append("name");
+
+        graphite.connect();
+        graphite.send(name.toString(), "value", 100);
+        graphite.send(name.toString(), "value2", 100);
+        graphite.send("name", "value3", 100);
+        graphite.close();
+
+        assertThat(unpickleOutput())
+            .isEqualTo(name + " value 100\n" + name + " value2 100\nname value3 100\n");
+    }
+
     @Test
     public void doesNotAllowDoubleConnections() throws Exception {
         graphite.connect();
@@ -173,9 +212,8 @@ public class PickledGraphiteTest {
     String unpickleOutput() throws Exception {
         StringBuilder results = new StringBuilder();
 
-        // the charset is important. if the GraphitePickleReporter and this test
-        // don't agree, the header is not always correctly unpacked.
-        String payload = output.toString("UTF-8");
+        // the pickles are binary, so each byte has to become one char of the script's payload
+        String payload = output.toString("ISO-8859-1");
 
         PyList result = new PyList();
         int nextIndex = 0;
@@ -40,11 +40,12 @@ public class InstrumentedHttpRequestExecutor extends HttpRequestExecutor {
 
     @Override
     public HttpResponse execute(HttpRequest request, HttpClientConnection conn, HttpContext context) throws HttpException, IOException {
-        final Timer.Context timerContext = timer(request).time();
+        final Timer timer = timer(request);
+        final long start = timer.start();
         try {
             return super.execute(request, conn, context);
         } finally {
-            timerContext.stop();
+            timer.stop(start);
         }
     }
 
@@ -11,6 +11,7 @@ import org.eclipse.jetty.server.handler.HandlerWrapper;
 
 import io.dropwizard.metrics.Counter;
 import io.dropwizard.metrics.Meter;
+import io.dropwizard.metrics.MetricFamily;
 import io.dropwizard.metrics.MetricName;
 import io.dropwizard.metrics.MetricRegistry;
 import io.dropwizard.metrics.RatioGauge;
@@ -30,10 +31,15 @@ import java.util.concurrent.TimeUnit;
  * instance.
  */
 public class InstrumentedHandler extends HandlerWrapper {
+    private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+    private static final String OTHER = "other";
+    private static final String OTHER_METHOD = "OTHER";
+
     private final MetricRegistry metricRegistry;
 
     private String name;
     private final String prefix;
+    private boolean taggedMetrics;
 
     // the requests handled by this handler, excluding active
     private Timer requests;
@@ -69,6 +75,9 @@ public class InstrumentedHandler extends HandlerWrapper {
     private Timer moveRequests;
     private Timer otherRequests;
 
+    // the requests handled by this handler, tagged by method and status class
+    private MetricFamily<Timer> taggedRequests;
+
     private AsyncListener listener;
 
     /**
@@ -101,6 +110,21 @@ public class InstrumentedHandler extends HandlerWrapper {
         this.name = name;
     }
 
+    public boolean isTaggedMetrics() {
+        return taggedMetrics;
+    }
+
+    /**
+     * Also time requests with {@code requests} timers tagged with the request's {@code method}
+     * and the response's {@code status} class, such as {@code 2xx}. Methods Jetty doesn't know
+     * are tagged {@code OTHER}, so that the number of timers stays bounded.
+     *
+     * @param taggedMetrics whether to record tagged request timers
+     */
+    public void setTaggedMetrics(boolean taggedMetrics) {
+        this.taggedMetrics = taggedMetrics;
+    }
+
     @Override
     protected void doStart() throws Exception {
         super.doStart();
@@ -136,6 +160,10 @@ public class InstrumentedHandler extends HandlerWrapper {
         this.moveRequests = metricRegistry.timer(prefix.resolve("move-requests"));
         this.otherRequests = metricRegistry.timer(prefix.resolve("other-requests"));
 
+        if (taggedMetrics) {
+            this.taggedRequests = metricRegistry.timerFamily(prefix.resolve("requests"), "method", "status");
+        }
+
         metricRegistry.register(prefix.resolve("percent-4xx-1m"), new RatioGauge() {
             @Override
             protected Ratio getRatio() {
@@ -299,5 +327,11 @@ public class InstrumentedHandler extends HandlerWrapper {
         final long elapsedTime = System.currentTimeMillis() - start;
         requests.update(elapsedTime, TimeUnit.MILLISECONDS);
         requestTimer(request.getMethod()).update(elapsedTime, TimeUnit.MILLISECONDS);
+        if (taggedRequests != null) {
+            final HttpMethod method = HttpMethod.fromString(request.getMethod());
+            taggedRequests.get(method == null ? OTHER_METHOD : method.asString(),
+                    responseStatus >= 1 && responseStatus <= 5 ? STATUS_CLASSES[responseStatus - 1] : OTHER)
+                    .update(elapsedTime, TimeUnit.MILLISECONDS);
+        }
     }
 }
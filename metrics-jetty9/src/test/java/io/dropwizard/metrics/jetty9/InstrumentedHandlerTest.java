@@ -85,4 +85,37 @@ public class InstrumentedHandlerTest {
                         prefix.resolve("move-requests")
                 );
     }
+
+    @Test
+    public void timesRequestsTaggedByMethodAndStatusClass() throws Exception {
+        final MetricRegistry registry = new MetricRegistry();
+        final InstrumentedHandler handler = new InstrumentedHandler(registry);
+        handler.setName("tagged");
+        handler.setTaggedMetrics(true);
+        handler.setHandler(new DefaultHandler());
+        final Server server = new Server();
+        final ServerConnector connector = new ServerConnector(server);
+        server.addConnector(connector);
+        server.setHandler(handler);
+        server.start();
+        try {
+            final String uri = "http://localhost:" + connector.getLocalPort() + "/hello";
+            client.GET(uri);
+            client.GET(uri);
+
+            final MetricName requests = MetricName.build("org.eclipse.jetty.server.handler.DefaultHandler.tagged")
+                    .resolve("requests").tagged("method", "GET", "status", "4xx");
+            assertThat(registry.getTimers().get(requests).getCount())
+                    .isEqualTo(2);
+
+            // a removed timer is registered again rather than updated behind the registry's back
+            registry.remove(requests);
+            client.GET(uri);
+
+            assertThat(registry.getTimers().get(requests).getCount())
+                    .isEqualTo(1);
+        } finally {
+            server.stop();
+        }
+    }
 }
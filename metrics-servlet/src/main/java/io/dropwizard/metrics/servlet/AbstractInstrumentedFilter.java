@@ -4,18 +4,24 @@ import static io.dropwizard.metrics.MetricRegistry.name;
 
 import io.dropwizard.metrics.Counter;
 import io.dropwizard.metrics.Meter;
+import io.dropwizard.metrics.MetricFamily;
 import io.dropwizard.metrics.MetricRegistry;
 import io.dropwizard.metrics.Timer;
 
 import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@link Filter} implementation which captures request information and a breakdown of the response
@@ -23,6 +29,13 @@ import java.util.concurrent.ConcurrentMap;
  */
 public abstract class AbstractInstrumentedFilter implements Filter {
     static final String METRIC_PREFIX = "name-prefix";
+    static final String TAGGED_METRICS = "tagged-metrics";
+
+    private static final Set<String> METHODS = new HashSet<String>(Arrays.asList(
+            "GET", "POST", "PUT", "DELETE", "HEAD", "OPTIONS", "TRACE", "PATCH", "CONNECT"));
+    private static final String OTHER = "other";
+    private static final String OTHER_METHOD = "OTHER";
+    private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
 
     private final String otherMetricName;
     private final Map<Integer, String> meterNamesByStatusCode;
@@ -35,7 +48,8 @@ public abstract class AbstractInstrumentedFilter implements Filter {
     private Meter errorsMeter;
     private Counter activeRequests;
     private Timer requestTimer;
-
+    // only initialized if tagged metrics are enabled
+    private MetricFamily<Timer> taggedRequestTimers;
 
     /**
      * Creates a new instance of the filter.
@@ -79,6 +93,10 @@ public abstract class AbstractInstrumentedFilter implements Filter {
                                                            "activeRequests"));
         this.requestTimer = metricsRegistry.timer(name(metricName,
                                                        "requests"));
+        if (Boolean.parseBoolean(filterConfig.getInitParameter(TAGGED_METRICS))) {
+            this.taggedRequestTimers = metricsRegistry.timerFamily(name(metricName, "requests"),
+                                                                   "method", "status");
+        }
 
     }
 
@@ -106,7 +124,7 @@ public abstract class AbstractInstrumentedFilter implements Filter {
         final StatusExposingServletResponse wrappedResponse =
                 new StatusExposingServletResponse((HttpServletResponse) response);
         activeRequests.inc();
-        final Timer.Context context = requestTimer.time();
+        final long start = requestTimer.start();
         boolean error = false;
         try {
             chain.doFilter(request, wrappedResponse);
@@ -121,14 +139,15 @@ public abstract class AbstractInstrumentedFilter implements Filter {
             throw e;
         } finally {
             if (!error && request.isAsyncStarted()) {
-                request.getAsyncContext().addListener(new AsyncResultListener(context));
+                request.getAsyncContext().addListener(new AsyncResultListener(start, methodOf(request)));
             } else {
-                context.stop();
+                final long elapsed = requestTimer.stop(start);
                 activeRequests.dec();
                 if (error) {
                     errorsMeter.mark();
                 } else {
                     markMeterForStatusCode(wrappedResponse.getStatus());
+                    updateTaggedTimer(methodOf(request), wrappedResponse.getStatus(), elapsed);
                 }
             }
         }
@@ -143,6 +162,25 @@ public abstract class AbstractInstrumentedFilter implements Filter {
         }
     }
 
+    private void updateTaggedTimer(String method, int status, long elapsed) {
+        if (taggedRequestTimers != null) {
+            final int statusClass = status / 100;
+            final String tag = statusClass >= 1 && statusClass <= 5 ? STATUS_CLASSES[statusClass - 1] : OTHER;
+            taggedRequestTimers.get(method, tag).update(elapsed, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // only methods defined by HTTP are tagged as such, to keep the number of timers bounded
+    private static String methodOf(ServletRequest request) {
+        if (request instanceof HttpServletRequest) {
+            final String method = ((HttpServletRequest) request).getMethod();
+            if (METHODS.contains(method)) {
+                return method;
+            }
+        }
+        return OTHER_METHOD;
+    }
+
     private static class StatusExposingServletResponse extends HttpServletResponseWrapper {
         // The Servlet spec says: calling setStatus is optional, if no status is set, the default is 200.
         private int httpStatus = 200;
@@ -181,26 +219,29 @@ public abstract class AbstractInstrumentedFilter implements Filter {
     }
 
     private class AsyncResultListener implements AsyncListener {
-        private Timer.Context context;
+        private final long start;
+        private final String method;
         private boolean done = false;
 
-        public AsyncResultListener(Timer.Context context) {
-            this.context = context;
+        public AsyncResultListener(long start, String method) {
+            this.start = start;
+            this.method = method;
         }
 
         @Override
         public void onComplete(AsyncEvent event) throws IOException {
             if (!done) {
                 HttpServletResponse suppliedResponse = (HttpServletResponse) event.getSuppliedResponse();
-                context.stop();
+                final long elapsed = requestTimer.stop(start);
                 activeRequests.dec();
                 markMeterForStatusCode(suppliedResponse.getStatus());
+                updateTaggedTimer(method, suppliedResponse.getStatus(), elapsed);
             }
         }
 
         @Override
         public void onTimeout(AsyncEvent event) throws IOException {
-            context.stop();
+            requestTimer.stop(start);
             activeRequests.dec();
             timeoutsMeter.mark();
             done = true;
@@ -208,7 +249,7 @@ public abstract class AbstractInstrumentedFilter implements Filter {
 
         @Override
         public void onError(AsyncEvent event) throws IOException {
-            context.stop();
+            requestTimer.stop(start);
             activeRequests.dec();
             errorsMeter.mark();
             done = true;
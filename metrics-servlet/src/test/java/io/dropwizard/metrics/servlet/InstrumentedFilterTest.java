@@ -0,0 +1,67 @@
+package io.dropwizard.metrics.servlet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.dropwizard.metrics.MetricName;
+import io.dropwizard.metrics.MetricRegistry;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class InstrumentedFilterTest {
+    private final MetricRegistry registry = new MetricRegistry();
+    private final ServletContext context = mock(ServletContext.class);
+    private final FilterConfig config = mock(FilterConfig.class);
+    private final FilterChain chain = mock(FilterChain.class);
+    private final HttpServletResponse response = mock(HttpServletResponse.class);
+    private final InstrumentedFilter filter = new InstrumentedFilter();
+
+    @Before
+    public void setUp() throws Exception {
+        when(config.getServletContext()).thenReturn(context);
+        when(context.getAttribute(InstrumentedFilter.REGISTRY_ATTRIBUTE)).thenReturn(registry);
+        when(config.getInitParameter(AbstractInstrumentedFilter.METRIC_PREFIX)).thenReturn("filter");
+    }
+
+    @Test
+    public void doesNotTagRequestsByDefault() throws Exception {
+        filter.init(config);
+
+        filter.doFilter(request("GET"), response, chain);
+
+        assertThat(registry.getTimers().keySet())
+                .containsOnly(MetricName.build("filter.requests"));
+    }
+
+    @Test
+    public void tagsRequestsByMethodAndStatus() throws Exception {
+        when(config.getInitParameter(AbstractInstrumentedFilter.TAGGED_METRICS)).thenReturn("true");
+        filter.init(config);
+
+        filter.doFilter(request("GET"), response, chain);
+        filter.doFilter(request("GET"), response, chain);
+        filter.doFilter(request("BREW"), response, chain);
+
+        final MetricName requests = MetricName.build("filter.requests");
+        assertThat(registry.getTimers().get(requests).getCount())
+                .isEqualTo(3);
+        assertThat(registry.getTimers().get(requests.tagged("method", "GET", "status", "2xx")).getCount())
+                .isEqualTo(2);
+        assertThat(registry.getTimers().get(requests.tagged("method", "OTHER", "status", "2xx")).getCount())
+                .isEqualTo(1);
+    }
+
+    private static HttpServletRequest request(String method) {
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn(method);
+        return request;
+    }
+}
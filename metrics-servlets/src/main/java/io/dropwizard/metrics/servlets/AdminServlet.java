@@ -14,11 +14,13 @@ public class AdminServlet extends HttpServlet {
     public static final String DEFAULT_METRICS_URI = "/metrics";
     public static final String DEFAULT_PING_URI = "/ping";
     public static final String DEFAULT_THREADS_URI = "/threads";
+    public static final String DEFAULT_SWITCHES_URI = "/switches";
 
     public static final String METRICS_URI_PARAM_KEY = "metrics-uri";
     public static final String PING_URI_PARAM_KEY = "ping-uri";
     public static final String THREADS_URI_PARAM_KEY = "threads-uri";
     public static final String HEALTHCHECK_URI_PARAM_KEY = "healthcheck-uri";
+    public static final String SWITCHES_URI_PARAM_KEY = "switches-uri";
     public static final String SERVICE_NAME_PARAM_KEY= "service-name";
 
     private static final String TEMPLATE = String.format(
@@ -35,10 +37,13 @@ public class AdminServlet extends HttpServlet {
                     "    <li><a href=\"{2}{3}\">Ping</a></li>%n" +
                     "    <li><a href=\"{4}{5}\">Threads</a></li>%n" +
                     "    <li><a href=\"{6}{7}?pretty=true\">Healthcheck</a></li>%n" +
+                    "{9}" +
                     "  </ul>%n" +
                     "</body>%n" +
                     "</html>"
     );
+    private static final String SWITCHES_ITEM = String.format(
+            "    <li><a href=\"{0}{1}\">Disabled metrics</a></li>%n");
     private static final String CONTENT_TYPE = "text/html";
     private static final long serialVersionUID = -2850794040708785318L;
 
@@ -46,10 +51,12 @@ public class AdminServlet extends HttpServlet {
     private transient MetricsServlet metricsServlet;
     private transient PingServlet pingServlet;
     private transient ThreadDumpServlet threadDumpServlet;
+    private transient MetricSwitchboardServlet switchboardServlet;
     private transient String metricsUri;
     private transient String pingUri;
     private transient String threadsUri;
     private transient String healthcheckUri;
+    private transient String switchesUri;
     private transient String serviceName;
 
     @Override
@@ -68,10 +75,17 @@ public class AdminServlet extends HttpServlet {
         this.threadDumpServlet = new ThreadDumpServlet();
         threadDumpServlet.init(config);
 
+        // turning metrics off is only exposed when asked for
+        if (MetricSwitchboardServlet.isEnabled(config)) {
+            this.switchboardServlet = new MetricSwitchboardServlet();
+            switchboardServlet.init(config);
+        }
+
         this.metricsUri = getParam(config.getInitParameter(METRICS_URI_PARAM_KEY), DEFAULT_METRICS_URI);
         this.pingUri = getParam(config.getInitParameter(PING_URI_PARAM_KEY), DEFAULT_PING_URI);
         this.threadsUri = getParam(config.getInitParameter(THREADS_URI_PARAM_KEY), DEFAULT_THREADS_URI);
         this.healthcheckUri = getParam(config.getInitParameter(HEALTHCHECK_URI_PARAM_KEY), DEFAULT_HEALTHCHECK_URI);
+        this.switchesUri = getParam(config.getInitParameter(SWITCHES_URI_PARAM_KEY), DEFAULT_SWITCHES_URI);
         this.serviceName = getParam(config.getInitParameter(SERVICE_NAME_PARAM_KEY), null);
     }
 
@@ -86,7 +100,9 @@ public class AdminServlet extends HttpServlet {
         try {
             writer.println(MessageFormat.format(TEMPLATE, path, metricsUri, path, pingUri, path,
                                                 threadsUri, path, healthcheckUri,
-                                                serviceName == null ? "" : " (" + serviceName + ")"));
+                                                serviceName == null ? "" : " (" + serviceName + ")",
+                                                switchboardServlet == null ? ""
+                                                        : MessageFormat.format(SWITCHES_ITEM, path, switchesUri)));
         } finally {
             writer.close();
         }
@@ -105,6 +121,8 @@ public class AdminServlet extends HttpServlet {
             pingServlet.service(req, resp);
         } else if (uri.equals(threadsUri)) {
             threadDumpServlet.service(req, resp);
+        } else if (switchboardServlet != null && uri.equals(switchesUri)) {
+            switchboardServlet.service(req, resp);
         } else {
             resp.sendError(HttpServletResponse.SC_NOT_FOUND);
         }
@@ -0,0 +1,117 @@
+package io.dropwizard.metrics.servlets;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import io.dropwizard.metrics.MetricRegistry;
+import io.dropwizard.metrics.MetricSwitchboard;
+
+/**
+ * A servlet which turns the metrics of the registry shared with {@link MetricsServlet} on and off.
+ * A {@code POST} turns off the metrics matching each {@code disable} parameter, turns those
+ * matching each {@code enable} parameter back on, and turns every metric back on if there is an
+ * {@code enable-all} parameter. Both {@code GET} and {@code POST} respond with the names of the
+ * disabled metrics as {@code text/plain}, one per line.
+ * <p/>
+ * Since anyone who can reach the servlet can turn metrics off, it responds with {@code 404 Not Found}
+ * unless its {@code switchboard-enabled} init-param is {@code true}.
+ *
+ * @see MetricSwitchboard
+ */
+public class MetricSwitchboardServlet extends HttpServlet {
+    public static final String ENABLE_PARAM = "enable";
+    public static final String DISABLE_PARAM = "disable";
+    public static final String ENABLE_ALL_PARAM = "enable-all";
+    public static final String ENABLED_PARAM_KEY = "switchboard-enabled";
+
+    private static final long serialVersionUID = -6437219373408211254L;
+    private static final String CONTENT_TYPE = "text/plain";
+    private static final String CACHE_CONTROL = "Cache-Control";
+    private static final String NO_CACHE = "must-revalidate,no-cache,no-store";
+
+    private transient MetricRegistry registry;
+    private transient MetricSwitchboard switchboard;
+    private transient boolean enabled;
+
+    public MetricSwitchboardServlet() {
+    }
+
+    public MetricSwitchboardServlet(MetricRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void init(ServletConfig config) throws ServletException {
+        super.init(config);
+
+        if (null == registry) {
+            final Object registryAttr = config.getServletContext().getAttribute(MetricsServlet.METRICS_REGISTRY);
+            if (registryAttr instanceof MetricRegistry) {
+                this.registry = (MetricRegistry) registryAttr;
+            } else {
+                throw new ServletException("Couldn't find a MetricRegistry instance.");
+            }
+        }
+        this.switchboard = new MetricSwitchboard(registry);
+        this.enabled = isEnabled(config);
+    }
+
+    static boolean isEnabled(ServletConfig config) {
+        return Boolean.parseBoolean(config.getInitParameter(ENABLED_PARAM_KEY));
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req,
+                         HttpServletResponse resp) throws ServletException, IOException {
+        if (!enabled) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        writeDisabledMetrics(resp);
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req,
+                          HttpServletResponse resp) throws ServletException, IOException {
+        if (!enabled) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (req.getParameter(ENABLE_ALL_PARAM) != null) {
+            switchboard.enableAll();
+        }
+        final String[] disabled = req.getParameterValues(DISABLE_PARAM);
+        if (disabled != null) {
+            for (String pattern : disabled) {
+                switchboard.disable(pattern);
+            }
+        }
+        final String[] enabled = req.getParameterValues(ENABLE_PARAM);
+        if (enabled != null) {
+            for (String pattern : enabled) {
+                switchboard.enable(pattern);
+            }
+        }
+        writeDisabledMetrics(resp);
+    }
+
+    private void writeDisabledMetrics(HttpServletResponse resp) throws IOException {
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setHeader(CACHE_CONTROL, NO_CACHE);
+        resp.setContentType(CONTENT_TYPE);
+        final PrintWriter writer = resp.getWriter();
+        try {
+            for (String name : switchboard.getDisabledMetrics()) {
+                writer.println(name);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
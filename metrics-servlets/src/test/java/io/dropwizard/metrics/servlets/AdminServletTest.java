@@ -7,6 +7,7 @@ import org.eclipse.jetty.servlet.ServletTester;
 import org.junit.Before;
 import org.junit.Test;
 
+import io.dropwizard.metrics.Counter;
 import io.dropwizard.metrics.MetricRegistry;
 import io.dropwizard.metrics.health.HealthCheckRegistry;
 
@@ -20,7 +21,9 @@ public class AdminServletTest extends AbstractServletTest {
 
         tester.setAttribute("io.dropwizard.metrics.servlets.MetricsServlet.registry", registry);
         tester.setAttribute("io.dropwizard.metrics.servlets.HealthCheckServlet.registry", healthCheckRegistry);
-        tester.addServlet(AdminServlet.class, "/admin");
+        tester.addServlet(AdminServlet.class, "/admin/*");
+        tester.addServlet(AdminServlet.class, "/switchable/*")
+              .setInitParameter(MetricSwitchboardServlet.ENABLED_PARAM_KEY, "true");
     }
 
     @Before
@@ -58,4 +61,40 @@ public class AdminServletTest extends AbstractServletTest {
         assertThat(response.get(HttpHeader.CONTENT_TYPE))
                 .isEqualTo("text/html; charset=ISO-8859-1");
     }
+
+    @Test
+    public void doesNotExposeTheSwitchboardByDefault() throws Exception {
+        final Counter counter = registry.counter("counter");
+        disable("/context/admin/switches");
+
+        assertThat(response.getStatus())
+                .isEqualTo(404);
+        assertThat(counter.isEnabled())
+                .isTrue();
+    }
+
+    @Test
+    public void exposesTheSwitchboardWhenEnabled() throws Exception {
+        request.setURI("/context/switchable");
+        processRequest();
+
+        assertThat(response.getContent())
+                .contains("<li><a href=\"/context/switchable/switches\">Disabled metrics</a></li>");
+
+        final Counter counter = registry.counter("counter");
+        disable("/context/switchable/switches");
+
+        assertThat(response.getStatus())
+                .isEqualTo(200);
+        assertThat(counter.isEnabled())
+                .isFalse();
+    }
+
+    private void disable(String uri) throws Exception {
+        request.setURI(uri);
+        request.setMethod("POST");
+        request.setHeader("Content-Type", "application/x-www-form-urlencoded");
+        request.setContent("disable=counter");
+        processRequest();
+    }
 }
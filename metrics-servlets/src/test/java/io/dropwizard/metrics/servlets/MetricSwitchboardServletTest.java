@@ -0,0 +1,85 @@
+package io.dropwizard.metrics.servlets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.servlet.ServletTester;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.dropwizard.metrics.Counter;
+import io.dropwizard.metrics.MetricFilter;
+import io.dropwizard.metrics.MetricRegistry;
+
+public class MetricSwitchboardServletTest extends AbstractServletTest {
+    private final MetricRegistry registry = new MetricRegistry();
+    private final Counter queries = registry.counter("db.queries");
+    private final Counter requests = registry.counter("http.requests");
+
+    @Override
+    protected void setUp(ServletTester tester) {
+        tester.setAttribute("io.dropwizard.metrics.servlets.MetricsServlet.registry", registry);
+        tester.addServlet(MetricSwitchboardServlet.class, "/switches")
+              .setInitParameter(MetricSwitchboardServlet.ENABLED_PARAM_KEY, "true");
+        tester.addServlet(MetricSwitchboardServlet.class, "/disabled");
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        request.setURI("/switches");
+        request.setVersion("HTTP/1.0");
+    }
+
+    @Test
+    public void disablesAndEnablesMetrics() throws Exception {
+        request.setMethod("POST");
+        request.setHeader("Content-Type", "application/x-www-form-urlencoded");
+        request.setContent("disable=db&disable=http.*");
+        processRequest();
+
+        assertThat(response.getStatus())
+                .isEqualTo(200);
+        assertThat(response.getContent())
+                .isEqualTo(String.format("db.queries%nhttp.requests%n"));
+        assertThat(queries.isEnabled())
+                .isFalse();
+
+        request.setContent("enable=db.queries");
+        processRequest();
+
+        assertThat(response.getContent())
+                .isEqualTo(String.format("http.requests%n"));
+        assertThat(queries.isEnabled())
+                .isTrue();
+        assertThat(requests.isEnabled())
+                .isFalse();
+    }
+
+    @Test
+    public void listsDisabledMetrics() throws Exception {
+        registry.disable(MetricFilter.ALL);
+        request.setMethod("GET");
+        processRequest();
+
+        assertThat(response.getContent())
+                .isEqualTo(String.format("db.queries%nhttp.requests%n"));
+        assertThat(response.get(HttpHeader.CONTENT_TYPE))
+                .isEqualTo("text/plain; charset=ISO-8859-1");
+        assertThat(response.get(HttpHeader.CACHE_CONTROL))
+                .isEqualTo("must-revalidate,no-cache,no-store");
+    }
+
+    @Test
+    public void isNotFoundUnlessEnabled() throws Exception {
+        request.setURI("/disabled");
+        request.setMethod("POST");
+        request.setHeader("Content-Type", "application/x-www-form-urlencoded");
+        request.setContent("disable=db");
+        processRequest();
+
+        assertThat(response.getStatus())
+                .isEqualTo(404);
+        assertThat(queries.isEnabled())
+                .isTrue();
+    }
+}